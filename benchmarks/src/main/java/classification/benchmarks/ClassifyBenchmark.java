@@ -0,0 +1,112 @@
+/**
+ * 
+ */
+package main.java.classification.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.java.classification.ClassifierData;
+import main.java.classification.DecisionTree;
+import main.java.classification.DecisionTreeBuilder;
+import main.java.classification.SplitMode;
+
+/**
+ * Measures the latency of classifying a single sample with DecisionTree.classify(double[]),
+ * with the compiled tree arrays and with the tree compiled into bytecode,
+ * and the throughput of classifying a batch of samples with DecisionTree.classifyAll
+ * 
+ * @author Marc Wrigley
+ *
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClassifyBenchmark {
+
+	// number of samples the tree is built from, and classified in a batch
+	static final int NUM_SAMPLES = 100000;
+
+	// number of features of each sample
+	static final int NUM_FEATURES = 16;
+
+	// number of samples classified one at a time, a power of 2 so the next sample is found with a mask
+	static final int NUM_ROWS = 1 << 14;
+
+	// maximum number of leaves of the tree, small enough for the tree to be compiled into bytecode
+	static final int MAX_LEAF_NODES = 512;
+
+	// tree classifying with its compiled tree arrays
+	private DecisionTree<Double> tree;
+
+	// the same tree as tree, classifying with a generated class
+	private DecisionTree<Double> bytecodeTree;
+
+	// data classified in a batch
+	private ClassifierData<Double> batchData;
+
+	// samples classified one at a time, taken from a different seed to the training data
+	private double[][] rows;
+
+	// index of the next sample classified one at a time
+	private int nextRow;
+
+	@Setup(Level.Trial)
+	public void buildTree() {
+
+		SyntheticData trainingData = new SyntheticData(NUM_SAMPLES, NUM_FEATURES, SyntheticData.SEED);
+
+		DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+		treeBuilder.setSplitMode(SplitMode.HISTOGRAM);
+		treeBuilder.setMaxLeafNodes(MAX_LEAF_NODES);
+
+		treeBuilder.build(trainingData.data());
+		tree = treeBuilder.classifier();
+
+		treeBuilder.build(trainingData.data());
+		bytecodeTree = treeBuilder.classifier();
+
+		// otherwise classifyBytecode would measure the compiled tree arrays
+		if (!bytecodeTree.compileBytecode()) {
+			throw new IllegalStateException("tree of " + bytecodeTree.numNodes() + " nodes is too large to compile into bytecode");
+		}
+
+		batchData = trainingData.data();
+		rows = new SyntheticData(NUM_ROWS, NUM_FEATURES, SyntheticData.SEED + 1).rows();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public int classify() {
+		return tree.classify(rows[nextRow++ & (NUM_ROWS - 1)]);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public int classifyBytecode() {
+		return bytecodeTree.classify(rows[nextRow++ & (NUM_ROWS - 1)]);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(NUM_SAMPLES)
+	public int[] classifyAll() {
+		return tree.classifyAll(batchData);
+	}
+}
@@ -0,0 +1,74 @@
+/**
+ * 
+ */
+package main.java.classification.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.java.classification.ClassifierData;
+
+/**
+ * Measures reading a .csv file into a ClassifierData, on the calling thread and in parallel chunks
+ * 
+ * @author Marc Wrigley
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CsvLoadBenchmark {
+
+	// number of samples in the file
+	@Param({"100000", "1000000"})
+	public int numSamples;
+
+	// number of features of each sample
+	@Param({"8", "32"})
+	public int numFeatures;
+
+	// file written before the benchmark
+	private Path csvFile;
+
+	@Setup(Level.Trial)
+	public void writeFile() throws IOException {
+
+		csvFile = Files.createTempFile("classification-benchmark", ".csv");
+		new SyntheticData(numSamples, numFeatures, SyntheticData.SEED).writeCsv(csvFile);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFile() throws IOException {
+		Files.deleteIfExists(csvFile);
+	}
+
+	@Benchmark
+	public ClassifierData<Double> load() {
+		return new ClassifierData<Double>(csvFile.toString(), Double.class);
+	}
+
+	@Benchmark
+	public ClassifierData<Double> loadParallel() {
+		return new ClassifierData<Double>(csvFile.toString(), Double.class, ForkJoinPool.commonPool());
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * 
+ */
+package main.java.classification.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import main.java.classification.ClassifierData;
+
+/**
+ * Deterministic synthetic datasets used by the benchmarks, generated in process from a seed
+ * 
+ * Feature values are uniform in [0, 1). The class of each sample is 1 if the sum of its first
+ * few features is above their mean, with a fraction of labels flipped at random, so trees have
+ * real structure to find and don't separate the classes perfectly.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+final class SyntheticData {
+
+	// Seed used by every benchmark, so results are comparable across runs
+	static final long SEED = 42;
+
+	// Number of features the class depends on
+	private static final int INFORMATIVE_FEATURES = 4;
+
+	// Fraction of class labels flipped at random
+	private static final double LABEL_NOISE = 0.1;
+
+	// feature columns, where columns[j][i] is feature j of sample i
+	final double[][] columns;
+
+	// class label of each sample
+	final int[] labels;
+
+	/**
+	 * Returns a new ClassifierData holding a copy of the generated columns, so data
+	 * calculated once per dataset (such as presorted values) is calculated again for each new ClassifierData.
+	 */
+	ClassifierData<Double> data() {
+		return new ClassifierData<Double>(columns, labels);
+	}
+
+	/**
+	 * Returns the samples in row-major order, for classifying one sample at a time
+	 */
+	double[][] rows() {
+
+		double[][] rows = new double[labels.length][columns.length];
+
+		for (int i=0; i<labels.length; i++) {
+			for (int j=0; j<columns.length; j++) {
+				rows[i][j] = columns[j][i];
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Writes the samples to a .csv file in the format read by ClassifierData, see README
+	 * 
+	 * @param path
+	 * @throws IOException
+	 */
+	void writeCsv(Path path) throws IOException {
+
+		try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+
+			for (int j=0; j<columns.length; j++) {
+				writer.write("feature" + j + ",");
+			}
+			writer.write("classLabel\n");
+
+			StringBuilder line = new StringBuilder();
+
+			for (int i=0; i<labels.length; i++) {
+				line.setLength(0);
+
+				for (int j=0; j<columns.length; j++) {
+					line.append(columns[j][i]).append(',');
+				}
+				line.append(labels[i]).append('\n');
+
+				writer.append(line);
+			}
+		}
+	}
+
+	/**
+	 * Constructor - generates numSamples samples of numFeatures features from the given seed
+	 * 
+	 * @param numSamples
+	 * @param numFeatures
+	 * @param seed
+	 */
+	SyntheticData(int numSamples, int numFeatures, long seed) {
+
+		SplittableRandom random = new SplittableRandom(seed);
+
+		columns = new double[numFeatures][numSamples];
+		labels = new int[numSamples];
+
+		int informative = Math.min(INFORMATIVE_FEATURES, numFeatures);
+
+		for (int i=0; i<numSamples; i++) {
+
+			double sum = 0.0;
+
+			for (int j=0; j<numFeatures; j++) {
+				columns[j][i] = random.nextDouble();
+
+				if (j < informative) {
+					sum += columns[j][i];
+				}
+			}
+
+			int label = sum > informative / 2.0 ? 1 : 0;
+			labels[i] = random.nextDouble() < LABEL_NOISE ? 1 - label : label;
+		}
+	}
+}
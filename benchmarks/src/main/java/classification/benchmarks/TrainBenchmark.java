@@ -0,0 +1,70 @@
+/**
+ * 
+ */
+package main.java.classification.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.java.classification.DecisionTreeBuilder;
+import main.java.classification.SplitMode;
+
+/**
+ * Measures DecisionTreeBuilder.build at several numbers of samples and features, in each split mode
+ * 
+ * Each build is given a new ClassifierData over the same columns, so the presorted values and bins
+ * of the EXACT and HISTOGRAM split modes are included in every build.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrainBenchmark {
+
+	// number of training samples
+	@Param({"10000", "100000", "1000000"})
+	public int numSamples;
+
+	// number of features of each sample
+	@Param({"8", "32"})
+	public int numFeatures;
+
+	// method used to choose the value to split each feature on
+	@Param({"MEAN", "EXACT", "HISTOGRAM"})
+	public SplitMode splitMode;
+
+	// training data, generated before the benchmark
+	private SyntheticData data;
+
+	@Setup(Level.Trial)
+	public void generateData() {
+		data = new SyntheticData(numSamples, numFeatures, SyntheticData.SEED);
+	}
+
+	@Benchmark
+	public DecisionTreeBuilder<Double> build() {
+
+		DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+		treeBuilder.setSplitMode(splitMode);
+		treeBuilder.build(data.data());
+
+		return treeBuilder;
+	}
+}
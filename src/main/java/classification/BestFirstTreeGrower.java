@@ -0,0 +1,131 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.PriorityQueue;
+
+/**
+ * Grows the nodes of a DecisionTree best first, used when the number of leaves is limited by maxLeafNodes
+ * 
+ * Every leaf that can be split waits in a queue ordered by the decrease in impurity of its best split,
+ * its information gain times its number of samples. The leaf at the head of the queue is split, and its children
+ * added to the queue, until the tree has maxLeafNodes leaves or no leaf can be split. The splits kept are then those
+ * that most reduce impurity, wherever they are in the tree, rather than those nearest the root.
+ * 
+ * Nodes are split one at a time on the calling thread, the features of large nodes are still evaluated in parallel
+ * if the tree is grown in a fork-join pool.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class BestFirstTreeGrower<T extends Comparable<T>> {
+
+	/**
+	 * A node whose best split has been found, waiting to be split
+	 */
+	private static class Candidate<T extends Comparable<T>> {
+
+		final TreeNode<T> node;
+		final ClassifierData<T> nodeData;
+		final NodeMetrics nodeMetrics;
+
+		// decrease in impurity of the node's best split, higher priority candidates are split first
+		final double priority;
+
+		// order the candidate was added in, ties of priority go to the candidate added first
+		final long order;
+
+		Candidate(TreeNode<T> node, ClassifierData<T> nodeData, NodeMetrics nodeMetrics, double priority, long order) {
+			this.node = node;
+			this.nodeData = nodeData;
+			this.nodeMetrics = nodeMetrics;
+			this.priority = priority;
+			this.order = order;
+		}
+	}
+
+	// settings and shared state of the tree being grown
+	private final TreeBuildContext<T> context;
+
+	// nodes waiting to be split, highest priority first
+	private final PriorityQueue<Candidate<T>> queue = new PriorityQueue<Candidate<T>>((a, b) -> a.priority != b.priority
+			? Double.compare(b.priority, a.priority) : Long.compare(a.order, b.order));
+
+	// number of candidates added to the queue so far
+	private long numCandidates = 0;
+
+	/**
+	 * Grows a tree from rootData, a view with its own sample index such as one created by ClassifierData.indexView,
+	 * returns the root node
+	 * 
+	 * @param rootData
+	 */
+	TreeNode<T> grow(ClassifierData<T> rootData) {
+
+		TreeNode<T> rootNode = new TreeNode<T>(context, 1, "0", null);
+		evaluate(rootNode, rootData);
+
+		int numLeaves = 1;
+
+		// each split turns one leaf into two
+		while (numLeaves < context.maxLeafNodes && !queue.isEmpty()) {
+
+			Candidate<T> candidate = queue.poll();
+			TreeNode<T> node = candidate.node;
+
+			TreeNode.NodeChildren<T> children = node.partition(candidate.nodeData, candidate.nodeMetrics);
+			node.nodeBuilt(candidate.nodeMetrics);
+
+			node.leftNode = new TreeNode<T>(context, node.nodeDepth+1, node.nodeID+"0", children.leftHistogram);
+			node.rightNode = new TreeNode<T>(context, node.nodeDepth+1, node.nodeID+"1", children.rightHistogram);
+			node.releaseBuildState();
+
+			evaluate(node.leftNode, children.leftData);
+			evaluate(node.rightNode, children.rightData);
+
+			numLeaves++;
+		}
+
+		// nodes left in the queue are not split
+		for (Candidate<T> candidate : queue) {
+			candidate.node.makeLeaf();
+			candidate.node.nodeBuilt(candidate.nodeMetrics);
+			candidate.node.releaseBuildState();
+		}
+		queue.clear();
+
+		return rootNode;
+	}
+
+	/**
+	 * Finds the best split of node, adds the node to the queue if it can be split
+	 * 
+	 * @param node
+	 * @param nodeData
+	 */
+	private void evaluate(TreeNode<T> node, ClassifierData<T> nodeData) {
+
+		NodeMetrics nodeMetrics = node.nodeStarted(nodeData);
+
+		double infoGain = node.chooseSplit(nodeData, nodeMetrics);
+
+		if (node.isLeaf()) {
+			node.nodeBuilt(nodeMetrics);
+			node.releaseBuildState();
+		}
+		else {
+			queue.add(new Candidate<T>(node, nodeData, nodeMetrics, infoGain * nodeData.numSamples(), numCandidates++));
+		}
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param context
+	 */
+	BestFirstTreeGrower(TreeBuildContext<T> context) {
+
+		this.context = context;
+	}
+}
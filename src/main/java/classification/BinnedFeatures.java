@@ -0,0 +1,249 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.Arrays;
+
+/**
+ * Feature values of a ClassifierData quantized into at most MAX_BINS bins per feature.
+ * 
+ * Bin numbers are stored as one byte per sample in a column for each feature, indexed by storage row.
+ * Bins hold ranges of sorted feature values, where bin b holds all values <= threshold(column, b)
+ * and > threshold(column, b-1), so splitting a feature after bin b splits the data on threshold(column, b).
+ * If a feature has at most MAX_BINS distinct values each value has its own bin,
+ * otherwise bins hold roughly equal numbers of samples.
+ * 
+ * Histograms count the samples of each class in each bin, histogram[c][b * numClasses + label]
+ * holds the number of samples of class label in bin b of storage column c.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class BinnedFeatures<T extends Comparable<T>> {
+
+	// Maximum number of bins per feature, so that bin numbers fit in a byte
+	static final int MAX_BINS = 255;
+
+	// binColumns[c][row] stores the bin of the value at the given storage row and column
+	private final byte[][] binColumns;
+
+	// binThresholds[c][b] stores the largest value in bin b of storage column c
+	private final double[][] binThresholds;
+
+	/**
+	 * Returns the number of bins of the given storage column
+	 * 
+	 * @param column
+	 */
+	int numBins(int column) {
+		return binThresholds[column].length;
+	}
+
+	/**
+	 * Returns the value to split the given storage column on, so that bins <= bin go left
+	 * 
+	 * @param column
+	 * @param bin
+	 */
+	double threshold(int column, int bin) {
+		return binThresholds[column][bin];
+	}
+
+	/**
+	 * Partitions the sample index of nodeData in place so that samples in bins <= the bin of splittingValue come first,
+	 * returns the number of those samples. splittingValue must be a threshold of the feature, see threshold.
+	 * Gives the same partition as ClassifierData.partition on splittingValue, reading a byte per sample
+	 * rather than the feature value.
+	 * 
+	 * @param nodeData
+	 * @param featureNum
+	 * @param splittingValue
+	 */
+	int partition(ClassifierData<T> nodeData, int featureNum, double splittingValue) {
+
+		int column = nodeData.column(featureNum);
+
+		// thresholds are sorted, as bin b holds values above the threshold of bin b-1
+		int bin = Arrays.binarySearch(binThresholds[column], splittingValue);
+
+		if (bin < 0) {
+			throw new IllegalArgumentException("splittingValue " + splittingValue + " is not a bin threshold of feature " + featureNum);
+		}
+		return nodeData.partitionBins(binColumns[column], bin);
+	}
+
+	/**
+	 * Counts the samples of each class in each bin of every feature of nodeData
+	 * 
+	 * @param nodeData
+	 * @param numClasses
+	 */
+	int[][] histogram(ClassifierData<T> nodeData, int numClasses) {
+
+		int[][] histogram = new int[binColumns.length][];
+
+		for (int j=0; j<nodeData.numFeatures(); j++) {
+
+			int column = nodeData.column(j);
+			byte[] bins = binColumns[column];
+			int[] featureHistogram = new int[numBins(column) * numClasses];
+
+			for (int i=0; i<nodeData.numSamples(); i++) {
+				int row = nodeData.row(i);
+				int label = nodeData.storageLabel(row);
+
+				if (label >= 0 && label < numClasses) {
+					featureHistogram[(bins[row] & 0xFF) * numClasses + label]++;
+				}
+			}
+			histogram[column] = featureHistogram;
+		}
+		return histogram;
+	}
+
+	/**
+	 * Sums the gradients and hessians of the samples of nodeData in each bin of the given storage column,
+	 * where gradients and hessians are indexed by storage row. Returns the sums interleaved,
+	 * so that histogram[2*b] holds the sum of gradients and histogram[2*b + 1] the sum of hessians of bin b.
+	 * 
+	 * @param nodeData
+	 * @param column
+	 * @param gradients
+	 * @param hessians
+	 */
+	double[] gradientHistogram(ClassifierData<T> nodeData, int column, double[] gradients, double[] hessians) {
+
+		byte[] bins = binColumns[column];
+		double[] histogram = new double[2 * numBins(column)];
+
+		for (int i=0; i<nodeData.numSamples(); i++) {
+			int row = nodeData.row(i);
+			int bin = 2 * (bins[row] & 0xFF);
+
+			histogram[bin] += gradients[row];
+			histogram[bin + 1] += hessians[row];
+		}
+		return histogram;
+	}
+
+	/**
+	 * Subtracts childHistogram from parentHistogram, for every feature in childHistogram,
+	 * so that parentHistogram becomes the histogram of the child's sibling
+	 * 
+	 * @param parentHistogram
+	 * @param childHistogram
+	 */
+	static void subtract(double[][] parentHistogram, double[][] childHistogram) {
+
+		for (int column=0; column<childHistogram.length; column++) {
+
+			double[] childSums = childHistogram[column];
+			if (childSums == null) {
+				continue;
+			}
+
+			double[] parentSums = parentHistogram[column];
+			for (int k=0; k<childSums.length; k++) {
+				parentSums[k] -= childSums[k];
+			}
+		}
+	}
+
+	/**
+	 * Subtracts childHistogram from parentHistogram, for every feature in childHistogram,
+	 * so that parentHistogram becomes the histogram of the child's sibling
+	 * 
+	 * @param parentHistogram
+	 * @param childHistogram
+	 */
+	static void subtract(int[][] parentHistogram, int[][] childHistogram) {
+
+		for (int column=0; column<childHistogram.length; column++) {
+
+			int[] childCounts = childHistogram[column];
+			if (childCounts == null) {
+				continue;
+			}
+
+			int[] parentCounts = parentHistogram[column];
+			for (int k=0; k<childCounts.length; k++) {
+				parentCounts[k] -= childCounts[k];
+			}
+		}
+	}
+
+	/**
+	 * Constructor - quantizes every feature of the given data,
+	 * using the samples of data sorted by each feature
+	 * 
+	 * @param data
+	 * @param sortedSamples
+	 */
+	BinnedFeatures(ClassifierData<T> data, int[][] sortedSamples) {
+
+		int numSamples = data.numSamples();
+
+		// find the largest storage row and column used by data
+		int maxRow = 0;
+		for (int i=0; i<numSamples; i++) {
+			maxRow = Math.max(maxRow, data.row(i));
+		}
+
+		int maxColumn = 0;
+		for (int j=0; j<data.numFeatures(); j++) {
+			maxColumn = Math.max(maxColumn, data.column(j));
+		}
+
+		binColumns = new byte[maxColumn+1][];
+		binThresholds = new double[maxColumn+1][];
+
+		double[] thresholds = new double[MAX_BINS];
+
+		for (int j=0; j<data.numFeatures(); j++) {
+
+			int[] samples = sortedSamples[j];
+
+			// count the distinct values of the feature
+			int numDistinct = 1;
+			for (int k=1; k<numSamples; k++) {
+				if (Double.compare(data.featureValue(samples[k-1], j), data.featureValue(samples[k], j)) != 0) {
+					numDistinct++;
+				}
+			}
+
+			// minimum number of samples in a bin, every distinct value has its own bin if there are few enough
+			int minBinSamples = numDistinct <= MAX_BINS ? 0 : (numSamples + MAX_BINS - 1) / MAX_BINS;
+
+			byte[] bins = new byte[maxRow+1];
+
+			int bin = 0;
+			int binSamples = 0;
+			double previousValue = 0.0;
+
+			// walk through the sorted values, starting a new bin between distinct values once the current bin is full
+			for (int k=0; k<numSamples; k++) {
+				double value = data.featureValue(samples[k], j);
+
+				if (k > 0 && binSamples >= minBinSamples && bin < MAX_BINS-1 && Double.compare(previousValue, value) != 0) {
+					thresholds[bin] = TreeNode.splitThreshold(previousValue, value);
+					bin++;
+					binSamples = 0;
+				}
+
+				bins[data.row(samples[k])] = (byte) bin;
+				binSamples++;
+				previousValue = value;
+			}
+
+			// the last bin holds every value above the previous threshold
+			thresholds[bin] = Double.POSITIVE_INFINITY;
+
+			int column = data.column(j);
+			binColumns[column] = bins;
+
+			binThresholds[column] = new double[bin+1];
+			System.arraycopy(thresholds, 0, binThresholds[column], 0, bin+1);
+		}
+	}
+}
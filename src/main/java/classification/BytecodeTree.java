@@ -0,0 +1,510 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A trained Decision Tree compiled into a generated class, whose classify method is a nest of
+ * comparisons with the thresholds of the tree as constants. The class is defined as a hidden class,
+ * so it is unloaded with the BytecodeTree once it is no longer used.
+ * 
+ * Each split node compiles to: load the feature value, load the threshold, compare and branch to the right child,
+ * with the left child following directly. Each leaf compiles to returning its class label.
+ * Samples are classified exactly as CompiledTree.classify does.
+ * 
+ * Generated code longer than the JIT compiler will compile would only be interpreted, so large trees
+ * (roughly more than 700 split nodes) are not compiled, compile returns null for them.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public final class BytecodeTree {
+
+	/**
+	 * Implemented by the generated class
+	 */
+	interface SampleFunction {
+		int classify(double[] sample);
+	}
+
+	// largest length of the generated code, the JIT compiler does not compile methods longer than 8000 bytes
+	// and runs them in the interpreter instead, which is slower than walking the compiled tree arrays
+	static final int MAX_CODE_LENGTH = 8000;
+
+	// largest offset of a branch instruction
+	static final int MAX_BRANCH_OFFSET = Short.MAX_VALUE;
+
+	// class file version 49 does not need stack map frames
+	static final int CLASS_VERSION = 49;
+
+	// name of the generated class, hidden classes are given a unique suffix when defined
+	static final String CLASS_NAME = "main/java/classification/GeneratedTree";
+
+	// instance of the generated class
+	private final SampleFunction function;
+
+	// number of features of the data the tree was built from
+	private final int numFeatures;
+
+	/**
+	 * Returns a predicted class label for the given sample,
+	 * the sample must contain a value for every feature of the data the tree was built from
+	 * 
+	 * @param sample
+	 */
+	public int classify(double[] sample) {
+
+		if (sample.length < numFeatures) {
+			throw new IndexOutOfBoundsException("sample has " + sample.length + " features, expected " + numFeatures);
+		}
+
+		return function.classify(sample);
+	}
+
+	/**
+	 * Compiles the given tree into a generated class,
+	 * returns null if the tree is too large for the code of a single method
+	 * 
+	 * @param compiledTree
+	 */
+	public static BytecodeTree compile(CompiledTree compiledTree) {
+
+		byte[] classBytes = new ClassWriter(compiledTree).write();
+
+		if (classBytes == null) {
+			return null;
+		}
+
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classBytes, true);
+			SampleFunction function = (SampleFunction) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+
+			return new BytecodeTree(function, compiledTree.numFeatures);
+		}
+		catch (Throwable e) {
+			throw new IllegalStateException("could not define generated tree class", e);
+		}
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param function
+	 * @param numFeatures
+	 */
+	private BytecodeTree(SampleFunction function, int numFeatures) {
+
+		this.function = function;
+		this.numFeatures = numFeatures;
+	}
+
+	/**
+	 * Writes the class file of the generated class of a tree
+	 */
+	private static final class ClassWriter {
+
+		// constant pool tags
+		static final int CONSTANT_UTF8 = 1;
+		static final int CONSTANT_INTEGER = 3;
+		static final int CONSTANT_DOUBLE = 6;
+		static final int CONSTANT_CLASS = 7;
+		static final int CONSTANT_METHODREF = 10;
+		static final int CONSTANT_NAME_AND_TYPE = 12;
+
+		// opcodes used by the generated code
+		static final int ICONST_0 = 0x03;
+		static final int BIPUSH = 0x10;
+		static final int SIPUSH = 0x11;
+		static final int LDC = 0x12;
+		static final int LDC_W = 0x13;
+		static final int LDC2_W = 0x14;
+		static final int ALOAD_0 = 0x2a;
+		static final int ALOAD_1 = 0x2b;
+		static final int DALOAD = 0x31;
+		static final int DCMPG = 0x98;
+		static final int IFGT = 0x9d;
+		static final int IFLE = 0x9e;
+		static final int IRETURN = 0xac;
+		static final int RETURN = 0xb1;
+		static final int INVOKESPECIAL = 0xb7;
+		static final int INVOKESTATIC = 0xb8;
+
+		// access flags
+		static final int ACC_PUBLIC = 0x0001;
+		static final int ACC_FINAL = 0x0010;
+		static final int ACC_SUPER = 0x0020;
+
+		// tree being compiled
+		final CompiledTree tree;
+
+		// constant pool entries, written after the count of entries
+		final ByteArrayOutputStream constantBytes = new ByteArrayOutputStream();
+		final DataOutputStream constants = new DataOutputStream(constantBytes);
+
+		// index of each constant added to the pool, so each constant is added once
+		final HashMap<Object, Integer> constantIndex = new HashMap<Object, Integer>();
+
+		// number of slots used in the constant pool, entry 0 is unused
+		int numConstants = 1;
+
+		// code of the classify method
+		byte[] code = new byte[1024];
+		int codeLength = 0;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param tree
+		 */
+		ClassWriter(CompiledTree tree) {
+			this.tree = tree;
+		}
+
+		/**
+		 * Returns the bytes of the class file, or null if the tree is too large
+		 */
+		byte[] write() {
+
+			try {
+				if (!writeNode(0) || codeLength > MAX_CODE_LENGTH) {
+					return null;
+				}
+
+				int thisClass = classConstant(CLASS_NAME);
+				int superClass = classConstant("java/lang/Object");
+				int functionClass = classConstant(SampleFunction.class.getName().replace('.', '/'));
+				int objectInit = methodConstant(superClass, "<init>", "()V");
+				int initName = utf8Constant("<init>");
+				int initType = utf8Constant("()V");
+				int classifyName = utf8Constant("classify");
+				int classifyType = utf8Constant("([D)I");
+				int codeName = utf8Constant("Code");
+
+				if (numConstants > 0xffff) {
+					return null;
+				}
+
+				ByteArrayOutputStream classBytes = new ByteArrayOutputStream(codeLength + constantBytes.size() + 256);
+				DataOutputStream out = new DataOutputStream(classBytes);
+
+				out.writeInt(0xCAFEBABE);
+				out.writeShort(0);
+				out.writeShort(CLASS_VERSION);
+
+				out.writeShort(numConstants);
+				constants.flush();
+				constantBytes.writeTo(out);
+
+				out.writeShort(ACC_FINAL | ACC_SUPER);
+				out.writeShort(thisClass);
+				out.writeShort(superClass);
+				out.writeShort(1);
+				out.writeShort(functionClass);
+
+				// no fields
+				out.writeShort(0);
+
+				out.writeShort(2);
+
+				// constructor calling Object()
+				byte[] initCode = {ALOAD_0, (byte) INVOKESPECIAL, (byte) (objectInit >> 8), (byte) objectInit, (byte) RETURN};
+				writeMethod(out, initName, initType, codeName, 1, 1, initCode, initCode.length);
+
+				// classify(double[]), the value and the threshold of a comparison take two slots each
+				writeMethod(out, classifyName, classifyType, codeName, 4, 2, code, codeLength);
+
+				// no class attributes
+				out.writeShort(0);
+
+				out.flush();
+				return classBytes.toByteArray();
+			}
+			catch (IOException e) {
+				// not thrown when writing to a ByteArrayOutputStream
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/**
+		 * Writes a public method with the given code
+		 * 
+		 * @param out
+		 * @param name
+		 * @param type
+		 * @param codeName
+		 * @param maxStack
+		 * @param maxLocals
+		 * @param methodCode
+		 * @param length
+		 * @throws IOException
+		 */
+		void writeMethod(DataOutputStream out, int name, int type, int codeName, int maxStack, int maxLocals, byte[] methodCode, int length) throws IOException {
+
+			out.writeShort(ACC_PUBLIC);
+			out.writeShort(name);
+			out.writeShort(type);
+			out.writeShort(1);
+
+			out.writeShort(codeName);
+			out.writeInt(12 + length);
+			out.writeShort(maxStack);
+			out.writeShort(maxLocals);
+			out.writeInt(length);
+			out.write(methodCode, 0, length);
+
+			// no exception table or attributes
+			out.writeShort(0);
+			out.writeShort(0);
+		}
+
+		/**
+		 * Writes the code of the subtree at node, returns false if the code is too large
+		 * 
+		 * @param node
+		 * @throws IOException
+		 */
+		boolean writeNode(int node) throws IOException {
+
+			if (codeLength > MAX_CODE_LENGTH) {
+				return false;
+			}
+
+			if (tree.feature[node] == CompiledTree.LEAF) {
+				pushInt(tree.classLabel[node]);
+				writeCode(IRETURN);
+				return true;
+			}
+
+			double threshold = tree.threshold[node];
+
+			writeCode(ALOAD_1);
+			pushInt(tree.feature[node]);
+			writeCode(DALOAD);
+			writeConstant(LDC2_W, doubleConstant(threshold));
+
+			// dcmpg orders -0.0 and 0.0 as equal and NaN above every value, Double.compare is called for thresholds where that differs
+			if (Double.isNaN(threshold) || Double.doubleToRawLongBits(threshold) == Double.doubleToRawLongBits(-0.0)) {
+				int compare = methodConstant(classConstant("java/lang/Double"), "compare", "(DD)I");
+				writeConstant(INVOKESTATIC, compare);
+			}
+			else {
+				writeCode(DCMPG);
+			}
+
+			// the child stored directly after the node falls through and the other child is branched to,
+			// so a tree laid out by CompiledTree.relayout keeps its hot path free of taken branches
+			boolean rightFirst = tree.rightNode[node] == node + 1;
+
+			int firstChild = rightFirst ? tree.rightNode[node] : tree.leftNode[node];
+			int secondChild = rightFirst ? tree.leftNode[node] : tree.rightNode[node];
+
+			// branch to the second child, the offset is filled in once the first child is written
+			int branch = codeLength;
+			writeCode(rightFirst ? IFLE : IFGT);
+			writeCode(0);
+			writeCode(0);
+
+			if (!writeNode(firstChild)) {
+				return false;
+			}
+
+			int offset = codeLength - branch;
+			if (offset > MAX_BRANCH_OFFSET) {
+				return false;
+			}
+			code[branch + 1] = (byte) (offset >> 8);
+			code[branch + 2] = (byte) offset;
+
+			return writeNode(secondChild);
+		}
+
+		/**
+		 * Writes code pushing the given int
+		 * 
+		 * @param value
+		 * @throws IOException
+		 */
+		void pushInt(int value) throws IOException {
+
+			if (value >= -1 && value <= 5) {
+				writeCode(ICONST_0 + value);
+			}
+			else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				writeCode(BIPUSH);
+				writeCode(value);
+			}
+			else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				writeCode(SIPUSH);
+				writeCode(value >> 8);
+				writeCode(value);
+			}
+			else {
+				int index = constant(value, CONSTANT_INTEGER);
+				if (index <= 0xff) {
+					writeCode(LDC);
+					writeCode(index);
+				}
+				else {
+					writeConstant(LDC_W, index);
+				}
+			}
+		}
+
+		/**
+		 * Writes an instruction taking a constant pool index
+		 * 
+		 * @param opcode
+		 * @param index
+		 */
+		void writeConstant(int opcode, int index) {
+
+			writeCode(opcode);
+			writeCode(index >> 8);
+			writeCode(index);
+		}
+
+		/**
+		 * Writes one byte of code
+		 * 
+		 * @param value
+		 */
+		void writeCode(int value) {
+
+			if (codeLength == code.length) {
+				code = Arrays.copyOf(code, 2 * code.length);
+			}
+			code[codeLength++] = (byte) value;
+		}
+
+		/**
+		 * Returns the index of the given double constant
+		 * 
+		 * @param value
+		 * @throws IOException
+		 */
+		int doubleConstant(double value) throws IOException {
+			return constant(value, CONSTANT_DOUBLE);
+		}
+
+		/**
+		 * Returns the index of the given Utf8 constant
+		 * 
+		 * @param value
+		 * @throws IOException
+		 */
+		int utf8Constant(String value) throws IOException {
+			return constant(value, CONSTANT_UTF8);
+		}
+
+		/**
+		 * Returns the index of the constant of the class with the given internal name
+		 * 
+		 * @param name
+		 * @throws IOException
+		 */
+		int classConstant(String name) throws IOException {
+
+			String key = "class " + name;
+
+			Integer index = constantIndex.get(key);
+			if (index == null) {
+				int nameIndex = utf8Constant(name);
+				index = addConstant(key, 1);
+				constants.writeByte(CONSTANT_CLASS);
+				constants.writeShort(nameIndex);
+			}
+			return index;
+		}
+
+		/**
+		 * Returns the index of the constant of the given method of the class at classIndex
+		 * 
+		 * @param classIndex
+		 * @param name
+		 * @param type
+		 * @throws IOException
+		 */
+		int methodConstant(int classIndex, String name, String type) throws IOException {
+
+			String key = "method " + classIndex + " " + name + type;
+
+			Integer index = constantIndex.get(key);
+			if (index == null) {
+				int nameIndex = utf8Constant(name);
+				int typeIndex = utf8Constant(type);
+
+				int nameAndType = addConstant("nameAndType " + name + type, 1);
+				constants.writeByte(CONSTANT_NAME_AND_TYPE);
+				constants.writeShort(nameIndex);
+				constants.writeShort(typeIndex);
+
+				index = addConstant(key, 1);
+				constants.writeByte(CONSTANT_METHODREF);
+				constants.writeShort(classIndex);
+				constants.writeShort(nameAndType);
+			}
+			return index;
+		}
+
+		/**
+		 * Returns the index of the given Utf8, int or double constant, adding it to the pool if needed
+		 * 
+		 * @param value
+		 * @param tag
+		 * @throws IOException
+		 */
+		int constant(Object value, int tag) throws IOException {
+
+			// doubles are keyed by their bits, so -0.0 and 0.0 are different constants
+			Object key = tag == CONSTANT_DOUBLE ? (Object) Double.doubleToRawLongBits((Double) value) : value;
+
+			Integer index = constantIndex.get(key);
+			if (index != null) {
+				return index;
+			}
+
+			switch (tag) {
+			case CONSTANT_UTF8:
+				index = addConstant(key, 1);
+				constants.writeByte(CONSTANT_UTF8);
+				constants.writeUTF((String) value);
+				break;
+			case CONSTANT_INTEGER:
+				index = addConstant(key, 1);
+				constants.writeByte(CONSTANT_INTEGER);
+				constants.writeInt((Integer) value);
+				break;
+			default:
+				// doubles take two slots of the pool
+				index = addConstant(key, 2);
+				constants.writeByte(CONSTANT_DOUBLE);
+				constants.writeLong((Long) key);
+				break;
+			}
+			return index;
+		}
+
+		/**
+		 * Reserves slots in the constant pool for the constant with the given key, returns its index
+		 * 
+		 * @param key
+		 * @param slots
+		 */
+		int addConstant(Object key, int slots) {
+
+			int index = numConstants;
+			constantIndex.put(key, index);
+			numConstants += slots;
+
+			return index;
+		}
+	}
+}
@@ -42,6 +42,14 @@ public class ClassificationExample {
 		System.out.println("Testing Data Accuracy: " + testAccuracyTest);
 
 
+		// Build a Random Forest using the same training data, the trees of a forest overfit less than a single tree
+		RandomForestBuilder<Double> forestBuilder = new RandomForestBuilder<Double>();
+		forestBuilder.build(splitData.leftData());
+
+		System.out.println("Random Forest Training Data Accuracy: " + forestBuilder.test(splitData.leftData()));
+		System.out.println("Random Forest Testing Data Accuracy: " + forestBuilder.test(splitData.rightData()));
+
+
 	}
 
 }
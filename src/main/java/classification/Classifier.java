@@ -3,7 +3,9 @@
  */
 package main.java.classification;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.function.BiConsumer;
 
 /**
  * Abstract Classifier class
@@ -13,6 +15,13 @@ import java.util.ArrayList;
  */
 public abstract class Classifier<T extends Comparable<T>> {
 
+	// counters of the samples classified, null unless enabled by enableMetrics
+	volatile InferenceMetrics inferenceMetrics = null;
+
+	// class label read from the input of each predicted class label, taken from the data the classifier was built from.
+	// null if the class labels weren't remapped, see ClassifierData.classValues
+	int[] classValues = null;
+
 	/**
 	 * Abstract
 	 * returns a predicted class label of the given data sample
@@ -20,4 +29,103 @@ public abstract class Classifier<T extends Comparable<T>> {
 	 * @param sample
 	 */
 	public abstract Integer classify(ArrayList<T> sample);
+
+	/**
+	 * Returns a predicted class label for each sample of the given data,
+	 * subclasses can override this to classify batches of samples faster than one sample at a time
+	 * 
+	 * @param data
+	 */
+	public int[] classifyAll(ClassifierData<T> data) {
+
+		int[] predictions = new int[data.numSamples()];
+
+		for (int i=0; i<data.numSamples(); i++) {
+			predictions[i] = classify(data.sample(i));
+		}
+		return predictions;
+	}
+
+	/**
+	 * Classifies every sample of the given source one block at a time,
+	 * passing each block and the predicted class label of each of its samples to blockPredictions.
+	 * Only one block is held in memory at a time.
+	 * 
+	 * @param source
+	 * @param blockPredictions
+	 * @throws IOException
+	 */
+	public void classifyAll(ClassifierDataSource<T> source, BiConsumer<ClassifierData<T>, int[]> blockPredictions) throws IOException {
+
+		ClassifierData<T> block;
+
+		while ((block = source.nextBlock()) != null) {
+			blockPredictions.accept(block, classifyAll(block));
+		}
+	}
+
+	/**
+	 * Returns the class label read from the input of each predicted class label,
+	 * or null if the class labels of the data the classifier was built from weren't remapped
+	 */
+	public int[] classValues() {
+		return classValues == null ? null : classValues.clone();
+	}
+
+	/**
+	 * Returns the class label read from the input of the given predicted classLabel
+	 * 
+	 * @param classLabel
+	 */
+	public int classValue(int classLabel) {
+		return classValues == null ? classLabel : classValues[classLabel];
+	}
+
+	/**
+	 * Starts counting the samples classified by this classifier, see InferenceSnapshot.
+	 * Samples classified one at a time are timed, and for a DecisionTree the leaf each sample reaches is counted.
+	 * Does nothing if metrics are already enabled.
+	 */
+	public synchronized void enableMetrics() {
+
+		if (inferenceMetrics == null) {
+			inferenceMetrics = newInferenceMetrics();
+		}
+	}
+
+	/**
+	 * Stops counting the samples classified and discards the counters,
+	 * metrics enabled again start from zero
+	 */
+	public synchronized void disableMetrics() {
+		inferenceMetrics = null;
+	}
+
+	/**
+	 * Returns true if the samples classified are being counted
+	 */
+	public boolean metricsEnabled() {
+		return inferenceMetrics != null;
+	}
+
+	/**
+	 * Returns the counters of the samples classified since metrics were enabled,
+	 * read while classification continues on other threads
+	 */
+	public InferenceSnapshot metricsSnapshot() {
+
+		InferenceMetrics metrics = inferenceMetrics;
+
+		if (metrics == null) {
+			throw new IllegalStateException("metrics are not enabled");
+		}
+		return metrics.snapshot();
+	}
+
+	/**
+	 * Returns new counters for enableMetrics, subclasses that are a single tree also count the leaves reached
+	 */
+	InferenceMetrics newInferenceMetrics() {
+		return new InferenceMetrics();
+	}
 }
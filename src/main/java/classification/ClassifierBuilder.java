@@ -3,6 +3,8 @@
  */
 package main.java.classification;
 
+import java.io.IOException;
+
 /**
  * Abstract ClassifierBuilder
  * Subclasses are used to build classifiers that extend Classifier.
@@ -29,6 +31,69 @@ public abstract class ClassifierBuilder<T extends Classifier<?>, U extends Compa
 	 */
 	public abstract double test(ClassifierData<U> testData);
 
+	/**
+	 * Tests the accuracy of the classifier on every sample of the given testSource,
+	 * reading one block of samples at a time
+	 * 
+	 * @param testSource
+	 * @throws IOException
+	 */
+	public double test(ClassifierDataSource<U> testSource) throws IOException {
+
+		long numSamples = 0;
+		long numCorrect = 0;
+
+		ClassifierData<U> block;
+
+		while ((block = testSource.nextBlock()) != null) {
+			numSamples += block.numSamples();
+			numCorrect += countCorrect(block);
+		}
+
+		return (double) numCorrect / numSamples;
+	}
+
+	/**
+	 * Returns the number of samples of testData that the classifier predicts correctly
+	 * 
+	 * @param testData
+	 */
+	@SuppressWarnings("unchecked")
+	long countCorrect(ClassifierData<U> testData) {
+
+		// the classifier was built from ClassifierData<U>, so classifies samples of type U
+		int[] predictedClasses = ((Classifier<U>) classifier).classifyAll(testData);
+
+		return countCorrect(predictedClasses, testData);
+	}
+
+	/**
+	 * Returns the number of samples of testData whose class label matches predictedClasses.
+	 * The class labels read from the input are compared, so testData can be remapped differently
+	 * to the data the classifier was built from.
+	 * 
+	 * @param predictedClasses
+	 * @param testData
+	 */
+	long countCorrect(int[] predictedClasses, ClassifierData<U> testData) {
+
+		long numCorrect = 0;
+
+		for (int i=0; i<testData.numSamples(); i++) {
+			if (classifier.classValue(predictedClasses[i]) == testData.classValue(testData.label(i))) {
+				numCorrect++;
+			}
+		}
+		return numCorrect;
+	}
+
+	/**
+	 * Returns the built classifier, or null if no classifier has been built
+	 */
+	public T classifier() {
+		return classifier;
+	}
+
 	/**
 	 * Prints the built classifier
 	 */
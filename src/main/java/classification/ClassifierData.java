@@ -7,7 +7,11 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 
@@ -18,6 +22,15 @@ import java.util.ArrayList;
  * Where dataArary.get(i).get(j) stores the jth feature value of sample i, and
  * labelArray.get(i) stores the class of sample i.
  * 
+ * Alternatively data can be stored in columnar form, where each feature is stored
+ * as a primitive double[] column and class labels are stored in an int[] column.
+ * Columnar data is accessed through the same methods as row data, values returned as
+ * type T are boxed on request, so columnar storage currently only works where T=Double.
+ * 
+ * A ClassifierData can also be a view over the storage of another ClassifierData,
+ * where the samples and features of the view are given by arrays of row and column
+ * indices into the shared storage. Views are used to split data without copying samples.
+ * 
  * @author Marc Wrigley
  *
  */
@@ -31,6 +44,45 @@ public class ClassifierData<T extends Comparable<T>>{
 	// Class labels
 	private ArrayList<Integer> labelArray;
 
+	// Column-major sample data, used instead of dataArray when the data is columnar,
+	// where featureColumns[j][i] stores the jth feature value of sample i
+	private double[][] featureColumns;
+
+	// Class labels, used instead of labelArray when the data is columnar
+	private int[] labelColumn;
+
+	// Column-major sample data and class labels stored outside of the heap, used instead of dataArray and labelArray
+	// when the data is off-heap, such as data memory mapped from a binary columnar file
+	private ColumnBuffers columnBuffers;
+
+	// Is this dataset a view over the storage of another dataset
+	private boolean isView = false;
+
+	// Storage rows of the samples in a view, where sample i is stored at row sampleIndex[sampleOffset + i],
+	// or at row sampleOffset + i if sampleIndex is null
+	private int[] sampleIndex;
+	private int sampleOffset;
+
+	// Storage columns of the features in a view, where feature j is stored at column featureIndex[j],
+	// or at column j if featureIndex is null
+	private int[] featureIndex;
+
+	// Names of the stored columns, taken from the header of the input file, null if the names are unknown
+	private String[] featureNames;
+
+	// Class label read from the input of each stored class label, where class labels read from a file or given to
+	// a constructor are remapped to 0 to numClasses-1 in sorted order. null if the labels weren't remapped
+	private int[] classValues;
+
+	// Sample numbers sorted by the value of each feature, calculated once when first needed
+	private int[][] sortedSamples;
+
+	// Feature values quantized into bins, calculated once when first needed
+	private BinnedFeatures<T> binnedFeatures;
+
+	// Length of the runs sorted by insertion sort before merging in sortByValue
+	private static final int INSERTION_SORT_RUN = 32;
+
 	// Number of features each sample contains
 	private int numFeatures;
 
@@ -50,6 +102,200 @@ public class ClassifierData<T extends Comparable<T>>{
 		return numSamples;
 	}
 
+	// Returns true if the data is stored in primitive columns rather than in dataArray
+	public boolean isColumnar() {
+		return featureColumns != null;
+	}
+
+	// Returns true if the data is stored outside of the heap in primitive columns, see ColumnBuffers
+	public boolean isOffHeap() {
+		return columnBuffers != null;
+	}
+
+	// Returns true if the data is a view over the storage of another dataset
+	public boolean isView() {
+		return isView;
+	}
+
+	/**
+	 * Returns the name of the given featureNum, or null if the names of the features are unknown
+	 * 
+	 * @param featureNum
+	 */
+	public String featureName(int featureNum) {
+		return featureNames == null ? null : featureNames[column(featureNum)];
+	}
+
+	/**
+	 * Returns the names of the features, or null if the names of the features are unknown
+	 */
+	public String[] featureNames() {
+
+		if (featureNames == null) {
+			return null;
+		}
+
+		String[] names = new String[numFeatures];
+		for (int j=0; j<numFeatures; j++) {
+			names[j] = featureName(j);
+		}
+		return names;
+	}
+
+	// Sets the names of the stored columns
+	void setFeatureNames(String[] featureNames) {
+		this.featureNames = featureNames;
+	}
+
+	/**
+	 * Returns the number of classes, one more than the largest class label
+	 */
+	public int numClasses() {
+
+		int maxLabel = -1;
+
+		for (int i=0; i<numSamples; i++) {
+			maxLabel = Math.max(maxLabel, label(i));
+		}
+		return maxLabel + 1;
+	}
+
+	/**
+	 * Returns the class label read from the input of each class label, or null if the labels weren't remapped,
+	 * i.e. the labels read were already 0 to numClasses-1
+	 */
+	public int[] classValues() {
+		return classValues == null ? null : classValues.clone();
+	}
+
+	/**
+	 * Returns the class label read from the input of the given classLabel
+	 * 
+	 * @param classLabel
+	 */
+	public int classValue(int classLabel) {
+		return classValues == null ? classLabel : classValues[classLabel];
+	}
+
+	/**
+	 * Remaps the class labels read from the input to 0 to numClasses-1, in sorted order,
+	 * so that classifiers can count the samples of each class in an int[numClasses].
+	 * Labels that are already 0 to numClasses-1 are kept.
+	 */
+	private void remapClassLabels() {
+
+		// labelColumn may return the stored labels, so sort a copy
+		int[] labels = labelColumn().clone();
+		Arrays.sort(labels);
+
+		// distinct labels in sorted order
+		int numClasses = 0;
+		for (int i=0; i<labels.length; i++) {
+			if (i == 0 || labels[i] != labels[i-1]) {
+				labels[numClasses++] = labels[i];
+			}
+		}
+
+		if (numClasses == 0 || (labels[0] == 0 && labels[numClasses-1] == numClasses-1)) {
+			return;
+		}
+
+		remapClassLabels(Arrays.copyOf(labels, numClasses));
+	}
+
+	/**
+	 * Remaps the class labels of this dataset using the classValues of another dataset,
+	 * where a sample whose class label read from the input is classValues[c] is given label c.
+	 * If classValues is null the class labels read from the input are used as they are, and must not be negative.
+	 * Used to give test data the same class labels as the training data it was read with.
+	 * The data can't be a view or off-heap.
+	 * 
+	 * @param classValues
+	 */
+	public void remapClassLabels(int[] classValues) {
+
+		if (isView || isOffHeap()) {
+			throw new IllegalStateException("class labels of a view or off-heap data can't be remapped");
+		}
+
+		if (classValues != null) {
+			for (int c=1; c<classValues.length; c++) {
+				if (classValues[c] <= classValues[c-1]) {
+					throw new IllegalArgumentException("classValues must be sorted and distinct");
+				}
+			}
+		}
+
+		for (int i=0; i<numSamples; i++) {
+
+			// class label read from the input, as the stored label may already have been remapped
+			int value = classValue(label(i));
+
+			int label = classValues == null ? value : Arrays.binarySearch(classValues, value);
+			if (label < 0) {
+				throw new IllegalArgumentException("Class label " + value + " of sample " + i + " is not one of the given classes");
+			}
+
+			if (isColumnar()) {
+				labelColumn[i] = label;
+			}
+			else {
+				labelArray.set(i, label);
+			}
+		}
+
+		this.classValues = classValues == null ? null : classValues.clone();
+	}
+
+	// Sets the class label read from the input of each stored class label, for labels remapped when they were saved
+	void setClassValues(int[] classValues) {
+		this.classValues = classValues;
+	}
+
+	// Returns the storage row of the given sampleNum
+	int row(int sampleNum) {
+		return sampleIndex == null ? sampleOffset + sampleNum : sampleIndex[sampleOffset + sampleNum];
+	}
+
+	// Returns the storage column of the given featureNum
+	int column(int featureNum) {
+		return featureIndex == null ? featureNum : featureIndex[featureNum];
+	}
+
+	// Returns the position of the first sample of a view in its sample index
+	int sampleOffset() {
+		return sampleOffset;
+	}
+
+	// Returns the feature value stored at the given storage row and column
+	double storageValue(int row, int column) {
+
+		if (isColumnar()) {
+			return featureColumns[column][row];
+		}
+		if (isOffHeap()) {
+			return columnBuffers.value(row, column);
+		}
+		return ((Number) dataArray.get(row).get(column)).doubleValue();
+	}
+
+	// Returns the stored values of the given storage column, only valid if the data is columnar
+	double[] storageColumn(int column) {
+		return featureColumns[column];
+	}
+
+	// Returns the class label stored at the given storage row
+	int storageLabel(int row) {
+
+		if (isColumnar()) {
+			return labelColumn[row];
+		}
+		if (isOffHeap()) {
+			return columnBuffers.label(row);
+		}
+		return labelArray.get(row);
+	}
+
 
 	/**
 	 * 
@@ -60,8 +306,38 @@ public class ClassifierData<T extends Comparable<T>>{
 	public int classCount(Integer classLabel) {
 		int classCount=0;
 
+		if (isColumnar()) {
+
+			if (classLabel == null) {
+				return 0;
+			}
+
+			int label = classLabel;
+
+			for (int i=0; i<numSamples; i++) {
+				if (labelColumn[row(i)] == label) {
+					classCount++;
+				}
+			}
+			return classCount;
+		}
+
+		if (isOffHeap()) {
+
+			if (classLabel == null) {
+				return 0;
+			}
+
+			for (int i=0; i<numSamples; i++) {
+				if (label(i) == classLabel) {
+					classCount++;
+				}
+			}
+			return classCount;
+		}
+
 		for (int i=0; i<numSamples; i++) {
-			if (labelArray.get(i).equals(classLabel)) {
+			if (labelArray.get(row(i)).equals(classLabel)) {
 				classCount++;
 			}
 		}
@@ -70,10 +346,30 @@ public class ClassifierData<T extends Comparable<T>>{
 
 	/**
 	 * Recompute the number of samples and features in the dataset.
-	 * To be used after a feature has been removed from the dataset.
+	 * To be used after a feature has been removed from the dataset, or after the stored values have been modified,
+	 * e.g. through getDataArray. The sorted samples and bins cached for building trees are discarded.
+	 * The dimensions of a view are fixed when it is created, so views are unchanged.
 	 */
 	public void updateDimensions() {
 
+		clearCaches();
+
+		if (isView) {
+			return;
+		}
+
+		if (isColumnar()) {
+			numSamples = labelColumn.length;
+			numFeatures = featureColumns.length;
+			return;
+		}
+
+		if (isOffHeap()) {
+			numSamples = columnBuffers.numRows();
+			numFeatures = columnBuffers.numColumns();
+			return;
+		}
+
 		// check that dataArray isn't empty
 		if (dataArray == null || dataArray.size() == 0) {
 			throw new IndexOutOfBoundsException("dataArray is null or empty");
@@ -92,6 +388,28 @@ public class ClassifierData<T extends Comparable<T>>{
 	 */
 	@SuppressWarnings("unchecked")
 	public T meanFeatureValue(int featureNum) {
+
+		// columnar data is summed directly from the feature column
+		if (isColumnar()) {
+			double[] column = featureColumns[column(featureNum)];
+			double total = 0.0;
+
+			for (int i=0; i<numSamples; i++) {
+				total += column[row(i)];
+			}
+			return (T) Double.valueOf(total / numSamples);
+		}
+
+		// off-heap data is summed directly from its buffers
+		if (isOffHeap()) {
+			double total = 0.0;
+
+			for (int i=0; i<numSamples; i++) {
+				total += featureValue(i, featureNum);
+			}
+			return (T) Double.valueOf(total / numSamples);
+		}
+
 		Double runningTotal = 0.0;
 
 		ArrayList<T> featureData = getFeatureData(featureNum);
@@ -110,19 +428,61 @@ public class ClassifierData<T extends Comparable<T>>{
 	 * @param sampleNum
 	 * @param featureNum
 	 */
+	@SuppressWarnings("unchecked")
 	public T attribute(int sampleNum, int featureNum){
 
 		// if given sampleNum and featureNum are within range, return attribute value
 		if ((sampleNum >= 0 && sampleNum < numSamples) && (featureNum >= 0 && featureNum < numFeatures)) {
-			return dataArray.get(sampleNum).get(featureNum);
+			if (isColumnar() || isOffHeap()) {
+				return (T) Double.valueOf(featureValue(sampleNum, featureNum));
+			}
+			return dataArray.get(row(sampleNum)).get(column(featureNum));
 		}
 		else {
 			return null;
 		}
 	}
 
+	/**
+	 * Returns the feature value for a given sampleNum and featureNum as a double,
+	 * without boxing if the data is columnar.
+	 * Unlike attribute, no range check is made on the given indices.
+	 * 
+	 * @param sampleNum
+	 * @param featureNum
+	 */
+	public double featureValue(int sampleNum, int featureNum) {
+
+		if (isColumnar()) {
+			return featureColumns[column(featureNum)][row(sampleNum)];
+		}
+		if (isOffHeap()) {
+			return columnBuffers.value(row(sampleNum), column(featureNum));
+		}
+		return ((Number) dataArray.get(row(sampleNum)).get(column(featureNum))).doubleValue();
+	}
+
+	/**
+	 * Returns the class label of the given sampleNum as an int,
+	 * without boxing if the data is columnar.
+	 * Unlike classLabel, no range check is made on the given index.
+	 * 
+	 * @param sampleNum
+	 */
+	public int label(int sampleNum) {
+
+		if (isColumnar()) {
+			return labelColumn[row(sampleNum)];
+		}
+		if (isOffHeap()) {
+			return columnBuffers.label(row(sampleNum));
+		}
+		return labelArray.get(row(sampleNum));
+	}
+
 	/**
 	 * Returns the data for a given sampleNum
+	 * If the data is columnar or off-heap, or a view with features removed, a new list is built
 	 * 
 	 * @param sampleNum
 	 */
@@ -130,7 +490,15 @@ public class ClassifierData<T extends Comparable<T>>{
 
 		// if given sampleNum is within range, return data sample
 		if (sampleNum >= 0 && sampleNum < numSamples) {
-			return dataArray.get(sampleNum);
+			if (isColumnar() || isOffHeap() || featureIndex != null) {
+				ArrayList<T> sample = new ArrayList<T>(numFeatures);
+
+				for (int j=0; j<numFeatures; j++) {
+					sample.add(attribute(sampleNum, j));
+				}
+				return sample;
+			}
+			return dataArray.get(row(sampleNum));
 		}
 		else {
 			return null;
@@ -147,7 +515,7 @@ public class ClassifierData<T extends Comparable<T>>{
 
 		// if given sampleNum is within range, return class label of sampleNum
 		if (sampleNum >= 0 && sampleNum < numSamples) {
-			return labelArray.get(sampleNum);
+			return label(sampleNum);
 		}
 		else {
 			return null;
@@ -163,10 +531,10 @@ public class ClassifierData<T extends Comparable<T>>{
 
 		// if featureNum is within range, return list of feature values
 		if (featureNum >= 0 && featureNum < numFeatures) {
-			ArrayList<T> featureArray = new ArrayList<T>();
+			ArrayList<T> featureArray = new ArrayList<T>(numSamples);
 
 			for (int i=0; i<numSamples; i++) {
-				featureArray.add(dataArray.get(i).get(featureNum));
+				featureArray.add(attribute(i, featureNum));
 			}
 			return featureArray;
 		}
@@ -177,20 +545,461 @@ public class ClassifierData<T extends Comparable<T>>{
 
 	/**
 	 * returns labelArray
+	 * If the data is columnar, off-heap or a view a new list is built
 	 * 
 	 */
 	public ArrayList<Integer> labelData(){
+
+		if (isColumnar() || isOffHeap() || isView) {
+			ArrayList<Integer> labels = new ArrayList<Integer>(numSamples);
+
+			for (int i=0; i<numSamples; i++) {
+				labels.add(label(i));
+			}
+			return labels;
+		}
 		return labelArray;
 	}
 
 	/**
 	 * returns dataArray
+	 * If the data is columnar, off-heap or a view a new 2D list is built.
+	 * If dataArray is returned and modified, updateDimensions must be called before the data is used again.
 	 * 
 	 */
 	public ArrayList<ArrayList<T>> getDataArray(){
+
+		if (isColumnar() || isOffHeap() || isView) {
+			ArrayList<ArrayList<T>> rows = new ArrayList<ArrayList<T>>(numSamples);
+
+			for (int i=0; i<numSamples; i++) {
+				rows.add(sample(i));
+			}
+			return rows;
+		}
 		return dataArray;
 	}
 
+	/**
+	 * Returns the values of the given featureNum as a primitive column.
+	 * If the data is columnar and not a view the stored column is returned and should not be modified,
+	 * otherwise a new column is built.
+	 * 
+	 * @param featureNum
+	 */
+	public double[] featureColumn(int featureNum) {
+
+		if (isColumnar() && !isView) {
+			return featureColumns[featureNum];
+		}
+
+		double[] column = new double[numSamples];
+
+		for (int i=0; i<numSamples; i++) {
+			column[i] = featureValue(i, featureNum);
+		}
+		return column;
+	}
+
+	/**
+	 * Returns the class labels as a primitive column.
+	 * If the data is columnar and not a view the stored column is returned and should not be modified,
+	 * otherwise a new column is built.
+	 */
+	public int[] labelColumn() {
+
+		if (isColumnar() && !isView) {
+			return labelColumn;
+		}
+
+		int[] column = new int[numSamples];
+
+		for (int i=0; i<numSamples; i++) {
+			column[i] = label(i);
+		}
+		return column;
+	}
+
+	/**
+	 * Counts the number of samples of each class in a single pass,
+	 * where classCounts[c] is set to the number of samples of class c.
+	 * Throws an IllegalArgumentException if a class label is outside the range of classCounts.
+	 * 
+	 * @param classCounts
+	 */
+	void countClasses(int[] classCounts) {
+
+		Arrays.fill(classCounts, 0);
+
+		for (int i=0; i<numSamples; i++) {
+			int label = label(i);
+
+			if (label < 0 || label >= classCounts.length) {
+				throw new IllegalArgumentException("Class label " + label + " of sample " + i + " is not between 0 and " + (classCounts.length - 1));
+			}
+			classCounts[label]++;
+		}
+	}
+
+	/**
+	 * Counts the samples of each class where featureNum <= splittingValue in a single pass,
+	 * where leftClassCounts[c] is set to the number of samples of class c with featureNum <= splittingValue.
+	 * Samples with a class label outside the range of leftClassCounts aren't counted in leftClassCounts.
+	 * Returns the total number of samples where featureNum <= splittingValue.
+	 * 
+	 * @param featureNum
+	 * @param splittingValue
+	 * @param leftClassCounts
+	 */
+	int countSplit(int featureNum, T splittingValue, int[] leftClassCounts) {
+
+		Arrays.fill(leftClassCounts, 0);
+
+		int numSamplesLeft = 0;
+
+		// columnar data is compared as primitives, in the same order as Double.compareTo
+		if (isColumnar()) {
+			double[] column = featureColumns[column(featureNum)];
+			double threshold = ((Number) splittingValue).doubleValue();
+
+			for (int i=0; i<numSamples; i++) {
+				int row = row(i);
+
+				if (Double.compare(column[row], threshold) <= 0) {
+					numSamplesLeft++;
+
+					int label = labelColumn[row];
+					if (label >= 0 && label < leftClassCounts.length) {
+						leftClassCounts[label]++;
+					}
+				}
+			}
+			return numSamplesLeft;
+		}
+
+		// off-heap data is compared as primitives read from its buffers
+		if (isOffHeap()) {
+			int column = column(featureNum);
+			double threshold = ((Number) splittingValue).doubleValue();
+
+			for (int i=0; i<numSamples; i++) {
+				int row = row(i);
+
+				if (Double.compare(columnBuffers.value(row, column), threshold) <= 0) {
+					numSamplesLeft++;
+
+					int label = columnBuffers.label(row);
+					if (label >= 0 && label < leftClassCounts.length) {
+						leftClassCounts[label]++;
+					}
+				}
+			}
+			return numSamplesLeft;
+		}
+
+		int column = column(featureNum);
+
+		for (int i=0; i<numSamples; i++) {
+			int row = row(i);
+
+			if (dataArray.get(row).get(column).compareTo(splittingValue) <= 0) {
+				numSamplesLeft++;
+
+				int label = labelArray.get(row);
+				if (label >= 0 && label < leftClassCounts.length) {
+					leftClassCounts[label]++;
+				}
+			}
+		}
+		return numSamplesLeft;
+	}
+
+	/**
+	 * Returns the sample numbers of this dataset sorted by the value of each feature,
+	 * where sortedSamples()[j] holds every sample number sorted by feature j.
+	 * Samples are sorted once, when first needed, and sorted again if updateDimensions is called after the data is modified.
+	 * The returned arrays are shared and shouldn't be modified.
+	 */
+	synchronized int[][] sortedSamples() {
+
+		if (sortedSamples == null) {
+			sortedSamples = sortSamples();
+		}
+		return sortedSamples;
+	}
+
+	// Discards the sorted samples and bins, so they are calculated again from the current values when next needed
+	private synchronized void clearCaches() {
+
+		sortedSamples = null;
+		binnedFeatures = null;
+	}
+
+	// Returns every sample number sorted by each feature
+	private int[][] sortSamples() {
+
+		int[][] newSortedSamples = new int[numFeatures][];
+
+		for (int j=0; j<numFeatures; j++) {
+
+			int[] samples = new int[numSamples];
+			for (int i=0; i<numSamples; i++) {
+				samples[i] = i;
+			}
+
+			sortByValue(samples, featureColumn(j));
+			newSortedSamples[j] = samples;
+		}
+		return newSortedSamples;
+	}
+
+	/**
+	 * Returns the feature values of this dataset quantized into at most BinnedFeatures.MAX_BINS bins per feature.
+	 * Values are quantized once, when first needed, and quantized again if updateDimensions is called after the data is modified.
+	 * The samples are only sorted to find the bins, so unless sortedSamples has already been called
+	 * the sorted samples aren't kept and the bins are the only per-sample data cached.
+	 */
+	synchronized BinnedFeatures<T> binnedFeatures() {
+
+		if (binnedFeatures == null) {
+			binnedFeatures = new BinnedFeatures<T>(this, sortedSamples != null ? sortedSamples : sortSamples());
+		}
+		return binnedFeatures;
+	}
+
+	/**
+	 * Sorts the given sample numbers by their value in values, ordered as by Double.compare.
+	 * Uses a stable merge sort, so samples with equal values keep their order.
+	 * 
+	 * @param samples
+	 * @param values
+	 */
+	private static void sortByValue(int[] samples, double[] values) {
+
+		int length = samples.length;
+
+		// sort short runs using insertion sort
+		for (int start=0; start<length; start+=INSERTION_SORT_RUN) {
+			int end = Math.min(start+INSERTION_SORT_RUN, length);
+
+			for (int i=start+1; i<end; i++) {
+				int sample = samples[i];
+				double value = values[sample];
+
+				int k = i-1;
+				while (k >= start && Double.compare(values[samples[k]], value) > 0) {
+					samples[k+1] = samples[k];
+					k--;
+				}
+				samples[k+1] = sample;
+			}
+		}
+
+		// merge sorted runs, doubling the run length each pass
+		int[] from = samples;
+		int[] to = new int[length];
+
+		for (long width=INSERTION_SORT_RUN; width<length; width*=2) {
+			for (long start=0; start<length; start+=2*width) {
+
+				int mid = (int) Math.min(start+width, length);
+				int end = (int) Math.min(start+2*width, length);
+
+				int left = (int) start;
+				int right = mid;
+				int out = (int) start;
+
+				while (left < mid && right < end) {
+					if (Double.compare(values[from[right]], values[from[left]]) < 0) {
+						to[out++] = from[right++];
+					}
+					else {
+						to[out++] = from[left++];
+					}
+				}
+				while (left < mid) {
+					to[out++] = from[left++];
+				}
+				while (right < end) {
+					to[out++] = from[right++];
+				}
+			}
+
+			int[] swap = from;
+			from = to;
+			to = swap;
+		}
+
+		if (from != samples) {
+			System.arraycopy(from, 0, samples, 0, length);
+		}
+	}
+
+	/**
+	 * Returns a view over the same storage as this dataset, with its own copy of the sample index,
+	 * so that the samples of the view can be partitioned without affecting this dataset.
+	 */
+	ClassifierData<T> indexView() {
+
+		int[] newSampleIndex = new int[numSamples];
+
+		for (int i=0; i<numSamples; i++) {
+			newSampleIndex[i] = row(i);
+		}
+		return new ClassifierData<T>(this, newSampleIndex, 0, numSamples, featureIndex);
+	}
+
+	/**
+	 * Returns a view of the given samples of this dataset, where samples may be repeated,
+	 * such as a bootstrap sample. sampleNums is converted to storage rows in place and becomes
+	 * the sample index of the view, so the samples of the view can be partitioned without affecting this dataset.
+	 * 
+	 * @param sampleNums
+	 */
+	ClassifierData<T> sampleView(int[] sampleNums) {
+
+		for (int i=0; i<sampleNums.length; i++) {
+			sampleNums[i] = row(sampleNums[i]);
+		}
+		return new ClassifierData<T>(this, sampleNums, 0, sampleNums.length, featureIndex);
+	}
+
+	/**
+	 * Returns a view of numSamples samples of this dataset starting from fromSample,
+	 * the view shares the sample index of this dataset.
+	 * If removedFeature >= 0 the given feature is left out of the view.
+	 * 
+	 * @param fromSample
+	 * @param numSamples
+	 * @param removedFeature
+	 */
+	ClassifierData<T> subView(int fromSample, int numSamples, int removedFeature) {
+
+		int[] newFeatureIndex = featureIndex;
+
+		if (removedFeature >= 0) {
+			newFeatureIndex = new int[numFeatures-1];
+
+			int newFeature = 0;
+			for (int j=0; j<numFeatures; j++) {
+				if (j != removedFeature) {
+					newFeatureIndex[newFeature++] = column(j);
+				}
+			}
+		}
+		return new ClassifierData<T>(this, sampleIndex, sampleOffset + fromSample, numSamples, newFeatureIndex);
+	}
+
+	/**
+	 * Partitions the samples of this view in place so that all samples whose bin, bins[row], is <= maxBin
+	 * come before all other samples, returns the number of samples whose bin is <= maxBin.
+	 * Only to be used on views created by indexView, or on subViews of them.
+	 * 
+	 * @param bins
+	 * @param maxBin
+	 */
+	int partitionBins(byte[] bins, int maxBin) {
+
+		if (sampleIndex == null) {
+			throw new IllegalStateException("data has no sample index to partition");
+		}
+
+		// move samples in bins > maxBin to the end of the view
+		int left = sampleOffset;
+		int right = sampleOffset + numSamples - 1;
+
+		while (left <= right) {
+
+			int row = sampleIndex[left];
+
+			if ((bins[row] & 0xFF) <= maxBin) {
+				left++;
+			}
+			else {
+				sampleIndex[left] = sampleIndex[right];
+				sampleIndex[right] = row;
+				right--;
+			}
+		}
+
+		return left - sampleOffset;
+	}
+
+	/**
+	 * Partitions the samples of this view in place so that all samples where featureNum <= splittingValue
+	 * come before all other samples, returns the number of samples where featureNum <= splittingValue.
+	 * Only to be used on views created by indexView, or on subViews of them.
+	 * 
+	 * @param featureNum
+	 * @param splittingValue
+	 */
+	int partition(int featureNum, T splittingValue) {
+
+		if (sampleIndex == null) {
+			throw new IllegalStateException("data has no sample index to partition");
+		}
+
+		int column = column(featureNum);
+		double threshold = isColumnar() || isOffHeap() ? ((Number) splittingValue).doubleValue() : 0.0;
+
+		// move samples > splittingValue to the end of the view
+		int left = sampleOffset;
+		int right = sampleOffset + numSamples - 1;
+
+		while (left <= right) {
+
+			int row = sampleIndex[left];
+			boolean isLeft;
+
+			if (isColumnar()) {
+				isLeft = Double.compare(featureColumns[column][row], threshold) <= 0;
+			}
+			else if (isOffHeap()) {
+				isLeft = Double.compare(columnBuffers.value(row, column), threshold) <= 0;
+			}
+			else {
+				isLeft = dataArray.get(row).get(column).compareTo(splittingValue) <= 0;
+			}
+
+			if (isLeft) {
+				left++;
+			}
+			else {
+				sampleIndex[left] = sampleIndex[right];
+				sampleIndex[right] = row;
+				right--;
+			}
+		}
+
+		return left - sampleOffset;
+	}
+
+	/**
+	 * Converts dataArray and labelArray into primitive columns,
+	 * dataArray and labelArray are released after conversion.
+	 */
+	private void convertToColumnar() {
+
+		double[][] newFeatureColumns = new double[numFeatures][];
+		for (int j=0; j<numFeatures; j++) {
+			newFeatureColumns[j] = featureColumn(j);
+		}
+
+		labelColumn = labelColumn();
+		featureColumns = newFeatureColumns;
+		featureNames = featureNames();
+
+		dataArray = null;
+		labelArray = null;
+		columnBuffers = null;
+
+		// the new columns only hold the samples and features of this dataset
+		isView = false;
+		sampleIndex = null;
+		sampleOffset = 0;
+		featureIndex = null;
+	}
+
 
 	/**
 	 * Checks that all samples in a given inputArray have the same number of features.
@@ -248,14 +1057,14 @@ public class ClassifierData<T extends Comparable<T>>{
 	 */
 	public void printData() {
 
-		if (dataArray != null && labelArray != null) {
+		if ((dataArray != null && labelArray != null) || isColumnar() || isOffHeap()) {
 
-			for (int i=0; i<dataArray.size(); i++) {
+			for (int i=0; i<numSamples; i++) {
 				System.out.print(""+ i + ": ");
-				for (int j=0; j<dataArray.get(i).size(); j++) {
-					System.out.print("" + dataArray.get(i).get(j) + ", ");
+				for (int j=0; j<numFeatures; j++) {
+					System.out.print("" + attribute(i, j) + ", ");
 				}
-				System.out.println("  Label: " + labelArray.get(i));
+				System.out.println("  Label: " + classLabel(i));
 			}
 		}
 		else
@@ -302,13 +1111,20 @@ public class ClassifierData<T extends Comparable<T>>{
 		// Try opening the given file
 		try {
 
+			// Constructor T(String), looked up once rather than for every value
+			Constructor<T> constructor = clazz.getDeclaredConstructor(String.class);
+
 			csvReader = new BufferedReader(new FileReader(inputFilePath));
 
 			// Read each line from the file
 			while ((row = csvReader.readLine()) != null) {
 
-				// Ignore the first line in the file (the first row should contain column names rather than sample data).
-				if (currentLineNum >= 0) {
+				// The first line in the file contains column names rather than sample data.
+				if (currentLineNum < 0) {
+					featureNames = row.split(",");
+					featureNames = Arrays.copyOf(featureNames, featureNames.length-1);
+				}
+				else {
 
 					// Feature data should be separated by a ","
 					String[] data = row.split(",");
@@ -322,21 +1138,16 @@ public class ClassifierData<T extends Comparable<T>>{
 					for (int i=0; i<data.length-1; i++) {
 						try {
 
-							// Argument array
-							Class<?>[] cArg = new Class[1];
-							// Class name is stored as a String
-							cArg[0] = String.class;
-
 							T instance;
 							// Calls T.constructer() with current attribute value
-							instance = clazz.getDeclaredConstructor(cArg).newInstance(data[i]);
+							instance = constructor.newInstance(data[i]);
 
 							// Add parsed value to current row list
 							currentRowList.add(instance);
 
 						} catch (Exception e) {
 							csvReader.close();
-							throw new IllegalArgumentException("Not a valid number: " + data[i] + " at index " + i, e);
+							throw new IllegalArgumentException("Not a valid number: " + data[i] + " at line " + (currentLineNum+2) + ", column " + (i+1), e);
 						}
 
 					}
@@ -402,6 +1213,27 @@ public class ClassifierData<T extends Comparable<T>>{
 
 		clazz = null;
 
+		featureNames = classifierData.featureNames();
+		classValues = classifierData.classValues;
+
+		// columnar and off-heap data is copied column by column into the heap,
+		// only the stored columns of columnar data that isn't a view need to be cloned
+		if (classifierData.isColumnar() || classifierData.isOffHeap()) {
+
+			boolean clone = classifierData.isColumnar() && !classifierData.isView();
+
+			featureColumns = new double[classifierData.numFeatures()][];
+			for (int j=0; j<featureColumns.length; j++) {
+				double[] column = classifierData.featureColumn(j);
+				featureColumns[j] = clone ? column.clone() : column;
+			}
+			int[] labels = classifierData.labelColumn();
+			labelColumn = clone ? labels.clone() : labels;
+
+			updateDimensions();
+			return;
+		}
+
 		ArrayList<ArrayList<T>> newDataArray = new ArrayList<ArrayList<T>>();
 		ArrayList<Integer> newLabelArray = new ArrayList<Integer>();
 
@@ -430,7 +1262,166 @@ public class ClassifierData<T extends Comparable<T>>{
 
 
 	/**
-	 * Constructor that converts given arrays to ArrayLists
+	 * Copy Constructor, copies the given classifierData into primitive columns if columnar == true,
+	 * otherwise equivalent to ClassifierData(classifierData).
+	 * Feature values must be numbers to be stored in columns.
+	 * 
+	 * @param classifierData
+	 * @param columnar
+	 */
+	public ClassifierData(ClassifierData<T> classifierData, boolean columnar) {
+
+		this(classifierData);
+
+		if (columnar && !isColumnar()) {
+			convertToColumnar();
+		}
+	}
+
+	/**
+	 * Constructor - sets featureColumns and labelColumn using copies of the given column-major arrays,
+	 * where inputColumns[j][i] stores the jth feature value of sample i.
+	 * Class labels are remapped to 0 to numClasses-1 in sorted order, unless they already are, see classValues.
+	 * 
+	 * @param inputColumns
+	 * @param inputLabels
+	 */
+	public ClassifierData(double[][] inputColumns, int[] inputLabels) {
+
+		this(copyColumns(inputColumns), inputLabels == null ? null : inputLabels.clone(), null);
+	}
+
+	// Returns a copy of the given columns, or the given columns if they are null or empty
+	private static double[][] copyColumns(double[][] inputColumns) {
+
+		if (inputColumns == null || inputColumns.length == 0) {
+			return inputColumns;
+		}
+
+		double[][] columns = new double[inputColumns.length][];
+		for (int j=0; j<columns.length; j++) {
+			columns[j] = inputColumns[j] == null ? null : inputColumns[j].clone();
+		}
+		return columns;
+	}
+
+	/**
+	 * Constructor - sets featureColumns and labelColumn to the given column-major arrays without copying them,
+	 * used by readers that allocate the arrays. If classValues is null the labels are those read from the input
+	 * and are remapped to 0 to numClasses-1, otherwise they have already been remapped to the given classValues.
+	 * 
+	 * @param inputColumns
+	 * @param inputLabels
+	 * @param classValues
+	 */
+	ClassifierData(double[][] inputColumns, int[] inputLabels, int[] classValues) {
+
+		// Check that inputColumns isn't null or empty
+		if (inputColumns == null || inputColumns.length == 0 || inputColumns[0] == null || inputColumns[0].length == 0) {
+			throw new IndexOutOfBoundsException("inputColumns is null or empty");
+		}
+
+		// Check that inputLabels isn't null and every column is the same size as inputLabels
+		if (inputLabels == null) {
+			throw new IllegalArgumentException("inputLabels is empty");
+		}
+		for (int j=0; j<inputColumns.length; j++) {
+			if (inputColumns[j] == null || inputColumns[j].length != inputLabels.length) {
+				throw new IllegalArgumentException("inputLabels is of different size to inputColumns");
+			}
+		}
+
+		featureColumns = inputColumns;
+		labelColumn = inputLabels;
+
+		updateDimensions();
+
+		clazz = null;
+
+		if (classValues == null) {
+			remapClassLabels();
+		}
+		else {
+			this.classValues = classValues;
+		}
+	}
+
+	/**
+	 * Constructor - stores the data in the given off-heap columnBuffers
+	 * 
+	 * @param columnBuffers
+	 */
+	ClassifierData(ColumnBuffers columnBuffers) {
+
+		if (columnBuffers.numRows() == 0 || columnBuffers.numColumns() == 0) {
+			throw new IndexOutOfBoundsException("columnBuffers is empty");
+		}
+
+		this.columnBuffers = columnBuffers;
+
+		updateDimensions();
+
+		clazz = null;
+	}
+
+	/**
+	 * Saves the data to a binary columnar file at outputFilePath, see ColumnarFile for the format.
+	 * Feature values must be numbers. The file can be opened again with ClassifierData.open.
+	 * 
+	 * @param outputFilePath
+	 * @throws IOException
+	 */
+	public void save(String outputFilePath) throws IOException {
+		ColumnarFile.save(this, outputFilePath);
+	}
+
+	/**
+	 * Opens a binary columnar file written by save.
+	 * The columns of the file are memory mapped rather than read, so the returned data is off-heap.
+	 * 
+	 * @param inputFilePath
+	 * @throws IOException
+	 */
+	public static ClassifierData<Double> open(String inputFilePath) throws IOException {
+		return ColumnarFile.open(inputFilePath);
+	}
+
+	/**
+	 * Constructor - creates a view over the storage of the given storageData.
+	 * sampleIndex and featureIndex hold storage rows and columns, see the sampleIndex and featureIndex fields.
+	 * If featureIndex is null the view has the same features as storageData.
+	 * 
+	 * @param storageData
+	 * @param sampleIndex
+	 * @param sampleOffset
+	 * @param numSamples
+	 * @param featureIndex
+	 */
+	ClassifierData(ClassifierData<T> storageData, int[] sampleIndex, int sampleOffset, int numSamples, int[] featureIndex) {
+
+		// share the storage of storageData
+		dataArray = storageData.dataArray;
+		labelArray = storageData.labelArray;
+		featureColumns = storageData.featureColumns;
+		labelColumn = storageData.labelColumn;
+		columnBuffers = storageData.columnBuffers;
+		featureNames = storageData.featureNames;
+		classValues = storageData.classValues;
+
+		isView = true;
+		this.sampleIndex = sampleIndex;
+		this.sampleOffset = sampleOffset;
+		this.featureIndex = featureIndex;
+
+		this.numSamples = numSamples;
+		numFeatures = featureIndex == null ? storageData.numFeatures() : featureIndex.length;
+
+		clazz = null;
+	}
+
+	/**
+	 * Constructor that converts given arrays to ArrayLists.
+	 * Class labels are remapped to 0 to numClasses-1 in sorted order, unless they already are, see classValues.
 	 * 
 	 * @param inputData
 	 * @param inputLabels
@@ -480,10 +1471,13 @@ public class ClassifierData<T extends Comparable<T>>{
 		numFeatures = dataArray.get(0).size();
 
 		clazz = null;
+
+		remapClassLabels();
 	}
 
 	/**
-	 * Constructor - sets dataArray and labelArray using the given input arrays
+	 * Constructor - sets dataArray using the given inputData, and labelArray using a copy of the given inputLabels.
+	 * Class labels are remapped to 0 to numClasses-1 in sorted order, unless they already are, see classValues.
 	 * 
 	 * @param inputData
 	 * @param inputLabels
@@ -509,7 +1503,7 @@ public class ClassifierData<T extends Comparable<T>>{
 		}
 
 		dataArray = inputData;
-		labelArray = inputLabels;
+		labelArray = new ArrayList<Integer>(inputLabels);
 
 		// Check if dataArray is empty
 		if (dataArray.size() == 0 || dataArray.get(0).size() == 0) {
@@ -521,19 +1515,59 @@ public class ClassifierData<T extends Comparable<T>>{
 
 
 		clazz = null;
+
+		remapClassLabels();
 	}
 
 
 	/**
 	 * Constructor - reads data from given inputFilePath
+	 * Data read as Double is parsed straight into primitive columns by a CsvReader
 	 * 
 	 * @param inputFilePath
 	 * @param clazz
 	 */
 	public ClassifierData(String inputFilePath, Class<T> clazz) {
 
+		this(inputFilePath, clazz, null);
+	}
+
+	/**
+	 * Constructor - reads data from given inputFilePath
+	 * Data read as Double is parsed straight into primitive columns by a CsvReader,
+	 * if forkJoinPool isn't null the file is memory mapped and chunks of the file are parsed in parallel in the pool.
+	 * Throws an UncheckedIOException if the file can't be read as Double data.
+	 * 
+	 * @param inputFilePath
+	 * @param clazz
+	 * @param forkJoinPool
+	 */
+	public ClassifierData(String inputFilePath, Class<T> clazz, ForkJoinPool forkJoinPool) {
+
 		this.clazz = clazz;
 
+		// Double data is parsed straight into primitive columns rather than as boxed values
+		if (clazz == Double.class) {
+
+			try {
+				CsvReader csvReader = new CsvReader();
+				csvReader.setForkJoinPool(forkJoinPool);
+
+				ClassifierData<Double> data = csvReader.read(inputFilePath);
+
+				featureColumns = data.featureColumns;
+				labelColumn = data.labelColumn;
+				featureNames = data.featureNames;
+				classValues = data.classValues;
+
+				updateDimensions();
+				return;
+
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
 		// Read data from give inputFilePath
 		readDataFromFile(inputFilePath);
 
@@ -547,6 +1581,7 @@ public class ClassifierData<T extends Comparable<T>>{
 		numSamples = dataArray.size();
 		numFeatures = dataArray.get(0).size();
 
+		remapClassLabels();
 	}
 
 
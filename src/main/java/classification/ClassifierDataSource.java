@@ -0,0 +1,30 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of sample data that is read one block of samples at a time,
+ * used to test and run classifiers on datasets too large to hold in memory
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public interface ClassifierDataSource<T extends Comparable<T>> extends Closeable {
+
+	/**
+	 * Returns the next block of samples, or null once every sample has been read.
+	 * Each block is independent of the blocks before it, so earlier blocks can be released.
+	 * 
+	 * @throws IOException
+	 */
+	ClassifierData<T> nextBlock() throws IOException;
+
+	/**
+	 * Returns the names of the features, or null if the names of the features are unknown
+	 */
+	String[] featureNames();
+}
@@ -0,0 +1,71 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join task that classifies a range of samples using a CompiledTree,
+ * used to classify large batches of samples in parallel
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class ClassifyTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	// minimum number of samples in a range for it to be split into two tasks
+	static final int PARALLEL_CUTOFF = 16 * CompiledTree.BLOCK_SIZE;
+
+	// parameters passed to CompiledTree.classifyRange
+	private final CompiledTree compiledTree;
+	private final ClassifierData<?> data;
+	private final double[][] columns;
+	private final int fromSample;
+	private final int toSample;
+	private final int[] predictions;
+	private final InferenceMetrics metrics;
+
+	/**
+	 * Classifies the range, splitting it in two if it is large
+	 */
+	@Override
+	protected void compute() {
+
+		if (toSample - fromSample < PARALLEL_CUTOFF) {
+			compiledTree.classifyRange(data, columns, fromSample, toSample, predictions, metrics);
+		}
+		else {
+			// split on a block boundary so each block is classified by one task
+			int middle = fromSample + (toSample - fromSample) / 2 / CompiledTree.BLOCK_SIZE * CompiledTree.BLOCK_SIZE;
+
+			invokeAll(new ClassifyTask(compiledTree, data, columns, fromSample, middle, predictions, metrics),
+					new ClassifyTask(compiledTree, data, columns, middle, toSample, predictions, metrics));
+		}
+	}
+
+	/**
+	 * Constructor, see CompiledTree.classifyRange(ClassifierData, double[][], int, int, int[], InferenceMetrics)
+	 * 
+	 * @param compiledTree
+	 * @param data
+	 * @param columns
+	 * @param fromSample
+	 * @param toSample
+	 * @param predictions
+	 * @param metrics
+	 */
+	ClassifyTask(CompiledTree compiledTree, ClassifierData<?> data, double[][] columns, int fromSample, int toSample, int[] predictions,
+			InferenceMetrics metrics) {
+
+		this.compiledTree = compiledTree;
+		this.data = data;
+		this.columns = columns;
+		this.fromSample = fromSample;
+		this.toSample = toSample;
+		this.predictions = predictions;
+		this.metrics = metrics;
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Allocates ClassifierData outside of the Java heap, and releases it when closed
+ * 
+ * Data copied into the arena is stored column by column in direct ByteBuffers, so a large training set
+ * adds little to the heap and isn't moved or scanned by the garbage collector. Decision trees are built
+ * and tested directly from the off-heap columns.
+ * 
+ * Only the columns are stored off-heap. Building a tree with SplitMode.EXACT still sorts each feature on the heap,
+ * an int[numFeatures][numSamples] cached by the dataset plus one of the same size for each tree being built
+ * (see PresortedIndex), and SplitMode.HISTOGRAM caches a byte of bins per value on the heap, see BinnedFeatures.
+ * SplitMode.MEAN adds no per-sample arrays to the heap.
+ * 
+ * Once the arena is closed every dataset allocated from it, and every view of those datasets,
+ * throws an IndexOutOfBoundsException when its values are read. The memory is returned when the released buffers
+ * are collected. Direct memory is limited by the -XX:MaxDirectMemorySize option of the JVM.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public class ColumnArena implements Closeable {
+
+	// storage of every dataset allocated from the arena
+	private final ArrayList<ColumnBuffers> allocated = new ArrayList<ColumnBuffers>();
+
+	// has the arena been closed
+	private boolean closed = false;
+
+	/**
+	 * Returns an off-heap copy of the given data, whose feature values must be numbers.
+	 * Values are stored as floats if every value is exactly representable as a float,
+	 * and labels are stored as bytes if every label fits in a byte. The feature names and class values are kept.
+	 * 
+	 * @param data
+	 */
+	public synchronized ClassifierData<Double> copyOf(ClassifierData<?> data) {
+
+		if (closed) {
+			throw new IllegalStateException("arena is closed");
+		}
+
+		int numSamples = data.numSamples();
+		int valueSize = ColumnBuffers.valueSize(data);
+		int labelSize = ColumnBuffers.labelSize(data);
+
+		if ((long) numSamples * valueSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("data has too many samples to store a column in a single buffer");
+		}
+
+		ByteBuffer[] columns = new ByteBuffer[data.numFeatures()];
+
+		for (int j=0; j<columns.length; j++) {
+			columns[j] = ColumnBuffers.allocateColumn(numSamples, valueSize);
+
+			for (int i=0; i<numSamples; i++) {
+				if (valueSize == ColumnBuffers.DOUBLE_SIZE) {
+					columns[j].putDouble(i << 3, data.featureValue(i, j));
+				}
+				else {
+					columns[j].putFloat(i << 2, (float) data.featureValue(i, j));
+				}
+			}
+		}
+
+		ByteBuffer labels = ColumnBuffers.allocateColumn(numSamples, labelSize);
+
+		for (int i=0; i<numSamples; i++) {
+			if (labelSize == ColumnBuffers.INT_SIZE) {
+				labels.putInt(i << 2, data.label(i));
+			}
+			else {
+				labels.put(i, (byte) data.label(i));
+			}
+		}
+
+		ColumnBuffers columnBuffers = new ColumnBuffers(columns, valueSize, labels, labelSize, numSamples);
+		allocated.add(columnBuffers);
+
+		ClassifierData<Double> offHeapData = new ClassifierData<Double>(columnBuffers);
+		offHeapData.setFeatureNames(data.featureNames());
+		offHeapData.setClassValues(data.classValues());
+
+		return offHeapData;
+	}
+
+	/**
+	 * Releases the storage of every dataset allocated from the arena
+	 */
+	@Override
+	public synchronized void close() {
+
+		for (ColumnBuffers columnBuffers : allocated) {
+			columnBuffers.release();
+		}
+		allocated.clear();
+
+		closed = true;
+	}
+
+	/**
+	 * Constructor - creates an empty arena
+	 */
+	public ColumnArena() {
+	}
+}
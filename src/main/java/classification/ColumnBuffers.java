@@ -0,0 +1,181 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Column-major sample data stored outside of the Java heap in ByteBuffers,
+ * such as buffers memory mapped from a ColumnarFile or direct buffers allocated by a ColumnArena
+ * 
+ * Each feature column is a buffer of little-endian double or float values, where the value of row i
+ * is stored at byte i*valueSize. Class labels are a buffer of little-endian int or byte values.
+ * As a ByteBuffer holds at most 2GB, a column of doubles can hold at most 268,435,455 rows.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+final class ColumnBuffers {
+
+	// Sizes in bytes of the types values and labels can be stored as
+	static final int DOUBLE_SIZE = 8;
+	static final int FLOAT_SIZE = 4;
+	static final int INT_SIZE = 4;
+	static final int BYTE_SIZE = 1;
+
+	// Empty buffer that replaces every column once the storage has been released
+	private static final ByteBuffer RELEASED = ByteBuffer.allocate(0);
+
+	// feature columns, where columns[j] holds the jth feature value of every row
+	private final ByteBuffer[] columns;
+
+	// size in bytes of each value, DOUBLE_SIZE or FLOAT_SIZE
+	private final int valueSize;
+
+	// class labels
+	private ByteBuffer labels;
+
+	// size in bytes of each label, INT_SIZE or BYTE_SIZE
+	private final int labelSize;
+
+	// number of rows in each column
+	private final int numRows;
+
+	/**
+	 * Returns the value stored at the given row and column
+	 * 
+	 * @param row
+	 * @param column
+	 */
+	double value(int row, int column) {
+
+		if (valueSize == DOUBLE_SIZE) {
+			return columns[column].getDouble(row << 3);
+		}
+		return columns[column].getFloat(row << 2);
+	}
+
+	/**
+	 * Returns the class label stored at the given row
+	 * 
+	 * @param row
+	 */
+	int label(int row) {
+
+		if (labelSize == INT_SIZE) {
+			return labels.getInt(row << 2);
+		}
+		return labels.get(row);
+	}
+
+	/**
+	 * Drops every buffer so that their memory can be returned,
+	 * any value or label read afterwards throws an IndexOutOfBoundsException
+	 */
+	void release() {
+
+		for (int j=0; j<columns.length; j++) {
+			columns[j] = RELEASED;
+		}
+		labels = RELEASED;
+	}
+
+	/**
+	 * Returns a direct buffer able to hold numRows values of valueSize bytes
+	 * 
+	 * @param numRows
+	 * @param valueSize
+	 */
+	static ByteBuffer allocateColumn(int numRows, int valueSize) {
+		return ByteBuffer.allocateDirect(numRows * valueSize).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Returns the smallest value size that stores every feature value of data exactly,
+	 * FLOAT_SIZE if every value is exactly representable as a float, otherwise DOUBLE_SIZE
+	 * 
+	 * @param data
+	 */
+	static int valueSize(ClassifierData<?> data) {
+
+		for (int j=0; j<data.numFeatures(); j++) {
+			for (int i=0; i<data.numSamples(); i++) {
+				double value = data.featureValue(i, j);
+
+				if (Double.compare((double) (float) value, value) != 0) {
+					return DOUBLE_SIZE;
+				}
+			}
+		}
+		return FLOAT_SIZE;
+	}
+
+	/**
+	 * Returns the smallest label size that stores every class label of data exactly,
+	 * BYTE_SIZE if every label fits in a byte, otherwise INT_SIZE
+	 * 
+	 * @param data
+	 */
+	static int labelSize(ClassifierData<?> data) {
+
+		for (int i=0; i<data.numSamples(); i++) {
+			if (data.label(i) != (byte) data.label(i)) {
+				return INT_SIZE;
+			}
+		}
+		return BYTE_SIZE;
+	}
+
+	/**
+	 * Returns the number of rows in each column
+	 */
+	int numRows() {
+		return numRows;
+	}
+
+	/**
+	 * Returns the number of feature columns
+	 */
+	int numColumns() {
+		return columns.length;
+	}
+
+	/**
+	 * Constructor - the given buffers are read from index 0 in little-endian order
+	 * 
+	 * @param columns
+	 * @param valueSize
+	 * @param labels
+	 * @param labelSize
+	 * @param numRows
+	 */
+	ColumnBuffers(ByteBuffer[] columns, int valueSize, ByteBuffer labels, int labelSize, int numRows) {
+
+		if (valueSize != DOUBLE_SIZE && valueSize != FLOAT_SIZE) {
+			throw new IllegalArgumentException("Values must be stored as doubles or floats");
+		}
+		if (labelSize != INT_SIZE && labelSize != BYTE_SIZE) {
+			throw new IllegalArgumentException("Labels must be stored as ints or bytes");
+		}
+
+		this.columns = new ByteBuffer[columns.length];
+
+		for (int j=0; j<columns.length; j++) {
+			if (columns[j].capacity() < (long) numRows * valueSize) {
+				throw new IndexOutOfBoundsException("column " + j + " holds less than " + numRows + " rows");
+			}
+			this.columns[j] = columns[j].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		if (labels.capacity() < (long) numRows * labelSize) {
+			throw new IndexOutOfBoundsException("labels holds less than " + numRows + " rows");
+		}
+		this.labels = labels.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+		this.valueSize = valueSize;
+		this.labelSize = labelSize;
+		this.numRows = numRows;
+	}
+}
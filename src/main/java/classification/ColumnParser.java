@@ -0,0 +1,33 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses the value of a single CSV cell straight from the bytes of the file
+ * 
+ * A parser is chosen for each feature column once before a file is read,
+ * see CsvReader.setColumnParser.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+@FunctionalInterface
+public interface ColumnParser {
+
+	// Parses decimal numbers as Double.parseDouble would, without creating a String for each cell
+	ColumnParser DOUBLE = CsvChunkParser::parseDouble;
+
+	/**
+	 * Returns the value of the cell stored in bytes from index fromIndex up to but not including toIndex,
+	 * surrounding whitespace has already been removed.
+	 * Throws a NumberFormatException if the cell is not a valid value.
+	 * 
+	 * @param bytes
+	 * @param fromIndex
+	 * @param toIndex
+	 */
+	double parse(ByteBuffer bytes, int fromIndex, int toIndex);
+}
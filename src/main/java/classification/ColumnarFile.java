@@ -0,0 +1,376 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary columnar file format for ClassifierData
+ * 
+ * Every number is little-endian. The file starts with a 24 byte header:
+ * 
+ * magic "CDAT" (4 bytes), version (int), numSamples (int), numFeatures (int),
+ * valueSize (byte, 8 = double or 4 = float), labelSize (byte, 4 = int or 1 = byte),
+ * hasNames (byte, 1 if feature names follow), hasClassValues (byte, 1 if class values follow), 4 bytes padding
+ * 
+ * followed by the length in bytes (int) and UTF-8 bytes of each feature name if hasNames is 1,
+ * and by the number of classes (int) and the class label read from the input of each class (int) if hasClassValues is 1,
+ * see ClassifierData.classValues. Version 1 files have no class values.
+ * The feature columns follow, each holding numSamples values, and then the label column holding numSamples labels.
+ * Each column starts at a multiple of 8 bytes from the start of the file.
+ * 
+ * Columns are memory mapped when a file is opened, so no data is read until it is used.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class ColumnarFile {
+
+	// First 4 bytes of every file, "CDAT"
+	static final int MAGIC = 0x54414443;
+
+	// Version of the format written by save, files of earlier versions can still be read
+	static final int VERSION = 2;
+
+	// Size in bytes of the header
+	static final int HEADER_SIZE = 24;
+
+	// Number of bytes written to the file at a time
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Saves the given data to outputFilePath, feature values must be numbers.
+	 * Values are stored as floats if every value is exactly representable as a float,
+	 * and labels are stored as bytes if every label fits in a byte.
+	 * 
+	 * @param data
+	 * @param outputFilePath
+	 * @throws IOException
+	 */
+	static void save(ClassifierData<?> data, String outputFilePath) throws IOException {
+
+		int numSamples = data.numSamples();
+		int numFeatures = data.numFeatures();
+
+		// use the smallest types that store the data exactly
+		int valueSize = ColumnBuffers.valueSize(data);
+		int labelSize = ColumnBuffers.labelSize(data);
+
+		if ((long) numSamples * valueSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("data has too many samples to store a column in a single buffer");
+		}
+
+		String[] featureNames = data.featureNames();
+		int[] classValues = data.classValues();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(outputFilePath),
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(numSamples);
+			buffer.putInt(numFeatures);
+			buffer.put((byte) valueSize);
+			buffer.put((byte) labelSize);
+			buffer.put((byte) (featureNames == null ? 0 : 1));
+			buffer.put((byte) (classValues == null ? 0 : 1));
+			buffer.put(new byte[HEADER_SIZE - buffer.position()]);
+
+			// number of bytes written to the channel, the position in the file is flushed + buffer.position()
+			long flushed = 0;
+
+			if (featureNames != null) {
+				for (String name : featureNames) {
+					byte[] nameBytes = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+
+					flushed += flushIfFull(channel, buffer, 4 + nameBytes.length);
+
+					buffer.putInt(nameBytes.length);
+					buffer.put(nameBytes);
+				}
+			}
+
+			if (classValues != null) {
+				flushed += flushIfFull(channel, buffer, 4);
+				buffer.putInt(classValues.length);
+
+				for (int classValue : classValues) {
+					flushed += flushIfFull(channel, buffer, 4);
+					buffer.putInt(classValue);
+				}
+			}
+
+			for (int j=0; j<numFeatures; j++) {
+
+				flushed += pad(channel, buffer, flushed);
+
+				for (int i=0; i<numSamples; i++) {
+					flushed += flushIfFull(channel, buffer, valueSize);
+
+					if (valueSize == ColumnBuffers.DOUBLE_SIZE) {
+						buffer.putDouble(data.featureValue(i, j));
+					}
+					else {
+						buffer.putFloat((float) data.featureValue(i, j));
+					}
+				}
+			}
+
+			flushed += pad(channel, buffer, flushed);
+
+			for (int i=0; i<numSamples; i++) {
+				flushed += flushIfFull(channel, buffer, labelSize);
+
+				if (labelSize == ColumnBuffers.INT_SIZE) {
+					buffer.putInt(data.label(i));
+				}
+				else {
+					buffer.put((byte) data.label(i));
+				}
+			}
+
+			flush(channel, buffer);
+		}
+	}
+
+	/**
+	 * Layout of a file, read from its header
+	 */
+	static class Header {
+
+		// number of samples and features stored in the file
+		int numSamples;
+		int numFeatures;
+
+		// size in bytes of each value and label
+		int valueSize;
+		int labelSize;
+
+		// names of the features, null if the file has no names
+		String[] featureNames;
+
+		// class label read from the input of each stored class label, null if the labels weren't remapped
+		int[] classValues;
+
+		// position in the file of each feature column, and of the label column
+		long[] columnPositions;
+		long labelPosition;
+	}
+
+	/**
+	 * Reads and checks the header of the given file. Every count, size and length is checked against the size
+	 * of the file before it is used, so a corrupt or truncated file throws an IllegalArgumentException.
+	 * 
+	 * @param channel
+	 * @param inputFilePath
+	 * @throws IOException
+	 */
+	static Header readHeader(FileChannel channel, String inputFilePath) throws IOException {
+
+		checkHeader(channel.size() >= HEADER_SIZE, inputFilePath);
+
+		ByteBuffer headerBytes = read(channel, 0, HEADER_SIZE);
+
+		checkHeader(headerBytes.getInt(0) == MAGIC, inputFilePath);
+		if (headerBytes.getInt(4) < 1 || headerBytes.getInt(4) > VERSION) {
+			throw new IllegalArgumentException("Unsupported ClassifierData file version " + headerBytes.getInt(4) + ": " + inputFilePath);
+		}
+
+		Header header = new Header();
+
+		header.numSamples = headerBytes.getInt(8);
+		header.numFeatures = headerBytes.getInt(12);
+		header.valueSize = headerBytes.get(16);
+		header.labelSize = headerBytes.get(17);
+
+		long fileSize = channel.size();
+
+		// each feature takes at least one byte of the file, or 4 bytes for its name
+		checkHeader(header.numSamples >= 0 && header.numFeatures >= 0 && header.numFeatures <= fileSize
+				&& (header.valueSize == ColumnBuffers.DOUBLE_SIZE || header.valueSize == ColumnBuffers.FLOAT_SIZE)
+				&& (header.labelSize == ColumnBuffers.INT_SIZE || header.labelSize == ColumnBuffers.BYTE_SIZE)
+				&& (long) header.numSamples * header.valueSize <= Integer.MAX_VALUE, inputFilePath);
+
+		long position = HEADER_SIZE;
+
+		if (headerBytes.get(18) == 1) {
+			header.featureNames = new String[header.numFeatures];
+
+			for (int j=0; j<header.numFeatures; j++) {
+				checkHeader(fileSize - position >= 4, inputFilePath);
+				int nameLength = read(channel, position, 4).getInt(0);
+
+				checkHeader(nameLength >= 0 && nameLength <= fileSize - position - 4, inputFilePath);
+				header.featureNames[j] = new String(read(channel, position + 4, nameLength).array(), StandardCharsets.UTF_8);
+				position += 4 + nameLength;
+			}
+		}
+
+		if (headerBytes.get(19) == 1) {
+			checkHeader(fileSize - position >= 4, inputFilePath);
+			int numClasses = read(channel, position, 4).getInt(0);
+
+			checkHeader(numClasses >= 0 && numClasses * 4L <= fileSize - position - 4, inputFilePath);
+			ByteBuffer classBytes = read(channel, position + 4, numClasses * 4);
+
+			header.classValues = new int[numClasses];
+			for (int c=0; c<numClasses; c++) {
+				header.classValues[c] = classBytes.getInt(c << 2);
+			}
+			position += 4 + numClasses * 4L;
+		}
+
+		header.columnPositions = new long[header.numFeatures];
+
+		for (int j=0; j<header.numFeatures; j++) {
+			position = align(position);
+			header.columnPositions[j] = position;
+			position += (long) header.numSamples * header.valueSize;
+		}
+
+		header.labelPosition = align(position);
+
+		// the label column is stored last, so every column ends within the file if it does
+		checkHeader(header.labelPosition + (long) header.numSamples * header.labelSize <= fileSize, inputFilePath);
+
+		return header;
+	}
+
+	/**
+	 * Throws an IllegalArgumentException naming the file if a value read from its header isn't valid
+	 * 
+	 * @param valid
+	 * @param inputFilePath
+	 */
+	private static void checkHeader(boolean valid, String inputFilePath) {
+
+		if (!valid) {
+			throw new IllegalArgumentException("Not a ClassifierData file: " + inputFilePath);
+		}
+	}
+
+	/**
+	 * Opens the file at inputFilePath, memory mapping each column
+	 * 
+	 * @param inputFilePath
+	 * @throws IOException
+	 */
+	static ClassifierData<Double> open(String inputFilePath) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+
+			Header header = readHeader(channel, inputFilePath);
+
+			ByteBuffer[] columns = new ByteBuffer[header.numFeatures];
+
+			for (int j=0; j<header.numFeatures; j++) {
+				columns[j] = channel.map(FileChannel.MapMode.READ_ONLY, header.columnPositions[j], (long) header.numSamples * header.valueSize);
+			}
+
+			ByteBuffer labels = channel.map(FileChannel.MapMode.READ_ONLY, header.labelPosition, (long) header.numSamples * header.labelSize);
+
+			// the mapped buffers stay valid once the channel is closed
+			ClassifierData<Double> data = new ClassifierData<Double>(
+					new ColumnBuffers(columns, header.valueSize, labels, header.labelSize, header.numSamples));
+			data.setFeatureNames(header.featureNames);
+			data.setClassValues(header.classValues);
+
+			return data;
+		}
+	}
+
+	/**
+	 * Returns length bytes of the file read from the given position
+	 * 
+	 * @param channel
+	 * @param position
+	 * @param length
+	 * @throws IOException
+	 */
+	static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IllegalArgumentException("File ends before the end of the data");
+			}
+		}
+		return buffer;
+	}
+
+	// Returns the first multiple of 8 at or after the given position
+	private static long align(long position) {
+		return (position + 7) & ~7L;
+	}
+
+	/**
+	 * Adds zeros to the buffer until the position in the file is a multiple of 8,
+	 * where flushed bytes have already been written to the channel.
+	 * Returns the number of bytes written to the channel
+	 * 
+	 * @param channel
+	 * @param buffer
+	 * @param flushed
+	 * @throws IOException
+	 */
+	private static int pad(FileChannel channel, ByteBuffer buffer, long flushed) throws IOException {
+
+		int written = flushIfFull(channel, buffer, 8);
+
+		while ((flushed + written + buffer.position()) % 8 != 0) {
+			buffer.put((byte) 0);
+		}
+		return written;
+	}
+
+	/**
+	 * Writes the buffer to the channel if it has room for less than numBytes more bytes,
+	 * returns the number of bytes written
+	 * 
+	 * @param channel
+	 * @param buffer
+	 * @param numBytes
+	 * @throws IOException
+	 */
+	private static int flushIfFull(FileChannel channel, ByteBuffer buffer, int numBytes) throws IOException {
+
+		if (buffer.remaining() >= numBytes) {
+			return 0;
+		}
+
+		if (numBytes > buffer.capacity()) {
+			throw new IllegalArgumentException("Value of " + numBytes + " bytes is larger than the write buffer");
+		}
+		return flush(channel, buffer);
+	}
+
+	/**
+	 * Writes the buffer to the channel, returns the number of bytes written
+	 * 
+	 * @param channel
+	 * @param buffer
+	 * @throws IOException
+	 */
+	private static int flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+		buffer.flip();
+
+		int written = 0;
+		while (buffer.hasRemaining()) {
+			written += channel.write(buffer);
+		}
+
+		buffer.clear();
+		return written;
+	}
+}
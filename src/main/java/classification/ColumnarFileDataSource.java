@@ -0,0 +1,120 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a binary columnar file written by ClassifierData.save one block of samples at a time
+ * 
+ * Each block is read from every column of the file into primitive columns on the heap,
+ * so only the current block is held in memory.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public class ColumnarFileDataSource implements ClassifierDataSource<Double> {
+
+	// file being read
+	private final FileChannel channel;
+
+	// layout of the file
+	private final ColumnarFile.Header header;
+
+	// maximum number of samples in each block
+	private final int blockSize;
+
+	// number of samples read so far
+	private int samplesRead = 0;
+
+	/**
+	 * Returns the next block of at most blockSize samples, or null once every sample has been read
+	 */
+	@Override
+	public ClassifierData<Double> nextBlock() throws IOException {
+
+		int numSamples = Math.min(blockSize, header.numSamples - samplesRead);
+
+		if (numSamples <= 0) {
+			return null;
+		}
+
+		double[][] columns = new double[header.numFeatures][numSamples];
+		int[] labels = new int[numSamples];
+
+		for (int j=0; j<header.numFeatures; j++) {
+
+			ByteBuffer bytes = ColumnarFile.read(channel, header.columnPositions[j] + (long) samplesRead * header.valueSize, numSamples * header.valueSize);
+
+			for (int i=0; i<numSamples; i++) {
+				columns[j][i] = header.valueSize == ColumnBuffers.DOUBLE_SIZE ? bytes.getDouble(i << 3) : bytes.getFloat(i << 2);
+			}
+		}
+
+		ByteBuffer labelBytes = ColumnarFile.read(channel, header.labelPosition + (long) samplesRead * header.labelSize, numSamples * header.labelSize);
+
+		for (int i=0; i<numSamples; i++) {
+			labels[i] = header.labelSize == ColumnBuffers.INT_SIZE ? labelBytes.getInt(i << 2) : labelBytes.get(i);
+		}
+
+		samplesRead += numSamples;
+
+		ClassifierData<Double> data = new ClassifierData<Double>(columns, labels, header.classValues);
+		data.setFeatureNames(header.featureNames);
+
+		return data;
+	}
+
+	/**
+	 * Returns the names of the features, or null if the file has no names
+	 */
+	@Override
+	public String[] featureNames() {
+		return header.featureNames == null ? null : header.featureNames.clone();
+	}
+
+	/**
+	 * Returns the number of samples in the file
+	 */
+	public int numSamples() {
+		return header.numSamples;
+	}
+
+	/**
+	 * Closes the file
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Constructor - opens the given file to be read in blocks of at most blockSize samples
+	 * 
+	 * @param inputFilePath
+	 * @param blockSize
+	 * @throws IOException
+	 */
+	public ColumnarFileDataSource(String inputFilePath, int blockSize) throws IOException {
+
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("blockSize must be greater than 0");
+		}
+
+		this.blockSize = blockSize;
+
+		channel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ);
+
+		try {
+			header = ColumnarFile.readHeader(channel, inputFilePath);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,544 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A trained Decision Tree flattened into parallel arrays, used for fast classification
+ * 
+ * Node i splits on column feature[i] of the sample at threshold[i], samples with a value <= threshold[i]
+ * continue at node leftNode[i], other samples continue at node rightNode[i].
+ * Leaf nodes have feature[i] = LEAF and predict classLabel[i]. The root is node 0.
+ * 
+ * Feature indices are columns of the original data, not of the data left at each node,
+ * so samples are classified without being changed or copied.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public final class CompiledTree {
+
+	// value of feature[i] if node i is a leaf
+	static final int LEAF = -1;
+
+	// number of samples walked through the tree together when classifying a batch of samples
+	static final int BLOCK_SIZE = 256;
+
+	// column of the sample that each node splits on, LEAF if the node is a leaf
+	final int[] feature;
+
+	// value that each node splits its feature on
+	final double[] threshold;
+
+	// index of the left child of each node, LEAF if the node is a leaf
+	final int[] leftNode;
+
+	// index of the right child of each node, LEAF if the node is a leaf
+	final int[] rightNode;
+
+	// predicted class of each leaf node
+	final int[] classLabel;
+
+	// number of features of the data the tree was built from
+	final int numFeatures;
+
+	/**
+	 * Returns a predicted class label for the given sample,
+	 * the sample must contain a value for every feature of the data the tree was built from
+	 * 
+	 * @param sample
+	 */
+	public int classify(double[] sample) {
+
+		return classLabel[leaf(sample)];
+	}
+
+	/**
+	 * Returns the index of the leaf node the given sample reaches
+	 * 
+	 * @param sample
+	 */
+	int leaf(double[] sample) {
+
+		if (sample.length < numFeatures) {
+			throw new IndexOutOfBoundsException("sample has " + sample.length + " features, expected " + numFeatures);
+		}
+
+		int node = 0;
+
+		// walk down from the root until a leaf is reached
+		while (feature[node] != LEAF) {
+
+			if (Double.compare(sample[feature[node]], threshold[node]) <= 0) {
+				node = leftNode[node];
+			}
+			else {
+				node = rightNode[node];
+			}
+		}
+
+		return node;
+	}
+
+	/**
+	 * Returns a predicted class label for each sample of the given column-major matrix,
+	 * where columns[f][s] is the value of feature f of sample s
+	 * 
+	 * @param columns
+	 */
+	public int[] classifyAll(double[][] columns) {
+
+		return classifyAll(columns, null);
+	}
+
+	/**
+	 * Returns a predicted class label for each sample of the given column-major matrix,
+	 * where columns[f][s] is the value of feature f of sample s.
+	 * If forkJoinPool isn't null, large batches are classified in parallel in the pool.
+	 * 
+	 * @param columns
+	 * @param forkJoinPool
+	 */
+	public int[] classifyAll(double[][] columns, ForkJoinPool forkJoinPool) {
+
+		if (columns == null || columns.length < numFeatures) {
+			throw new IndexOutOfBoundsException("columns is null or has less than " + numFeatures + " features");
+		}
+
+		int numSamples = columns.length == 0 ? 0 : columns[0].length;
+
+		for (int f=0; f<numFeatures; f++) {
+			if (columns[f].length != numSamples) {
+				throw new IllegalArgumentException("Given columns have different number of samples");
+			}
+		}
+
+		return classifyAll(null, columns, numSamples, forkJoinPool, null);
+	}
+
+	/**
+	 * Returns a predicted class label for each sample of the given data,
+	 * which must have the same features as the data the tree was built from.
+	 * If forkJoinPool isn't null, large batches are classified in parallel in the pool.
+	 * 
+	 * @param data
+	 * @param forkJoinPool
+	 */
+	public int[] classifyAll(ClassifierData<?> data, ForkJoinPool forkJoinPool) {
+
+		return classifyAll(data, forkJoinPool, null);
+	}
+
+	/**
+	 * Returns a predicted class label for each sample of the given data, see classifyAll(ClassifierData, ForkJoinPool).
+	 * If metrics isn't null the leaf reached by each sample is recorded in it.
+	 * 
+	 * @param data
+	 * @param forkJoinPool
+	 * @param metrics
+	 */
+	int[] classifyAll(ClassifierData<?> data, ForkJoinPool forkJoinPool, InferenceMetrics metrics) {
+
+		if (data == null || data.numFeatures() < numFeatures) {
+			throw new IndexOutOfBoundsException("data is null or has less than " + numFeatures + " features");
+		}
+
+		return classifyAll(data, null, data.numSamples(), forkJoinPool, metrics);
+	}
+
+	/**
+	 * Classifies numSamples samples of either data or columns
+	 * 
+	 * @param data
+	 * @param columns
+	 * @param numSamples
+	 * @param forkJoinPool
+	 * @param metrics
+	 */
+	private int[] classifyAll(ClassifierData<?> data, double[][] columns, int numSamples, ForkJoinPool forkJoinPool, InferenceMetrics metrics) {
+
+		int[] predictions = new int[numSamples];
+
+		if (forkJoinPool != null && numSamples >= ClassifyTask.PARALLEL_CUTOFF) {
+			forkJoinPool.invoke(new ClassifyTask(this, data, columns, 0, numSamples, predictions, metrics));
+		}
+		else {
+			classifyRange(data, columns, 0, numSamples, predictions, metrics);
+		}
+
+		return predictions;
+	}
+
+	/**
+	 * Sets predictions[s] to the predicted class label of sample s, for fromSample <= s < toSample.
+	 * Samples are read from data if it isn't null, otherwise from the column-major matrix columns.
+	 * Samples are classified in blocks of BLOCK_SIZE. If metrics isn't null the leaf reached by each sample is recorded in it.
+	 * 
+	 * @param data
+	 * @param columns
+	 * @param fromSample
+	 * @param toSample
+	 * @param predictions
+	 * @param metrics
+	 */
+	void classifyRange(ClassifierData<?> data, double[][] columns, int fromSample, int toSample, int[] predictions, InferenceMetrics metrics) {
+
+		// current node of each sample of the block, and the column index of each sample of the block
+		int[] nodes = new int[BLOCK_SIZE];
+		int[] rows = new int[BLOCK_SIZE];
+
+		// number of samples of the range reaching each leaf, added to metrics once the whole range is classified
+		long[] leafHits = metrics == null ? null : new long[feature.length];
+
+		// columns read while classifying, indexed by feature of the tree
+		double[][] blockColumns = columns;
+
+		// values of columnar data are read from its stored columns, other data is copied into columns one block at a time
+		boolean copyBlock = data != null && !data.isColumnar();
+
+		if (data != null) {
+			blockColumns = new double[numFeatures][];
+
+			for (int f=0; f<numFeatures; f++) {
+				blockColumns[f] = copyBlock ? new double[BLOCK_SIZE] : data.storageColumn(data.column(f));
+			}
+		}
+
+		for (int blockStart=fromSample; blockStart<toSample; blockStart+=BLOCK_SIZE) {
+
+			int blockSize = Math.min(BLOCK_SIZE, toSample - blockStart);
+
+			for (int i=0; i<blockSize; i++) {
+
+				if (copyBlock) {
+					for (int f=0; f<numFeatures; f++) {
+						blockColumns[f][i] = data.featureValue(blockStart + i, f);
+					}
+					rows[i] = i;
+				}
+				else if (data != null) {
+					rows[i] = data.row(blockStart + i);
+				}
+				else {
+					rows[i] = blockStart + i;
+				}
+			}
+
+			classifyBlock(blockColumns, rows, blockSize, nodes);
+
+			for (int i=0; i<blockSize; i++) {
+				predictions[blockStart + i] = classLabel[nodes[i]];
+			}
+
+			if (leafHits != null) {
+				for (int i=0; i<blockSize; i++) {
+					leafHits[nodes[i]]++;
+				}
+			}
+		}
+
+		if (metrics != null) {
+			metrics.recordLeafHits(leafHits);
+		}
+	}
+
+	/**
+	 * Walks blockSize samples down the tree together one level at a time,
+	 * where sample i is stored at index rows[i] of each column.
+	 * Sets nodes[i] to the leaf node reached by sample i.
+	 * 
+	 * @param columns
+	 * @param rows
+	 * @param blockSize
+	 * @param nodes
+	 */
+	private void classifyBlock(double[][] columns, int[] rows, int blockSize, int[] nodes) {
+
+		for (int i=0; i<blockSize; i++) {
+			nodes[i] = 0;
+		}
+
+		boolean moved = true;
+
+		// move every sample that hasn't reached a leaf down one level, until no sample moves
+		while (moved) {
+
+			moved = false;
+
+			for (int i=0; i<blockSize; i++) {
+
+				int node = nodes[i];
+				int nodeFeature = feature[node];
+
+				if (nodeFeature != LEAF) {
+
+					if (Double.compare(columns[nodeFeature][rows[i]], threshold[node]) <= 0) {
+						nodes[i] = leftNode[node];
+					}
+					else {
+						nodes[i] = rightNode[node];
+					}
+					moved = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the depth of the tree, where the root is at depth 1
+	 */
+	public int depth() {
+
+		int maxDepth = 1;
+
+		for (int nodeDepth : nodeDepths()) {
+			maxDepth = Math.max(maxDepth, nodeDepth);
+		}
+		return maxDepth;
+	}
+
+	/**
+	 * Returns the depth of each node, where the root is at depth 1
+	 */
+	int[] nodeDepths() {
+
+		// children are stored after their parent, so the depth of every node is known before its children are reached
+		int[] nodeDepth = new int[feature.length];
+		nodeDepth[0] = 1;
+
+		for (int node=0; node<feature.length; node++) {
+
+			if (feature[node] != LEAF) {
+				nodeDepth[leftNode[node]] = nodeDepth[node] + 1;
+				nodeDepth[rightNode[node]] = nodeDepth[node] + 1;
+			}
+		}
+		return nodeDepth;
+	}
+
+	/**
+	 * Prints the node at index node and its children, in the same format as TreeNode.printNode
+	 * 
+	 * @param node
+	 * @param nodeID
+	 * @param nodeDepth
+	 */
+	void printNode(int node, String nodeID, int nodeDepth) {
+
+		System.out.print("[TreeNode] ID: " + nodeID + ", nodeDepth: " + nodeDepth + ", isLeaf: " + (feature[node] == LEAF));
+
+		if (feature[node] == LEAF) {
+			System.out.println(", classLabel: " + classLabel[node]);
+		}
+		else {
+			System.out.println(", splittingFeature: " + feature[node] + ", splittingValue: " + threshold[node]);
+			printNode(leftNode[node], nodeID + "0", nodeDepth + 1);
+			printNode(rightNode[node], nodeID + "1", nodeDepth + 1);
+		}
+	}
+
+	/**
+	 * Checks that every node refers to a valid feature and to children stored after it,
+	 * so that every sample reaches a leaf. Used to check trees loaded from a file.
+	 */
+	void checkNodes() {
+
+		if (feature.length == 0) {
+			throw new IllegalArgumentException("tree has no nodes");
+		}
+
+		for (int node=0; node<feature.length; node++) {
+
+			if (feature[node] == LEAF) {
+				continue;
+			}
+
+			if (feature[node] < 0 || feature[node] >= numFeatures) {
+				throw new IllegalArgumentException("node " + node + " splits on feature " + feature[node] + " of " + numFeatures);
+			}
+			if (leftNode[node] <= node || leftNode[node] >= feature.length || rightNode[node] <= node || rightNode[node] >= feature.length) {
+				throw new IllegalArgumentException("node " + node + " has children outside of the tree");
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of nodes in the tree
+	 */
+	public int numNodes() {
+		return feature.length;
+	}
+
+	/**
+	 * Returns the number of features of the data the tree was built from
+	 */
+	public int numFeatures() {
+		return numFeatures;
+	}
+
+	/**
+	 * Returns a copy of the tree with its nodes reordered so that, below every split, the child reached by more samples
+	 * is stored directly after its parent and its whole subtree before the other child. The most frequent path from the root
+	 * is then stored contiguously, as is the most frequent path below every node, so classifying typical samples reads
+	 * fewer cache lines. Children are still stored after their parents, ties keep the left child first.
+	 * 
+	 * leafHits holds the number of samples reaching each leaf node, indexed by node of this tree,
+	 * e.g. from InferenceSnapshot.leafHits. Counts of split nodes are ignored.
+	 * 
+	 * @param leafHits
+	 */
+	CompiledTree relayout(long[] leafHits) {
+
+		int numNodes = feature.length;
+
+		if (leafHits == null || leafHits.length != numNodes) {
+			throw new IllegalArgumentException("leafHits must have a count for each of the " + numNodes + " nodes");
+		}
+
+		// number of samples reaching each node, children are stored after their parent so are counted first
+		long[] nodeHits = new long[numNodes];
+
+		for (int node=numNodes-1; node>=0; node--) {
+
+			if (feature[node] == LEAF) {
+				if (leafHits[node] < 0) {
+					throw new IllegalArgumentException("leafHits of node " + node + " is negative");
+				}
+				nodeHits[node] = leafHits[node];
+			}
+			else {
+				nodeHits[node] = nodeHits[leftNode[node]] + nodeHits[rightNode[node]];
+			}
+		}
+
+		// new index of each node, nodes are stored depth first with the hotter child first
+		int[] newIndex = new int[numNodes];
+		int[] order = new int[numNodes];
+
+		// nodes still to be stored, the hotter child is pushed last so it's stored next
+		int[] stack = new int[numNodes + 1];
+		int stackSize = 0;
+		int numStored = 0;
+
+		stack[stackSize++] = 0;
+
+		while (stackSize > 0) {
+
+			int node = stack[--stackSize];
+
+			if (numStored == numNodes) {
+				throw new IllegalStateException("node " + node + " is reached from more than one parent");
+			}
+
+			newIndex[node] = numStored;
+			order[numStored++] = node;
+
+			if (feature[node] != LEAF) {
+
+				boolean rightHotter = nodeHits[rightNode[node]] > nodeHits[leftNode[node]];
+
+				stack[stackSize++] = rightHotter ? leftNode[node] : rightNode[node];
+				stack[stackSize++] = rightHotter ? rightNode[node] : leftNode[node];
+			}
+		}
+
+		if (numStored < numNodes) {
+			throw new IllegalStateException("tree has nodes that can't be reached from the root");
+		}
+
+		CompiledTree tree = new CompiledTree(numNodes, numFeatures);
+
+		for (int i=0; i<numNodes; i++) {
+
+			int node = order[i];
+
+			tree.feature[i] = feature[node];
+			tree.threshold[i] = threshold[node];
+			tree.classLabel[i] = classLabel[node];
+
+			if (feature[node] == LEAF) {
+				tree.leftNode[i] = LEAF;
+				tree.rightNode[i] = LEAF;
+			}
+			else {
+				tree.leftNode[i] = newIndex[leftNode[node]];
+				tree.rightNode[i] = newIndex[rightNode[node]];
+			}
+		}
+		return tree;
+	}
+
+	/**
+	 * Flattens the tree below rootNode, returns null if a splitting value of the tree is not a number.
+	 * Nodes are stored in depth first order so the left child of a node directly follows it.
+	 * 
+	 * @param rootNode
+	 * @param numFeatures
+	 */
+	static <T extends Comparable<T>> CompiledTree compile(TreeNode<T> rootNode, int numFeatures) {
+
+		CompiledTree compiledTree = new CompiledTree(rootNode.numNodes(), numFeatures);
+
+		if (compiledTree.addNode(rootNode, 0) < 0) {
+			return null;
+		}
+
+		return compiledTree;
+	}
+
+	/**
+	 * Stores node at index nodeIndex and then its children,
+	 * returns the index after the last node stored, or -1 if a splitting value is not a number
+	 * 
+	 * @param node
+	 * @param nodeIndex
+	 */
+	private <T extends Comparable<T>> int addNode(TreeNode<T> node, int nodeIndex) {
+
+		if (node.isLeaf()) {
+			feature[nodeIndex] = LEAF;
+			leftNode[nodeIndex] = LEAF;
+			rightNode[nodeIndex] = LEAF;
+			classLabel[nodeIndex] = node.classLabel();
+
+			return nodeIndex+1;
+		}
+
+		if (!(node.splittingValue instanceof Number)) {
+			return -1;
+		}
+
+		feature[nodeIndex] = node.splittingColumn;
+		threshold[nodeIndex] = ((Number) node.splittingValue).doubleValue();
+
+		leftNode[nodeIndex] = nodeIndex+1;
+		int nextIndex = addNode(node.leftNode, nodeIndex+1);
+
+		if (nextIndex < 0) {
+			return -1;
+		}
+
+		rightNode[nodeIndex] = nextIndex;
+		return addNode(node.rightNode, nextIndex);
+	}
+
+	/**
+	 * Constructor - Creates an empty tree of numNodes nodes
+	 * 
+	 * @param numNodes
+	 * @param numFeatures
+	 */
+	CompiledTree(int numNodes, int numFeatures) {
+
+		feature = new int[numNodes];
+		threshold = new double[numNodes];
+		leftNode = new int[numNodes];
+		rightNode = new int[numNodes];
+		classLabel = new int[numNodes];
+
+		this.numFeatures = numFeatures;
+	}
+
+}
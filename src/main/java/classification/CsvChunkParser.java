@@ -0,0 +1,406 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Parses lines of CSV sample data from a ByteBuffer into growing primitive columns
+ * 
+ * Each line holds a value for every feature followed by an integer class label.
+ * Blank lines are skipped. Values are parsed by the ColumnParser of their column,
+ * labels are parsed as integers.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class CsvChunkParser {
+
+	// Default initial number of rows each column can hold before it is grown
+	static final int INITIAL_CAPACITY = 1024;
+
+	// Powers of ten that are exactly representable as doubles
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// Largest mantissa that is exactly representable as a double
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	// parser of each feature column
+	private final ColumnParser[] parsers;
+
+	// byte separating the values of a line
+	private final byte separator;
+
+	// parsed feature values, where columns[j][i] is the jth feature value of row i
+	private double[][] columns;
+
+	// parsed class labels
+	private int[] labels;
+
+	// number of rows parsed
+	private int numRows = 0;
+
+	// maximum number of rows to parse, parseLines stops once this many rows have been parsed
+	private final int maxRows;
+
+	// line number of the next line to be parsed, used to report malformed cells
+	private long lineNum;
+
+	// line number of the first line parsed
+	private final long firstLineNum;
+
+	/**
+	 * Parses every complete line of bytes from fromIndex up to toIndex, or until maxRows rows have been parsed,
+	 * returns the index after the last line parsed.
+	 * If endOfInput is true the bytes after the last newline are parsed as the last line,
+	 * otherwise they are left for the next call.
+	 * 
+	 * @param bytes
+	 * @param fromIndex
+	 * @param toIndex
+	 * @param endOfInput
+	 */
+	int parseLines(ByteBuffer bytes, int fromIndex, int toIndex, boolean endOfInput) {
+
+		int lineStart = fromIndex;
+
+		while (lineStart < toIndex && numRows < maxRows) {
+
+			int lineEnd = lineStart;
+			while (lineEnd < toIndex && bytes.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+
+			// the line continues past toIndex
+			if (lineEnd == toIndex && !endOfInput) {
+				break;
+			}
+
+			parseLine(bytes, lineStart, lineEnd);
+
+			lineStart = lineEnd + 1;
+		}
+
+		return Math.min(lineStart, toIndex);
+	}
+
+	/**
+	 * Parses a single line, not including its newline
+	 * 
+	 * @param bytes
+	 * @param lineStart
+	 * @param lineEnd
+	 */
+	private void parseLine(ByteBuffer bytes, int lineStart, int lineEnd) {
+
+		lineEnd = trimEnd(bytes, lineStart, lineEnd);
+		lineStart = trimStart(bytes, lineStart, lineEnd);
+
+		// skip blank lines
+		if (lineStart == lineEnd) {
+			lineNum++;
+			return;
+		}
+
+		if (numRows == labels.length) {
+			grow();
+		}
+
+		int cellStart = lineStart;
+
+		for (int j=0; j<=parsers.length; j++) {
+
+			int cellEnd = cellStart;
+			while (cellEnd < lineEnd && bytes.get(cellEnd) != separator) {
+				cellEnd++;
+			}
+
+			// the label is the last value of the line, every other value must be followed by a separator
+			if ((j < parsers.length) == (cellEnd == lineEnd)) {
+				throw new IllegalArgumentException("Line " + lineNum + " does not have " + (parsers.length+1) + " values");
+			}
+
+			int valueEnd = trimEnd(bytes, cellStart, cellEnd);
+			int valueStart = trimStart(bytes, cellStart, valueEnd);
+
+			try {
+				if (j < parsers.length) {
+					columns[j][numRows] = parsers[j].parse(bytes, valueStart, valueEnd);
+				}
+				else {
+					labels[numRows] = parseInt(bytes, valueStart, valueEnd);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Not a valid number: " + string(bytes, valueStart, valueEnd)
+						+ " at line " + lineNum + ", column " + (j+1), e);
+			}
+
+			cellStart = cellEnd + 1;
+		}
+
+		numRows++;
+		lineNum++;
+	}
+
+	/**
+	 * Doubles the number of rows each column can hold
+	 */
+	private void grow() {
+
+		int newCapacity = labels.length * 2;
+
+		for (int j=0; j<columns.length; j++) {
+			columns[j] = Arrays.copyOf(columns[j], newCapacity);
+		}
+		labels = Arrays.copyOf(labels, newCapacity);
+	}
+
+	/**
+	 * Returns the index of the first byte from fromIndex that isn't whitespace
+	 * 
+	 * @param bytes
+	 * @param fromIndex
+	 * @param toIndex
+	 */
+	private static int trimStart(ByteBuffer bytes, int fromIndex, int toIndex) {
+
+		while (fromIndex < toIndex && isWhitespace(bytes.get(fromIndex))) {
+			fromIndex++;
+		}
+		return fromIndex;
+	}
+
+	/**
+	 * Returns the index after the last byte before toIndex that isn't whitespace
+	 * 
+	 * @param bytes
+	 * @param fromIndex
+	 * @param toIndex
+	 */
+	private static int trimEnd(ByteBuffer bytes, int fromIndex, int toIndex) {
+
+		while (toIndex > fromIndex && isWhitespace(bytes.get(toIndex-1))) {
+			toIndex--;
+		}
+		return toIndex;
+	}
+
+	// Returns true if b is a space, tab or carriage return
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	// Returns the given bytes as a String
+	static String string(ByteBuffer bytes, int fromIndex, int toIndex) {
+
+		byte[] cell = new byte[toIndex - fromIndex];
+
+		for (int i=0; i<cell.length; i++) {
+			cell[i] = bytes.get(fromIndex + i);
+		}
+		return new String(cell, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses a decimal number, giving the same result as Double.parseDouble.
+	 * Numbers whose digits fit exactly in a double and which have a small exponent are calculated directly,
+	 * other numbers are passed to Double.parseDouble.
+	 * 
+	 * @param bytes
+	 * @param fromIndex
+	 * @param toIndex
+	 */
+	static double parseDouble(ByteBuffer bytes, int fromIndex, int toIndex) {
+
+		int i = fromIndex;
+
+		boolean negative = false;
+		if (i < toIndex && (bytes.get(i) == '-' || bytes.get(i) == '+')) {
+			negative = bytes.get(i) == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int exponent = 0;
+		int numDigits = 0;
+		boolean exact = true;
+
+		// digits before the decimal point
+		while (i < toIndex && bytes.get(i) >= '0' && bytes.get(i) <= '9') {
+			mantissa = mantissa * 10 + (bytes.get(i) - '0');
+			exact &= mantissa < MAX_EXACT_MANTISSA;
+			numDigits++;
+			i++;
+		}
+
+		// digits after the decimal point
+		if (i < toIndex && bytes.get(i) == '.') {
+			i++;
+			while (i < toIndex && bytes.get(i) >= '0' && bytes.get(i) <= '9') {
+				mantissa = mantissa * 10 + (bytes.get(i) - '0');
+				exact &= mantissa < MAX_EXACT_MANTISSA;
+				exponent--;
+				numDigits++;
+				i++;
+			}
+		}
+
+		// exponent
+		if (numDigits > 0 && i < toIndex && (bytes.get(i) == 'e' || bytes.get(i) == 'E')) {
+			i++;
+
+			boolean negativeExponent = false;
+			if (i < toIndex && (bytes.get(i) == '-' || bytes.get(i) == '+')) {
+				negativeExponent = bytes.get(i) == '-';
+				i++;
+			}
+
+			int explicitExponent = 0;
+			int numExponentDigits = 0;
+			while (i < toIndex && bytes.get(i) >= '0' && bytes.get(i) <= '9') {
+				explicitExponent = Math.min(explicitExponent * 10 + (bytes.get(i) - '0'), 10000);
+				numExponentDigits++;
+				i++;
+			}
+			exact &= numExponentDigits > 0;
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+
+		// anything else, such as NaN, Infinity or hexadecimal numbers, is parsed by Double.parseDouble
+		if (!exact || numDigits == 0 || i != toIndex || numDigits > 18 || exponent < -22 || exponent > 22) {
+			return Double.parseDouble(string(bytes, fromIndex, toIndex));
+		}
+
+		// the mantissa and power of ten are exact, so a single multiply or divide is correctly rounded
+		double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses a decimal integer, giving the same result as Integer.parseInt
+	 * 
+	 * @param bytes
+	 * @param fromIndex
+	 * @param toIndex
+	 */
+	static int parseInt(ByteBuffer bytes, int fromIndex, int toIndex) {
+
+		int i = fromIndex;
+
+		boolean negative = false;
+		if (i < toIndex && (bytes.get(i) == '-' || bytes.get(i) == '+')) {
+			negative = bytes.get(i) == '-';
+			i++;
+		}
+
+		// start of the digits, after any sign
+		int signEnd = i;
+
+		int value = 0;
+
+		while (i < toIndex && bytes.get(i) >= '0' && bytes.get(i) <= '9' && value < 100000000) {
+			value = value * 10 + (bytes.get(i) - '0');
+			i++;
+		}
+
+		// anything else, including a sign without digits and very large values, is parsed by Integer.parseInt
+		if (i == signEnd || i != toIndex) {
+			return Integer.parseInt(string(bytes, fromIndex, toIndex));
+		}
+
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Returns the parsed feature values, trimmed to the number of rows parsed
+	 */
+	double[][] columns() {
+
+		for (int j=0; j<columns.length; j++) {
+			if (columns[j].length != numRows) {
+				columns[j] = Arrays.copyOf(columns[j], numRows);
+			}
+		}
+		return columns;
+	}
+
+	/**
+	 * Returns the parsed class labels, trimmed to the number of rows parsed
+	 */
+	int[] labels() {
+
+		if (labels.length != numRows) {
+			labels = Arrays.copyOf(labels, numRows);
+		}
+		return labels;
+	}
+
+	/**
+	 * Copies the parsed rows into the given columns and labels, starting from row toRow
+	 * 
+	 * @param toColumns
+	 * @param toLabels
+	 * @param toRow
+	 */
+	void copyRows(double[][] toColumns, int[] toLabels, int toRow) {
+
+		for (int j=0; j<columns.length; j++) {
+			System.arraycopy(columns[j], 0, toColumns[j], toRow, numRows);
+		}
+		System.arraycopy(labels, 0, toLabels, toRow, numRows);
+	}
+
+	/**
+	 * Returns the number of lines parsed, including blank lines
+	 */
+	long numLines() {
+		return lineNum - firstLineNum;
+	}
+
+	/**
+	 * Returns the number of rows parsed
+	 */
+	int numRows() {
+		return numRows;
+	}
+
+	/**
+	 * Constructor - creates empty columns for the given parsers
+	 * 
+	 * @param parsers
+	 * @param separator
+	 * @param firstLineNum
+	 */
+	CsvChunkParser(ColumnParser[] parsers, byte separator, long firstLineNum) {
+
+		this(parsers, separator, firstLineNum, INITIAL_CAPACITY, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Constructor - creates empty columns for the given parsers, each able to hold initialCapacity rows,
+	 * at most maxRows rows are parsed
+	 * 
+	 * @param parsers
+	 * @param separator
+	 * @param firstLineNum
+	 * @param initialCapacity
+	 * @param maxRows
+	 */
+	CsvChunkParser(ColumnParser[] parsers, byte separator, long firstLineNum, int initialCapacity, int maxRows) {
+
+		this.parsers = parsers;
+		this.separator = separator;
+		this.lineNum = firstLineNum;
+		this.firstLineNum = firstLineNum;
+		this.maxRows = maxRows;
+
+		columns = new double[parsers.length][Math.max(initialCapacity, 1)];
+		labels = new int[Math.max(initialCapacity, 1)];
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join task that memory maps a newline aligned chunk of a CSV file and parses it into primitive columns,
+ * used to read large files in parallel
+ * 
+ * If the chunk holds a malformed line the task completes normally and the error is kept,
+ * so that the first error in the file can be reported.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class CsvChunkTask extends RecursiveTask<CsvChunkParser> {
+
+	private static final long serialVersionUID = 1L;
+
+	// file the chunk is read from
+	private final FileChannel channel;
+
+	// position of the first byte of the chunk, and of the byte after the chunk
+	private final long fromPosition;
+	private final long toPosition;
+
+	// parameters passed to the CsvChunkParser constructor
+	private final ColumnParser[] parsers;
+	private final byte separator;
+	private final long firstLineNum;
+
+	// error thrown while parsing the chunk, null if the chunk was parsed
+	IllegalArgumentException error = null;
+
+	/**
+	 * Maps and parses the chunk
+	 */
+	@Override
+	protected CsvChunkParser compute() {
+
+		// every value takes at least two bytes, so small chunks can't hold many rows
+		long maxRows = (toPosition - fromPosition) / (2 * (parsers.length + 1)) + 1;
+
+		CsvChunkParser chunkParser = new CsvChunkParser(parsers, separator, firstLineNum, (int) Math.min(maxRows, CsvChunkParser.INITIAL_CAPACITY), Integer.MAX_VALUE);
+
+		try {
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, fromPosition, toPosition - fromPosition);
+
+			chunkParser.parseLines(bytes, 0, bytes.limit(), true);
+
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (IllegalArgumentException e) {
+			error = e;
+		}
+
+		return chunkParser;
+	}
+
+	/**
+	 * Returns a task that parses the same chunk with lines numbered from firstLineNum
+	 * 
+	 * @param firstLineNum
+	 */
+	CsvChunkTask numbered(long firstLineNum) {
+		return new CsvChunkTask(channel, fromPosition, toPosition, parsers, separator, firstLineNum);
+	}
+
+	/**
+	 * Constructor - lines of the chunk are numbered from firstLineNum
+	 * 
+	 * @param channel
+	 * @param fromPosition
+	 * @param toPosition
+	 * @param parsers
+	 * @param separator
+	 * @param firstLineNum
+	 */
+	CsvChunkTask(FileChannel channel, long fromPosition, long toPosition, ColumnParser[] parsers, byte separator, long firstLineNum) {
+
+		this.channel = channel;
+		this.fromPosition = fromPosition;
+		this.toPosition = toPosition;
+		this.parsers = parsers;
+		this.separator = separator;
+		this.firstLineNum = firstLineNum;
+	}
+}
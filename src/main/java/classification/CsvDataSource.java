@@ -0,0 +1,187 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a CSV file one block of samples at a time into columnar ClassifierData
+ * 
+ * The file is read in the same format and parsed in the same way as by CsvReader,
+ * but only the bytes of the current block and the parsed block are held in memory.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public class CsvDataSource implements ClassifierDataSource<Double> {
+
+	// Default number of samples in each block
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+	// Number of bytes read from the file at a time
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	// file being read
+	private final FileChannel channel;
+
+	// bytes read from the file, bytes from start up to end have been read but not parsed
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private ByteBuffer bytes = ByteBuffer.wrap(buffer);
+	private int start = 0;
+	private int end = 0;
+
+	// has the end of the file been read
+	private boolean endOfInput = false;
+
+	// names of the features given in the header line
+	private final String[] featureNames;
+
+	// parser of each feature column
+	private final ColumnParser[] parsers;
+
+	// byte separating the values of a line
+	private final byte separator;
+
+	// maximum number of samples in each block
+	private final int blockSize;
+
+	// line number of the next line to be parsed
+	private long lineNum;
+
+	/**
+	 * Returns the next block of at most blockSize samples, or null once every sample has been read
+	 */
+	@Override
+	public ClassifierData<Double> nextBlock() throws IOException {
+
+		CsvChunkParser chunkParser = new CsvChunkParser(parsers, separator, lineNum, Math.min(blockSize, CsvChunkParser.INITIAL_CAPACITY), blockSize);
+
+		while (true) {
+
+			start = chunkParser.parseLines(bytes, start, end, endOfInput);
+
+			if (chunkParser.numRows() == blockSize || endOfInput) {
+				break;
+			}
+			fill();
+		}
+
+		lineNum += chunkParser.numLines();
+
+		if (chunkParser.numRows() == 0) {
+			return null;
+		}
+
+		ClassifierData<Double> data = new ClassifierData<Double>(chunkParser.columns(), chunkParser.labels(), null);
+		data.setFeatureNames(featureNames);
+
+		return data;
+	}
+
+	/**
+	 * Returns the names of the features given in the header line
+	 */
+	@Override
+	public String[] featureNames() {
+		return featureNames.clone();
+	}
+
+	/**
+	 * Closes the file
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Reads more of the file into the buffer, after the bytes that haven't been parsed.
+	 * The buffer is grown if a single line fills it.
+	 * 
+	 * @throws IOException
+	 */
+	private void fill() throws IOException {
+
+		if (start > 0) {
+			System.arraycopy(buffer, start, buffer, 0, end - start);
+			end -= start;
+			start = 0;
+		}
+		else if (end == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			bytes = ByteBuffer.wrap(buffer);
+		}
+
+		int numRead = channel.read(ByteBuffer.wrap(buffer, end, buffer.length - end));
+
+		if (numRead < 0) {
+			endOfInput = true;
+		}
+		else {
+			end += numRead;
+		}
+	}
+
+	/**
+	 * Constructor - opens the given CSV file, values of every column are parsed by ColumnParser.DOUBLE
+	 * 
+	 * @param inputFilePath
+	 * @param blockSize
+	 * @throws IOException
+	 */
+	public CsvDataSource(String inputFilePath, int blockSize) throws IOException {
+
+		this(inputFilePath, new CsvReader(), blockSize);
+	}
+
+	/**
+	 * Constructor - opens the given CSV file, values are parsed using the settings of csvReader
+	 * 
+	 * @param inputFilePath
+	 * @param csvReader
+	 * @param blockSize
+	 * @throws IOException
+	 */
+	CsvDataSource(String inputFilePath, CsvReader csvReader, int blockSize) throws IOException {
+
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("blockSize must be greater than 0");
+		}
+
+		this.blockSize = blockSize;
+
+		channel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ);
+
+		try {
+			// the first line holds the column names, which give the number of features
+			int headerEnd = CsvReader.indexOf(bytes, (byte) '\n', start, end);
+
+			while (headerEnd < 0 && !endOfInput) {
+				fill();
+				headerEnd = CsvReader.indexOf(bytes, (byte) '\n', start, end);
+			}
+			if (headerEnd < 0) {
+				headerEnd = end;
+			}
+
+			featureNames = csvReader.parseHeader(bytes, start, headerEnd);
+			parsers = csvReader.resolveParsers(featureNames.length);
+			separator = csvReader.separator();
+
+			start = Math.min(headerEnd + 1, end);
+
+			// sample data starts on line 2
+			lineNum = 2;
+
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,323 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Pattern;
+
+/**
+ * Reads CSV sample data straight into primitive columns
+ * 
+ * The first line of the file holds the column names, each following line holds a value for every feature
+ * followed by an integer class label, see the Data Format section of the README.
+ * The file is read in large blocks of bytes and each value is parsed from the bytes by the ColumnParser
+ * of its column, no String is created for a value unless it can't be parsed directly.
+ * Malformed values are reported with their line number.
+ * 
+ * If given a ForkJoinPool the file is instead memory mapped in newline aligned chunks which are parsed in parallel,
+ * the columns of each chunk are then joined in the order of the file.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public class CsvReader {
+
+	// Default and maximum number of bytes in each chunk of a file read in parallel,
+	// a chunk is mapped as a single MappedByteBuffer which can hold at most 2GB
+	static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+	static final int MAX_CHUNK_SIZE = 1 << 30;
+
+	// parsers set for particular feature columns, other columns are parsed by ColumnParser.DOUBLE
+	private final HashMap<Integer, ColumnParser> columnParsers = new HashMap<Integer, ColumnParser>();
+
+	// character separating the values of a line
+	private char separator = ',';
+
+	// pool used to parse chunks of the file in parallel, null if the file is read on the calling thread
+	private ForkJoinPool forkJoinPool = null;
+
+	// number of bytes in each chunk of a file read in parallel, chunks are extended to the end of their last line
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	/**
+	 * Sets the parser used for the given feature column, by default every column is parsed by ColumnParser.DOUBLE
+	 * 
+	 * @param featureNum
+	 * @param parser
+	 */
+	public void setColumnParser(int featureNum, ColumnParser parser) {
+		columnParsers.put(featureNum, parser);
+	}
+
+	/**
+	 * Sets the character separating the values of a line, "," by default
+	 * 
+	 * @param separator
+	 */
+	public void setSeparator(char separator) {
+
+		if (separator > 127 || separator == '\n' || separator == '\r') {
+			throw new IllegalArgumentException("separator must be a single byte character other than a newline");
+		}
+		this.separator = separator;
+	}
+
+	/**
+	 * Sets the pool used to parse chunks of the file in parallel,
+	 * if null (the default) the file is read on the calling thread
+	 * 
+	 * @param forkJoinPool
+	 */
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Sets the number of bytes in each chunk of a file read in parallel, at most MAX_CHUNK_SIZE.
+	 * Only used if a ForkJoinPool has been set.
+	 * 
+	 * @param chunkSize
+	 */
+	public void setChunkSize(int chunkSize) {
+
+		if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+			throw new IllegalArgumentException("chunkSize must be between 1 and " + MAX_CHUNK_SIZE);
+		}
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Reads the given CSV file into columnar ClassifierData,
+	 * in parallel if a ForkJoinPool has been set
+	 * 
+	 * @param inputFilePath
+	 * @throws IOException
+	 */
+	public ClassifierData<Double> read(String inputFilePath) throws IOException {
+
+		if (forkJoinPool != null) {
+			return readChunks(inputFilePath);
+		}
+
+		// the whole file is read as a single block
+		try (CsvDataSource source = stream(inputFilePath, Integer.MAX_VALUE)) {
+
+			ClassifierData<Double> data = source.nextBlock();
+
+			if (data == null || data.numFeatures() == 0) {
+				throw new IndexOutOfBoundsException("dataArray is null or empty");
+			}
+			return data;
+		}
+	}
+
+	/**
+	 * Opens the given CSV file to be read one block of at most blockSize samples at a time,
+	 * values are parsed using the settings of this reader
+	 * 
+	 * @param inputFilePath
+	 * @param blockSize
+	 * @throws IOException
+	 */
+	public CsvDataSource stream(String inputFilePath, int blockSize) throws IOException {
+		return new CsvDataSource(inputFilePath, this, blockSize);
+	}
+
+	// Returns the byte separating the values of a line
+	byte separator() {
+		return (byte) separator;
+	}
+
+	/**
+	 * Reads the given CSV file by memory mapping newline aligned chunks of the file and parsing them in parallel
+	 * 
+	 * @param inputFilePath
+	 * @throws IOException
+	 */
+	private ClassifierData<Double> readChunks(String inputFilePath) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+
+			long fileSize = channel.size();
+
+			// the first line holds the column names, which give the number of features
+			long headerEnd = nextLineStart(channel, 0);
+
+			ByteBuffer header = ByteBuffer.allocate((int) headerEnd);
+			do {
+				if (channel.read(header, header.position()) < 0) {
+					break;
+				}
+			} while (header.hasRemaining());
+
+			String[] featureNames = parseHeader(header, 0, header.position());
+			ColumnParser[] parsers = resolveParsers(featureNames.length);
+
+			// split the rest of the file into chunks that end at the end of a line
+			ArrayList<CsvChunkTask> tasks = new ArrayList<CsvChunkTask>();
+
+			long chunkStart = headerEnd;
+			while (chunkStart < fileSize) {
+
+				long chunkEnd = chunkStart + chunkSize >= fileSize ? fileSize : nextLineStart(channel, chunkStart + chunkSize - 1);
+
+				if (chunkEnd - chunkStart > Integer.MAX_VALUE) {
+					throw new IllegalArgumentException("Line starting at byte " + chunkStart + " is longer than the largest chunk");
+				}
+
+				tasks.add(new CsvChunkTask(channel, chunkStart, chunkEnd, parsers, (byte) separator, 0));
+				chunkStart = chunkEnd;
+			}
+
+			forkJoinPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+			// join the chunks in the order of the file
+			long numRows = 0;
+			long lineNum = 2;
+
+			for (CsvChunkTask task : tasks) {
+
+				// the lines of a chunk are only numbered once the lines of every earlier chunk are known,
+				// so the first chunk holding a malformed line is parsed again to report the line number
+				if (task.error != null) {
+					throwChunkError(task, lineNum);
+				}
+
+				numRows += task.join().numRows();
+				lineNum += task.join().numLines();
+			}
+
+			if (numRows == 0 || featureNames.length == 0) {
+				throw new IndexOutOfBoundsException("dataArray is null or empty");
+			}
+			if (numRows > Integer.MAX_VALUE - 8) {
+				throw new IllegalArgumentException("File has more samples than can be stored in a column");
+			}
+
+			double[][] columns = new double[featureNames.length][(int) numRows];
+			int[] labels = new int[(int) numRows];
+
+			int row = 0;
+			for (CsvChunkTask task : tasks) {
+				task.join().copyRows(columns, labels, row);
+				row += task.join().numRows();
+			}
+
+			ClassifierData<Double> data = new ClassifierData<Double>(columns, labels, null);
+			data.setFeatureNames(featureNames);
+
+			return data;
+		}
+	}
+
+	/**
+	 * Parses the chunk of the given task again on the calling thread with lines numbered from firstLineNum,
+	 * and throws the error of the chunk with the correct line number
+	 * 
+	 * @param task
+	 * @param firstLineNum
+	 */
+	private static void throwChunkError(CsvChunkTask task, long firstLineNum) {
+
+		CsvChunkTask numberedTask = task.numbered(firstLineNum);
+		numberedTask.compute();
+
+		throw numberedTask.error != null ? numberedTask.error : task.error;
+	}
+
+	/**
+	 * Returns the position after the first newline at or after the given position, or the size of the file if there is none
+	 * 
+	 * @param channel
+	 * @param position
+	 * @throws IOException
+	 */
+	private static long nextLineStart(FileChannel channel, long position) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+		while (true) {
+
+			buffer.clear();
+			int numRead = channel.read(buffer, position);
+
+			if (numRead < 0) {
+				return channel.size();
+			}
+
+			int newline = indexOf(buffer, (byte) '\n', 0, numRead);
+
+			if (newline >= 0) {
+				return position + newline + 1;
+			}
+			position += numRead;
+		}
+	}
+
+	/**
+	 * Returns the parser of each of numFeatures feature columns, resolved once before parsing
+	 * 
+	 * @param numFeatures
+	 */
+	ColumnParser[] resolveParsers(int numFeatures) {
+
+		ColumnParser[] parsers = new ColumnParser[numFeatures];
+
+		for (int j=0; j<numFeatures; j++) {
+			parsers[j] = columnParsers.getOrDefault(j, ColumnParser.DOUBLE);
+		}
+		return parsers;
+	}
+
+	/**
+	 * Returns the names of the feature columns given in the header line, the name of the label column is left out
+	 * 
+	 * @param bytes
+	 * @param fromIndex
+	 * @param toIndex
+	 */
+	String[] parseHeader(ByteBuffer bytes, int fromIndex, int toIndex) {
+
+		String[] names = CsvChunkParser.string(bytes, fromIndex, toIndex).trim().split(Pattern.quote(String.valueOf(separator)), -1);
+
+		String[] featureNames = new String[names.length - 1];
+
+		for (int j=0; j<featureNames.length; j++) {
+			featureNames[j] = names[j].trim();
+		}
+		return featureNames;
+	}
+
+	/**
+	 * Returns the index of the first b in bytes from fromIndex up to toIndex, or -1 if there is none
+	 * 
+	 * @param bytes
+	 * @param b
+	 * @param fromIndex
+	 * @param toIndex
+	 */
+	static int indexOf(ByteBuffer bytes, byte b, int fromIndex, int toIndex) {
+
+		for (int i=fromIndex; i<toIndex; i++) {
+			if (bytes.get(i) == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Constructor - values of every column are parsed by ColumnParser.DOUBLE, separated by ","
+	 */
+	public CsvReader() {
+	}
+}
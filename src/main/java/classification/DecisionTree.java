@@ -3,7 +3,10 @@
  */
 package main.java.classification;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Decision Tree Classifier
@@ -15,21 +18,270 @@ import java.util.ArrayList;
  */
 public class DecisionTree<T extends Comparable<T>> extends Classifier<T> {
 
-	// root node of the decision tree
-	TreeNode<T> rootNode;
+	// root node of the decision tree. The tree, its compiled forms and its metrics are replaced by relayout and prune
+	// while other threads may be classifying, so every classify call reads each of them once
+	volatile TreeNode<T> rootNode;
 
 	// depth of the tree
 	int treeDepth;
 
+	// the tree flattened into arrays, null if the tree splits on values that are not numbers
+	volatile CompiledTree compiledTree;
+
+	// the tree compiled into a generated class by compileBytecode, null if not compiled
+	volatile BytecodeTree bytecodeTree;
+
+	// names of the features of the data the tree was built from, null if the names are unknown
+	String[] featureNames;
+
 	/**
 	 * Predicts a class label for the given data sample
 	 */
 	@Override
 	public Integer classify(ArrayList<T> sample) {
 
+		TreeNode<T> root = rootNode;
+		InferenceMetrics metrics = inferenceMetrics;
+
+		// a tree loaded from a file only has its compiled form, if metrics are enabled
+		// the compiled tree is used so the leaf reached by the sample can be counted
+		if (root == null || (metrics != null && compiledTree != null)) {
+
+			double[] values = new double[sample.size()];
+			for (int j=0; j<values.length; j++) {
+				values[j] = ((Number) sample.get(j)).doubleValue();
+			}
+			return classify(values);
+		}
+
+		// trees that don't split on numbers are timed, but their leaves aren't counted
+		if (metrics != null) {
+
+			long startTime = System.nanoTime();
+			Integer label = root.classifySample(sample);
+
+			metrics.recordLatency(System.nanoTime() - startTime);
+
+			return label;
+		}
+
 		// use rootNode to classify given data sample
-		return rootNode.classifySample(sample);
+		return root.classifySample(sample);
+
+	}
+
+	/**
+	 * Predicts a class label for the given data sample, using the compiled tree.
+	 * The sample is not changed.
+	 * 
+	 * @param sample
+	 */
+	public int classify(double[] sample) {
+
+		InferenceMetrics metrics = inferenceMetrics;
+		CompiledTree tree = compiledTree;
+
+		if (tree == null) {
+			throw new IllegalStateException("tree can only classify double samples if it splits on numbers");
+		}
+
+		// the generated class only returns the class, so the leaf is found from the compiled tree arrays while metrics are enabled
+		if (metrics != null) {
+
+			long startTime = System.nanoTime();
+			int leaf = tree.leaf(sample);
+			int label = tree.classLabel[leaf];
+
+			metrics.recordLatency(System.nanoTime() - startTime);
+
+			// the metrics are replaced after the tree by relayout and prune, a leaf of another tree isn't counted
+			if (metrics.countsLeavesOf(tree)) {
+				metrics.recordLeaf(leaf);
+			}
+
+			return label;
+		}
+
+		BytecodeTree generatedTree = bytecodeTree;
+
+		if (generatedTree != null) {
+			return generatedTree.classify(sample);
+		}
+
+		return tree.classify(sample);
+	}
+
+	/**
+	 * Compiles the tree into a generated class used by classify(double[]) from then on, see BytecodeTree.
+	 * Returns false if the tree is too large to compile, classify(double[]) then keeps using the compiled tree arrays.
+	 */
+	public synchronized boolean compileBytecode() {
+
+		if (compiledTree == null) {
+			throw new IllegalStateException("tree can only be compiled if it splits on numbers");
+		}
+
+		if (bytecodeTree == null) {
+			bytecodeTree = BytecodeTree.compile(compiledTree);
+		}
+		return bytecodeTree != null;
+	}
+
+	/**
+	 * Reorders the nodes of the compiled tree so that the path taken by most samples below every node is stored contiguously,
+	 * see CompiledTree.relayout. leafHits holds the number of samples reaching each leaf of the compiled tree,
+	 * such as InferenceSnapshot.leafHits of this tree. Predictions are unchanged.
+	 * 
+	 * A tree compiled by compileBytecode is compiled again in the new order. If metrics are enabled they are restarted,
+	 * as the leaves they count are indexed by node of the compiled tree. Other threads can classify samples while the tree
+	 * is laid out, each sample is classified by either the old or the new layout.
+	 * 
+	 * @param leafHits
+	 */
+	public synchronized void relayout(long[] leafHits) {
+
+		if (compiledTree == null) {
+			throw new IllegalStateException("tree can only be laid out if it splits on numbers");
+		}
+
+		CompiledTree newTree = compiledTree.relayout(leafHits);
+		BytecodeTree newBytecodeTree = bytecodeTree == null ? null : BytecodeTree.compile(newTree);
+
+		compiledTree = newTree;
+		bytecodeTree = newBytecodeTree;
+
+		if (inferenceMetrics != null) {
+			disableMetrics();
+			enableMetrics();
+		}
+	}
+
+	/**
+	 * Reorders the nodes of the compiled tree using the number of samples of data reaching each leaf, see relayout(long[]).
+	 * data should be representative of the samples the tree will classify, the training data can be used.
+	 * 
+	 * @param data
+	 */
+	public synchronized void relayout(ClassifierData<T> data) {
+
+		if (compiledTree == null) {
+			throw new IllegalStateException("tree can only be laid out if it splits on numbers");
+		}
+
+		CompiledTree tree = compiledTree;
+
+		// the leaves are counted without changing the metrics of the tree
+		InferenceMetrics leafCounts = new InferenceMetrics(tree);
+		tree.classifyAll(data, null, leafCounts);
+
+		relayout(leafCounts.snapshot().leafHits());
+	}
+
+	/**
+	 * Returns a predicted class label for each sample of the given data,
+	 * samples are walked through the compiled tree in blocks
+	 */
+	@Override
+	public int[] classifyAll(ClassifierData<T> data) {
+
+		return classifyAll(data, null);
+	}
+
+	/**
+	 * Returns a predicted class label for each sample of the given data,
+	 * if forkJoinPool isn't null large batches are classified in parallel in the pool
+	 * 
+	 * @param data
+	 * @param forkJoinPool
+	 */
+	public int[] classifyAll(ClassifierData<T> data, ForkJoinPool forkJoinPool) {
+
+		InferenceMetrics metrics = inferenceMetrics;
+		CompiledTree tree = compiledTree;
+
+		// trees that don't split on numbers can't be compiled, so classify one sample at a time
+		if (tree == null) {
+			return super.classifyAll(data);
+		}
+
+		if (metrics != null) {
+
+			long startTime = System.nanoTime();
+			int[] predictions = tree.classifyAll(data, forkJoinPool, metrics.countsLeavesOf(tree) ? metrics : null);
+
+			metrics.recordBatch(predictions.length, System.nanoTime() - startTime);
+
+			return predictions;
+		}
+
+		return tree.classifyAll(data, forkJoinPool);
+	}
+
+	/**
+	 * Returns new counters for enableMetrics, the leaf reached by each sample is counted if the tree splits on numbers
+	 */
+	@Override
+	InferenceMetrics newInferenceMetrics() {
+
+		CompiledTree tree = compiledTree;
+		return tree == null ? new InferenceMetrics() : new InferenceMetrics(tree);
+	}
+
+	/**
+	 * Prunes the tree using minimal cost-complexity pruning, where the cost of a subtree is the fraction of training samples
+	 * it misclassifies plus ccpAlpha for each of its leaves. Every split node whose subtree costs more than the node
+	 * would as a leaf is made a leaf, giving the smallest subtree of lowest cost. Larger values of ccpAlpha prune more,
+	 * 0 only prunes splits that classify no more training samples correctly.
+	 * 
+	 * The compiled tree is compiled again, as is a tree compiled by compileBytecode. If metrics are enabled they are restarted.
+	 * A copy of the tree is pruned and then replaces it, so other threads can classify samples while the tree is pruned,
+	 * each sample is classified by either the whole or the pruned tree.
+	 * Trees loaded from a file can't be pruned, as they don't hold the training sample counts.
+	 * 
+	 * @param ccpAlpha
+	 */
+	public synchronized void prune(double ccpAlpha) {
+
+		if (ccpAlpha < 0.0 || Double.isNaN(ccpAlpha)) {
+			throw new IllegalArgumentException("ccpAlpha must not be negative");
+		}
+
+		if (rootNode == null) {
+			throw new IllegalStateException("tree loaded from a file can't be pruned");
+		}
+
+		TreeNode<T> prunedRoot = new TreeNode<T>(rootNode);
+		prunedRoot.prune(ccpAlpha * prunedRoot.numSamples());
+
+		CompiledTree newTree = compiledTree == null ? null : CompiledTree.compile(prunedRoot, compiledTree.numFeatures());
+		BytecodeTree newBytecodeTree = bytecodeTree == null ? null : BytecodeTree.compile(newTree);
+
+		rootNode = prunedRoot;
+		compiledTree = newTree;
+		bytecodeTree = newBytecodeTree;
+
+		calculateTreeDepth();
+
+		if (inferenceMetrics != null) {
+			disableMetrics();
+			enableMetrics();
+		}
+	}
+
+	/**
+	 * Returns the number of nodes in the tree
+	 */
+	public int numNodes() {
+
+		TreeNode<T> root = rootNode;
+		return root == null ? compiledTree.numNodes() : root.numNodes();
+	}
 
+	/**
+	 * Returns the tree flattened into arrays, or null if the tree splits on values that are not numbers
+	 */
+	public CompiledTree compiledTree() {
+		return compiledTree;
 	}
 
 	/**
@@ -51,18 +303,23 @@ public class DecisionTree<T extends Comparable<T>> extends Classifier<T> {
 	 */
 	public void PrintTree() {
 
-		rootNode.printNode();
+		if (rootNode != null) {
+			rootNode.printNode();
+		}
+		else {
+			compiledTree.printNode(0, "0", 1);
+		}
 
 		System.out.println("treeDepth: " + treeDepth);
 
 	}
 
 	/**
-	 * Constructor - Builds a DecisionTree from the given inputData
+	 * Returns the maximum depth used when building a tree from the given inputData if no maxDepth is given
 	 * 
 	 * @param inputData
 	 */
-	public DecisionTree(ClassifierData<T> inputData){
+	static int defaultMaxDepth(ClassifierData<?> inputData) {
 
 		// depth of the tree if data is split equally at each node = log2(numSamples), used if numFeatures is large
 		int maxDepth1 = (int) Math.round(TreeNode.log2(inputData.numSamples()));
@@ -71,12 +328,123 @@ public class DecisionTree<T extends Comparable<T>> extends Classifier<T> {
 		// maxDepth must be <= inpuData.numFeatures, can't split data more than n times, where n=numFeatures
 		int maxDepth2 = inputData.numFeatures()+1;
 
+		return Math.min(maxDepth1, maxDepth2);
+	}
 
-		// build root node using given inputData, and minimum of the two maxDepths
-		rootNode = new TreeNode<T>(inputData, Math.min(maxDepth1, maxDepth2), 1, "0");
+	/**
+	 * Builds the tree from a view of the given inputData,
+	 * so that nodes can partition the samples of the view in place
+	 * 
+	 * @param inputData
+	 * @param context
+	 */
+	private void buildTree(ClassifierData<T> inputData, TreeBuildContext<T> context) {
+
+		buildTree(inputData, inputData.indexView(), context);
+	}
+
+	/**
+	 * Builds the tree from rootData, a view over the samples of the given inputData with its own sample index
+	 * 
+	 * @param inputData
+	 * @param rootData
+	 * @param context
+	 */
+	private void buildTree(ClassifierData<T> inputData, ClassifierData<T> rootData, TreeBuildContext<T> context) {
+
+		context.prepare(inputData, rootData);
+
+		if (context.listener != null) {
+			context.listener.treeStarted(context.metrics);
+		}
+
+		long startTime = System.nanoTime();
+
+		// if a pool is given the whole tree is built inside it, so nodes can fork their children.
+		// Trees built from inside the pool, such as the trees of a RandomForest, fork their children directly
+		boolean invokeInPool = context.forkJoinPool != null && !ForkJoinTask.inForkJoinPool();
+
+		// trees with a limited number of leaves are grown best first
+		if (context.maxLeafNodes > 0) {
+			BestFirstTreeGrower<T> grower = new BestFirstTreeGrower<T>(context);
+
+			rootNode = invokeInPool ? context.forkJoinPool.invoke(ForkJoinTask.adapt(() -> grower.grow(rootData))) : grower.grow(rootData);
+		}
+		else if (invokeInPool) {
+			rootNode = context.forkJoinPool.invoke(new TreeNodeTask<T>(rootData, context, 1, "0", null));
+		}
+		else {
+			rootNode = new TreeNode<T>(rootData, context, 1, "0");
+		}
+
+		if (context.listener != null) {
+			context.metrics.setBuildNanos(System.nanoTime() - startTime);
+			context.listener.treeBuilt(context.metrics);
+		}
 
 		calculateTreeDepth();
 
+		compiledTree = CompiledTree.compile(rootNode, inputData.numFeatures());
+		featureNames = inputData.featureNames();
+		classValues = inputData.classValues();
+	}
+
+	/**
+	 * Returns the names of the features of the data the tree was built from, or null if the names are unknown
+	 */
+	public String[] featureNames() {
+		return featureNames == null ? null : featureNames.clone();
+	}
+
+	/**
+	 * Saves the tree to a binary file at outputFilePath, see TreeFile for the format.
+	 * Only trees that split on numbers can be saved. The tree can be loaded again with DecisionTree.load.
+	 * 
+	 * @param outputFilePath
+	 * @throws IOException
+	 */
+	public void save(String outputFilePath) throws IOException {
+
+		if (compiledTree == null) {
+			throw new IllegalStateException("tree can only be saved if it splits on numbers");
+		}
+
+		TreeFile.save(compiledTree, featureNames, classValues, outputFilePath);
+	}
+
+	/**
+	 * Loads a tree saved by save, the file is memory mapped.
+	 * The loaded tree classifies samples using its compiled form.
+	 * 
+	 * @param inputFilePath
+	 * @throws IOException
+	 */
+	public static DecisionTree<Double> load(String inputFilePath) throws IOException {
+		return TreeFile.load(inputFilePath);
+	}
+
+	/**
+	 * Constructor - Builds a DecisionTree from the given inputData
+	 * 
+	 * @param inputData
+	 */
+	public DecisionTree(ClassifierData<T> inputData){
+
+		this(inputData, SplitMode.MEAN);
+	}
+
+	/**
+	 * Constructor - Builds a DecisionTree from the given inputData,
+	 * using the given splitMode to choose the value to split each feature on
+	 * 
+	 * @param inputData
+	 * @param splitMode
+	 */
+	public DecisionTree(ClassifierData<T> inputData, SplitMode splitMode){
+
+		// build root node using given inputData, and minimum of the two maxDepths
+		buildTree(inputData, new TreeBuildContext<T>(defaultMaxDepth(inputData), splitMode));
+
 
 	}
 
@@ -89,10 +457,60 @@ public class DecisionTree<T extends Comparable<T>> extends Classifier<T> {
 	 */
 	public DecisionTree(ClassifierData<T> inputData, int maxDepth){
 
+		this(inputData, maxDepth, SplitMode.MEAN);
+	}
+
+	/**
+	 * Constructor - Builds a DecisionTree from the given inputData,
+	 * where maxDepth = maximum depth of constructed tree,
+	 * using the given splitMode to choose the value to split each feature on
+	 * 
+	 * @param inputData
+	 * @param maxDepth
+	 * @param splitMode
+	 */
+	public DecisionTree(ClassifierData<T> inputData, int maxDepth, SplitMode splitMode){
+
 		// build root node using give inputData and maxDepth
-		rootNode = new TreeNode<T>(inputData, maxDepth, 1, "0");
+		buildTree(inputData, new TreeBuildContext<T>(maxDepth, splitMode));
+	}
 
-		calculateTreeDepth();
+	/**
+	 * Constructor - Creates a DecisionTree from a compiledTree loaded from a file
+	 * 
+	 * @param compiledTree
+	 * @param featureNames
+	 */
+	DecisionTree(CompiledTree compiledTree, String[] featureNames){
+
+		this.compiledTree = compiledTree;
+		this.featureNames = featureNames;
+
+		treeDepth = compiledTree.depth();
+	}
+
+	/**
+	 * Constructor - Builds a DecisionTree from the given inputData, using the settings in context
+	 * 
+	 * @param inputData
+	 * @param context
+	 */
+	DecisionTree(ClassifierData<T> inputData, TreeBuildContext<T> context){
+
+		buildTree(inputData, context);
+	}
+
+	/**
+	 * Constructor - Builds a DecisionTree from the given samples of inputData, where samples may be repeated,
+	 * using the settings in context. sampleNums becomes the sample index of the root node, see ClassifierData.sampleView
+	 * 
+	 * @param inputData
+	 * @param sampleNums
+	 * @param context
+	 */
+	DecisionTree(ClassifierData<T> inputData, int[] sampleNums, TreeBuildContext<T> context){
+
+		buildTree(inputData, inputData.sampleView(sampleNums), context);
 	}
 
 
@@ -3,6 +3,8 @@
  */
 package main.java.classification;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Class to build and test a Decision Tree classifier using given inputData and testData
  * 
@@ -11,35 +13,197 @@ package main.java.classification;
  */
 public class DecisionTreeBuilder<T extends Comparable<T>> extends ClassifierBuilder<DecisionTree<T>, T>{
 
+	// method used to choose the value to split each feature on
+	private SplitMode splitMode = SplitMode.MEAN;
+
+	// impurity measure used to compare splits
+	private SplitCriterion splitCriterion = SplitCriterion.ENTROPY;
+
+	// pool used to build subtrees in parallel, null if trees are built on the calling thread
+	private ForkJoinPool forkJoinPool = null;
+
+	// minimum number of samples in a node for its children to be built in parallel
+	private int parallelCutoff = TreeBuildContext.DEFAULT_PARALLEL_CUTOFF;
+
+	// minimum number of samples in a node for its features to be evaluated in parallel
+	private int featureParallelCutoff = Integer.MAX_VALUE;
+
+	// nodes with fewer samples are leaf nodes
+	private int minSamplesSplit = 2;
+
+	// minimum number of samples left in each child of a split
+	private int minSamplesLeaf = 1;
+
+	// minimum information gain of a split
+	private double minInfoGain = 0.0;
+
+	// maximum number of leaf nodes, 0 if unlimited
+	private int maxLeafNodes = 0;
+
+	// cost-complexity pruning parameter, the tree isn't pruned if 0
+	private double ccpAlpha = 0.0;
+
+	// receives the metrics of each node and of the tree as it is built, null if building isn't measured
+	private TrainingListener trainingListener = null;
 
 	/**
-	 * Tests the accuracy of the classifier on the given testData
+	 * Sets the method used to choose the value to split each feature on,
+	 * SplitMode.MEAN by default
 	 * 
-	 * @param testData
+	 * @param splitMode
 	 */
-	@Override
-	public double test(ClassifierData<T> testData) {
+	public void setSplitMode(SplitMode splitMode) {
+		this.splitMode = splitMode;
+	}
+
+	/**
+	 * Sets the impurity measure used to compare splits,
+	 * SplitCriterion.ENTROPY by default
+	 * 
+	 * @param splitCriterion
+	 */
+	public void setSplitCriterion(SplitCriterion splitCriterion) {
+		this.splitCriterion = splitCriterion;
+	}
+
+	/**
+	 * Sets the pool used to build independent subtrees in parallel,
+	 * if null (the default) trees are built on the calling thread
+	 * 
+	 * @param forkJoinPool
+	 */
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
 
-		int numCorrect = 0;
+	/**
+	 * Sets the minimum number of samples a node must hold for its children to be built as
+	 * separate fork-join tasks, smaller subtrees are built sequentially.
+	 * Only used if a ForkJoinPool has been set.
+	 * 
+	 * @param parallelCutoff
+	 */
+	public void setParallelCutoff(int parallelCutoff) {
+		this.parallelCutoff = parallelCutoff;
+	}
 
-		// for each sample in testData
-		for (int i=0; i<testData.numSamples(); i++) {
+	/**
+	 * Sets the minimum number of samples a node must hold for the best split of each of its features
+	 * to be found as a separate fork-join task. Used to spread the work of large nodes near the root,
+	 * before there are enough subtrees to build in parallel. The chosen split is the same as if
+	 * features were evaluated sequentially.
+	 * Only used if a ForkJoinPool has been set, by default features are always evaluated sequentially.
+	 * 
+	 * @param featureParallelCutoff
+	 */
+	public void setFeatureParallelCutoff(int featureParallelCutoff) {
+		this.featureParallelCutoff = featureParallelCutoff;
+	}
 
-			// use classifier to predict class
-			Integer predictedClass = classifier.classify(testData.sample(i));
+	/**
+	 * Sets the minimum number of samples a node must hold to be split, 2 by default
+	 * 
+	 * @param minSamplesSplit
+	 */
+	public void setMinSamplesSplit(int minSamplesSplit) {
 
-			// check if predicted class matches true class label
-			if (predictedClass.equals(testData.classLabel(i))) {
-				numCorrect++;
-			}
+		if (minSamplesSplit < 2) {
+			throw new IllegalArgumentException("minSamplesSplit must be at least 2");
 		}
+		this.minSamplesSplit = minSamplesSplit;
+	}
 
+	/**
+	 * Sets the minimum number of samples each child of a split must hold, 1 by default.
+	 * Splits leaving fewer samples in either child are not considered.
+	 * 
+	 * @param minSamplesLeaf
+	 */
+	public void setMinSamplesLeaf(int minSamplesLeaf) {
+
+		if (minSamplesLeaf < 1) {
+			throw new IllegalArgumentException("minSamplesLeaf must be at least 1");
+		}
+		this.minSamplesLeaf = minSamplesLeaf;
+	}
+
+	/**
+	 * Sets the minimum information gain (or decrease in Gini impurity) of a split, 0 by default.
+	 * Nodes whose best split gains less are leaf nodes, every split is kept if minInfoGain <= 0.
+	 * 
+	 * @param minInfoGain
+	 */
+	public void setMinInfoGain(double minInfoGain) {
+		this.minInfoGain = minInfoGain;
+	}
+
+	/**
+	 * Sets the maximum number of leaf nodes of the tree. If set, nodes are split best first: the leaf whose split most
+	 * decreases the impurity of the tree, its information gain times its number of samples, is split next until the tree has
+	 * maxLeafNodes leaves, see BestFirstTreeGrower. If 0 (the default) the number of leaves is unlimited and the tree is
+	 * built depth first.
+	 * 
+	 * @param maxLeafNodes
+	 */
+	public void setMaxLeafNodes(int maxLeafNodes) {
+
+		if (maxLeafNodes < 0) {
+			throw new IllegalArgumentException("maxLeafNodes must not be negative");
+		}
+		this.maxLeafNodes = maxLeafNodes;
+	}
+
+	/**
+	 * Sets the cost-complexity pruning parameter, the tree is pruned with DecisionTree.prune(ccpAlpha) once built.
+	 * If 0 (the default) the tree isn't pruned.
+	 * 
+	 * @param ccpAlpha
+	 */
+	public void setCcpAlpha(double ccpAlpha) {
+
+		if (ccpAlpha < 0.0 || Double.isNaN(ccpAlpha)) {
+			throw new IllegalArgumentException("ccpAlpha must not be negative");
+		}
+		this.ccpAlpha = ccpAlpha;
+	}
+
+	/**
+	 * Sets the listener given the metrics of each node as it is built, and the totals of the tree
+	 * once it has been built. If null (the default) building isn't measured.
+	 * 
+	 * @param trainingListener
+	 */
+	public void setTrainingListener(TrainingListener trainingListener) {
+		this.trainingListener = trainingListener;
+	}
+
+	/**
+	 * Tests the accuracy of the classifier on the given testData
+	 * 
+	 * @param testData
+	 */
+	@Override
+	public double test(ClassifierData<T> testData) {
 
 		// calculate classifier accuracy
-		return (double) numCorrect / testData.numSamples();
+		return (double) countCorrect(testData) / testData.numSamples();
 
 	}
 
+	/**
+	 * Returns the number of samples of testData that the classifier predicts correctly
+	 * 
+	 * @param testData
+	 */
+	@Override
+	long countCorrect(ClassifierData<T> testData) {
+
+		// use classifier to predict the class of every sample, in parallel if a pool has been set
+		int[] predictedClasses = classifier.classifyAll(testData, forkJoinPool);
+
+		return countCorrect(predictedClasses, testData);
+	}
+
 
 	/**
 	 * Builds a Decision Tree classifier from given inputData
@@ -49,11 +213,27 @@ public class DecisionTreeBuilder<T extends Comparable<T>> extends ClassifierBuil
 	@Override
 	public void build(ClassifierData<T> inputData) {
 
-		// During building features are removed from inputData when splitting, so first copy inputData
-		ClassifierData<T> newInputData = new ClassifierData<T>(inputData);
+		// Split calculations work on primitive columns rather than boxed values, so copy inputData into columns if needed.
+		// During building inputData is only split through views, so columnar or off-heap inputData is used directly.
+		ClassifierData<T> newInputData = inputData.isColumnar() || inputData.isOffHeap() ? inputData : new ClassifierData<T>(inputData, true);
+
+		TreeBuildContext<T> context = new TreeBuildContext<T>(DecisionTree.defaultMaxDepth(newInputData), splitMode);
+		context.splitCriterion = splitCriterion;
+		context.forkJoinPool = forkJoinPool;
+		context.parallelCutoff = parallelCutoff;
+		context.featureParallelCutoff = featureParallelCutoff;
+		context.listener = trainingListener;
+		context.minSamplesSplit = minSamplesSplit;
+		context.minSamplesLeaf = minSamplesLeaf;
+		context.minInfoGain = minInfoGain;
+		context.maxLeafNodes = maxLeafNodes;
 
 		// build classifier using copied data
-		classifier = new DecisionTree<T>(newInputData);
+		classifier = new DecisionTree<T>(newInputData, context);
+
+		if (ccpAlpha > 0.0) {
+			classifier.prune(ccpAlpha);
+		}
 
 
 	}
@@ -0,0 +1,228 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Gradient Boosted Trees Classifier, for data with class labels 0 and 1
+ * 
+ * The score of a sample is baseScore plus the value of the leaf the sample reaches in each regression tree,
+ * and is the log odds of the sample being of class 1. Samples with a score > 0 are classified as class 1.
+ * 
+ * Built by a GradientBoostedTreesBuilder.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public class GradientBoostedTrees<T extends Comparable<T>> extends Classifier<T> {
+
+	// regression trees, in the order they were built
+	private final ArrayList<RegressionTree> trees;
+
+	// score of every sample before any tree is added, the log odds of class 1 in the training data
+	private final double baseScore;
+
+	// number of features of the data the trees were built from
+	private final int numFeatures;
+
+	/**
+	 * Returns a predicted class label for the given data sample
+	 * 
+	 * @param sample
+	 */
+	@Override
+	public Integer classify(ArrayList<T> sample) {
+
+		double[] values = new double[sample.size()];
+		for (int j=0; j<values.length; j++) {
+			values[j] = ((Number) sample.get(j)).doubleValue();
+		}
+		return classify(values);
+	}
+
+	/**
+	 * Predicts a class label for the given data sample, the sample is not changed
+	 * 
+	 * @param sample
+	 */
+	public int classify(double[] sample) {
+		return score(sample) > 0.0 ? 1 : 0;
+	}
+
+	/**
+	 * Returns the probability that the given sample is of class 1
+	 * 
+	 * @param sample
+	 */
+	public double probability(double[] sample) {
+		return sigmoid(score(sample));
+	}
+
+	/**
+	 * Returns the score of the given sample, the log odds of the sample being of class 1
+	 * 
+	 * @param sample
+	 */
+	public double score(double[] sample) {
+
+		InferenceMetrics metrics = inferenceMetrics;
+
+		if (metrics != null) {
+
+			long startTime = System.nanoTime();
+			double score = sumTrees(sample);
+
+			metrics.recordLatency(System.nanoTime() - startTime);
+
+			return score;
+		}
+
+		return sumTrees(sample);
+	}
+
+	/**
+	 * Returns baseScore plus the value of the leaf the given sample reaches in each tree
+	 * 
+	 * @param sample
+	 */
+	private double sumTrees(double[] sample) {
+
+		if (sample.length < numFeatures) {
+			throw new IndexOutOfBoundsException("sample has " + sample.length + " features, expected " + numFeatures);
+		}
+
+		double score = baseScore;
+
+		for (RegressionTree tree : trees) {
+			score += tree.predict(sample);
+		}
+		return score;
+	}
+
+	/**
+	 * Returns a predicted class label for each sample of the given data
+	 * 
+	 * @param data
+	 */
+	@Override
+	public int[] classifyAll(ClassifierData<T> data) {
+		return classifyAll(data, null);
+	}
+
+	/**
+	 * Returns a predicted class label for each sample of the given data,
+	 * if forkJoinPool isn't null large batches are classified in parallel in the pool
+	 * 
+	 * @param data
+	 * @param forkJoinPool
+	 */
+	public int[] classifyAll(ClassifierData<T> data, ForkJoinPool forkJoinPool) {
+
+		InferenceMetrics metrics = inferenceMetrics;
+		long startTime = metrics == null ? 0 : System.nanoTime();
+
+		int numSamples = data.numSamples();
+		int[] predictions = new int[numSamples];
+
+		if (forkJoinPool == null || numSamples < ClassifyTask.PARALLEL_CUTOFF) {
+			classifyRange(data, 0, numSamples, predictions);
+		}
+		else {
+			ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+
+			for (int from=0; from<numSamples; from+=ClassifyTask.PARALLEL_CUTOFF) {
+				final int fromSample = from;
+				final int toSample = Math.min(from + ClassifyTask.PARALLEL_CUTOFF, numSamples);
+
+				tasks.add(ForkJoinTask.adapt(() -> classifyRange(data, fromSample, toSample, predictions)));
+			}
+
+			forkJoinPool.invoke(ForkJoinTask.adapt(() -> {
+				ForkJoinTask.invokeAll(tasks);
+			}));
+		}
+
+		if (metrics != null) {
+			metrics.recordBatch(numSamples, System.nanoTime() - startTime);
+		}
+		return predictions;
+	}
+
+	/**
+	 * Classifies the samples of data from fromSample to toSample, sets predictions
+	 * 
+	 * @param data
+	 * @param fromSample
+	 * @param toSample
+	 * @param predictions
+	 */
+	private void classifyRange(ClassifierData<T> data, int fromSample, int toSample, int[] predictions) {
+
+		// each sample is copied into the same array
+		double[] sample = new double[data.numFeatures()];
+
+		for (int i=fromSample; i<toSample; i++) {
+
+			for (int j=0; j<sample.length; j++) {
+				sample[j] = data.featureValue(i, j);
+			}
+			predictions[i] = sumTrees(sample) > 0.0 ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Returns 1 / (1 + e^-x)
+	 * 
+	 * @param x
+	 */
+	static double sigmoid(double x) {
+		return 1.0 / (1.0 + Math.exp(-x));
+	}
+
+	/**
+	 * Returns the number of trees
+	 */
+	public int numTrees() {
+		return trees.size();
+	}
+
+	/**
+	 * Returns the score of every sample before any tree is added
+	 */
+	public double baseScore() {
+		return baseScore;
+	}
+
+	/**
+	 * Prints every tree
+	 */
+	public void PrintTrees() {
+
+		System.out.println("baseScore: " + baseScore);
+
+		for (int t=0; t<trees.size(); t++) {
+			System.out.println("[GradientBoostedTrees] tree: " + t);
+			trees.get(t).printNode(0, "0", 1);
+		}
+
+		System.out.println("numTrees: " + trees.size());
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param trees
+	 * @param baseScore
+	 * @param numFeatures
+	 */
+	GradientBoostedTrees(ArrayList<RegressionTree> trees, double baseScore, int numFeatures) {
+
+		this.trees = trees;
+		this.baseScore = baseScore;
+		this.numFeatures = numFeatures;
+	}
+}
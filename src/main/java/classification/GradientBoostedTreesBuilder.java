@@ -0,0 +1,241 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Class to build and test a Gradient Boosted Trees classifier using given inputData and testData
+ * 
+ * Each round fits a regression tree to the gradients and hessians of the logistic loss of the current scores,
+ * see RegressionTreeGrower. Feature values are quantized into bins once, using the BinnedFeatures of inputData,
+ * and gradients, hessians and scores are held in primitive arrays reused by every round.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public class GradientBoostedTreesBuilder<T extends Comparable<T>> extends ClassifierBuilder<GradientBoostedTrees<T>, T> {
+
+	// Default number of boosting rounds
+	static final int DEFAULT_NUM_ROUNDS = 100;
+
+	// smallest hessian of a sample, so that leaves of samples predicted with certainty still have a finite value
+	private static final double MIN_HESSIAN = 1e-16;
+
+	// number of boosting rounds, one tree is built each round
+	private int numRounds = DEFAULT_NUM_ROUNDS;
+
+	// leaf values are scaled by the learning rate
+	private double learningRate = 0.1;
+
+	// maximum depth of each tree
+	private int maxDepth = 6;
+
+	// L2 regularization of the leaf values
+	private double lambda = 1.0;
+
+	// minimum sum of hessians of each child of a split
+	private double minChildWeight = 1.0;
+
+	// pool used to find splits in parallel, null if trees are built on the calling thread
+	private ForkJoinPool forkJoinPool = null;
+
+	// minimum number of samples in a node for its features to be evaluated in parallel
+	private int featureParallelCutoff = TreeBuildContext.DEFAULT_PARALLEL_CUTOFF;
+
+	/**
+	 * Sets the number of boosting rounds, 100 by default
+	 * 
+	 * @param numRounds
+	 */
+	public void setNumRounds(int numRounds) {
+
+		if (numRounds < 0) {
+			throw new IllegalArgumentException("numRounds must not be negative");
+		}
+		this.numRounds = numRounds;
+	}
+
+	/**
+	 * Sets the learning rate that leaf values are scaled by, 0.1 by default
+	 * 
+	 * @param learningRate
+	 */
+	public void setLearningRate(double learningRate) {
+		this.learningRate = learningRate;
+	}
+
+	/**
+	 * Sets the maximum depth of each tree, 6 by default
+	 * 
+	 * @param maxDepth
+	 */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Sets the L2 regularization of the leaf values, 1.0 by default
+	 * 
+	 * @param lambda
+	 */
+	public void setLambda(double lambda) {
+		this.lambda = lambda;
+	}
+
+	/**
+	 * Sets the minimum sum of hessians of each child of a split, 1.0 by default
+	 * 
+	 * @param minChildWeight
+	 */
+	public void setMinChildWeight(double minChildWeight) {
+		this.minChildWeight = minChildWeight;
+	}
+
+	/**
+	 * Sets the pool used to find splits, and classify test data, in parallel.
+	 * If null (the default) trees are built on the calling thread
+	 * 
+	 * @param forkJoinPool
+	 */
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Sets the minimum number of samples a node must hold for the histogram and best split of each of its features
+	 * to be found as separate fork-join tasks. Only used if a ForkJoinPool has been set.
+	 * 
+	 * @param featureParallelCutoff
+	 */
+	public void setFeatureParallelCutoff(int featureParallelCutoff) {
+		this.featureParallelCutoff = featureParallelCutoff;
+	}
+
+	/**
+	 * Tests the accuracy of the classifier on the given testData
+	 * 
+	 * @param testData
+	 */
+	@Override
+	public double test(ClassifierData<T> testData) {
+
+		// calculate classifier accuracy
+		return (double) countCorrect(testData) / testData.numSamples();
+	}
+
+	/**
+	 * Returns the number of samples of testData that the classifier predicts correctly
+	 * 
+	 * @param testData
+	 */
+	@Override
+	long countCorrect(ClassifierData<T> testData) {
+
+		// use classifier to predict the class of every sample, in parallel if a pool has been set
+		int[] predictedClasses = classifier.classifyAll(testData, forkJoinPool);
+
+		return countCorrect(predictedClasses, testData);
+	}
+
+	/**
+	 * Builds a Gradient Boosted Trees classifier from given inputData,
+	 * inputData must have at most two classes, so every class label is 0 or 1 once remapped, see ClassifierData.classValues
+	 * 
+	 * @param inputData
+	 */
+	@Override
+	public void build(ClassifierData<T> inputData) {
+
+		if (inputData.numSamples() == 0) {
+			throw new IndexOutOfBoundsException("inputData is empty");
+		}
+
+		// copy inputData into columns if needed, see DecisionTreeBuilder.build
+		ClassifierData<T> newInputData = inputData.isColumnar() || inputData.isOffHeap() ? inputData : new ClassifierData<T>(inputData, true);
+
+		if (forkJoinPool != null) {
+			classifier = forkJoinPool.invoke(ForkJoinTask.adapt(() -> buildTrees(newInputData)));
+		}
+		else {
+			classifier = buildTrees(newInputData);
+		}
+	}
+
+	/**
+	 * Builds numRounds trees from the given columnar or off-heap inputData
+	 * 
+	 * @param inputData
+	 */
+	private GradientBoostedTrees<T> buildTrees(ClassifierData<T> inputData) {
+
+		int numSamples = inputData.numSamples();
+
+		// gradients, hessians and scores are indexed by storage row
+		int numRows = 0;
+		int numPositive = 0;
+
+		for (int i=0; i<numSamples; i++) {
+
+			int label = inputData.label(i);
+			if (label != 0 && label != 1) {
+				throw new IllegalArgumentException("class labels must be 0 or 1, found " + label + " at sample " + i);
+			}
+
+			numPositive += label;
+			numRows = Math.max(numRows, inputData.row(i) + 1);
+		}
+
+		// start from the log odds of class 1, kept finite if every sample is of the same class
+		double positiveRate = Math.min(Math.max((double) numPositive / numSamples, 1e-6), 1 - 1e-6);
+		double baseScore = Math.log(positiveRate / (1 - positiveRate));
+
+		RegressionTreeGrower<T> grower = new RegressionTreeGrower<T>(inputData.binnedFeatures(), numRows, maxDepth, lambda, minChildWeight,
+				learningRate, featureParallelCutoff);
+
+		for (int i=0; i<numSamples; i++) {
+			grower.scores[inputData.row(i)] = baseScore;
+		}
+
+		ArrayList<RegressionTree> trees = new ArrayList<RegressionTree>(numRounds);
+
+		// sample index of the root of each tree, reset every round as the nodes partition it in place
+		int[] sampleNums = new int[numSamples];
+
+		for (int round=0; round<numRounds; round++) {
+
+			// gradient and hessian of the logistic loss of each sample
+			for (int i=0; i<numSamples; i++) {
+
+				int row = inputData.row(i);
+				double probability = GradientBoostedTrees.sigmoid(grower.scores[row]);
+
+				grower.gradients[row] = probability - inputData.storageLabel(row);
+				grower.hessians[row] = Math.max(probability * (1 - probability), MIN_HESSIAN);
+			}
+
+			for (int i=0; i<numSamples; i++) {
+				sampleNums[i] = i;
+			}
+
+			trees.add(grower.grow(inputData.sampleView(sampleNums)));
+		}
+
+		GradientBoostedTrees<T> gradientBoostedTrees = new GradientBoostedTrees<T>(trees, baseScore, inputData.numFeatures());
+		gradientBoostedTrees.classValues = inputData.classValues();
+
+		return gradientBoostedTrees;
+	}
+
+	/**
+	 * Prints the built classifier
+	 */
+	@Override
+	public void printClassifier() {
+		classifier.PrintTrees();
+	}
+
+}
@@ -0,0 +1,315 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the samples classified by a Classifier, recorded while metrics are enabled with Classifier.enableMetrics
+ * 
+ * The latency of each sample classified one at a time is counted in a histogram of log-linear buckets,
+ * as in HdrHistogram: values are split by their highest set bit, and each power of two range into SUB_BUCKETS
+ * linear buckets, so every recorded latency is held to within 1/SUB_BUCKETS of its value in NUM_BUCKETS counters (36KB).
+ * Samples classified in batches are counted but not timed one at a time.
+ * 
+ * For a DecisionTree the leaf reached by each sample is counted, indexed by node of its CompiledTree,
+ * along with the depth of the path to the leaf.
+ * 
+ * Every counter may be updated by many threads at once, and can be read with snapshot without stopping classification.
+ * The latency histogram and leaf counts are striped lazily like a LongAdder, see StripedCounts: they are a single array
+ * until threads updating them at once contend, then each thread updates a copy chosen by its ID, created when first used.
+ * Uncontended metrics hold one copy, contended ones at most NUM_STRIPES. Batches count their leaves locally
+ * and add them once per batch, see recordLeafHits.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+final class InferenceMetrics {
+
+	// number of bits of a value used to find its linear bucket within its power of two range
+	static final int SUB_BUCKET_BITS = 7;
+
+	// number of linear buckets in each power of two range
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// latencies at or above 2^MAX_LATENCY_BITS nanoseconds (about 73 minutes) are counted in the last bucket
+	static final int MAX_LATENCY_BITS = 42;
+
+	// number of buckets of the latency histogram
+	static final int NUM_BUCKETS = SUB_BUCKETS * (MAX_LATENCY_BITS - SUB_BUCKET_BITS + 1);
+
+	// maximum number of copies of contended counters, the power of two at or above the number of processors, at most 16
+	static final int NUM_STRIPES = Math.min(Integer.highestOneBit(2 * Runtime.getRuntime().availableProcessors() - 1), 16);
+
+	// number of samples whose latency has been recorded in each bucket
+	private final StripedCounts latencyCounts = new StripedCounts(NUM_BUCKETS);
+
+	// sum and maximum of every recorded latency
+	private final LongAdder totalLatencyNanos = new LongAdder();
+	private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+	// number of samples classified, whether one at a time or in batches
+	private final LongAdder numSamples = new LongAdder();
+
+	// number of batches classified, and the time taken to classify them
+	private final LongAdder numBatches = new LongAdder();
+	private final LongAdder batchNanos = new LongAdder();
+
+	// number of samples reaching each node, only leaf nodes are counted. Null if the classifier isn't a single tree
+	private final StripedCounts leafHits;
+
+	// tree whose leaves are counted, null if the classifier isn't a single tree
+	private final CompiledTree compiledTree;
+
+	// depth of each node, where the root is at depth 1, and the sum of the depths of the leaves reached by every sample
+	private final int[] nodeDepth;
+	private final LongAdder totalPathDepth = new LongAdder();
+
+	// time the metrics were enabled
+	private final long startNanos = System.nanoTime();
+
+	/**
+	 * Records the latency of a single sample classified one at a time
+	 * 
+	 * @param latencyNanos
+	 */
+	void recordLatency(long latencyNanos) {
+
+		latencyCounts.add(bucket(latencyNanos), 1);
+		totalLatencyNanos.add(latencyNanos);
+		numSamples.increment();
+
+		// most samples are faster than the slowest so far, and don't need to write the maximum
+		long max = maxLatencyNanos.get();
+		while (latencyNanos > max && !maxLatencyNanos.compareAndSet(max, latencyNanos)) {
+			max = maxLatencyNanos.get();
+		}
+	}
+
+	/**
+	 * Records a batch of samples classified together
+	 * 
+	 * @param batchSize
+	 * @param elapsedNanos
+	 */
+	void recordBatch(int batchSize, long elapsedNanos) {
+
+		numSamples.add(batchSize);
+		numBatches.increment();
+		batchNanos.add(elapsedNanos);
+	}
+
+	/**
+	 * Records a sample reaching the given leaf node
+	 * 
+	 * @param node
+	 */
+	void recordLeaf(int node) {
+
+		if (leafHits != null) {
+			leafHits.add(node, 1);
+			totalPathDepth.add(nodeDepth[node]);
+		}
+	}
+
+	/**
+	 * Adds the counts of samples that reached each node, where hits[node] samples reached the given node,
+	 * such as the leaves reached by a range of samples counted locally by the thread that classified them
+	 * 
+	 * @param hits
+	 */
+	void recordLeafHits(long[] hits) {
+
+		if (leafHits == null) {
+			return;
+		}
+
+		long pathDepth = 0;
+
+		for (int node=0; node<hits.length; node++) {
+			if (hits[node] != 0) {
+				leafHits.add(node, hits[node]);
+				pathDepth += hits[node] * nodeDepth[node];
+			}
+		}
+		totalPathDepth.add(pathDepth);
+	}
+
+	/**
+	 * Returns true if the leaves counted are the nodes of the given tree,
+	 * a tree replaced by DecisionTree.relayout or prune is counted by new metrics
+	 * 
+	 * @param tree
+	 */
+	boolean countsLeavesOf(CompiledTree tree) {
+		return leafHits != null && compiledTree == tree;
+	}
+
+
+	/**
+	 * Returns the current value of every counter. Counters are read one at a time while classification continues,
+	 * so counters updated during the snapshot may include a few more samples than others.
+	 */
+	InferenceSnapshot snapshot() {
+
+		long[] counts = latencyCounts.sum();
+		long[] hits = leafHits == null ? null : leafHits.sum();
+
+		return new InferenceSnapshot(counts, totalLatencyNanos.sum(), maxLatencyNanos.get(), numSamples.sum(), numBatches.sum(), batchNanos.sum(),
+				hits, totalPathDepth.sum(), System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Returns the bucket of the latency histogram that counts the given latency
+	 * 
+	 * @param latencyNanos
+	 */
+	static int bucket(long latencyNanos) {
+
+		if (latencyNanos < SUB_BUCKETS) {
+			return (int) Math.max(latencyNanos, 0);
+		}
+
+		// values in [2^e, 2^(e+1)) are split into SUB_BUCKETS buckets by the SUB_BUCKET_BITS bits after the highest set bit
+		int e = 63 - Long.numberOfLeadingZeros(latencyNanos);
+		if (e >= MAX_LATENCY_BITS) {
+			return NUM_BUCKETS - 1;
+		}
+
+		int shift = e - SUB_BUCKET_BITS;
+		return SUB_BUCKETS * (shift + 1) + (int) (latencyNanos >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * Returns the highest latency counted in the given bucket of the latency histogram
+	 * 
+	 * @param bucket
+	 */
+	static long bucketLimit(int bucket) {
+
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+
+		return lowest + (1L << shift) - 1;
+	}
+
+	/**
+	 * An array of counters striped lazily like a LongAdder. Counts are added to a single shared array until an update
+	 * finds it contended, from then on each thread adds to the copy of its stripe, created the first time it is used.
+	 * The count of each index is the sum of the shared array and every copy.
+	 */
+	static final class StripedCounts {
+
+		// counts added while updates weren't contended
+		private final AtomicLongArray base;
+
+		// copy of the counts updated by the threads of each stripe, null until used
+		private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<AtomicLongArray>(NUM_STRIPES);
+
+		// set once an update of base has failed because another thread updated it at the same time
+		private volatile boolean contended = false;
+
+		/**
+		 * Constructor - creates length counts, all zero
+		 * 
+		 * @param length
+		 */
+		StripedCounts(int length) {
+			base = new AtomicLongArray(length);
+		}
+
+		/**
+		 * Adds delta to the count at the given index
+		 * 
+		 * @param index
+		 * @param delta
+		 */
+		void add(int index, long delta) {
+
+			if (!contended) {
+				long count = base.get(index);
+				if (base.compareAndSet(index, count, count + delta)) {
+					return;
+				}
+				contended = true;
+			}
+
+			int stripe = (int) Thread.currentThread().getId() & (NUM_STRIPES - 1);
+
+			AtomicLongArray counts = stripes.get(stripe);
+			if (counts == null) {
+				stripes.compareAndSet(stripe, null, new AtomicLongArray(base.length()));
+				counts = stripes.get(stripe);
+			}
+			counts.addAndGet(index, delta);
+		}
+
+		/**
+		 * Returns the count of every index, summing the shared array and the copies created so far
+		 */
+		long[] sum() {
+
+			long[] counts = new long[base.length()];
+
+			for (int i=0; i<counts.length; i++) {
+				counts[i] = base.get(i);
+			}
+
+			for (int s=0; s<NUM_STRIPES; s++) {
+				AtomicLongArray stripeCounts = stripes.get(s);
+
+				if (stripeCounts != null) {
+					for (int i=0; i<counts.length; i++) {
+						counts[i] += stripeCounts.get(i);
+					}
+				}
+			}
+			return counts;
+		}
+
+		/**
+		 * Returns the number of copies of the counts created for contended updates
+		 */
+		int numStripes() {
+
+			int numStripes = 0;
+
+			for (int s=0; s<NUM_STRIPES; s++) {
+				if (stripes.get(s) != null) {
+					numStripes++;
+				}
+			}
+			return numStripes;
+		}
+	}
+
+	/**
+	 * Constructor - for a classifier that isn't a single tree, leaves aren't counted
+	 */
+	InferenceMetrics() {
+
+		leafHits = null;
+		this.compiledTree = null;
+		nodeDepth = null;
+	}
+
+	/**
+	 * Constructor - for a tree compiled into compiledTree, the leaf reached by each sample is counted
+	 * 
+	 * @param compiledTree
+	 */
+	InferenceMetrics(CompiledTree compiledTree) {
+
+		leafHits = new StripedCounts(compiledTree.numNodes());
+		this.compiledTree = compiledTree;
+		nodeDepth = compiledTree.nodeDepths();
+	}
+}
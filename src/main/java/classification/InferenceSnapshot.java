@@ -0,0 +1,196 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+/**
+ * The counters of the samples classified by a Classifier at one point in time, returned by Classifier.metricsSnapshot
+ * 
+ * Latency percentiles are read from a log-linear histogram, see InferenceMetrics, and are within 1% of the true latency.
+ * Only samples classified one at a time (e.g. DecisionTree.classify(double[])) are timed, samples classified
+ * in batches (classifyAll) are counted in numSamples and numBatches.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public final class InferenceSnapshot {
+
+	// number of timed samples in each bucket of the latency histogram
+	private final long[] latencyCounts;
+
+	// number of timed samples, and the sum and maximum of their latencies
+	private final long numTimed;
+	private final long totalLatencyNanos;
+	private final long maxLatencyNanos;
+
+	// number of samples classified, whether one at a time or in batches
+	private final long numSamples;
+
+	// number of batches classified, and the time taken to classify them
+	private final long numBatches;
+	private final long batchNanos;
+
+	// number of samples reaching each node of a DecisionTree's CompiledTree, null if the classifier isn't a single tree
+	private final long[] leafHits;
+
+	// sum of the depths of the leaves reached by every sample
+	private final long totalPathDepth;
+
+	// time from enabling metrics to taking the snapshot
+	private final long elapsedNanos;
+
+	/**
+	 * Returns the number of samples classified since metrics were enabled
+	 */
+	public long numSamples() {
+		return numSamples;
+	}
+
+	/**
+	 * Returns the number of samples classified one at a time, whose latency was measured
+	 */
+	public long numTimed() {
+		return numTimed;
+	}
+
+	/**
+	 * Returns the number of batches classified since metrics were enabled
+	 */
+	public long numBatches() {
+		return numBatches;
+	}
+
+	/**
+	 * Returns the total time in nanoseconds taken to classify batches
+	 */
+	public long batchNanos() {
+		return batchNanos;
+	}
+
+	/**
+	 * Returns the time in nanoseconds from enabling metrics to taking the snapshot
+	 */
+	public long elapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the number of samples classified per second since metrics were enabled
+	 */
+	public double throughput() {
+		return elapsedNanos == 0 ? 0.0 : numSamples * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Returns the mean latency in nanoseconds of the samples classified one at a time, 0 if none have been
+	 */
+	public double meanLatencyNanos() {
+		return numTimed == 0 ? 0.0 : (double) totalLatencyNanos / numTimed;
+	}
+
+	/**
+	 * Returns the highest latency in nanoseconds of a sample classified one at a time
+	 */
+	public long maxLatencyNanos() {
+		return maxLatencyNanos;
+	}
+
+	/**
+	 * Returns the latency in nanoseconds that the given percentage of samples classified one at a time
+	 * were classified within, e.g. latencyPercentile(99.9). Returns 0 if no samples have been timed.
+	 * 
+	 * @param percentile
+	 */
+	public long latencyPercentile(double percentile) {
+
+		if (percentile < 0.0 || percentile > 100.0) {
+			throw new IllegalArgumentException("percentile must be between 0 and 100");
+		}
+
+		if (numTimed == 0) {
+			return 0;
+		}
+
+		// number of samples at or below the percentile, at least one
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * numTimed));
+		long count = 0;
+
+		for (int b=0; b<latencyCounts.length; b++) {
+
+			count += latencyCounts[b];
+
+			if (count >= rank) {
+				return Math.min(InferenceMetrics.bucketLimit(b), maxLatencyNanos);
+			}
+		}
+		return maxLatencyNanos;
+	}
+
+	/**
+	 * Returns the number of samples that reached each node of the tree, indexed by node of the CompiledTree.
+	 * Only leaf nodes are counted. Returns null if the classifier isn't a DecisionTree.
+	 */
+	public long[] leafHits() {
+		return leafHits == null ? null : leafHits.clone();
+	}
+
+	/**
+	 * Returns the mean depth of the leaf reached by each sample, where the root is at depth 1.
+	 * Returns 0 if the classifier isn't a DecisionTree or no samples have been classified.
+	 */
+	public double averagePathDepth() {
+
+		long numLeafHits = 0;
+
+		if (leafHits != null) {
+			for (long hits : leafHits) {
+				numLeafHits += hits;
+			}
+		}
+		return numLeafHits == 0 ? 0.0 : (double) totalPathDepth / numLeafHits;
+	}
+
+	/**
+	 * Prints the snapshot
+	 */
+	public void printSnapshot() {
+
+		System.out.println("[InferenceSnapshot] numSamples: " + numSamples + ", numBatches: " + numBatches + ", throughput: " + throughput()
+				+ " samples/s, averagePathDepth: " + averagePathDepth());
+		System.out.println("[InferenceSnapshot] numTimed: " + numTimed + ", meanLatency: " + meanLatencyNanos() + "ns, p50: " + latencyPercentile(50)
+				+ "ns, p99: " + latencyPercentile(99) + "ns, p99.9: " + latencyPercentile(99.9) + "ns, max: " + maxLatencyNanos + "ns");
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param latencyCounts
+	 * @param totalLatencyNanos
+	 * @param maxLatencyNanos
+	 * @param numSamples
+	 * @param numBatches
+	 * @param batchNanos
+	 * @param leafHits
+	 * @param totalPathDepth
+	 * @param elapsedNanos
+	 */
+	InferenceSnapshot(long[] latencyCounts, long totalLatencyNanos, long maxLatencyNanos, long numSamples, long numBatches, long batchNanos,
+			long[] leafHits, long totalPathDepth, long elapsedNanos) {
+
+		this.latencyCounts = latencyCounts;
+		this.totalLatencyNanos = totalLatencyNanos;
+		this.maxLatencyNanos = maxLatencyNanos;
+		this.numSamples = numSamples;
+		this.numBatches = numBatches;
+		this.batchNanos = batchNanos;
+		this.leafHits = leafHits;
+		this.totalPathDepth = totalPathDepth;
+		this.elapsedNanos = elapsedNanos;
+
+		long timed = 0;
+		for (long count : latencyCounts) {
+			timed += count;
+		}
+		numTimed = timed;
+	}
+}
@@ -0,0 +1,206 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * TrainingListener that emits the metrics of each node, and of each tree, as Java Flight Recorder events,
+ * so tree building can be viewed alongside GC and CPU samples in a recording.
+ * 
+ * Events are only created if they are enabled in the running recording, e.g.
+ * java -XX:StartFlightRecording=filename=train.jfr ...
+ * Each event begins when its node or tree starts being built and ends when it has been built, so the event's duration
+ * covers the whole node, including the time a node grown best first waits to be split, see BestFirstTreeGrower.
+ * The time spent searching for the split and partitioning is in the splitSearchTime and partitionTime fields.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public class JfrTrainingListener implements TrainingListener {
+
+	/**
+	 * Event emitted for each node built
+	 */
+	@Name("main.java.classification.NodeBuilt")
+	@Label("Tree Node Built")
+	@Category({"Classification", "Training"})
+	@Description("Metrics of building a single node of a DecisionTree")
+	static class NodeBuiltEvent extends Event {
+
+		@Label("Node ID")
+		String nodeID;
+
+		@Label("Node Depth")
+		int nodeDepth;
+
+		@Label("Samples")
+		int numSamples;
+
+		@Label("Leaf")
+		boolean isLeaf;
+
+		@Label("Split Search Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long splitSearchTime;
+
+		@Label("Partition Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long partitionTime;
+
+		@Label("Rows Scanned")
+		long rowsScanned;
+
+		@Label("Candidate Splits")
+		long candidateSplits;
+
+		@Label("Allocated")
+		@DataAmount
+		long allocated;
+	}
+
+	/**
+	 * Event emitted for each tree built
+	 */
+	@Name("main.java.classification.TreeBuilt")
+	@Label("Tree Built")
+	@Category({"Classification", "Training"})
+	@Description("Totals of building every node of a DecisionTree")
+	static class TreeBuiltEvent extends Event {
+
+		@Label("Build Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long buildTime;
+
+		@Label("Nodes")
+		long numNodes;
+
+		@Label("Leaves")
+		long numLeaves;
+
+		@Label("Split Search Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long splitSearchTime;
+
+		@Label("Partition Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long partitionTime;
+
+		@Label("Rows Scanned")
+		long rowsScanned;
+
+		@Label("Candidate Splits")
+		long candidateSplits;
+
+		@Label("Allocated")
+		@DataAmount
+		long allocated;
+	}
+
+	// type of each event, checked before an event is created so nothing is allocated while the event is disabled
+	private static final EventType NODE_BUILT_TYPE = EventType.getEventType(NodeBuiltEvent.class);
+	private static final EventType TREE_BUILT_TYPE = EventType.getEventType(TreeBuiltEvent.class);
+
+	// events of the nodes and trees being built, begun when building starts and committed once it has finished
+	private final ConcurrentHashMap<NodeMetrics, NodeBuiltEvent> nodeEvents = new ConcurrentHashMap<NodeMetrics, NodeBuiltEvent>();
+	private final ConcurrentHashMap<TrainingMetrics, TreeBuiltEvent> treeEvents = new ConcurrentHashMap<TrainingMetrics, TreeBuiltEvent>();
+
+	/**
+	 * Begins a NodeBuilt event if it is enabled
+	 * 
+	 * @param node
+	 */
+	@Override
+	public void nodeStarted(NodeMetrics node) {
+
+		if (NODE_BUILT_TYPE.isEnabled()) {
+			NodeBuiltEvent event = new NodeBuiltEvent();
+			event.begin();
+			nodeEvents.put(node, event);
+		}
+	}
+
+	/**
+	 * Ends and commits the NodeBuilt event of the node, if one was begun
+	 * 
+	 * @param node
+	 */
+	@Override
+	public void nodeBuilt(NodeMetrics node) {
+
+		NodeBuiltEvent event = nodeEvents.remove(node);
+
+		if (event == null) {
+			return;
+		}
+
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.nodeID = node.nodeID();
+			event.nodeDepth = node.nodeDepth();
+			event.numSamples = node.numSamples();
+			event.isLeaf = node.isLeaf();
+			event.splitSearchTime = node.splitSearchNanos();
+			event.partitionTime = node.partitionNanos();
+			event.rowsScanned = node.rowsScanned();
+			event.candidateSplits = node.candidateSplits();
+			event.allocated = node.allocatedBytes();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Begins a TreeBuilt event if it is enabled
+	 * 
+	 * @param metrics
+	 */
+	@Override
+	public void treeStarted(TrainingMetrics metrics) {
+
+		if (TREE_BUILT_TYPE.isEnabled()) {
+			TreeBuiltEvent event = new TreeBuiltEvent();
+			event.begin();
+			treeEvents.put(metrics, event);
+		}
+	}
+
+	/**
+	 * Ends and commits the TreeBuilt event of the tree, if one was begun
+	 * 
+	 * @param metrics
+	 */
+	@Override
+	public void treeBuilt(TrainingMetrics metrics) {
+
+		TreeBuiltEvent event = treeEvents.remove(metrics);
+
+		if (event == null) {
+			return;
+		}
+
+		event.end();
+
+		if (event.shouldCommit()) {
+			event.buildTime = metrics.buildNanos();
+			event.numNodes = metrics.numNodes();
+			event.numLeaves = metrics.numLeaves();
+			event.splitSearchTime = metrics.splitSearchNanos();
+			event.partitionTime = metrics.partitionNanos();
+			event.rowsScanned = metrics.rowsScanned();
+			event.candidateSplits = metrics.candidateSplits();
+			event.allocated = metrics.allocatedBytes();
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+/**
+ * Metrics of the work done to build a single node of a DecisionTree, not including its children.
+ * Passed to TrainingListener.nodeBuilt.
+ * 
+ * Rows scanned counts each sample once for every feature, or class count, it is read for.
+ * Candidate splits are the splits whose impurity is calculated, splits on the mean of a feature
+ * count once for each feature that can be split.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public final class NodeMetrics {
+
+	// ID of the node, see TreeNode.nodeID
+	final String nodeID;
+
+	// depth of the node, the root is at depth 1
+	final int nodeDepth;
+
+	// number of samples reaching the node
+	final int numSamples;
+
+	// is the node a leaf
+	boolean isLeaf;
+
+	// time spent finding the best split, including counting the node's histogram in HISTOGRAM split mode
+	long splitSearchNanos;
+
+	// time spent partitioning the samples of the node between its children,
+	// including the presorted index in EXACT split mode and the children's histograms in HISTOGRAM split mode
+	long partitionNanos;
+
+	// number of samples read by split search and partitioning
+	long rowsScanned;
+
+	// number of candidate splits evaluated
+	long candidateSplits;
+
+	// bytes allocated by the thread that built the node, -1 if not supported by the JVM
+	long allocatedBytes = -1;
+
+	/**
+	 * Returns the ID of the node, where the ID of the root = "0",
+	 * leftChildID = currentID + "0", rightChildID = currentID + "1"
+	 */
+	public String nodeID() {
+		return nodeID;
+	}
+
+	/**
+	 * Returns the depth of the node, the root is at depth 1
+	 */
+	public int nodeDepth() {
+		return nodeDepth;
+	}
+
+	/**
+	 * Returns the number of samples reaching the node
+	 */
+	public int numSamples() {
+		return numSamples;
+	}
+
+	/**
+	 * Returns true if the node is a leaf node
+	 */
+	public boolean isLeaf() {
+		return isLeaf;
+	}
+
+	/**
+	 * Returns the time in nanoseconds spent finding the best split of the node
+	 */
+	public long splitSearchNanos() {
+		return splitSearchNanos;
+	}
+
+	/**
+	 * Returns the time in nanoseconds spent partitioning the samples of the node between its children
+	 */
+	public long partitionNanos() {
+		return partitionNanos;
+	}
+
+	/**
+	 * Returns the number of samples read while building the node, counted once for each feature they are read for
+	 */
+	public long rowsScanned() {
+		return rowsScanned;
+	}
+
+	/**
+	 * Returns the number of candidate splits evaluated
+	 */
+	public long candidateSplits() {
+		return candidateSplits;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the thread that built the node while building it,
+	 * or -1 if the JVM doesn't measure the memory allocated by each thread.
+	 * Memory allocated by features evaluated on other threads, see DecisionTreeBuilder.setFeatureParallelCutoff, isn't counted.
+	 */
+	public long allocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param nodeID
+	 * @param nodeDepth
+	 * @param numSamples
+	 */
+	NodeMetrics(String nodeID, int nodeDepth, int numSamples) {
+
+		this.nodeID = nodeID;
+		this.nodeDepth = nodeDepth;
+		this.numSamples = numSamples;
+	}
+}
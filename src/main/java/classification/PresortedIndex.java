@@ -0,0 +1,150 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+/**
+ * Storage rows of the samples given to the root node of a DecisionTree, sorted by the value of each feature.
+ * 
+ * The samples of every node are kept in the same segment of each sorted array as the node's sample index,
+ * i.e. from nodeData.sampleOffset() to nodeData.sampleOffset() + nodeData.numSamples().
+ * When a node is split each segment is partitioned stably, so the samples of both child nodes remain sorted
+ * and the data never needs to be sorted again.
+ * 
+ * The sorted rows are held on the heap, 4 bytes for each value of the root node, even if the data is stored off-heap.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class PresortedIndex<T extends Comparable<T>> {
+
+	// data given to the root node, used to read feature values from storage
+	private final ClassifierData<T> rootData;
+
+	// sortedRows[c] stores the storage rows of the samples sorted by the feature in storage column c
+	private final int[][] sortedRows;
+
+	// for each storage row, does the sample go to the left child of the node currently being split
+	private final boolean[] isLeft;
+
+	// buffer used to partition segments, each node only uses its own segment of the buffer
+	private final int[] buffer;
+
+	/**
+	 * Returns the storage rows of all samples sorted by the given storage column,
+	 * the samples of a node are stored in the node's segment of the returned array.
+	 * 
+	 * @param column
+	 */
+	int[] sortedRows(int column) {
+		return sortedRows[column];
+	}
+
+	/**
+	 * Partitions the segment of nodeData in each sorted array so that samples where
+	 * splittingFeature <= splittingValue come first, keeping both parts sorted.
+	 * The segment of splittingFeature isn't partitioned, as it is removed from the child nodes.
+	 * 
+	 * @param nodeData
+	 * @param splittingFeature
+	 * @param splittingValue
+	 */
+	void partition(ClassifierData<T> nodeData, int splittingFeature, double splittingValue) {
+
+		int offset = nodeData.sampleOffset();
+		int end = offset + nodeData.numSamples();
+
+		int splittingColumn = nodeData.column(splittingFeature);
+		int[] splittingRows = sortedRows[splittingColumn];
+
+		// mark the side of the split each sample goes to, using the same comparison as ClassifierData.partition
+		for (int k=offset; k<end; k++) {
+			int row = splittingRows[k];
+			isLeft[row] = Double.compare(rootData.storageValue(row, splittingColumn), splittingValue) <= 0;
+		}
+
+		for (int j=0; j<nodeData.numFeatures(); j++) {
+
+			if (j == splittingFeature) {
+				continue;
+			}
+
+			int[] rows = sortedRows[nodeData.column(j)];
+
+			// left samples are moved down the segment in order, right samples are held in the buffer
+			int left = offset;
+			int right = offset;
+
+			for (int k=offset; k<end; k++) {
+				int row = rows[k];
+
+				if (isLeft[row]) {
+					rows[left++] = row;
+				}
+				else {
+					buffer[right++] = row;
+				}
+			}
+
+			System.arraycopy(buffer, offset, rows, left, right - offset);
+		}
+	}
+
+	/**
+	 * Constructor - maps the sorted samples of viewedData to the storage rows of rootData.
+	 * rootData must be a view over the samples of viewedData, such as a view created by viewedData.indexView
+	 * or a bootstrap sample of viewedData where samples may be repeated, and sortedSamples[j]
+	 * must hold the sample numbers of viewedData sorted by feature j.
+	 * Samples are never sorted again, so building from a bootstrap sample costs one pass over each feature.
+	 * 
+	 * @param rootData
+	 * @param viewedData
+	 * @param sortedSamples
+	 */
+	PresortedIndex(ClassifierData<T> rootData, ClassifierData<T> viewedData, int[][] sortedSamples) {
+
+		this.rootData = rootData;
+
+		int numSamples = rootData.numSamples();
+
+		// find the largest storage row and column used by rootData
+		int maxRow = 0;
+		for (int i=0; i<numSamples; i++) {
+			maxRow = Math.max(maxRow, rootData.row(i));
+		}
+		for (int i=0; i<viewedData.numSamples(); i++) {
+			maxRow = Math.max(maxRow, viewedData.row(i));
+		}
+
+		// number of times each storage row is used by rootData
+		int[] rowCounts = new int[maxRow+1];
+		for (int i=0; i<numSamples; i++) {
+			rowCounts[rootData.row(i)]++;
+		}
+
+		int maxColumn = 0;
+		for (int j=0; j<rootData.numFeatures(); j++) {
+			maxColumn = Math.max(maxColumn, rootData.column(j));
+		}
+
+		sortedRows = new int[maxColumn+1][];
+
+		for (int j=0; j<rootData.numFeatures(); j++) {
+			int[] rows = new int[numSamples];
+
+			// every sample of rootData is placed at the position of its sample in viewedData, once for each time it is used
+			int k = 0;
+			for (int sample : sortedSamples[j]) {
+				int row = viewedData.row(sample);
+
+				for (int count=0; count<rowCounts[row]; count++) {
+					rows[k++] = row;
+				}
+			}
+			sortedRows[rootData.column(j)] = rows;
+		}
+
+		isLeft = new boolean[maxRow+1];
+		buffer = new int[numSamples];
+	}
+}
@@ -0,0 +1,229 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Random Forest Classifier, an ensemble of Decision Trees each built from a bootstrap sample of the training data,
+ * where each node of each tree finds its split from a random subset of the features.
+ * Samples are classified by a majority vote of the trees, ties go to the lowest class.
+ * 
+ * Built by a RandomForestBuilder.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public class RandomForest<T extends Comparable<T>> extends Classifier<T> {
+
+	// trees of the forest
+	private final ArrayList<DecisionTree<T>> trees;
+
+	// number of classes voted for, class labels are from 0 to numClasses-1
+	private final int numClasses;
+
+	// maximum number of votes held by classifyAll, larger batches are classified one block of samples at a time
+	private static final int MAX_BLOCK_VOTES = 1 << 20;
+
+	/**
+	 * Returns a predicted class label for the given data sample
+	 * 
+	 * @param sample
+	 */
+	@Override
+	public Integer classify(ArrayList<T> sample) {
+
+		InferenceMetrics metrics = inferenceMetrics;
+		long startTime = metrics == null ? 0 : System.nanoTime();
+
+		int[] votes = new int[numClasses];
+
+		for (DecisionTree<T> tree : trees) {
+			vote(votes, tree.classify(sample));
+		}
+		int label = majority(votes, 0);
+
+		if (metrics != null) {
+			metrics.recordLatency(System.nanoTime() - startTime);
+		}
+		return label;
+	}
+
+	/**
+	 * Predicts a class label for the given data sample, using the compiled trees.
+	 * The sample is not changed.
+	 * 
+	 * @param sample
+	 */
+	public int classify(double[] sample) {
+
+		InferenceMetrics metrics = inferenceMetrics;
+		long startTime = metrics == null ? 0 : System.nanoTime();
+
+		int[] votes = new int[numClasses];
+
+		for (DecisionTree<T> tree : trees) {
+			vote(votes, tree.classify(sample));
+		}
+		int label = majority(votes, 0);
+
+		if (metrics != null) {
+			metrics.recordLatency(System.nanoTime() - startTime);
+		}
+		return label;
+	}
+
+	/**
+	 * Returns a predicted class label for each sample of the given data
+	 * 
+	 * @param data
+	 */
+	@Override
+	public int[] classifyAll(ClassifierData<T> data) {
+		return classifyAll(data, null);
+	}
+
+	/**
+	 * Returns a predicted class label for each sample of the given data,
+	 * if forkJoinPool isn't null large batches are classified in parallel in the pool.
+	 * Each tree classifies a block of samples in turn, see CompiledTree.classifyAll,
+	 * where blocks are small enough that the votes of a block fit in MAX_BLOCK_VOTES
+	 * 
+	 * @param data
+	 * @param forkJoinPool
+	 */
+	public int[] classifyAll(ClassifierData<T> data, ForkJoinPool forkJoinPool) {
+
+		InferenceMetrics metrics = inferenceMetrics;
+		long startTime = metrics == null ? 0 : System.nanoTime();
+
+		int numSamples = data.numSamples();
+		int blockSize = Math.max(1, MAX_BLOCK_VOTES / numClasses);
+
+		// votes[i * numClasses + c] holds the votes for class c of sample i of the current block
+		int[] votes = new int[Math.min(numSamples, blockSize) * numClasses];
+
+		int[] predictions = new int[numSamples];
+
+		int fromSample = 0;
+
+		while (fromSample < numSamples) {
+
+			int blockSamples = Math.min(blockSize, numSamples - fromSample);
+			ClassifierData<T> block = blockSamples == numSamples ? data : data.subView(fromSample, blockSamples, -1);
+
+			Arrays.fill(votes, 0);
+
+			for (DecisionTree<T> tree : trees) {
+
+				int[] treePredictions = tree.classifyAll(block, forkJoinPool);
+
+				for (int i=0; i<blockSamples; i++) {
+					int label = treePredictions[i];
+
+					if (label >= 0 && label < numClasses) {
+						votes[i * numClasses + label]++;
+					}
+				}
+			}
+
+			for (int i=0; i<blockSamples; i++) {
+				predictions[fromSample + i] = majority(votes, i * numClasses);
+			}
+
+			fromSample += blockSamples;
+		}
+
+		if (metrics != null) {
+			metrics.recordBatch(numSamples, System.nanoTime() - startTime);
+		}
+		return predictions;
+	}
+
+	/**
+	 * Adds a vote for the given label
+	 * 
+	 * @param votes
+	 * @param label
+	 */
+	private void vote(int[] votes, int label) {
+
+		if (label >= 0 && label < numClasses) {
+			votes[label]++;
+		}
+	}
+
+	/**
+	 * Returns the class with the most votes in votes[offset] to votes[offset + numClasses - 1],
+	 * ties go to the lowest class
+	 * 
+	 * @param votes
+	 * @param offset
+	 */
+	private int majority(int[] votes, int offset) {
+
+		int bestClass = 0;
+
+		for (int c=1; c<numClasses; c++) {
+			if (votes[offset + c] > votes[offset + bestClass]) {
+				bestClass = c;
+			}
+		}
+		return bestClass;
+	}
+
+	/**
+	 * Returns the number of trees in the forest
+	 */
+	public int numTrees() {
+		return trees.size();
+	}
+
+	/**
+	 * Returns the tree at the given index
+	 * 
+	 * @param treeNum
+	 */
+	public DecisionTree<T> tree(int treeNum) {
+		return trees.get(treeNum);
+	}
+
+	/**
+	 * Returns the number of classes voted for
+	 */
+	public int numClasses() {
+		return numClasses;
+	}
+
+	/**
+	 * Prints every tree of the forest
+	 */
+	public void PrintForest() {
+
+		for (int t=0; t<trees.size(); t++) {
+			System.out.println("[RandomForest] tree: " + t);
+			trees.get(t).PrintTree();
+		}
+
+		System.out.println("numTrees: " + trees.size());
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param trees
+	 * @param numClasses
+	 */
+	RandomForest(ArrayList<DecisionTree<T>> trees, int numClasses) {
+
+		if (trees.isEmpty()) {
+			throw new IllegalArgumentException("forest has no trees");
+		}
+
+		this.trees = trees;
+		this.numClasses = Math.max(numClasses, 1);
+	}
+}
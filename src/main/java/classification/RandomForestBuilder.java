@@ -0,0 +1,236 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Class to build and test a Random Forest classifier using given inputData and testData
+ * 
+ * Each tree is built from a bootstrap sample of inputData, held as an index of sample numbers over the shared
+ * inputData, so the samples are never copied. The presorted values and bins used by the EXACT and HISTOGRAM
+ * split modes are calculated once and shared by every tree.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public class RandomForestBuilder<T extends Comparable<T>> extends ClassifierBuilder<RandomForest<T>, T> {
+
+	// Default number of trees in the forest
+	static final int DEFAULT_NUM_TREES = 100;
+
+	// number of trees in the forest
+	private int numTrees = DEFAULT_NUM_TREES;
+
+	// number of features chosen at random for each node, the square root of the number of features if 0
+	private int featuresPerNode = 0;
+
+	// maximum depth of each tree, chosen from the data as for a DecisionTree if 0
+	private int maxDepth = 0;
+
+	// method used to choose the value to split each feature on
+	private SplitMode splitMode = SplitMode.MEAN;
+
+	// impurity measure used to compare splits
+	private SplitCriterion splitCriterion = SplitCriterion.ENTROPY;
+
+	// pool used to build trees in parallel, null if trees are built on the calling thread
+	private ForkJoinPool forkJoinPool = null;
+
+	// seed of the bootstrap samples and random features of every tree
+	private long seed = 0;
+
+	/**
+	 * Sets the number of trees in the forest, 100 by default
+	 * 
+	 * @param numTrees
+	 */
+	public void setNumTrees(int numTrees) {
+
+		if (numTrees < 1) {
+			throw new IllegalArgumentException("numTrees must be at least 1");
+		}
+		this.numTrees = numTrees;
+	}
+
+	/**
+	 * Sets the number of features chosen at random for each node to find the best split from,
+	 * by default the square root of the number of features. If none of the chosen features can split
+	 * a node, further features are tried until one can.
+	 * 
+	 * @param featuresPerNode
+	 */
+	public void setFeaturesPerNode(int featuresPerNode) {
+		this.featuresPerNode = featuresPerNode;
+	}
+
+	/**
+	 * Sets the maximum depth of each tree, by default chosen from the data as for a DecisionTree
+	 * 
+	 * @param maxDepth
+	 */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Sets the method used to choose the value to split each feature on,
+	 * SplitMode.MEAN by default
+	 * 
+	 * @param splitMode
+	 */
+	public void setSplitMode(SplitMode splitMode) {
+		this.splitMode = splitMode;
+	}
+
+	/**
+	 * Sets the impurity measure used to compare splits,
+	 * SplitCriterion.ENTROPY by default
+	 * 
+	 * @param splitCriterion
+	 */
+	public void setSplitCriterion(SplitCriterion splitCriterion) {
+		this.splitCriterion = splitCriterion;
+	}
+
+	/**
+	 * Sets the pool used to build trees in parallel, and to classify test data in parallel.
+	 * If null (the default) trees are built on the calling thread
+	 * 
+	 * @param forkJoinPool
+	 */
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Sets the seed of the bootstrap samples and random features,
+	 * forests built from the same data with the same settings and seed are the same
+	 * 
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Tests the accuracy of the classifier on the given testData
+	 * 
+	 * @param testData
+	 */
+	@Override
+	public double test(ClassifierData<T> testData) {
+
+		// calculate classifier accuracy
+		return (double) countCorrect(testData) / testData.numSamples();
+	}
+
+	/**
+	 * Returns the number of samples of testData that the classifier predicts correctly
+	 * 
+	 * @param testData
+	 */
+	@Override
+	long countCorrect(ClassifierData<T> testData) {
+
+		// use classifier to predict the class of every sample, in parallel if a pool has been set
+		int[] predictedClasses = classifier.classifyAll(testData, forkJoinPool);
+
+		return countCorrect(predictedClasses, testData);
+	}
+
+	/**
+	 * Builds a Random Forest classifier from given inputData
+	 * 
+	 * @param inputData
+	 */
+	@Override
+	public void build(ClassifierData<T> inputData) {
+
+		if (inputData.numSamples() == 0) {
+			throw new IndexOutOfBoundsException("inputData is empty");
+		}
+
+		// copy inputData into columns if needed, see DecisionTreeBuilder.build. Every tree shares the same columns
+		ClassifierData<T> newInputData = inputData.isColumnar() || inputData.isOffHeap() ? inputData : new ClassifierData<T>(inputData, true);
+
+		int numFeatures = newInputData.numFeatures();
+		int treeFeatures = featuresPerNode > 0 ? featuresPerNode : Math.max(1, (int) Math.round(Math.sqrt(numFeatures)));
+		int treeDepth = maxDepth > 0 ? maxDepth : DecisionTree.defaultMaxDepth(newInputData);
+
+		// the seeds of every tree are drawn before building, so the forest doesn't depend on the order trees are built in
+		Random random = new Random(seed);
+
+		ArrayList<ForkJoinTask<DecisionTree<T>>> tasks = new ArrayList<ForkJoinTask<DecisionTree<T>>>(numTrees);
+
+		for (int t=0; t<numTrees; t++) {
+
+			TreeBuildContext<T> context = new TreeBuildContext<T>(treeDepth, splitMode);
+			context.splitCriterion = splitCriterion;
+			context.forkJoinPool = forkJoinPool;
+			context.featuresPerNode = treeFeatures;
+			context.featureSeed = random.nextLong();
+
+			long bootstrapSeed = random.nextLong();
+
+			// the bootstrap sample is only drawn when the tree is built, so only the trees being built hold one
+			tasks.add(ForkJoinTask.adapt(() -> new DecisionTree<T>(newInputData, bootstrapSample(newInputData.numSamples(), bootstrapSeed), context)));
+		}
+
+		// the presorted values and bins are calculated once before building, rather than by the first tree of each thread
+		if (splitMode == SplitMode.EXACT) {
+			newInputData.sortedSamples();
+		}
+		else if (splitMode == SplitMode.HISTOGRAM) {
+			newInputData.binnedFeatures();
+		}
+
+		if (forkJoinPool != null) {
+			forkJoinPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+		}
+		else {
+			for (ForkJoinTask<DecisionTree<T>> task : tasks) {
+				task.invoke();
+			}
+		}
+
+		ArrayList<DecisionTree<T>> trees = new ArrayList<DecisionTree<T>>(numTrees);
+		for (ForkJoinTask<DecisionTree<T>> task : tasks) {
+			trees.add(task.join());
+		}
+
+		classifier = new RandomForest<T>(trees, newInputData.numClasses());
+		classifier.classValues = newInputData.classValues();
+	}
+
+	/**
+	 * Returns numSamples sample numbers drawn at random with replacement
+	 * 
+	 * @param numSamples
+	 * @param seed
+	 */
+	static int[] bootstrapSample(int numSamples, long seed) {
+
+		SplittableRandom random = new SplittableRandom(seed);
+
+		int[] sampleNums = new int[numSamples];
+		for (int i=0; i<numSamples; i++) {
+			sampleNums[i] = random.nextInt(numSamples);
+		}
+		return sampleNums;
+	}
+
+	/**
+	 * Prints the built classifier
+	 */
+	@Override
+	public void printClassifier() {
+		classifier.PrintForest();
+	}
+
+}
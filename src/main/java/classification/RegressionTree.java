@@ -0,0 +1,108 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.Arrays;
+
+/**
+ * A regression tree of a GradientBoostedTrees model, flattened into parallel arrays in the same layout as CompiledTree
+ * 
+ * Node i splits on column feature[i] of the sample at threshold[i], samples with a value <= threshold[i]
+ * continue at node leftNode[i], other samples continue at node rightNode[i].
+ * Leaf nodes have feature[i] = LEAF and add value[i] to the score of the sample. The root is node 0,
+ * and children are stored after their parent.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+final class RegressionTree {
+
+	// value of feature[i] if node i is a leaf
+	static final int LEAF = CompiledTree.LEAF;
+
+	// column of the sample that each node splits on, LEAF if the node is a leaf
+	final int[] feature;
+
+	// value that each node splits its feature on
+	final double[] threshold;
+
+	// index of the left child of each node, LEAF if the node is a leaf
+	final int[] leftNode;
+
+	// index of the right child of each node, LEAF if the node is a leaf
+	final int[] rightNode;
+
+	// value added to the score of samples reaching each leaf node
+	final double[] value;
+
+	/**
+	 * Returns the value of the leaf the given sample reaches
+	 * 
+	 * @param sample
+	 */
+	double predict(double[] sample) {
+
+		int node = 0;
+
+		// walk down from the root until a leaf is reached
+		while (feature[node] != LEAF) {
+
+			if (Double.compare(sample[feature[node]], threshold[node]) <= 0) {
+				node = leftNode[node];
+			}
+			else {
+				node = rightNode[node];
+			}
+		}
+
+		return value[node];
+	}
+
+	/**
+	 * Returns the number of nodes in the tree
+	 */
+	int numNodes() {
+		return feature.length;
+	}
+
+	/**
+	 * Prints the node at index node and its children, in the same format as TreeNode.printNode
+	 * 
+	 * @param node
+	 * @param nodeID
+	 * @param nodeDepth
+	 */
+	void printNode(int node, String nodeID, int nodeDepth) {
+
+		System.out.print("[TreeNode] ID: " + nodeID + ", nodeDepth: " + nodeDepth + ", isLeaf: " + (feature[node] == LEAF));
+
+		if (feature[node] == LEAF) {
+			System.out.println(", value: " + value[node]);
+		}
+		else {
+			System.out.println(", splittingFeature: " + feature[node] + ", splittingValue: " + threshold[node]);
+			printNode(leftNode[node], nodeID + "0", nodeDepth + 1);
+			printNode(rightNode[node], nodeID + "1", nodeDepth + 1);
+		}
+	}
+
+	/**
+	 * Constructor - copies the first numNodes nodes of the given arrays
+	 * 
+	 * @param numNodes
+	 * @param feature
+	 * @param threshold
+	 * @param leftNode
+	 * @param rightNode
+	 * @param value
+	 */
+	RegressionTree(int numNodes, int[] feature, double[] threshold, int[] leftNode, int[] rightNode, double[] value) {
+
+		this.feature = Arrays.copyOf(feature, numNodes);
+		this.threshold = Arrays.copyOf(threshold, numNodes);
+		this.leftNode = Arrays.copyOf(leftNode, numNodes);
+		this.rightNode = Arrays.copyOf(rightNode, numNodes);
+		this.value = Arrays.copyOf(value, numNodes);
+	}
+}
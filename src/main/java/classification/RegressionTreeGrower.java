@@ -0,0 +1,332 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Grows the regression trees of a GradientBoostedTrees model from the gradients and hessians of the loss of each sample
+ * 
+ * Splits are found from histograms of the sums of gradients and hessians in each bin of each feature,
+ * using the bins of the training data's BinnedFeatures. Only the histogram of the smaller child of each node is summed,
+ * the larger child's histogram is the parent's histogram minus the smaller child's.
+ * In large nodes the histogram and best split of each feature are found in parallel, if the tree is grown in a fork-join pool.
+ * 
+ * Gradients, hessians and scores are indexed by storage row. Samples of each node are partitioned in place
+ * in the sample index of the root data, as when building a DecisionTree, and the scores of the samples reaching
+ * each leaf are updated as the leaf is grown, so the training data is never walked through the finished tree.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class RegressionTreeGrower<T extends Comparable<T>> {
+
+	// bins of the training data
+	private final BinnedFeatures<T> binnedFeatures;
+
+	// maximum depth of each tree
+	private final int maxDepth;
+
+	// L2 regularization of the leaf values
+	private final double lambda;
+
+	// minimum sum of hessians of each child of a split
+	private final double minChildWeight;
+
+	// leaf values are scaled by the learning rate
+	private final double learningRate;
+
+	// minimum number of samples in a node for its features to be evaluated as separate fork-join tasks
+	private final int featureParallelCutoff;
+
+	// gradient and hessian of the loss of the sample at each storage row, set before each tree is grown
+	final double[] gradients;
+	final double[] hessians;
+
+	// score of the sample at each storage row, updated as each leaf is grown
+	final double[] scores;
+
+	// nodes of the tree being grown, see RegressionTree
+	private int[] feature = new int[64];
+	private double[] threshold = new double[64];
+	private int[] leftNode = new int[64];
+	private int[] rightNode = new int[64];
+	private double[] value = new double[64];
+	private int numNodes;
+
+	/**
+	 * Grows a tree from rootData, a view with its own sample index such as one created by ClassifierData.indexView,
+	 * and adds the value of each sample's leaf to its score
+	 * 
+	 * @param rootData
+	 */
+	RegressionTree grow(ClassifierData<T> rootData) {
+
+		numNodes = 0;
+
+		growNode(rootData, histogram(rootData), 1);
+
+		return new RegressionTree(numNodes, feature, threshold, leftNode, rightNode, value);
+	}
+
+	/**
+	 * Grows the node holding the samples of nodeData and its children, returns the index of the node
+	 * 
+	 * @param nodeData
+	 * @param histogram
+	 * @param nodeDepth
+	 */
+	private int growNode(ClassifierData<T> nodeData, double[][] histogram, int nodeDepth) {
+
+		int node = addNode();
+
+		// every feature's histogram holds the sums of every sample of the node
+		double gradientSum = sumBins(histogram[nodeData.column(0)], 0);
+		double hessianSum = sumBins(histogram[nodeData.column(0)], 1);
+
+		int splittingFeature = -1;
+		int splittingBin = -1;
+
+		if (nodeDepth < maxDepth && nodeData.numSamples() > 1) {
+
+			int numFeatures = nodeData.numFeatures();
+
+			// best gain and bin of each feature, compared in order of feature so ties go to the lowest feature
+			double[] featureGain = new double[numFeatures];
+			int[] featureBin = new int[numFeatures];
+
+			if (isParallel(nodeData)) {
+				ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(numFeatures);
+
+				for (int j=0; j<numFeatures; j++) {
+					final int currentFeature = j;
+					tasks.add(ForkJoinTask.adapt(() -> calculateFeatureSplit(histogram[nodeData.column(currentFeature)], gradientSum, hessianSum,
+							featureGain, featureBin, currentFeature)));
+				}
+				ForkJoinTask.invokeAll(tasks);
+			}
+			else {
+				for (int j=0; j<numFeatures; j++) {
+					calculateFeatureSplit(histogram[nodeData.column(j)], gradientSum, hessianSum, featureGain, featureBin, j);
+				}
+			}
+
+			double bestGain = 0.0;
+
+			for (int j=0; j<numFeatures; j++) {
+				if (featureBin[j] >= 0 && featureGain[j] > bestGain) {
+					bestGain = featureGain[j];
+					splittingFeature = j;
+					splittingBin = featureBin[j];
+				}
+			}
+		}
+
+		// no split improves the loss, make the node a leaf
+		if (splittingFeature < 0) {
+
+			double leafValue = -learningRate * gradientSum / (hessianSum + lambda);
+
+			feature[node] = RegressionTree.LEAF;
+			leftNode[node] = RegressionTree.LEAF;
+			rightNode[node] = RegressionTree.LEAF;
+			value[node] = leafValue;
+
+			for (int i=0; i<nodeData.numSamples(); i++) {
+				scores[nodeData.row(i)] += leafValue;
+			}
+			return node;
+		}
+
+		int column = nodeData.column(splittingFeature);
+		double splittingValue = binnedFeatures.threshold(column, splittingBin);
+
+		// partition the samples of the node in place, features are kept as they can be split on again
+		@SuppressWarnings("unchecked")
+		int numSamplesLeft = nodeData.partition(splittingFeature, (T) Double.valueOf(splittingValue));
+
+		ClassifierData<T> leftData = nodeData.subView(0, numSamplesLeft, -1);
+		ClassifierData<T> rightData = nodeData.subView(numSamplesLeft, nodeData.numSamples() - numSamplesLeft, -1);
+
+		// only the histogram of the smaller child is summed
+		double[][] leftHistogram;
+		double[][] rightHistogram;
+
+		if (leftData.numSamples() <= rightData.numSamples()) {
+			leftHistogram = histogram(leftData);
+			BinnedFeatures.subtract(histogram, leftHistogram);
+			rightHistogram = histogram;
+		}
+		else {
+			rightHistogram = histogram(rightData);
+			BinnedFeatures.subtract(histogram, rightHistogram);
+			leftHistogram = histogram;
+		}
+
+		// features are never removed, so the features of every node are those of the root data
+		feature[node] = splittingFeature;
+		threshold[node] = splittingValue;
+		value[node] = 0.0;
+
+		int left = growNode(leftData, leftHistogram, nodeDepth + 1);
+		int right = growNode(rightData, rightHistogram, nodeDepth + 1);
+
+		leftNode[node] = left;
+		rightNode[node] = right;
+
+		return node;
+	}
+
+	/**
+	 * Finds the split of a feature after the bin that most reduces the loss, sets featureGain[featureNum] and featureBin[featureNum].
+	 * featureBin[featureNum] is set to -1 if no split leaves both children with at least minChildWeight.
+	 * 
+	 * @param featureHistogram
+	 * @param gradientSum
+	 * @param hessianSum
+	 * @param featureGain
+	 * @param featureBin
+	 * @param featureNum
+	 */
+	private void calculateFeatureSplit(double[] featureHistogram, double gradientSum, double hessianSum, double[] featureGain, int[] featureBin, int featureNum) {
+
+		double parentScore = gradientSum * gradientSum / (hessianSum + lambda);
+
+		double bestGain = 0.0;
+		int bestBin = -1;
+
+		double gradientLeft = 0.0;
+		double hessianLeft = 0.0;
+
+		int numBins = featureHistogram.length / 2;
+
+		for (int bin=0; bin<numBins-1; bin++) {
+
+			// move the next bin to the left child
+			gradientLeft += featureHistogram[2 * bin];
+			hessianLeft += featureHistogram[2 * bin + 1];
+
+			double gradientRight = gradientSum - gradientLeft;
+			double hessianRight = hessianSum - hessianLeft;
+
+			if (hessianLeft < minChildWeight || hessianRight < minChildWeight || hessianLeft <= 0.0 || hessianRight <= 0.0) {
+				continue;
+			}
+
+			double gain = gradientLeft * gradientLeft / (hessianLeft + lambda) + gradientRight * gradientRight / (hessianRight + lambda) - parentScore;
+
+			if (gain > bestGain) {
+				bestGain = gain;
+				bestBin = bin;
+			}
+		}
+
+		featureGain[featureNum] = bestGain;
+		featureBin[featureNum] = bestBin;
+	}
+
+	/**
+	 * Returns the sum of the gradients (if offset is 0) or hessians (if offset is 1) of every bin of a feature's histogram
+	 * 
+	 * @param featureHistogram
+	 * @param offset
+	 */
+	private static double sumBins(double[] featureHistogram, int offset) {
+
+		double sum = 0.0;
+
+		for (int k=offset; k<featureHistogram.length; k+=2) {
+			sum += featureHistogram[k];
+		}
+		return sum;
+	}
+
+	/**
+	 * Sums the gradients and hessians of the samples of nodeData in each bin of each feature, indexed by storage column
+	 * 
+	 * @param nodeData
+	 */
+	private double[][] histogram(ClassifierData<T> nodeData) {
+
+		int maxColumn = 0;
+		for (int j=0; j<nodeData.numFeatures(); j++) {
+			maxColumn = Math.max(maxColumn, nodeData.column(j));
+		}
+
+		double[][] histogram = new double[maxColumn+1][];
+
+		if (isParallel(nodeData)) {
+			ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(nodeData.numFeatures());
+
+			for (int j=0; j<nodeData.numFeatures(); j++) {
+				final int column = nodeData.column(j);
+				tasks.add(ForkJoinTask.adapt(() -> {
+					histogram[column] = binnedFeatures.gradientHistogram(nodeData, column, gradients, hessians);
+				}));
+			}
+			ForkJoinTask.invokeAll(tasks);
+		}
+		else {
+			for (int j=0; j<nodeData.numFeatures(); j++) {
+				int column = nodeData.column(j);
+				histogram[column] = binnedFeatures.gradientHistogram(nodeData, column, gradients, hessians);
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Returns true if the features of nodeData should be evaluated as separate fork-join tasks
+	 * 
+	 * @param nodeData
+	 */
+	private boolean isParallel(ClassifierData<T> nodeData) {
+		return nodeData.numSamples() >= featureParallelCutoff && ForkJoinTask.inForkJoinPool();
+	}
+
+	/**
+	 * Adds a node to the tree being grown, returns its index
+	 */
+	private int addNode() {
+
+		if (numNodes == feature.length) {
+			int capacity = 2 * numNodes;
+
+			feature = Arrays.copyOf(feature, capacity);
+			threshold = Arrays.copyOf(threshold, capacity);
+			leftNode = Arrays.copyOf(leftNode, capacity);
+			rightNode = Arrays.copyOf(rightNode, capacity);
+			value = Arrays.copyOf(value, capacity);
+		}
+		return numNodes++;
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param binnedFeatures
+	 * @param numRows
+	 * @param maxDepth
+	 * @param lambda
+	 * @param minChildWeight
+	 * @param learningRate
+	 * @param featureParallelCutoff
+	 */
+	RegressionTreeGrower(BinnedFeatures<T> binnedFeatures, int numRows, int maxDepth, double lambda, double minChildWeight,
+			double learningRate, int featureParallelCutoff) {
+
+		this.binnedFeatures = binnedFeatures;
+		this.maxDepth = maxDepth;
+		this.lambda = lambda;
+		this.minChildWeight = minChildWeight;
+		this.learningRate = learningRate;
+		this.featureParallelCutoff = featureParallelCutoff;
+
+		gradients = new double[numRows];
+		hessians = new double[numRows];
+		scores = new double[numRows];
+	}
+}
@@ -3,13 +3,14 @@
  */
 package main.java.classification;
 
-import java.util.ArrayList;
-
 /**
  * 
  * Class for storing ClassifierData that has been split in two
  * during the building of a two class Classifier.
  * 
+ * The left and right data are views over the storage of the input data,
+ * so splitting data never copies samples.
+ * 
  * @author Marc Wrigley
  *
  */
@@ -50,69 +51,39 @@ public class SplitClassifierData<T extends Comparable<T>> {
 		return validSplit;
 	}
 
-	/**
-	 * Removes all attribute values of a given featureNum from both left and right datasets
-	 * 
-	 * @param featureNum
-	 */
-	private void removeFeature(int featureNum) {
-
-		// for every data sample in left and right data, remove feature value at given featureNum
-		for (int i =0; i<leftData.numSamples(); i++) {
-			leftData.sample(i).remove(featureNum);
-		}
-
-		for (int i =0; i<rightData.numSamples(); i++) {
-			rightData.sample(i).remove(featureNum);
-		}
-
-		// update dimensions of left and right data
-		leftData.updateDimensions();
-		rightData.updateDimensions();
-
-
-	}
-
 	/**
 	 * Splits the given inputData into leftData and rightData,
-	 * data is split using the given splittingFeature index and splittingValue
+	 * data is split using the given splittingFeature index and splittingValue.
+	 * 
+	 * If inPlace==true the sample index of inputData is partitioned directly, otherwise
+	 * a copy of the sample index is partitioned and inputData is unchanged.
+	 * If removeFeature==true the splittingFeature is left out of leftData and rightData.
 	 * 
 	 * @param inputData
 	 * @param splittingFeature
 	 * @param splittingValue
+	 * @param removeFeature
+	 * @param inPlace
 	 */
-	private void splitData(ClassifierData<T> inputData, int splittingFeature, T splittingValue) {
+	private void splitData(ClassifierData<T> inputData, int splittingFeature, T splittingValue, boolean removeFeature, boolean inPlace) {
 
 		// if given inputData isn't null or empty
 		if (inputData != null && inputData.numSamples()>0) {
 
-			// initialise left and right data and label arrays
-			ArrayList<ArrayList<T>> leftDataArray = new ArrayList<ArrayList<T>>();
-			ArrayList<Integer> leftLabelArray = new ArrayList<Integer>(); 
+			ClassifierData<T> indexedData = inPlace ? inputData : inputData.indexView();
 
-			ArrayList<ArrayList<T>> rightDataArray = new ArrayList<ArrayList<T>>();
-			ArrayList<Integer> rightLabelArray = new ArrayList<Integer>(); 
-
-			// add each inputData sample to either left or right array, depending on given splittingFeature and splittingValue
-			for (int i =0; i<inputData.numSamples(); i++) {
-				if (inputData.attribute(i, splittingFeature).compareTo(splittingValue) <= 0) {
-
-					leftDataArray.add(inputData.sample(i));
-					leftLabelArray.add(inputData.classLabel(i));
-				}
-				else {
-
-					rightDataArray.add(inputData.sample(i));
-					rightLabelArray.add(inputData.classLabel(i));
-				}
-			}
+			// move samples <= splittingValue to the left of the sample index, and all others to the right
+			int numSamplesLeft = indexedData.partition(splittingFeature, splittingValue);
+			int numSamplesRight = indexedData.numSamples() - numSamplesLeft;
 
 			// if both left and right data aren't empty then the split is valid
-			if (leftDataArray.size()>0 && rightDataArray.size()>0) {			
+			if (numSamplesLeft>0 && numSamplesRight>0) {
+
+				int removedFeature = removeFeature ? splittingFeature : -1;
 
 				// set left and right data
-				leftData = new ClassifierData<T>(leftDataArray, leftLabelArray);
-				rightData = new ClassifierData<T>(rightDataArray, rightLabelArray);
+				leftData = indexedData.subView(0, numSamplesLeft, removedFeature);
+				rightData = indexedData.subView(numSamplesLeft, numSamplesRight, removedFeature);
 			}
 			// else splitting inputData is redundant
 			else {
@@ -135,7 +106,7 @@ public class SplitClassifierData<T extends Comparable<T>> {
 	 */
 	public SplitClassifierData(ClassifierData<T> inputData, int splittingFeature, T splittingValue) {
 
-		splitData(inputData, splittingFeature, splittingValue);
+		splitData(inputData, splittingFeature, splittingValue, false, false);
 
 	}
 
@@ -150,15 +121,25 @@ public class SplitClassifierData<T extends Comparable<T>> {
 	 */
 	public SplitClassifierData(ClassifierData<T> inputData, int splittingFeature, T splittingValue, boolean removeFeature) {
 
+		splitData(inputData, splittingFeature, splittingValue, removeFeature, false);
 
-		ClassifierData<T> newInputData = new ClassifierData<T>(inputData);
-
-		splitData(newInputData, splittingFeature, splittingValue);
+	}
 
-		if (removeFeature) {
-			removeFeature(splittingFeature);
-		}
+	/**
+	 * Constructor - calls splitData with the given parameters
+	 * Removes the given splittingFeature from the split data if removeFeature==true
+	 * Partitions the sample index of inputData in place if inPlace==true, inputData must then be
+	 * a view created by ClassifierData.indexView, or a subView of one, that no one else is reading.
+	 * 
+	 * @param inputData
+	 * @param splittingFeature
+	 * @param splittingValue
+	 * @param removeFeature
+	 * @param inPlace
+	 */
+	SplitClassifierData(ClassifierData<T> inputData, int splittingFeature, T splittingValue, boolean removeFeature, boolean inPlace) {
 
+		splitData(inputData, splittingFeature, splittingValue, removeFeature, inPlace);
 
 	}
 
@@ -172,33 +153,12 @@ public class SplitClassifierData<T extends Comparable<T>> {
 	 */
 	public SplitClassifierData(ClassifierData<T> inputData, int sampleNumber) {
 
-		// if given inputData isn't null or empty
-		if (inputData != null && inputData.numSamples()> sampleNumber) {
-
-			// initialise left and right data and label arrays
-			ArrayList<ArrayList<T>> leftDataArray = new ArrayList<ArrayList<T>>();
-			ArrayList<Integer> leftLabelArray = new ArrayList<Integer>(); 
-
-			ArrayList<ArrayList<T>> rightDataArray = new ArrayList<ArrayList<T>>();
-			ArrayList<Integer> rightLabelArray = new ArrayList<Integer>(); 
-
-			// add all data samples <= given sampleNumber to left array
-			for (int i =0; i<=sampleNumber; i++) {
-
-				leftDataArray.add(inputData.sample(i));
-				leftLabelArray.add(inputData.classLabel(i));
-			}
-
-			// add all data samples > given sampleNumber to right array
-			for (int i =sampleNumber+1; i<inputData.numSamples(); i++) {
-
-				rightDataArray.add(inputData.sample(i));
-				rightLabelArray.add(inputData.classLabel(i));
-			}			
+		// if given inputData isn't null or empty, and both left and right data will contain samples
+		if (inputData != null && sampleNumber >= 0 && inputData.numSamples() > sampleNumber+1) {
 
-			// set left and right data
-			leftData = new ClassifierData<T>(leftDataArray, leftLabelArray);
-			rightData = new ClassifierData<T>(rightDataArray, rightLabelArray);
+			// left data holds all data samples <= given sampleNumber, right data holds all data samples > given sampleNumber
+			leftData = inputData.subView(0, sampleNumber+1, -1);
+			rightData = inputData.subView(sampleNumber+1, inputData.numSamples()-sampleNumber-1, -1);
 		}
 		else {
 			throw new IndexOutOfBoundsException("inputData is null or empty");
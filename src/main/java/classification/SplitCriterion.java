@@ -0,0 +1,20 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+/**
+ * Measures of the impurity of the classes of a node, used to compare splits while building a DecisionTree.
+ * The best split is the one that most reduces the weighted impurity of the child nodes.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public enum SplitCriterion {
+
+	// Entropy of the classes, - sum of P(class) log2(P(class)), so splits are compared by information gain
+	ENTROPY,
+
+	// Gini impurity of the classes, 1 - sum of P(class)^2, cheaper to calculate than entropy
+	GINI
+}
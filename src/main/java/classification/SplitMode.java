@@ -0,0 +1,24 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+/**
+ * Methods used to choose the value each feature is split on while building a DecisionTree
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public enum SplitMode {
+
+	// Split each feature on its mean value
+	MEAN,
+
+	// Try a split between every pair of distinct neighbouring values of each feature,
+	// using feature values that are sorted once before the tree is built
+	EXACT,
+
+	// Try a split between every pair of neighbouring bins of each feature, where feature values
+	// are quantized into at most 255 bins once before the tree is built
+	HISTOGRAM
+}
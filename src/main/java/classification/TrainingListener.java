@@ -0,0 +1,51 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+/**
+ * Receives the metrics of each node of a DecisionTree as it is built, and the totals of the tree once it has been built.
+ * Set on a DecisionTreeBuilder with setTrainingListener.
+ * 
+ * If the tree is built in a ForkJoinPool nodes are built on several threads at once,
+ * so nodeBuilt may be called concurrently and must be thread safe.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public interface TrainingListener {
+
+	/**
+	 * Called as each node starts being built, on the thread that builds the node.
+	 * The same NodeMetrics is passed to nodeBuilt once the node has been built, its counters are only set by then.
+	 * 
+	 * @param node
+	 */
+	default void nodeStarted(NodeMetrics node) {
+	}
+
+	/**
+	 * Called once each node has been built, before its children are built, on the thread that built the node
+	 * 
+	 * @param node
+	 */
+	default void nodeBuilt(NodeMetrics node) {
+	}
+
+	/**
+	 * Called as a tree starts being built, on the thread that builds it.
+	 * The same TrainingMetrics is passed to treeBuilt once the tree has been built.
+	 * 
+	 * @param metrics
+	 */
+	default void treeStarted(TrainingMetrics metrics) {
+	}
+
+	/**
+	 * Called once the whole tree has been built, on the thread that started building it
+	 * 
+	 * @param metrics
+	 */
+	default void treeBuilt(TrainingMetrics metrics) {
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totals of the NodeMetrics of every node of a DecisionTree, passed to TrainingListener.treeBuilt
+ * 
+ * Nodes are added as they are built, from every thread building the tree.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+public final class TrainingMetrics {
+
+	// measures the memory allocated by each thread, null if not supported by the JVM
+	private static final com.sun.management.ThreadMXBean THREAD_BEAN = threadBean();
+
+	// totals of the nodes built so far
+	private final LongAdder numNodes = new LongAdder();
+	private final LongAdder numLeaves = new LongAdder();
+	private final LongAdder splitSearchNanos = new LongAdder();
+	private final LongAdder partitionNanos = new LongAdder();
+	private final LongAdder rowsScanned = new LongAdder();
+	private final LongAdder candidateSplits = new LongAdder();
+	private final LongAdder allocatedBytes = new LongAdder();
+
+	// number of nodes built at each depth, indexed by depth - 1
+	private final AtomicIntegerArray nodesPerDepth;
+
+	// time taken to build the whole tree, set once the tree has been built
+	private long buildNanos;
+
+	/**
+	 * Adds the metrics of a built node to the totals
+	 * 
+	 * @param node
+	 */
+	void add(NodeMetrics node) {
+
+		numNodes.increment();
+		if (node.isLeaf) {
+			numLeaves.increment();
+		}
+
+		splitSearchNanos.add(node.splitSearchNanos);
+		partitionNanos.add(node.partitionNanos);
+		rowsScanned.add(node.rowsScanned);
+		candidateSplits.add(node.candidateSplits);
+
+		if (node.allocatedBytes > 0) {
+			allocatedBytes.add(node.allocatedBytes);
+		}
+
+		nodesPerDepth.incrementAndGet(node.nodeDepth - 1);
+	}
+
+	/**
+	 * Sets the time taken to build the whole tree
+	 * 
+	 * @param buildNanos
+	 */
+	void setBuildNanos(long buildNanos) {
+		this.buildNanos = buildNanos;
+	}
+
+	/**
+	 * Returns the number of nodes built
+	 */
+	public long numNodes() {
+		return numNodes.sum();
+	}
+
+	/**
+	 * Returns the number of leaf nodes built
+	 */
+	public long numLeaves() {
+		return numLeaves.sum();
+	}
+
+	/**
+	 * Returns the number of nodes built at the given depth, the root is at depth 1
+	 * 
+	 * @param depth
+	 */
+	public int nodesAtDepth(int depth) {
+
+		if (depth < 1 || depth > nodesPerDepth.length()) {
+			return 0;
+		}
+		return nodesPerDepth.get(depth - 1);
+	}
+
+	/**
+	 * Returns the number of nodes built at each depth, where element d is the number of nodes at depth d + 1.
+	 * The array ends at the deepest node.
+	 */
+	public int[] nodesPerDepth() {
+
+		int depth = nodesPerDepth.length();
+		while (depth > 0 && nodesPerDepth.get(depth - 1) == 0) {
+			depth--;
+		}
+
+		int[] counts = new int[depth];
+		for (int d=0; d<depth; d++) {
+			counts[d] = nodesPerDepth.get(d);
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the total time in nanoseconds spent finding the best split of every node,
+	 * summed over every thread so may be more than buildNanos
+	 */
+	public long splitSearchNanos() {
+		return splitSearchNanos.sum();
+	}
+
+	/**
+	 * Returns the total time in nanoseconds spent partitioning the samples of every node between its children,
+	 * summed over every thread so may be more than buildNanos
+	 */
+	public long partitionNanos() {
+		return partitionNanos.sum();
+	}
+
+	/**
+	 * Returns the total number of samples read while building every node, see NodeMetrics.rowsScanned
+	 */
+	public long rowsScanned() {
+		return rowsScanned.sum();
+	}
+
+	/**
+	 * Returns the total number of candidate splits evaluated
+	 */
+	public long candidateSplits() {
+		return candidateSplits.sum();
+	}
+
+	/**
+	 * Returns the total number of bytes allocated while building every node, see NodeMetrics.allocatedBytes,
+	 * or -1 if the JVM doesn't measure the memory allocated by each thread
+	 */
+	public long allocatedBytes() {
+		return THREAD_BEAN == null ? -1 : allocatedBytes.sum();
+	}
+
+	/**
+	 * Returns the time in nanoseconds taken to build the whole tree
+	 */
+	public long buildNanos() {
+		return buildNanos;
+	}
+
+	/**
+	 * Prints the metrics
+	 */
+	public void printMetrics() {
+
+		System.out.println("[TrainingMetrics] buildTime: " + buildNanos / 1e6 + "ms, splitSearchTime: " + splitSearchNanos() / 1e6
+				+ "ms, partitionTime: " + partitionNanos() / 1e6 + "ms");
+		System.out.println("[TrainingMetrics] numNodes: " + numNodes() + ", numLeaves: " + numLeaves() + ", rowsScanned: " + rowsScanned()
+				+ ", candidateSplits: " + candidateSplits() + ", allocatedBytes: " + allocatedBytes());
+
+		int[] counts = nodesPerDepth();
+		for (int d=0; d<counts.length; d++) {
+			System.out.println("[TrainingMetrics] nodeDepth: " + (d+1) + ", numNodes: " + counts[d]);
+		}
+	}
+
+	/**
+	 * Returns the number of bytes allocated so far by the current thread, or -1 if not supported by the JVM
+	 */
+	static long threadAllocatedBytes() {
+		return THREAD_BEAN == null ? -1 : THREAD_BEAN.getCurrentThreadAllocatedBytes();
+	}
+
+	/**
+	 * Returns the ThreadMXBean of the JVM if it can measure the memory allocated by each thread, otherwise null
+	 */
+	private static com.sun.management.ThreadMXBean threadBean() {
+
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+
+			if (threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled()) {
+				return threadBean;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param maxDepth
+	 */
+	TrainingMetrics(int maxDepth) {
+
+		nodesPerDepth = new AtomicIntegerArray(Math.max(maxDepth, 1));
+	}
+}
@@ -0,0 +1,212 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Settings and shared state used by the nodes of a DecisionTree while it is being built
+ * 
+ * Settings are set before the tree is built, shared state is set up by prepare.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class TreeBuildContext<T extends Comparable<T>> {
+
+	// Default minimum number of samples in a node for its children to be built as separate fork-join tasks
+	static final int DEFAULT_PARALLEL_CUTOFF = 4096;
+
+	// maximum depth of the Decision Tree
+	final int maxDepth;
+
+	// method used to choose the value to split each feature on
+	final SplitMode splitMode;
+
+	// impurity measure used to compare splits
+	SplitCriterion splitCriterion = SplitCriterion.ENTROPY;
+
+	// number of classes, every node counts its samples of each class in an int[numClasses]
+	int numClasses = 2;
+
+	// nodes with fewer samples than minSamplesSplit are leaf nodes
+	int minSamplesSplit = 2;
+
+	// splits leaving fewer than minSamplesLeaf samples in either child are not considered
+	int minSamplesLeaf = 1;
+
+	// nodes whose best split gains less information than minInfoGain are leaf nodes, every split is kept if <= 0
+	double minInfoGain = 0.0;
+
+	// maximum number of leaf nodes, nodes are split best first until the tree has maxLeafNodes leaves.
+	// If 0 there is no limit and the tree is built depth first
+	int maxLeafNodes = 0;
+
+	// pool used to build subtrees in parallel, null if the tree is built on the calling thread
+	ForkJoinPool forkJoinPool = null;
+
+	// minimum number of samples in a node for its children to be built as separate fork-join tasks
+	int parallelCutoff = DEFAULT_PARALLEL_CUTOFF;
+
+	// minimum number of samples in a node for its features to be evaluated as separate fork-join tasks,
+	// features are evaluated sequentially by default
+	int featureParallelCutoff = Integer.MAX_VALUE;
+
+	// number of features chosen at random for each node to find the best split from, every feature is used if 0,
+	// more features are tried if none of the chosen features can split the node
+	int featuresPerNode = 0;
+
+	// seed of the random features chosen for each node, each node's features depend only on the seed and its nodeID
+	long featureSeed = 0;
+
+	// sorted sample index of the training data, only used in EXACT split mode
+	PresortedIndex<T> presortedIndex = null;
+
+	// quantized feature values of the training data, only used in HISTOGRAM split mode
+	BinnedFeatures<T> binnedFeatures = null;
+
+	// receives the metrics of each node and of the tree, nodes aren't measured if null
+	TrainingListener listener = null;
+
+	// totals of the metrics of the nodes built so far, set up by prepare if a listener has been set
+	TrainingMetrics metrics = null;
+
+	// feature of the root data stored at each storage column, null if every feature is stored at the column of the same index
+	private int[] featureOfColumn = null;
+
+	/**
+	 * Returns the features of a node with numFeatures features in the order they should be tried,
+	 * or null if every feature is tried in order. If featuresPerNode is set, the order is a random
+	 * permutation chosen from featureSeed and the nodeID.
+	 * 
+	 * @param numFeatures
+	 * @param nodeID
+	 */
+	int[] featureOrder(int numFeatures, String nodeID) {
+
+		if (featuresPerNode <= 0 || featuresPerNode >= numFeatures) {
+			return null;
+		}
+
+		SplittableRandom random = new SplittableRandom(featureSeed ^ (nodeID.hashCode() * 0x9E3779B97F4A7C15L + nodeID.length()));
+
+		int[] features = new int[numFeatures];
+		for (int j=0; j<numFeatures; j++) {
+			features[j] = j;
+		}
+
+		// Fisher-Yates shuffle
+		for (int j=numFeatures-1; j>0; j--) {
+			int k = random.nextInt(j+1);
+			int swap = features[j];
+			features[j] = features[k];
+			features[k] = swap;
+		}
+		return features;
+	}
+
+	/**
+	 * Returns the feature of the data given to the root node that is stored at the given storage column
+	 * 
+	 * @param column
+	 */
+	int rootFeature(int column) {
+		return featureOfColumn == null ? column : featureOfColumn[column];
+	}
+
+	/**
+	 * Maps the storage columns of rootData back to the features of rootData,
+	 * only needed if rootData is a view with features removed
+	 * 
+	 * @param rootData
+	 */
+	void mapColumns(ClassifierData<T> rootData) {
+
+		featureOfColumn = null;
+
+		int maxColumn = -1;
+		boolean identity = true;
+
+		for (int j=0; j<rootData.numFeatures(); j++) {
+			maxColumn = Math.max(maxColumn, rootData.column(j));
+			identity &= rootData.column(j) == j;
+		}
+
+		if (!identity) {
+			featureOfColumn = new int[maxColumn+1];
+
+			for (int j=0; j<rootData.numFeatures(); j++) {
+				featureOfColumn[rootData.column(j)] = j;
+			}
+		}
+	}
+
+	/**
+	 * Sets up the shared state needed by splitMode,
+	 * where rootData is the view of inputData given to the root node
+	 * 
+	 * @param inputData
+	 * @param rootData
+	 */
+	void prepare(ClassifierData<T> inputData, ClassifierData<T> rootData) {
+
+		mapColumns(rootData);
+
+		numClasses = Math.max(2, inputData.numClasses());
+
+		// the sorted samples and bins are kept with inputData, so are only calculated once for each dataset
+		if (splitMode == SplitMode.EXACT) {
+			presortedIndex = new PresortedIndex<T>(rootData, inputData, inputData.sortedSamples());
+		}
+
+		if (splitMode == SplitMode.HISTOGRAM) {
+			binnedFeatures = inputData.binnedFeatures();
+		}
+
+		if (listener != null) {
+			metrics = new TrainingMetrics(maxDepth);
+		}
+	}
+
+	/**
+	 * Returns a context where nodes are split on the mean value of each feature,
+	 * for building a tree from the given rootData
+	 * 
+	 * @param rootData
+	 * @param maxDepth
+	 */
+	static <T extends Comparable<T>> TreeBuildContext<T> meanContext(ClassifierData<T> rootData, int maxDepth) {
+
+		TreeBuildContext<T> context = new TreeBuildContext<T>(maxDepth);
+
+		if (rootData != null) {
+			context.mapColumns(rootData);
+			context.numClasses = Math.max(2, rootData.numClasses());
+		}
+		return context;
+	}
+
+	/**
+	 * Constructor - nodes are split on the mean value of each feature
+	 * 
+	 * @param maxDepth
+	 */
+	TreeBuildContext(int maxDepth) {
+
+		this(maxDepth, SplitMode.MEAN);
+	}
+
+	/**
+	 * Constructor - nodes are split using the given splitMode
+	 * 
+	 * @param maxDepth
+	 * @param splitMode
+	 */
+	TreeBuildContext(int maxDepth, SplitMode splitMode) {
+
+		this.maxDepth = maxDepth;
+		this.splitMode = splitMode;
+	}
+}
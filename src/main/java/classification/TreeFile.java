@@ -0,0 +1,237 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary file format for a trained DecisionTree
+ * 
+ * Every number is little-endian. The file starts with a 24 byte header:
+ * 
+ * magic "DTRE" (4 bytes), version (int), numNodes (int), numFeatures (int),
+ * hasNames (byte, 1 if feature names follow), hasClassValues (byte, 1 if class values follow), 6 bytes padding
+ * 
+ * followed by the length in bytes (int) and UTF-8 bytes of each feature name if hasNames is 1,
+ * and by the number of classes (int) and the class label read from the input of each class (int) if hasClassValues is 1,
+ * see Classifier.classValues. Version 1 files have no class values.
+ * The arrays of the CompiledTree follow, each holding numNodes values and starting at a multiple of 8 bytes
+ * from the start of the file: threshold (double), feature, leftNode, rightNode and classLabel (int).
+ * 
+ * The file is memory mapped when loaded and each array is copied from the mapping in a single bulk copy.
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class TreeFile {
+
+	// First 4 bytes of every file, "DTRE"
+	static final int MAGIC = 0x45525444;
+
+	// Version of the format written by save, files of earlier versions can still be loaded
+	static final int VERSION = 2;
+
+	// Size in bytes of the header
+	static final int HEADER_SIZE = 24;
+
+	/**
+	 * Saves the given compiledTree, featureNames and classValues to outputFilePath
+	 * 
+	 * @param compiledTree
+	 * @param featureNames
+	 * @param classValues
+	 * @param outputFilePath
+	 * @throws IOException
+	 */
+	static void save(CompiledTree compiledTree, String[] featureNames, int[] classValues, String outputFilePath) throws IOException {
+
+		int numNodes = compiledTree.numNodes();
+
+		byte[][] nameBytes = new byte[featureNames == null ? 0 : featureNames.length][];
+		int namesSize = 0;
+
+		for (int j=0; j<nameBytes.length; j++) {
+			nameBytes[j] = featureNames[j] == null ? new byte[0] : featureNames[j].getBytes(StandardCharsets.UTF_8);
+			namesSize += 4 + nameBytes[j].length;
+		}
+
+		int classValuesSize = classValues == null ? 0 : 4 + 4 * classValues.length;
+
+		long arraysPosition = align(HEADER_SIZE + (long) namesSize + classValuesSize);
+		long fileSize = arraysPosition + (long) numNodes * (8 + 4 * 4) + 4 * 8;
+
+		if (fileSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("tree has too many nodes to save");
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) fileSize).order(ByteOrder.LITTLE_ENDIAN);
+
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(numNodes);
+		buffer.putInt(compiledTree.numFeatures());
+		buffer.put((byte) (featureNames == null ? 0 : 1));
+		buffer.put((byte) (classValues == null ? 0 : 1));
+		buffer.position(HEADER_SIZE);
+
+		for (int j=0; j<nameBytes.length; j++) {
+			buffer.putInt(nameBytes[j].length);
+			buffer.put(nameBytes[j]);
+		}
+
+		if (classValues != null) {
+			buffer.putInt(classValues.length);
+
+			for (int classValue : classValues) {
+				buffer.putInt(classValue);
+			}
+		}
+
+		buffer.position((int) arraysPosition);
+		buffer.asDoubleBuffer().put(compiledTree.threshold);
+		buffer.position(buffer.position() + (int) align(numNodes * 8L));
+
+		int[][] intArrays = {compiledTree.feature, compiledTree.leftNode, compiledTree.rightNode, compiledTree.classLabel};
+
+		for (int[] intArray : intArrays) {
+			buffer.asIntBuffer().put(intArray);
+			buffer.position(buffer.position() + (int) align(numNodes * 4L));
+		}
+
+		buffer.flip();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(outputFilePath),
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Loads the tree saved at inputFilePath, memory mapping the file.
+	 * Every count and length read from the file is checked against the size of the file before it is used,
+	 * so a truncated or corrupt file throws an IllegalArgumentException.
+	 * 
+	 * @param inputFilePath
+	 * @throws IOException
+	 */
+	static DecisionTree<Double> load(String inputFilePath) throws IOException {
+
+		ByteBuffer buffer;
+
+		try (FileChannel channel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+
+			if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Not a DecisionTree file: " + inputFilePath);
+			}
+
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		if (buffer.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException("Not a DecisionTree file: " + inputFilePath);
+		}
+		if (buffer.getInt(4) < 1 || buffer.getInt(4) > VERSION) {
+			throw new IllegalArgumentException("Unsupported DecisionTree file version " + buffer.getInt(4) + ": " + inputFilePath);
+		}
+
+		int numNodes = buffer.getInt(8);
+		int numFeatures = buffer.getInt(12);
+		boolean hasNames = buffer.get(16) == 1;
+		boolean hasClassValues = buffer.get(17) == 1;
+
+		// each name takes at least 4 bytes, so a valid numFeatures is never larger than the file
+		if (numNodes <= 0 || numFeatures < 0 || (hasNames && numFeatures > buffer.capacity() / 4)) {
+			throw new IllegalArgumentException("Corrupt DecisionTree file: " + inputFilePath);
+		}
+
+		buffer.position(HEADER_SIZE);
+
+		String[] featureNames = null;
+
+		if (hasNames) {
+			featureNames = new String[numFeatures];
+
+			for (int j=0; j<numFeatures; j++) {
+				checkRemaining(buffer, 4, inputFilePath);
+				int nameLength = buffer.getInt();
+
+				checkRemaining(buffer, nameLength, inputFilePath);
+				byte[] nameBytes = new byte[nameLength];
+				buffer.get(nameBytes);
+				featureNames[j] = new String(nameBytes, StandardCharsets.UTF_8);
+			}
+		}
+
+		int[] classValues = null;
+
+		if (hasClassValues) {
+			checkRemaining(buffer, 4, inputFilePath);
+			int numClasses = buffer.getInt();
+
+			checkRemaining(buffer, numClasses * 4L, inputFilePath);
+			classValues = new int[numClasses];
+			buffer.asIntBuffer().get(classValues);
+			buffer.position(buffer.position() + numClasses * 4);
+		}
+
+		// the threshold array and the four int arrays, each aligned to 8 bytes
+		buffer.position((int) align(buffer.position()));
+		checkRemaining(buffer, align(numNodes * 8L) + 4 * align(numNodes * 4L), inputFilePath);
+
+		CompiledTree compiledTree = new CompiledTree(numNodes, numFeatures);
+
+		buffer.asDoubleBuffer().get(compiledTree.threshold);
+		buffer.position(buffer.position() + (int) align(numNodes * 8L));
+
+		int[][] intArrays = {compiledTree.feature, compiledTree.leftNode, compiledTree.rightNode, compiledTree.classLabel};
+
+		for (int[] intArray : intArrays) {
+			buffer.asIntBuffer().get(intArray);
+			buffer.position(buffer.position() + (int) align(numNodes * 4L));
+		}
+
+		compiledTree.checkNodes();
+
+		if (classValues != null) {
+			for (int node=0; node<numNodes; node++) {
+				if (compiledTree.feature[node] == CompiledTree.LEAF && (compiledTree.classLabel[node] < 0 || compiledTree.classLabel[node] >= classValues.length)) {
+					throw new IllegalArgumentException("Corrupt DecisionTree file: " + inputFilePath);
+				}
+			}
+		}
+
+		DecisionTree<Double> tree = new DecisionTree<Double>(compiledTree, featureNames);
+		tree.classValues = classValues;
+
+		return tree;
+	}
+
+	/**
+	 * Throws an IllegalArgumentException if fewer than numBytes bytes of the file remain after the buffer's position
+	 * 
+	 * @param buffer
+	 * @param numBytes
+	 * @param inputFilePath
+	 */
+	private static void checkRemaining(ByteBuffer buffer, long numBytes, String inputFilePath) {
+
+		if (numBytes < 0 || numBytes > buffer.remaining()) {
+			throw new IllegalArgumentException("Corrupt DecisionTree file: " + inputFilePath);
+		}
+	}
+
+	// Returns the first multiple of 8 at or after the given position
+	private static long align(long position) {
+		return (position + 7) & ~7L;
+	}
+}
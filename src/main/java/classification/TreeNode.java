@@ -5,6 +5,8 @@ package main.java.classification;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * A Node of a Decision Tree Classifier
@@ -17,9 +19,13 @@ public class TreeNode<T extends Comparable<T>> {
 	// Is this node a leaf node
 	private boolean isLeaf;
 
-	// The associated class label if this node is a leaf
+	// The associated class label if this node is a leaf, the most common class of split nodes
 	private int classLabel;
 
+	// number of training samples reaching this node, and the number of them not of classLabel
+	private int numSamples;
+	private int numErrors;
+
 	// During building can the given data be split, if false then this node becomes a leaf node.
 	private boolean validSplit = false;
 
@@ -40,9 +46,12 @@ public class TreeNode<T extends Comparable<T>> {
 	// Right child of the current node
 	TreeNode<T> rightNode;
 
-	// index of the best feature to split on at this node
+	// index of the best feature to split on at this node, in the data left at this node
 	int splittingFeature;
 
+	// index of splittingFeature in the data the tree was built from, used to classify samples
+	int splittingColumn;
+
 	// maximum depth of the Decision Tree, used during building
 	int maxDepth;
 
@@ -52,6 +61,58 @@ public class TreeNode<T extends Comparable<T>> {
 	// threshold value of splittingFeature, used to split the data
 	T splittingValue;
 
+	// settings and shared state used during building, released once the node has been built
+	private TreeBuildContext<T> context;
+
+	// class counts of each bin of each feature, only used during building in HISTOGRAM split mode
+	private int[][] histogram;
+
+	/**
+	 * The best split found on a single feature during building
+	 */
+	private static class FeatureSplit<T> {
+
+		// is there a split on the feature that isn't redundant
+		boolean valid;
+
+		// information gain of the best split on the feature
+		double infoGain;
+
+		// value to split the feature on
+		T splittingValue;
+
+		// number of samples read and candidate splits evaluated to find the split, see NodeMetrics
+		long rowsScanned;
+		long candidateSplits;
+
+		// clears the split before the next feature is evaluated
+		void reset() {
+			valid = false;
+			infoGain = -1.0;
+			splittingValue = null;
+			rowsScanned = 0;
+			candidateSplits = 0;
+		}
+	}
+
+	/**
+	 * The data, and in HISTOGRAM split mode the histogram, of each child of a node after it is partitioned
+	 */
+	static class NodeChildren<T extends Comparable<T>> {
+
+		final ClassifierData<T> leftData;
+		final ClassifierData<T> rightData;
+		final int[][] leftHistogram;
+		final int[][] rightHistogram;
+
+		NodeChildren(ClassifierData<T> leftData, ClassifierData<T> rightData, int[][] leftHistogram, int[][] rightHistogram) {
+			this.leftData = leftData;
+			this.rightData = rightData;
+			this.leftHistogram = leftHistogram;
+			this.rightHistogram = rightHistogram;
+		}
+	}
+
 	/**
 	 * Returns log base 2 of x
 	 * 
@@ -65,40 +126,102 @@ public class TreeNode<T extends Comparable<T>> {
 
 
 	/**
-	 * Calculates the entropy of the given ClassifierData,
-	 * where entropy(currentNode) = - P(class0) log2(p(class0)) + P(class1) log2(p(class1))
+	 * Calculates the entropy of data with the given class counts,
+	 * where entropy(currentNode) = - sum over classes of P(class) log2(P(class)).
+	 * Entropy is 0 if all data samples are of the same class.
 	 * 
-	 * @param currentNodeData
+	 * @param classCounts
+	 * @param numSamples
 	 */
-	private double entropy(ClassifierData<T> currentNodeData) {
-
+	static double entropy(int[] classCounts, int numSamples) {
 
-		// Number of data samples of each class
-		int classCount0 = currentNodeData.classCount(0);
-		int classCount1 = currentNodeData.classCount(1);
+		double entropy = 0.0;
 
-		// If data samples aren't all of the same class
-		if (classCount0 > 0  && classCount0 < currentNodeData.numSamples())
-		{
+		for (int c=0; c<classCounts.length; c++) {
 
+			// classes without samples add nothing, as p log2(p) tends to 0
+			if (classCounts[c] > 0) {
+				double probability = (double) classCounts[c] / numSamples;
+				entropy -= probability * log2(probability);
+			}
+		}
+		return entropy;
+	}
 
-			// Probability of each class
-			double probC0 = (double) classCount0 / currentNodeData.numSamples();
-			double probC1 = (double) classCount1 / currentNodeData.numSamples();
+	/**
+	 * Calculates the Gini impurity of data with the given class counts,
+	 * where gini(currentNode) = 1 - sum over classes of P(class)^2
+	 * 
+	 * @param classCounts
+	 * @param numSamples
+	 */
+	static double gini(int[] classCounts, int numSamples) {
 
+		if (numSamples == 0) {
+			return 0.0;
+		}
 
-			double entropy = -((probC0 * log2(probC0)) + (probC1 * log2(probC1)));
+		long sumSquares = 0;
+		for (int c=0; c<classCounts.length; c++) {
+			sumSquares += (long) classCounts[c] * classCounts[c];
+		}
+		return 1.0 - (double) sumSquares / ((double) numSamples * numSamples);
+	}
 
+	/**
+	 * Calculates the impurity of data with the given class counts, using the split criterion of the tree
+	 * 
+	 * @param classCounts
+	 * @param numSamples
+	 */
+	private double impurity(int[] classCounts, int numSamples) {
 
-			return entropy;
-		}
-		// entropy = 1 if all data samples are of the same class
-		else {
-			return 1.0;
+		if (context.splitCriterion == SplitCriterion.GINI) {
+			return gini(classCounts, numSamples);
 		}
+		return entropy(classCounts, numSamples);
 	}
 
+	/**
+	 * Calculates the information gain of splitting data with the given class counts,
+	 * where InformationGain(currentSplit) = Entropy(currentNode) - weightedAverage*Entropy(Children),
+	 * or the equivalent decrease of Gini impurity if the tree is split using SplitCriterion.GINI
+	 * 
+	 * @param entropyParent
+	 * @param leftClassCounts
+	 * @param numSamplesLeft
+	 * @param rightClassCounts
+	 * @param numSamplesRight
+	 */
+	private double informationGain(double entropyParent, int[] leftClassCounts, int numSamplesLeft, int[] rightClassCounts, int numSamplesRight) {
+
+		int numSamples = numSamplesLeft + numSamplesRight;
 
+		double entropyLeftChild = impurity(leftClassCounts, numSamplesLeft);
+		double entropyRightChild = impurity(rightClassCounts, numSamplesRight);
+
+		return entropyParent - 
+				((((double) numSamplesLeft / numSamples) * entropyLeftChild)
+						+ (((double) numSamplesRight / numSamples) * entropyRightChild));
+	}
+
+	/**
+	 * Returns a threshold between two neighbouring sorted feature values, where
+	 * lowerValue <= threshold < upperValue as ordered by Double.compare
+	 * 
+	 * @param lowerValue
+	 * @param upperValue
+	 */
+	static double splitThreshold(double lowerValue, double upperValue) {
+
+		double threshold = lowerValue + (upperValue - lowerValue) / 2;
+
+		// rounding, infinite values or NaN can put the midpoint outside the range, so split on lowerValue instead
+		if (Double.compare(threshold, lowerValue) < 0 || Double.compare(threshold, upperValue) >= 0) {
+			return lowerValue;
+		}
+		return threshold;
+	}
 
 	/**
 	 * Calculates the best split given the currentNodeData,
@@ -107,109 +230,459 @@ public class TreeNode<T extends Comparable<T>> {
 	 * Uses Information Gain to calculate the best split,
 	 * where InformationGain(currentSplit) = Entropy(currentNode) - weightedAverage*Entropy(Children)
 	 * 
+	 * Nodes that aren't being built, including nodes of a built tree, split on the mean of each feature.
+	 * 
 	 * @param currentNodeData
 	 */
 	public void calculateSplit(ClassifierData<T> currentNodeData) {
 
+		// the build context is released once a node has been built, so use a context of its own
+		TreeBuildContext<T> buildContext = context;
+
+		if (buildContext == null) {
+			context = TreeBuildContext.meanContext(currentNodeData, maxDepth);
+		}
+
+		try {
+			int[] classCounts = new int[context.numClasses];
+			currentNodeData.countClasses(classCounts);
+
+			calculateSplit(currentNodeData, classCounts, null);
+		}
+		finally {
+			context = buildContext;
+		}
+	}
+
+	/**
+	 * Calculates the best split given the currentNodeData and its class counts,
+	 * sets splittingFeature and splittingValue and returns the information gain of the split
+	 * 
+	 * The class counts either side of each candidate split are counted in a single pass over
+	 * the feature, the data isn't split until the best split has been found.
+	 * 
+	 * If nodeMetrics isn't null the samples read and candidate splits evaluated are added to it.
+	 * 
+	 * @param currentNodeData
+	 * @param classCounts
+	 * @param nodeMetrics
+	 */
+	private double calculateSplit(ClassifierData<T> currentNodeData, int[] classCounts, NodeMetrics nodeMetrics) {
+
 		// Current best parameters to split on		
 		double bestInfoGain = -1.0;
 		int bestSplittingFeature = -1;
 		T bestSplittingValue = null;
 
-		// for each feature
-		for (int currentFeature=0; currentFeature<currentNodeData.numFeatures(); currentFeature++) {
+		int numSamples = currentNodeData.numSamples();
 
-			// calculate value to split on
-			T currentSplittingValue = currentNodeData.meanFeatureValue(currentFeature);
+		// Entropy(currentNode) is the same for every split so is only calculated once
+		double entropyParent = impurity(classCounts, numSamples);
 
-			// split data on current feature
-			SplitClassifierData<T> splitData = new SplitClassifierData<T>(currentNodeData, currentFeature, currentSplittingValue);	
+		// class counts either side of the current split, reused for each feature
+		int[] leftClassCounts = new int[classCounts.length];
+		int[] rightClassCounts = new int[classCounts.length];
 
-			// check that the split is valid and not redundant
-			if (splitData.validSplit()){
-				validSplit = true;
+		// best split on the current feature, reused for each feature evaluated on this thread
+		FeatureSplit<T> sequentialSplit = new FeatureSplit<T>();
+
+		int numFeatures = currentNodeData.numFeatures();
+
+		// features in the order they are tried, null if in order of feature. If only some features are chosen
+		// for each node, the first numChosen features of a random order are tried, then further features
+		// one at a time until a valid split is found
+		int[] featureOrder = context.featureOrder(numFeatures, nodeID);
+		int numChosen = featureOrder == null ? numFeatures : context.featuresPerNode;
+
+		// in large nodes the best split on every chosen feature is found in parallel before the splits are compared
+		FeatureSplit<T>[] featureSplits = null;
 
-				// Calculate InformationGain(currentSplit) = Entropy(currentNode) - weightedAverage*Entropy(Children)
+		if (context.forkJoinPool != null && numSamples >= context.featureParallelCutoff && ForkJoinTask.inForkJoinPool()) {
+			featureSplits = calculateFeatureSplitsInParallel(currentNodeData, featureOrder, numChosen, classCounts, entropyParent);
+		}
+
+		// for each feature, splits are compared in the order tried so ties go to the feature tried first
+		for (int n=0; n<numFeatures; n++) {
+
+			if (n >= numChosen && validSplit) {
+				break;
+			}
 
-				double entropyParent = entropy(currentNodeData);
-				double entropyLeftChild = entropy(splitData.leftData());
-				double entropyRightChild = entropy(splitData.rightData());
+			int currentFeature = featureOrder == null ? n : featureOrder[n];
 
+			// find the best split on current feature
+			FeatureSplit<T> featureSplit;
 
-				int numSamplesLeft = splitData.leftData().numSamples();
-				int numSamplesRight = splitData.rightData().numSamples();
+			if (featureSplits != null && n < numChosen) {
+				featureSplit = featureSplits[n];
+			}
+			else {
+				featureSplit = sequentialSplit;
+				featureSplit.reset();
+				calculateFeatureSplit(currentNodeData, currentFeature, classCounts, entropyParent, leftClassCounts, rightClassCounts, featureSplit);
 
-				double currentInfoGain = entropyParent - 
-						((((double) numSamplesLeft / currentNodeData.numSamples()) * entropyLeftChild)
-								+ (((double) numSamplesRight / currentNodeData.numSamples()) * entropyRightChild));
+				if (nodeMetrics != null) {
+					nodeMetrics.rowsScanned += featureSplit.rowsScanned;
+					nodeMetrics.candidateSplits += featureSplit.candidateSplits;
+				}
+			}
 
+			// check that the split is valid and not redundant
+			if (featureSplit.valid){
+				validSplit = true;
 
 				// If currentInfoGain > bestInfoGain, update splitting parameters
-				if (currentInfoGain > bestInfoGain) {
-					bestInfoGain = currentInfoGain;
+				if (featureSplit.infoGain > bestInfoGain) {
+					bestInfoGain = featureSplit.infoGain;
 					bestSplittingFeature = currentFeature;
-					bestSplittingValue = currentSplittingValue;
+					bestSplittingValue = featureSplit.splittingValue;
 				}
 			}
 		}
 
 
+		// every feature evaluated in parallel is counted, even if a valid split was found before it
+		if (nodeMetrics != null && featureSplits != null) {
+			for (FeatureSplit<T> featureSplit : featureSplits) {
+				nodeMetrics.rowsScanned += featureSplit.rowsScanned;
+				nodeMetrics.candidateSplits += featureSplit.candidateSplits;
+			}
+		}
+
 		// set splittingFeature
 		splittingFeature = bestSplittingFeature;
 		// set splittingValue
 		splittingValue = bestSplittingValue;
 
+		return bestInfoGain;
+	}
+
+	/**
+	 * Calculates the best split of currentFeature using the split mode of the tree, sets featureSplit
+	 * 
+	 * @param currentNodeData
+	 * @param currentFeature
+	 * @param classCounts
+	 * @param entropyParent
+	 * @param leftClassCounts
+	 * @param rightClassCounts
+	 * @param featureSplit
+	 */
+	private void calculateFeatureSplit(ClassifierData<T> currentNodeData, int currentFeature, int[] classCounts, double entropyParent,
+			int[] leftClassCounts, int[] rightClassCounts, FeatureSplit<T> featureSplit) {
+
+		if (context.splitMode == SplitMode.EXACT) {
+			calculateExactSplit(currentNodeData, currentFeature, classCounts, entropyParent, leftClassCounts, rightClassCounts, featureSplit);
+		}
+		else if (context.splitMode == SplitMode.HISTOGRAM) {
+			calculateHistogramSplit(currentNodeData, currentFeature, classCounts, entropyParent, leftClassCounts, rightClassCounts, featureSplit);
+		}
+		else {
+			calculateMeanSplit(currentNodeData, currentFeature, classCounts, entropyParent, leftClassCounts, rightClassCounts, featureSplit);
+		}
+	}
+
+	/**
+	 * Calculates the best split of each of the first numChosen features of featureOrder as a separate fork-join task,
+	 * returns the best split of each feature in the order of featureOrder, or of feature if featureOrder is null.
+	 * Must be called from inside a fork-join pool.
+	 * 
+	 * @param currentNodeData
+	 * @param featureOrder
+	 * @param numChosen
+	 * @param classCounts
+	 * @param entropyParent
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private FeatureSplit<T>[] calculateFeatureSplitsInParallel(ClassifierData<T> currentNodeData, int[] featureOrder, int numChosen,
+			int[] classCounts, double entropyParent) {
+
+		FeatureSplit<T>[] featureSplits = new FeatureSplit[numChosen];
+		ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(numChosen);
+
+		for (int n=0; n<numChosen; n++) {
+
+			// each task has its own split and class counts
+			FeatureSplit<T> featureSplit = new FeatureSplit<T>();
+			featureSplit.reset();
+			featureSplits[n] = featureSplit;
+
+			final int feature = featureOrder == null ? n : featureOrder[n];
+
+			tasks.add(ForkJoinTask.adapt(() -> calculateFeatureSplit(currentNodeData, feature, classCounts, entropyParent,
+					new int[classCounts.length], new int[classCounts.length], featureSplit)));
+		}
+
+		ForkJoinTask.invokeAll(tasks);
 
+		return featureSplits;
 	}
 
 	/**
-	 * Returns a predicted class for the given sampleData.
+	 * Calculates the split of currentFeature on its mean value, sets featureSplit
 	 * 
+	 * @param currentNodeData
+	 * @param currentFeature
+	 * @param classCounts
+	 * @param entropyParent
+	 * @param leftClassCounts
+	 * @param rightClassCounts
+	 * @param featureSplit
 	 */
-	public Integer classifySample(ArrayList<T> sampleData) {
+	private void calculateMeanSplit(ClassifierData<T> currentNodeData, int currentFeature, int[] classCounts, double entropyParent,
+			int[] leftClassCounts, int[] rightClassCounts, FeatureSplit<T> featureSplit) {
 
-		// if the current node is a leaf node, return classLabel as classifier prediction
-		if (isLeaf) {
-			return classLabel;
+		// calculate value to split on
+		T currentSplittingValue = currentNodeData.meanFeatureValue(currentFeature);
+
+		// count the samples of each class either side of the split on current feature
+		int numSamplesLeft = currentNodeData.countSplit(currentFeature, currentSplittingValue, leftClassCounts);
+		int numSamplesRight = currentNodeData.numSamples() - numSamplesLeft;
+
+		// the samples are read once to find the mean and once to count the split
+		featureSplit.rowsScanned += 2L * currentNodeData.numSamples();
+
+		// check that the split is valid, not redundant and leaves enough samples in each child
+		if (numSamplesLeft >= context.minSamplesLeaf && numSamplesRight >= context.minSamplesLeaf) {
+
+			for (int c=0; c<classCounts.length; c++) {
+				rightClassCounts[c] = classCounts[c] - leftClassCounts[c];
+			}
+
+			featureSplit.candidateSplits++;
+			featureSplit.valid = true;
+			featureSplit.infoGain = informationGain(entropyParent, leftClassCounts, numSamplesLeft, rightClassCounts, numSamplesRight);
+			featureSplit.splittingValue = currentSplittingValue;
 		}
-		// else split the given sample and pass to left or right child to classify
-		else if (sampleData.get(splittingFeature).compareTo(splittingValue) <= 0) {
+	}
+
+	/**
+	 * Calculates the best split of currentFeature between any two distinct values, sets featureSplit
+	 * 
+	 * Samples of the node are read in order of currentFeature from the presorted index, so every
+	 * split is evaluated in a single pass by moving one sample at a time from the right to the left child.
+	 * 
+	 * @param currentNodeData
+	 * @param currentFeature
+	 * @param classCounts
+	 * @param entropyParent
+	 * @param leftClassCounts
+	 * @param rightClassCounts
+	 * @param featureSplit
+	 */
+	@SuppressWarnings("unchecked")
+	private void calculateExactSplit(ClassifierData<T> currentNodeData, int currentFeature, int[] classCounts, double entropyParent,
+			int[] leftClassCounts, int[] rightClassCounts, FeatureSplit<T> featureSplit) {
+
+		int column = currentNodeData.column(currentFeature);
+		int[] rows = context.presortedIndex.sortedRows(column);
+
+		int offset = currentNodeData.sampleOffset();
+		int numSamples = currentNodeData.numSamples();
+
+		// start with every sample in the right child
+		Arrays.fill(leftClassCounts, 0);
+
+		double bestThreshold = 0.0;
+		double nextValue = currentNodeData.storageValue(rows[offset], column);
+
+		featureSplit.rowsScanned += numSamples;
 
-			sampleData.remove(splittingFeature);
+		for (int numSamplesLeft=1; numSamplesLeft<numSamples; numSamplesLeft++) {
 
-			return leftNode.classifySample(sampleData);
+			// move the next sample to the left child
+			int row = rows[offset + numSamplesLeft - 1];
+			int label = currentNodeData.storageLabel(row);
+			if (label >= 0 && label < leftClassCounts.length) {
+				leftClassCounts[label]++;
+			}
+
+			double value = nextValue;
+			nextValue = currentNodeData.storageValue(rows[offset + numSamplesLeft], column);
+
+			// samples with equal values can't be split
+			if (Double.compare(value, nextValue) == 0) {
+				continue;
+			}
+
+			if (numSamplesLeft < context.minSamplesLeaf || numSamples - numSamplesLeft < context.minSamplesLeaf) {
+				continue;
+			}
+
+			for (int c=0; c<classCounts.length; c++) {
+				rightClassCounts[c] = classCounts[c] - leftClassCounts[c];
+			}
+
+			double currentInfoGain = informationGain(entropyParent, leftClassCounts, numSamplesLeft, rightClassCounts, numSamples - numSamplesLeft);
+			featureSplit.candidateSplits++;
+
+			if (!featureSplit.valid || currentInfoGain > featureSplit.infoGain) {
+				featureSplit.valid = true;
+				featureSplit.infoGain = currentInfoGain;
+				bestThreshold = splitThreshold(value, nextValue);
+			}
 		}
-		else {
 
-			sampleData.remove(splittingFeature);
+		if (featureSplit.valid) {
+			featureSplit.splittingValue = (T) Double.valueOf(bestThreshold);
+		}
+	}
+
+	/**
+	 * Calculates the best split of currentFeature between any two neighbouring bins, sets featureSplit
+	 * 
+	 * Every split is evaluated in a single pass over the bins of the node's histogram,
+	 * so the samples of the node aren't read.
+	 * 
+	 * @param currentNodeData
+	 * @param currentFeature
+	 * @param classCounts
+	 * @param entropyParent
+	 * @param leftClassCounts
+	 * @param rightClassCounts
+	 * @param featureSplit
+	 */
+	@SuppressWarnings("unchecked")
+	private void calculateHistogramSplit(ClassifierData<T> currentNodeData, int currentFeature, int[] classCounts, double entropyParent,
+			int[] leftClassCounts, int[] rightClassCounts, FeatureSplit<T> featureSplit) {
+
+		int column = currentNodeData.column(currentFeature);
+		int[] featureHistogram = histogram[column];
+
+		int numBins = context.binnedFeatures.numBins(column);
+		int numClasses = classCounts.length;
+		int numSamples = currentNodeData.numSamples();
+
+		// start with every bin in the right child
+		Arrays.fill(leftClassCounts, 0);
+
+		int numSamplesLeft = 0;
+		int bestBin = -1;
+
+		for (int bin=0; bin<numBins-1; bin++) {
+
+			// move the next bin to the left child
+			int binSamples = 0;
+			for (int c=0; c<numClasses; c++) {
+				int count = featureHistogram[bin * numClasses + c];
+				leftClassCounts[c] += count;
+				binSamples += count;
+			}
+			numSamplesLeft += binSamples;
+
+			// empty bins give the same split as the previous bin
+			if (binSamples == 0 || numSamplesLeft == numSamples) {
+				continue;
+			}
+
+			if (numSamplesLeft < context.minSamplesLeaf || numSamples - numSamplesLeft < context.minSamplesLeaf) {
+				continue;
+			}
+
+			for (int c=0; c<numClasses; c++) {
+				rightClassCounts[c] = classCounts[c] - leftClassCounts[c];
+			}
+
+			double currentInfoGain = informationGain(entropyParent, leftClassCounts, numSamplesLeft, rightClassCounts, numSamples - numSamplesLeft);
+			featureSplit.candidateSplits++;
 
-			return rightNode.classifySample(sampleData);
+			if (!featureSplit.valid || currentInfoGain > featureSplit.infoGain) {
+				featureSplit.valid = true;
+				featureSplit.infoGain = currentInfoGain;
+				bestBin = bin;
+			}
 		}
 
+		if (featureSplit.valid) {
+			featureSplit.splittingValue = (T) Double.valueOf(context.binnedFeatures.threshold(column, bestBin));
+		}
 	}
 
 	/**
-	 * Calculates the most likely class given a list of class labels
+	 * Returns a predicted class for the given sampleData.
+	 * sampleData holds every feature of the data the tree was built from, and is not changed.
 	 * 
-	 * @param classLabels
 	 */
-	private static Integer predictClass(ArrayList<Integer> classLabels) {
+	public Integer classifySample(ArrayList<T> sampleData) {
+
+		TreeNode<T> node = this;
 
-		// Initialise label counts
-		int[] labelCount = new int[2];
-		labelCount[0] = 0;
-		labelCount[1] = 0;
+		// walk down the tree until a leaf node is reached
+		while (!node.isLeaf) {
 
-		for (int i=0; i<classLabels.size(); i++) {
-			labelCount[classLabels.get(i)]++;
+			if (sampleData.get(node.splittingColumn).compareTo(node.splittingValue) <= 0) {
+				node = node.leftNode;
+			}
+			else {
+				node = node.rightNode;
+			}
 		}
 
-		if (labelCount[0] > labelCount[1]) {
-			return 0;
+		// return classLabel of the leaf node as classifier prediction
+		return node.classLabel;
+
+	}
+
+	/**
+	 * Calculates the most likely class given the number of samples of each class,
+	 * ties go to the highest class
+	 * 
+	 * @param labelCount
+	 */
+	private static Integer predictClass(int[] labelCount) {
+
+		int bestClass = 0;
+
+		for (int c=1; c<labelCount.length; c++) {
+			if (labelCount[c] >= labelCount[bestClass]) {
+				bestClass = c;
+			}
 		}
-		else {
+		return bestClass;
+	}
+
+	/**
+	 * Returns the number of classes with at least one sample
+	 * 
+	 * @param labelCount
+	 */
+	private static int numClassesPresent(int[] labelCount) {
+
+		int numPresent = 0;
+
+		for (int c=0; c<labelCount.length; c++) {
+			if (labelCount[c] > 0) {
+				numPresent++;
+			}
+		}
+		return numPresent;
+	}
+
+	/**
+	 * Returns true if this node is a leaf node
+	 */
+	boolean isLeaf() {
+		return isLeaf;
+	}
+
+	/**
+	 * Returns the class predicted by this node if it is a leaf node
+	 */
+	int classLabel() {
+		return classLabel;
+	}
+
+	/**
+	 * Returns the number of nodes in the subtree below and including this node
+	 */
+	int numNodes() {
+
+		if (isLeaf) {
 			return 1;
 		}
+		else {
+			return 1 + leftNode.numNodes() + rightNode.numNodes();
+		}
 	}
 
 	/**
@@ -243,7 +716,7 @@ public class TreeNode<T extends Comparable<T>> {
 		}
 		// else node isn't a leaf so print splittingFeature and Value, then print child nodes
 		else {
-			System.out.println(", splittingFeature: " + splittingFeature + ", splittingValue: " + splittingValue);
+			System.out.println(", splittingFeature: " + splittingColumn + ", splittingValue: " + splittingValue);
 			leftNode.printNode();
 			rightNode.printNode();
 		}
@@ -254,67 +727,333 @@ public class TreeNode<T extends Comparable<T>> {
 	/**
 	 * Builds the current node and its children given input ClassifierData
 	 * 
-	 * TODO Check if the InformationGain of the best split > splitThresholdValue, if not don't split and set as leaf.
+	 * The node becomes a leaf if it can't be split within the stopping criteria of the tree, see chooseSplit.
 	 * 
 	 * @param currentNodeData
 	 */
 	public void buildNode(ClassifierData<T> currentNodeData){
 
-
-		// if there is only one data sample in currentNodeData, make currentNode a leaf node
-		if (currentNodeData.numSamples() == 1) {			
-			isLeaf = true;
-			classLabel = currentNodeData.classLabel(0);
+		// nodes built outside of a DecisionTree split on the mean of each feature
+		if (context == null) {
+			context = new TreeBuildContext<T>(maxDepth);
+			context.numClasses = Math.max(2, currentNodeData.numClasses());
 		}
 
-		// if the maximum tree depth has been reached, make currentNode a leaf node 
-		else if (nodeDepth == maxDepth) {
-			isLeaf = true;
-			ArrayList<Integer> labels = currentNodeData.labelData();
+		// metrics of building this node, only measured if a listener has been set
+		NodeMetrics nodeMetrics = nodeStarted(currentNodeData);
 
-			classLabel = predictClass(labels);
+		// calculate best split, or make currentNode a leaf node
+		chooseSplit(currentNodeData, nodeMetrics);
 
+		if (isLeaf) {
+			nodeBuilt(nodeMetrics);
+			return;
 		}
-		// if data samples are all the same class, make currentNode a leaf node
-		else if(currentNodeData.classCount(0) == 0 || currentNodeData.classCount(1) == 0) {
-			isLeaf = true;
-			classLabel = currentNodeData.classLabel(0);
+
+		// split data using best splittingFeature and splittingValue
+		NodeChildren<T> children = partition(currentNodeData, nodeMetrics);
+
+		// split nodes are reported before their children are built
+		nodeBuilt(nodeMetrics);
+
+		// set ID of child nodes
+		String leftID = nodeID+"0";
+		String rightID = nodeID+"1";
+
+		// build child nodes using split data, large enough subtrees are built in parallel
+		// if the tree is being built in a fork-join pool
+		if (context.forkJoinPool != null && currentNodeData.numSamples() >= context.parallelCutoff && ForkJoinTask.inForkJoinPool()) {
+
+			TreeNodeTask<T> leftTask = new TreeNodeTask<T>(children.leftData, context, nodeDepth+1, leftID, children.leftHistogram);
+			TreeNodeTask<T> rightTask = new TreeNodeTask<T>(children.rightData, context, nodeDepth+1, rightID, children.rightHistogram);
+
+			ForkJoinTask.invokeAll(leftTask, rightTask);
+
+			leftNode = leftTask.join();
+			rightNode = rightTask.join();
 		}
-		// else need to split the data and build node's children
 		else {
+			leftNode = new TreeNode<T>(children.leftData, context, nodeDepth+1, leftID, children.leftHistogram);
+			rightNode = new TreeNode<T>(children.rightData, context, nodeDepth+1, rightID, children.rightHistogram);
+		}
+
+	}
+
+	/**
+	 * Finds the best split of the node given currentNodeData, sets splittingFeature, splittingValue and splittingColumn.
+	 * Returns the information gain of the split.
+	 * 
+	 * The node is made a leaf instead if it holds fewer than minSamplesSplit samples, has reached the maximum depth,
+	 * holds samples of only one class, or has no split leaving at least minSamplesLeaf samples in each child
+	 * with an information gain of at least minInfoGain. The predicted class of the node is set either way,
+	 * so a split node can later be pruned into a leaf.
+	 * 
+	 * @param currentNodeData
+	 * @param nodeMetrics
+	 */
+	double chooseSplit(ClassifierData<T> currentNodeData, NodeMetrics nodeMetrics) {
+
+		long startBytes = 0;
+		long startTime = 0;
+
+		if (nodeMetrics != null) {
+			startBytes = TrainingMetrics.threadAllocatedBytes();
+			startTime = System.nanoTime();
+		}
+
+		int numSamples = currentNodeData.numSamples();
+
+		// count the samples of each class once in a single pass, the counts are used by every check below
+		int[] classCounts = new int[context.numClasses];
+		currentNodeData.countClasses(classCounts);
+
+		// if there is only one data sample, or data samples are all the same class, predict the class of the first sample
+		boolean isPure = numSamples == 1 || numClassesPresent(classCounts) <= 1;
+		classLabel = isPure ? currentNodeData.classLabel(0) : predictClass(classCounts);
 
-			// set ID of child nodes
-			String leftID = nodeID+"0";
-			String rightID = nodeID+"1";
+		this.numSamples = numSamples;
+		numErrors = numSamples - (classLabel >= 0 && classLabel < classCounts.length ? classCounts[classLabel] : 0);
+
+		double infoGain = -1.0;
+		boolean split = false;
+
+		// nodes that are too small, at the maximum tree depth or pure are leaf nodes
+		if (!isPure && numSamples >= context.minSamplesSplit && nodeDepth != maxDepth) {
+
+			// the root node counts its own histogram, other nodes are given theirs by their parent
+			if (context.splitMode == SplitMode.HISTOGRAM && histogram == null) {
+				histogram = context.binnedFeatures.histogram(currentNodeData, classCounts.length);
+
+				if (nodeMetrics != null) {
+					nodeMetrics.rowsScanned += (long) numSamples * currentNodeData.numFeatures();
+				}
+			}
 
 			// calculate best split
-			calculateSplit(currentNodeData);
+			infoGain = calculateSplit(currentNodeData, classCounts, nodeMetrics);
+
+			// split if the calculated split is valid, not redundant and gains enough information
+			split = validSplit && (context.minInfoGain <= 0.0 || infoGain >= context.minInfoGain);
+		}
+
+		if (split) {
+			// record the feature split on as an index into the data the tree was built from,
+			// as the children are given data with the feature removed
+			splittingColumn = context.rootFeature(currentNodeData.column(splittingFeature));
+		}
+		else {
+			isLeaf = true;
+			histogram = null;
+		}
+
+		if (nodeMetrics != null) {
+			nodeMetrics.splitSearchNanos += System.nanoTime() - startTime;
+			addAllocatedBytes(nodeMetrics, startBytes);
+		}
+		return infoGain;
+	}
+
+	/**
+	 * Partitions currentNodeData between the children of the node using the split found by chooseSplit,
+	 * returns the data of each child and in HISTOGRAM split mode the histogram of each child.
+	 * The split feature is removed from the data of the children.
+	 * 
+	 * @param currentNodeData
+	 * @param nodeMetrics
+	 */
+	NodeChildren<T> partition(ClassifierData<T> currentNodeData, NodeMetrics nodeMetrics) {
+
+		long startBytes = 0;
+		long startTime = 0;
+
+		if (nodeMetrics != null) {
+			startBytes = TrainingMetrics.threadAllocatedBytes();
+			startTime = System.nanoTime();
+		}
+
+		ClassifierData<T> leftData;
+		ClassifierData<T> rightData;
 
-			// if the calculated split is valid and not redundant
-			if (validSplit) {
+		// in HISTOGRAM split mode the samples are partitioned on their bins, so feature values aren't read during building
+		if (histogram != null) {
+			int numSamplesLeft = context.binnedFeatures.partition(currentNodeData, splittingFeature, ((Number) splittingValue).doubleValue());
 
-				// split data using best splittingFeature and splittingValue and remove feature that data is split on
-				SplitClassifierData<T> splitData = new SplitClassifierData<T>(currentNodeData, splittingFeature, splittingValue, true);
+			leftData = currentNodeData.subView(0, numSamplesLeft, splittingFeature);
+			rightData = currentNodeData.subView(numSamplesLeft, currentNodeData.numSamples() - numSamplesLeft, splittingFeature);
+		}
+		else {
+			// split data using best splittingFeature and splittingValue and remove feature that data is split on,
+			// the child nodes are given views over the partitioned sample index of currentNodeData
+			SplitClassifierData<T> splitData = new SplitClassifierData<T>(currentNodeData, splittingFeature, splittingValue, true, true);
 
-				// build child nodes using split data
-				leftNode = new TreeNode<T>(splitData.leftData(), maxDepth, nodeDepth+1, leftID);
-				rightNode = new TreeNode<T>(splitData.rightData(), maxDepth, nodeDepth+1, rightID);
+			// keep the presorted index in line with the split data
+			if (context.presortedIndex != null) {
+				context.presortedIndex.partition(currentNodeData, splittingFeature, ((Number) splittingValue).doubleValue());
 			}
-			// don't split, make currentNode a leaf node
-			else {
-				isLeaf = true;
-				ArrayList<Integer> labels = currentNodeData.labelData();
 
-				classLabel = predictClass(labels);
+			leftData = splitData.leftData();
+			rightData = splitData.rightData();
+		}
+
+		// only the histogram of the smaller child is counted, the larger child's histogram is
+		// this node's histogram minus the smaller child's
+		int[][] leftHistogram = null;
+		int[][] rightHistogram = null;
+
+		if (histogram != null) {
+			if (leftData.numSamples() <= rightData.numSamples()) {
+				leftHistogram = context.binnedFeatures.histogram(leftData, context.numClasses);
+				BinnedFeatures.subtract(histogram, leftHistogram);
+				rightHistogram = histogram;
+			}
+			else {
+				rightHistogram = context.binnedFeatures.histogram(rightData, context.numClasses);
+				BinnedFeatures.subtract(histogram, rightHistogram);
+				leftHistogram = histogram;
 			}
+			histogram = null;
 		}
 
+		if (nodeMetrics != null) {
+			nodeMetrics.partitionNanos += System.nanoTime() - startTime;
+			nodeMetrics.rowsScanned += partitionRowsScanned(currentNodeData, leftData, rightData);
+			addAllocatedBytes(nodeMetrics, startBytes);
+		}
 
+		return new NodeChildren<T>(leftData, rightData, leftHistogram, rightHistogram);
+	}
 
+	/**
+	 * Makes a node whose split was found by chooseSplit a leaf node instead of partitioning it,
+	 * it predicts the class set by chooseSplit
+	 */
+	void makeLeaf() {
+
+		isLeaf = true;
+		histogram = null;
+	}
+
+	/**
+	 * Releases the settings and histogram only needed while the node is being built
+	 */
+	void releaseBuildState() {
+
+		context = null;
+		histogram = null;
+	}
+
+	/**
+	 * Prunes the subtree below this node using minimal cost-complexity pruning, returns the cost of the pruned subtree.
+	 * The cost of a subtree is the number of training samples it misclassifies plus leafCost for each of its leaves.
+	 * A split node is made a leaf if that costs no more than its subtree, so the smallest subtree of lowest cost is kept.
+	 * 
+	 * @param leafCost
+	 */
+	double prune(double leafCost) {
+
+		double nodeCost = numErrors + leafCost;
+
+		if (isLeaf) {
+			return nodeCost;
+		}
+
+		double subtreeCost = leftNode.prune(leafCost) + rightNode.prune(leafCost);
+
+		if (nodeCost <= subtreeCost) {
+			isLeaf = true;
+			leftNode = null;
+			rightNode = null;
+
+			return nodeCost;
+		}
+		return subtreeCost;
+	}
+
+	/**
+	 * Returns the number of training samples that reached this node
+	 */
+	int numSamples() {
+		return numSamples;
+	}
+
+	/**
+	 * Returns the number of samples read to partition currentNodeData between leftData and rightData,
+	 * counting the presorted index and the histogram of the smaller child if they are kept
+	 * 
+	 * @param currentNodeData
+	 * @param leftData
+	 * @param rightData
+	 */
+	private long partitionRowsScanned(ClassifierData<T> currentNodeData, ClassifierData<T> leftData, ClassifierData<T> rightData) {
+
+		long numSamples = currentNodeData.numSamples();
+		long rowsScanned = numSamples;
+
+		if (context.presortedIndex != null) {
+			rowsScanned += numSamples * currentNodeData.numFeatures();
+		}
+
+		if (context.splitMode == SplitMode.HISTOGRAM) {
+			ClassifierData<T> smallerData = leftData.numSamples() <= rightData.numSamples() ? leftData : rightData;
+			rowsScanned += (long) smallerData.numSamples() * smallerData.numFeatures();
+		}
+		return rowsScanned;
+	}
+
+	/**
+	 * Adds the bytes allocated by the current thread since startBytes to nodeMetrics
+	 * 
+	 * @param nodeMetrics
+	 * @param startBytes
+	 */
+	private static void addAllocatedBytes(NodeMetrics nodeMetrics, long startBytes) {
+
+		if (startBytes >= 0) {
+			nodeMetrics.allocatedBytes = Math.max(nodeMetrics.allocatedBytes, 0) + TrainingMetrics.threadAllocatedBytes() - startBytes;
+		}
+	}
+
+	/**
+	 * Returns the metrics of building this node from currentNodeData, passed to the listener as the node starts being built.
+	 * Returns null if no listener has been set, so the node isn't measured.
+	 * 
+	 * @param currentNodeData
+	 */
+	NodeMetrics nodeStarted(ClassifierData<T> currentNodeData) {
+
+		if (context.listener == null) {
+			return null;
+		}
+
+		NodeMetrics nodeMetrics = new NodeMetrics(nodeID, nodeDepth, currentNodeData.numSamples());
+		context.listener.nodeStarted(nodeMetrics);
+
+		return nodeMetrics;
+	}
+
+	/**
+	 * Passes the metrics of this node, once it has been split or made a leaf, to the listener and totals of the context.
+	 * Does nothing if nodeMetrics is null.
+	 * 
+	 * @param nodeMetrics
+	 */
+	void nodeBuilt(NodeMetrics nodeMetrics) {
+
+		if (nodeMetrics == null) {
+			return;
+		}
+
+		// the class counts are read for every node
+		nodeMetrics.rowsScanned += nodeMetrics.numSamples;
+		nodeMetrics.isLeaf = isLeaf;
+
+		context.metrics.add(nodeMetrics);
+		context.listener.nodeBuilt(nodeMetrics);
 	}
 
 	/**
 	 * Constructor, sets given parameters and then calls buildNode.
+	 * Each feature is split on its mean value.
 	 * 
 	 * @param currentNodeData
 	 * @param maxDepth
@@ -323,6 +1062,40 @@ public class TreeNode<T extends Comparable<T>> {
 	 */
 	public TreeNode(ClassifierData<T> currentNodeData, int maxDepth, int currentDepth, String nodeID){
 
+		// nodes partition the sample index of their data, so build from a view with its own sample index
+		this(currentNodeData == null ? null : currentNodeData.indexView(), TreeBuildContext.meanContext(currentNodeData, maxDepth), currentDepth, nodeID);
+
+	}
+
+	/**
+	 * Constructor, sets given parameters and then calls buildNode.
+	 * currentNodeData must be a view created by ClassifierData.indexView, or a subView of one.
+	 * 
+	 * @param currentNodeData
+	 * @param context
+	 * @param currentDepth
+	 * @param nodeID
+	 */
+	TreeNode(ClassifierData<T> currentNodeData, TreeBuildContext<T> context, int currentDepth, String nodeID){
+
+		this(currentNodeData, context, currentDepth, nodeID, null);
+
+	}
+
+	/**
+	 * Constructor, sets given parameters and then calls buildNode.
+	 * currentNodeData must be a view created by ClassifierData.indexView, or a subView of one.
+	 * In HISTOGRAM split mode histogram holds the class counts of each bin of currentNodeData,
+	 * or is null if they haven't been counted.
+	 * 
+	 * @param currentNodeData
+	 * @param context
+	 * @param currentDepth
+	 * @param nodeID
+	 * @param histogram
+	 */
+	TreeNode(ClassifierData<T> currentNodeData, TreeBuildContext<T> context, int currentDepth, String nodeID, int[][] histogram){
+
 		// check that currentNodeData isn't null or empty
 		if (currentNodeData == null || currentNodeData.numSamples()==0) {
 			throw new IndexOutOfBoundsException("currentNodeData is null or empty");
@@ -330,14 +1103,64 @@ public class TreeNode<T extends Comparable<T>> {
 
 		isLeaf = false;
 		classLabel = -1;
-		this.maxDepth = maxDepth;
+		this.maxDepth = context.maxDepth;
 		nodeDepth = currentDepth;
 		this.nodeID = nodeID;
+		this.context = context;
+		this.histogram = histogram;
 
 		// build current node using given currentNodeData
 		buildNode(currentNodeData);
 
+		// the context and histogram are only needed during building
+		releaseBuildState();
+
+	}
 
+	/**
+	 * Constructor, sets given parameters without building the node.
+	 * The node is built by calling chooseSplit, then either partition or makeLeaf, see BestFirstTreeGrower.
+	 * 
+	 * @param context
+	 * @param currentDepth
+	 * @param nodeID
+	 * @param histogram
+	 */
+	TreeNode(TreeBuildContext<T> context, int currentDepth, String nodeID, int[][] histogram){
+
+		isLeaf = false;
+		classLabel = -1;
+		this.maxDepth = context.maxDepth;
+		nodeDepth = currentDepth;
+		this.nodeID = nodeID;
+		this.context = context;
+		this.histogram = histogram;
+	}
+
+	/**
+	 * Constructor - copies the subtree below the given built node, so the copy can be pruned
+	 * while the original is still used to classify samples
+	 * 
+	 * @param node
+	 */
+	TreeNode(TreeNode<T> node){
+
+		isLeaf = node.isLeaf;
+		classLabel = node.classLabel;
+		numSamples = node.numSamples;
+		numErrors = node.numErrors;
+		validSplit = node.validSplit;
+		nodeID = node.nodeID;
+		splittingFeature = node.splittingFeature;
+		splittingColumn = node.splittingColumn;
+		maxDepth = node.maxDepth;
+		nodeDepth = node.nodeDepth;
+		splittingValue = node.splittingValue;
+
+		if (!isLeaf) {
+			leftNode = new TreeNode<T>(node.leftNode);
+			rightNode = new TreeNode<T>(node.rightNode);
+		}
 	}
 
 
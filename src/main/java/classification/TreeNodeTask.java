@@ -0,0 +1,51 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join task that builds a TreeNode and its children,
+ * used to build independent subtrees of a DecisionTree in parallel
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class TreeNodeTask<T extends Comparable<T>> extends RecursiveTask<TreeNode<T>> {
+
+	private static final long serialVersionUID = 1L;
+
+	// parameters passed to the TreeNode constructor
+	private final ClassifierData<T> nodeData;
+	private final TreeBuildContext<T> context;
+	private final int nodeDepth;
+	private final String nodeID;
+	private final int[][] histogram;
+
+	/**
+	 * Builds the node
+	 */
+	@Override
+	protected TreeNode<T> compute() {
+		return new TreeNode<T>(nodeData, context, nodeDepth, nodeID, histogram);
+	}
+
+	/**
+	 * Constructor, see TreeNode(ClassifierData, TreeBuildContext, int, String, int[][])
+	 * 
+	 * @param nodeData
+	 * @param context
+	 * @param nodeDepth
+	 * @param nodeID
+	 * @param histogram
+	 */
+	TreeNodeTask(ClassifierData<T> nodeData, TreeBuildContext<T> context, int nodeDepth, String nodeID, int[][] histogram) {
+
+		this.nodeData = nodeData;
+		this.context = context;
+		this.nodeDepth = nodeDepth;
+		this.nodeID = nodeID;
+		this.histogram = histogram;
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of growing trees best first with DecisionTreeBuilder.setMaxLeafNodes
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class BestFirstTreeGrowerTest {
+
+	// returns the split and class label of every node of the tree, in the order they are compiled
+	private static String nodes(DecisionTree<Double> tree) {
+
+		CompiledTree compiledTree = tree.compiledTree();
+		StringBuilder nodes = new StringBuilder();
+
+		for (int i=0; i<compiledTree.numNodes(); i++) {
+			nodes.append(compiledTree.feature[i]).append(',').append(compiledTree.threshold[i]).append(',')
+				.append(compiledTree.classLabel[i]).append(';');
+		}
+		return nodes.toString();
+	}
+
+	// returns the number of leaves below the given node
+	private static int numLeaves(TreeNode<Double> node) {
+		return node.isLeaf() ? 1 : numLeaves(node.leftNode) + numLeaves(node.rightNode);
+	}
+
+	@Test
+	void unlimitedLeavesGrowTheDepthFirstTree() {
+
+		ClassifierData<Double> data = TestData.synthetic(8000, 5, 17);
+
+		for (SplitMode splitMode : SplitMode.values()) {
+
+			DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+			treeBuilder.setSplitMode(splitMode);
+			treeBuilder.build(data);
+
+			String depthFirst = nodes(treeBuilder.classifier());
+
+			// more leaves than the tree can have
+			treeBuilder.setMaxLeafNodes(data.numSamples() + 1);
+			treeBuilder.build(data);
+
+			assertEquals(depthFirst, nodes(treeBuilder.classifier()), splitMode.toString());
+		}
+	}
+
+	@Test
+	void unlimitedLeavesGrowTheDepthFirstTreeInParallel() {
+
+		ClassifierData<Double> data = TestData.synthetic(8000, 5, 18);
+
+		DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+		treeBuilder.build(data);
+
+		String depthFirst = nodes(treeBuilder.classifier());
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+		try {
+			treeBuilder.setForkJoinPool(forkJoinPool);
+			treeBuilder.setFeatureParallelCutoff(1000);
+			treeBuilder.setMaxLeafNodes(Integer.MAX_VALUE);
+			treeBuilder.build(data);
+
+			assertEquals(depthFirst, nodes(treeBuilder.classifier()));
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	@Test
+	void treeHasAtMostMaxLeafNodesLeaves() {
+
+		ClassifierData<Double> data = TestData.synthetic(8000, 5, 19);
+
+		// leaves of the tree grown without a limit
+		DecisionTreeBuilder<Double> depthFirstBuilder = new DecisionTreeBuilder<Double>();
+		depthFirstBuilder.build(data);
+		int depthFirstLeaves = numLeaves(depthFirstBuilder.classifier().rootNode);
+
+		for (int maxLeafNodes : new int[] {1, 2, 10, 50, 1000}) {
+
+			DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+			treeBuilder.setMaxLeafNodes(maxLeafNodes);
+			treeBuilder.build(data);
+
+			int leaves = numLeaves(treeBuilder.classifier().rootNode);
+
+			// the noisy data always has a split to make until the maximum depth, so the tree grows until either limit is reached
+			assertEquals(Math.min(maxLeafNodes, depthFirstLeaves), leaves);
+			assertEquals(2 * leaves - 1, treeBuilder.classifier().numNodes());
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that trees compiled by BytecodeTree classify samples exactly as CompiledTree does
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class BytecodeTreeTest {
+
+	// values compared differently by careless comparisons
+	private static final double[] SPECIAL_VALUES = {Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+	@Test
+	void classifiesTrainedTreesAsCompiledTree() {
+
+		ClassifierData<Double> data = TestData.synthetic(5000, 5, 13);
+		Random random = new Random(14);
+
+		for (SplitMode splitMode : SplitMode.values()) {
+			for (int maxDepth : new int[] {1, 4, 8}) {
+
+				CompiledTree compiledTree = new DecisionTree<Double>(data, maxDepth, splitMode).compiledTree();
+				BytecodeTree bytecodeTree = BytecodeTree.compile(compiledTree);
+
+				assertNotNull(bytecodeTree, splitMode + " depth " + maxDepth);
+
+				for (int i=0; i<data.numSamples(); i++) {
+					double[] sample = TestData.sample(data, i);
+					assertEquals(compiledTree.classify(sample), bytecodeTree.classify(sample));
+
+					// the same sample with some values replaced by special values
+					for (int j=0; j<sample.length; j++) {
+						if (random.nextInt(4) == 0) {
+							sample[j] = SPECIAL_VALUES[random.nextInt(SPECIAL_VALUES.length)];
+						}
+					}
+					assertEquals(compiledTree.classify(sample), bytecodeTree.classify(sample));
+				}
+			}
+		}
+	}
+
+	@Test
+	void classifiesSpecialThresholdsAndLabelsAsCompiledTree() {
+
+		// splits on -0.0 then on NaN, with leaf labels needing each way of pushing a constant
+		CompiledTree compiledTree = new CompiledTree(5, 1);
+
+		compiledTree.feature[0] = 0;
+		compiledTree.threshold[0] = -0.0;
+		compiledTree.leftNode[0] = 1;
+		compiledTree.rightNode[0] = 2;
+
+		compiledTree.feature[1] = CompiledTree.LEAF;
+		compiledTree.classLabel[1] = 7;
+
+		compiledTree.feature[2] = 0;
+		compiledTree.threshold[2] = Double.NaN;
+		compiledTree.leftNode[2] = 3;
+		compiledTree.rightNode[2] = 4;
+
+		compiledTree.feature[3] = CompiledTree.LEAF;
+		compiledTree.classLabel[3] = 100000;
+
+		compiledTree.feature[4] = CompiledTree.LEAF;
+		compiledTree.classLabel[4] = -5;
+
+		BytecodeTree bytecodeTree = BytecodeTree.compile(compiledTree);
+
+		for (double value : new double[] {-1, -0.0, 0.0, 1, Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY}) {
+			double[] sample = {value};
+			assertEquals(compiledTree.classify(sample), bytecodeTree.classify(sample), "value " + value);
+		}
+	}
+
+	@Test
+	void decisionTreeClassifiesTheSameOnceCompiled() {
+
+		ClassifierData<Double> data = TestData.synthetic(3000, 4, 15);
+		DecisionTree<Double> tree = new DecisionTree<Double>(data, 6);
+
+		int[] expected = new int[data.numSamples()];
+		for (int i=0; i<expected.length; i++) {
+			expected[i] = tree.classify(TestData.sample(data, i));
+		}
+
+		assertTrue(tree.compileBytecode());
+
+		for (int i=0; i<expected.length; i++) {
+			assertEquals(expected[i], tree.classify(TestData.sample(data, i)));
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.classify(new double[2]));
+	}
+
+	@Test
+	void treesTooLargeForOneMethodAreNotCompiled() {
+
+		// a chain of 2000 split nodes, each with a leaf on the left
+		int numSplits = 2000;
+		CompiledTree compiledTree = new CompiledTree(2 * numSplits + 1, 1);
+
+		for (int k=0; k<numSplits; k++) {
+			int node = 2 * k;
+
+			compiledTree.feature[node] = 0;
+			compiledTree.threshold[node] = k;
+			compiledTree.leftNode[node] = node + 1;
+			compiledTree.rightNode[node] = node + 2;
+
+			compiledTree.feature[node + 1] = CompiledTree.LEAF;
+			compiledTree.classLabel[node + 1] = k;
+		}
+		compiledTree.feature[2 * numSplits] = CompiledTree.LEAF;
+		compiledTree.classLabel[2 * numSplits] = numSplits;
+
+		assertEquals(numSplits, compiledTree.classify(new double[] {numSplits}));
+		assertNull(BytecodeTree.compile(compiledTree));
+	}
+}
@@ -0,0 +1,181 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of remapping class labels to 0 to numClasses-1, and of testing classifiers on data with other class labels
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class ClassLabelTest {
+
+	@TempDir
+	Path tempDir;
+
+	// returns the class label of each sample, classValues[c] for the samples of class c
+	private static int[] labels(ClassifierData<?> data, int[] classValues) {
+
+		int[] labels = new int[data.numSamples()];
+
+		for (int i=0; i<labels.length; i++) {
+			labels[i] = classValues[data.label(i)];
+		}
+		return labels;
+	}
+
+	// returns one feature whose value is the class label, with classes 1, 2 and 3, or only 1 and 3 if twoClasses
+	private static double[][] separableColumns(int numSamples, boolean twoClasses, long seed, int[] labels) {
+
+		Random random = new Random(seed);
+		double[][] columns = new double[1][numSamples];
+
+		for (int i=0; i<numSamples; i++) {
+			labels[i] = twoClasses ? 1 + 2 * random.nextInt(2) : 1 + random.nextInt(3);
+			columns[0][i] = labels[i];
+		}
+		return columns;
+	}
+
+	@Test
+	void labelsAreRemappedInSortedOrder() {
+
+		double[][] columns = {{1, 2, 3, 4, 5}};
+		ClassifierData<Double> data = new ClassifierData<Double>(columns, new int[] {7, -1, 7, 3, -1});
+
+		assertEquals(3, data.numClasses());
+		assertArrayEquals(new int[] {-1, 3, 7}, data.classValues());
+		assertArrayEquals(new int[] {2, 0, 2, 1, 0}, data.labelColumn());
+		assertEquals(7, data.classValue(2));
+	}
+
+	@Test
+	void labelsAlreadyNumberedFromZeroAreNotRemapped() {
+
+		double[][] columns = {{1, 2, 3}};
+		ClassifierData<Double> data = new ClassifierData<Double>(columns, new int[] {0, 2, 1});
+
+		assertNull(data.classValues());
+		assertArrayEquals(new int[] {0, 2, 1}, data.labelColumn());
+	}
+
+	@Test
+	void tiesGoToTheHighestClass() {
+
+		// a feature with one value cannot be split, so the root is a leaf predicting the most frequent class
+		double[][] columns = {{5, 5, 5, 5, 5, 5}};
+
+		DecisionTree<Double> binary = new DecisionTree<Double>(new ClassifierData<Double>(columns, new int[] {0, 1, 1, 0, 1, 0}), 4);
+		assertEquals(1, binary.classify(new double[] {5}));
+
+		DecisionTree<Double> threeClasses = new DecisionTree<Double>(new ClassifierData<Double>(columns, new int[] {2, 0, 1, 0, 1, 2}), 4);
+		assertEquals(2, threeClasses.classify(new double[] {5}));
+
+		DecisionTree<Double> majority = new DecisionTree<Double>(new ClassifierData<Double>(columns, new int[] {0, 2, 0, 1, 0, 2}), 4);
+		assertEquals(0, majority.classify(new double[] {5}));
+	}
+
+	@Test
+	void remapClassLabelsUsesTheClassesOfOtherData() {
+
+		ClassifierData<Double> train = new ClassifierData<Double>(new double[][] {{1, 2, 3}}, new int[] {1, 2, 3});
+		ClassifierData<Double> test = new ClassifierData<Double>(new double[][] {{1, 3, 3}}, new int[] {1, 3, 3});
+
+		// read alone, the test data has classes 1 and 3 labelled 0 and 1
+		assertArrayEquals(new int[] {0, 1, 1}, test.labelColumn());
+
+		test.remapClassLabels(train.classValues());
+
+		assertArrayEquals(new int[] {0, 2, 2}, test.labelColumn());
+		assertArrayEquals(train.classValues(), test.classValues());
+
+		ClassifierData<Double> other = new ClassifierData<Double>(new double[][] {{1}}, new int[] {4});
+		assertThrows(IllegalArgumentException.class, () -> other.remapClassLabels(train.classValues()));
+	}
+
+	@Test
+	void testComparesClassLabelsReadFromTheInput() throws IOException {
+
+		int[] trainLabels = new int[600];
+		int[] testLabels = new int[400];
+		ClassifierData<Double> train = new ClassifierData<Double>(separableColumns(600, false, 10, trainLabels), trainLabels);
+		ClassifierData<Double> test = new ClassifierData<Double>(separableColumns(400, true, 11, testLabels), testLabels);
+
+		assertArrayEquals(new int[] {1, 2, 3}, train.classValues());
+		assertArrayEquals(new int[] {1, 3}, test.classValues());
+
+		// the feature is the class label, so every test sample is classified correctly although the test data has fewer classes
+		DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+		treeBuilder.build(train);
+
+		assertEquals(1.0, treeBuilder.test(test));
+
+		RandomForestBuilder<Double> forestBuilder = new RandomForestBuilder<Double>();
+		forestBuilder.build(train);
+
+		assertEquals(1.0, forestBuilder.test(test));
+
+		// the same accuracy when the test data is streamed from a file
+		Path csv = tempDir.resolve("test.csv");
+		TestData.writeCsv(test, testLabels, csv.toString());
+
+		try (CsvDataSource source = new CsvReader().stream(csv.toString(), 64)) {
+			assertEquals(1.0, treeBuilder.test(source));
+		}
+	}
+
+	@Test
+	void streamedAccuracyMatchesInMemoryAccuracy() throws IOException {
+
+		ClassifierData<Double> synthetic = TestData.synthetic(4000, 4, 12);
+		int[] classValues = {-1, 1};
+
+		Path trainCsv = tempDir.resolve("train.csv");
+		Path testCsv = tempDir.resolve("test.csv");
+
+		SplitClassifierData<Double> split = new SplitClassifierData<Double>(synthetic, 3000);
+		TestData.writeCsv(split.leftData(), labels(split.leftData(), classValues), trainCsv.toString());
+		TestData.writeCsv(split.rightData(), labels(split.rightData(), classValues), testCsv.toString());
+
+		ClassifierData<Double> train = new CsvReader().read(trainCsv.toString());
+		ClassifierData<Double> test = new CsvReader().read(testCsv.toString());
+
+		assertArrayEquals(classValues, train.classValues());
+
+		DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+		treeBuilder.build(train);
+
+		assertArrayEquals(classValues, treeBuilder.classifier().classValues());
+
+		// the accuracy of the tree built from labels 0 and 1 tested on the same samples
+		DecisionTreeBuilder<Double> expectedBuilder = new DecisionTreeBuilder<Double>();
+		expectedBuilder.build(split.leftData());
+		double expected = expectedBuilder.test(split.rightData());
+
+		assertEquals(expected, treeBuilder.test(test));
+
+		try (CsvDataSource source = new CsvReader().stream(testCsv.toString(), 100)) {
+			assertEquals(expected, treeBuilder.test(source));
+		}
+
+		Path columnar = tempDir.resolve("test.cdat");
+		test.save(columnar.toString());
+
+		try (ColumnarFileDataSource source = new ColumnarFileDataSource(columnar.toString(), 100)) {
+			assertEquals(expected, treeBuilder.test(source));
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of classifying batches of samples with classifyAll
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class ClassifyAllTest {
+
+	// returns the prediction of the tree for each sample of the given data, classified one at a time
+	private static int[] classifyEach(DecisionTree<Double> tree, ClassifierData<Double> data) {
+
+		int[] predictions = new int[data.numSamples()];
+
+		for (int i=0; i<predictions.length; i++) {
+			predictions[i] = tree.classify(TestData.sample(data, i));
+		}
+		return predictions;
+	}
+
+	// returns the samples and labels of the given data stored as lists of rows
+	private static ClassifierData<Double> rows(ClassifierData<Double> data) {
+
+		ArrayList<ArrayList<Double>> samples = new ArrayList<ArrayList<Double>>();
+		ArrayList<Integer> labels = new ArrayList<Integer>();
+
+		for (int i=0; i<data.numSamples(); i++) {
+			samples.add(data.sample(i));
+			labels.add(data.label(i));
+		}
+		return new ClassifierData<Double>(samples, labels);
+	}
+
+	@Test
+	void classifyAllEqualsClassifyingOneSampleAtATime() {
+
+		DecisionTree<Double> tree = new DecisionTree<Double>(TestData.synthetic(5000, 5, 66), 10, SplitMode.EXACT);
+
+		// not a whole number of blocks, and enough samples to be classified in parallel
+		ClassifierData<Double> test = TestData.synthetic(20 * CompiledTree.BLOCK_SIZE + 37, 5, 67);
+		ClassifierData<Double> view = new SplitClassifierData<Double>(test, 2, 0.0).rightData();
+		ClassifierData<Double> rows = rows(test);
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+		try {
+			for (ClassifierData<Double> data : new ClassifierData[] {test, view, rows}) {
+
+				int[] expected = classifyEach(tree, data);
+
+				assertArrayEquals(expected, tree.classifyAll(data));
+				assertArrayEquals(expected, tree.classifyAll(data, forkJoinPool));
+			}
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	@Test
+	void classifyAllOfColumnsEqualsClassifyingOneSampleAtATime() {
+
+		CompiledTree compiledTree = new DecisionTree<Double>(TestData.synthetic(5000, 4, 68), 10).compiledTree();
+
+		ClassifierData<Double> test = TestData.synthetic(20 * CompiledTree.BLOCK_SIZE + 5, 4, 69);
+
+		double[][] columns = new double[test.numFeatures()][];
+		for (int j=0; j<columns.length; j++) {
+			columns[j] = test.featureColumn(j);
+		}
+
+		int[] expected = new int[test.numSamples()];
+		for (int i=0; i<expected.length; i++) {
+			expected[i] = compiledTree.classify(TestData.sample(test, i));
+		}
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+		try {
+			assertArrayEquals(expected, compiledTree.classifyAll(columns));
+			assertArrayEquals(expected, compiledTree.classifyAll(columns, forkJoinPool));
+		} finally {
+			forkJoinPool.shutdown();
+		}
+
+		assertArrayEquals(new int[0], compiledTree.classifyAll(new double[][] {{}, {}, {}, {}}));
+		assertThrows(IndexOutOfBoundsException.class, () -> compiledTree.classifyAll(new double[3][10]));
+		assertThrows(IllegalArgumentException.class, () -> compiledTree.classifyAll(new double[][] {{1}, {2}, {3}, {}}));
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of off-heap ClassifierData allocated from a ColumnArena
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class ColumnArenaTest {
+
+	@Test
+	void copyHoldsTheSameSamples() {
+
+		ClassifierData<Double> data = TestData.synthetic(2000, 4, 37);
+		data.setClassValues(new int[] {-1, 1});
+
+		try (ColumnArena arena = new ColumnArena()) {
+
+			ClassifierData<Double> offHeap = arena.copyOf(data);
+
+			assertTrue(offHeap.isOffHeap());
+			assertEquals(data.numSamples(), offHeap.numSamples());
+			assertArrayEquals(new int[] {-1, 1}, offHeap.classValues());
+
+			for (int i=0; i<data.numSamples(); i++) {
+				assertArrayEquals(TestData.sample(data, i), TestData.sample(offHeap, i));
+				assertEquals(data.label(i), offHeap.label(i));
+			}
+		}
+	}
+
+	@Test
+	void treesBuiltOffHeapMatchTreesBuiltOnHeap() {
+
+		ClassifierData<Double> data = TestData.synthetic(4000, 5, 38);
+		ClassifierData<Double> test = TestData.synthetic(1000, 5, 39);
+
+		try (ColumnArena arena = new ColumnArena()) {
+
+			ClassifierData<Double> offHeap = arena.copyOf(data);
+
+			for (SplitMode splitMode : SplitMode.values()) {
+
+				DecisionTree<Double> heapTree = new DecisionTree<Double>(data, 8, splitMode);
+				DecisionTree<Double> offHeapTree = new DecisionTree<Double>(offHeap, 8, splitMode);
+
+				assertEquals(heapTree.numNodes(), offHeapTree.numNodes(), splitMode.toString());
+				assertArrayEquals(heapTree.classifyAll(test), offHeapTree.classifyAll(test), splitMode.toString());
+				assertArrayEquals(heapTree.classifyAll(data), offHeapTree.classifyAll(offHeap), splitMode.toString());
+			}
+		}
+	}
+
+	@Test
+	void readingAfterCloseFails() {
+
+		ClassifierData<Double> data = TestData.synthetic(500, 3, 40);
+
+		ColumnArena arena = new ColumnArena();
+		ClassifierData<Double> offHeap = arena.copyOf(data);
+		ClassifierData<Double> view = new SplitClassifierData<Double>(offHeap, 250).leftData();
+
+		arena.close();
+
+		assertThrows(IndexOutOfBoundsException.class, () -> offHeap.featureValue(0, 0));
+		assertThrows(IndexOutOfBoundsException.class, () -> offHeap.label(0));
+		assertThrows(IndexOutOfBoundsException.class, () -> view.featureValue(0, 0));
+		assertThrows(IllegalStateException.class, () -> arena.copyOf(data));
+	}
+}
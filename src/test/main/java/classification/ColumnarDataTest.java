@@ -0,0 +1,102 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of storing ClassifierData in primitive columns rather than in lists of boxed rows
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class ColumnarDataTest {
+
+	// returns the samples and labels of the given data stored as lists of rows
+	private static ClassifierData<Double> rows(ClassifierData<Double> data) {
+
+		ArrayList<ArrayList<Double>> samples = new ArrayList<ArrayList<Double>>();
+		ArrayList<Integer> labels = new ArrayList<Integer>();
+
+		for (int i=0; i<data.numSamples(); i++) {
+			ArrayList<Double> sample = new ArrayList<Double>();
+			for (double value : TestData.sample(data, i)) {
+				sample.add(value);
+			}
+			samples.add(sample);
+			labels.add(data.label(i));
+		}
+		return new ClassifierData<Double>(samples, labels);
+	}
+
+	@Test
+	void columnarCopyHoldsTheSameValues() {
+
+		ClassifierData<Double> rows = rows(TestData.synthetic(1000, 4, 41));
+		ClassifierData<Double> columns = new ClassifierData<Double>(rows, true);
+
+		assertFalse(rows.isColumnar());
+		assertTrue(columns.isColumnar());
+		assertEquals(rows.numSamples(), columns.numSamples());
+		assertEquals(rows.numFeatures(), columns.numFeatures());
+
+		for (int i=0; i<rows.numSamples(); i++) {
+			assertEquals(rows.sample(i), columns.sample(i));
+			assertEquals(rows.classLabel(i), columns.classLabel(i));
+			for (int j=0; j<rows.numFeatures(); j++) {
+				assertEquals(rows.attribute(i, j), columns.attribute(i, j));
+				assertEquals(rows.featureValue(i, j), columns.featureValue(i, j));
+			}
+		}
+
+		for (int j=0; j<rows.numFeatures(); j++) {
+			assertEquals(rows.meanFeatureValue(j), columns.meanFeatureValue(j));
+			assertArrayEquals(rows.featureColumn(j), columns.featureColumn(j));
+		}
+		assertEquals(rows.classCount(0), columns.classCount(0));
+		assertEquals(rows.classCount(1), columns.classCount(1));
+		assertArrayEquals(rows.labelColumn(), columns.labelColumn());
+	}
+
+	@Test
+	void columnarCopyIsIndependentOfTheColumnsItWasCopiedFrom() {
+
+		double[][] columns = {{1, 2, 3}, {4, 5, 6}};
+		ClassifierData<Double> data = new ClassifierData<Double>(columns, new int[] {0, 1, 0});
+		ClassifierData<Double> copy = new ClassifierData<Double>(data, true);
+
+		// the given columns are copied, so changing them changes neither dataset
+		columns[0][0] = 10;
+		columns[1][0] = 10;
+
+		assertEquals(1.0, data.featureValue(0, 0));
+		assertEquals(1.0, copy.featureValue(0, 0));
+		assertEquals(4.0, copy.featureValue(0, 1));
+	}
+
+	@Test
+	void treesBuiltFromRowsAndColumnsAreEqual() {
+
+		ClassifierData<Double> columns = TestData.synthetic(3000, 5, 42);
+		ClassifierData<Double> rows = rows(columns);
+		ClassifierData<Double> test = TestData.synthetic(1000, 5, 43);
+
+		DecisionTree<Double> rowTree = new DecisionTree<Double>(rows, 8);
+		DecisionTree<Double> columnTree = new DecisionTree<Double>(columns, 8);
+
+		assertEquals(rowTree.numNodes(), columnTree.numNodes());
+		assertEquals(rowTree.TreeDepth(), columnTree.TreeDepth());
+
+		for (int i=0; i<test.numSamples(); i++) {
+			assertEquals(rowTree.classify(test.sample(i)), columnTree.classify(test.sample(i)));
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of saving and opening binary columnar files with ColumnarFile and ColumnarFileDataSource
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class ColumnarFileTest {
+
+	@TempDir
+	Path tempDir;
+
+	// asserts that the two datasets hold the same samples and class labels read from the input
+	private static void assertSameData(ClassifierData<?> expected, ClassifierData<?> actual) {
+
+		assertEquals(expected.numSamples(), actual.numSamples());
+		assertEquals(expected.numFeatures(), actual.numFeatures());
+
+		for (int j=0; j<expected.numFeatures(); j++) {
+			assertArrayEquals(expected.featureColumn(j), actual.featureColumn(j));
+		}
+		for (int i=0; i<expected.numSamples(); i++) {
+			assertEquals(expected.classValue(expected.label(i)), actual.classValue(actual.label(i)));
+		}
+	}
+
+	@Test
+	void roundTripKeepsValuesNamesAndClassValues() throws IOException {
+
+		Path csv = tempDir.resolve("data.csv");
+		Files.write(csv, "a,b,class\n1.5,-2,10\n0,1e300,30\n-0.25,4,20\n7,NaN,10\n".getBytes(StandardCharsets.UTF_8));
+
+		ClassifierData<Double> data = new CsvReader().read(csv.toString());
+
+		Path file = tempDir.resolve("data.cdat");
+		data.save(file.toString());
+
+		ClassifierData<Double> opened = ClassifierData.open(file.toString());
+
+		assertSameData(data, opened);
+		assertArrayEquals(data.featureNames(), opened.featureNames());
+		assertArrayEquals(new int[] {10, 20, 30}, opened.classValues());
+		assertArrayEquals(data.labelColumn(), opened.labelColumn());
+	}
+
+	@Test
+	void roundTripOfSyntheticData() throws IOException {
+
+		ClassifierData<Double> data = TestData.synthetic(3000, 5, 3);
+
+		Path file = tempDir.resolve("data.cdat");
+		data.save(file.toString());
+
+		assertSameData(data, ClassifierData.open(file.toString()));
+	}
+
+	@Test
+	void blocksMatchOpenedFile() throws IOException {
+
+		ClassifierData<Double> data = TestData.synthetic(1000, 3, 4);
+
+		Path file = tempDir.resolve("data.cdat");
+		data.save(file.toString());
+
+		int sampleNum = 0;
+
+		try (ColumnarFileDataSource source = new ColumnarFileDataSource(file.toString(), 300)) {
+
+			assertEquals(data.numSamples(), source.numSamples());
+
+			ClassifierData<Double> block;
+			while ((block = source.nextBlock()) != null) {
+				for (int i=0; i<block.numSamples(); i++, sampleNum++) {
+					assertArrayEquals(TestData.sample(data, sampleNum), TestData.sample(block, i));
+					assertEquals(data.label(sampleNum), block.classValue(block.label(i)));
+				}
+			}
+		}
+		assertEquals(data.numSamples(), sampleNum);
+	}
+
+	@Test
+	void rejectsFilesThatAreNotColumnarFiles() throws IOException {
+
+		Path file = tempDir.resolve("data.cdat");
+
+		Files.write(file, new byte[0]);
+		assertThrows(IllegalArgumentException.class, () -> ClassifierData.open(file.toString()));
+
+		Files.write(file, "a,b,class\n1,2,0\n3,4,1\n5,6,0\n7,8,1\n".getBytes(StandardCharsets.UTF_8));
+		assertThrows(IllegalArgumentException.class, () -> ClassifierData.open(file.toString()));
+	}
+
+	@Test
+	void rejectsTruncatedAndCorruptFiles() throws IOException {
+
+		ClassifierData<Double> data = TestData.synthetic(500, 3, 5);
+
+		Path file = tempDir.resolve("data.cdat");
+		data.save(file.toString());
+		byte[] bytes = Files.readAllBytes(file);
+
+		// every truncation of the file
+		for (int length=0; length<bytes.length; length+=7) {
+			Files.write(file, Arrays.copyOf(bytes, length));
+			assertThrows(IllegalArgumentException.class, () -> ClassifierData.open(file.toString()), "length " + length);
+		}
+
+		// an unsupported version
+		byte[] corrupt = bytes.clone();
+		ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(4, ColumnarFile.VERSION + 1);
+		Files.write(file, corrupt);
+		assertThrows(IllegalArgumentException.class, () -> ClassifierData.open(file.toString()));
+
+		// a number of samples larger than the file
+		corrupt = bytes.clone();
+		ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(8, Integer.MAX_VALUE);
+		Files.write(file, corrupt);
+		assertThrows(IllegalArgumentException.class, () -> ClassifierData.open(file.toString()));
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of classifying samples with the flat arrays of a CompiledTree
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class CompiledTreeTest {
+
+	@Test
+	void compiledTreeClassifiesLikeTheTreeNodes() {
+
+		ClassifierData<Double> train = TestData.synthetic(5000, 5, 60);
+		ClassifierData<Double> test = TestData.synthetic(2000, 5, 61);
+
+		for (SplitMode splitMode : SplitMode.values()) {
+
+			DecisionTree<Double> tree = new DecisionTree<Double>(train, 10, splitMode);
+			CompiledTree compiledTree = tree.compiledTree();
+
+			assertEquals(tree.rootNode.numNodes(), compiledTree.numNodes(), splitMode.toString());
+			assertEquals(train.numFeatures(), compiledTree.numFeatures(), splitMode.toString());
+
+			for (int i=0; i<test.numSamples(); i++) {
+				int expected = tree.rootNode.classifySample(test.sample(i));
+
+				assertEquals(expected, compiledTree.classify(TestData.sample(test, i)), splitMode.toString());
+				assertEquals(expected, tree.classify(TestData.sample(test, i)), splitMode.toString());
+			}
+		}
+	}
+
+	@Test
+	void nodesAreStoredAfterTheirParents() {
+
+		CompiledTree compiledTree = new DecisionTree<Double>(TestData.synthetic(3000, 4, 62), 9).compiledTree();
+
+		for (int node=0; node<compiledTree.numNodes(); node++) {
+			if (compiledTree.feature[node] == CompiledTree.LEAF) {
+				assertEquals(CompiledTree.LEAF, compiledTree.leftNode[node]);
+				assertEquals(CompiledTree.LEAF, compiledTree.rightNode[node]);
+			}
+			else {
+				assertTrue(compiledTree.leftNode[node] > node);
+				assertTrue(compiledTree.rightNode[node] > node);
+			}
+		}
+	}
+
+	@Test
+	void classifyLeavesTheSampleUnchanged() {
+
+		ClassifierData<Double> train = TestData.synthetic(3000, 5, 64);
+		ClassifierData<Double> test = TestData.synthetic(500, 5, 65);
+
+		for (SplitMode splitMode : SplitMode.values()) {
+
+			DecisionTree<Double> tree = new DecisionTree<Double>(train, 10, splitMode);
+
+			for (int i=0; i<test.numSamples(); i++) {
+
+				ArrayList<Double> sample = test.sample(i);
+				ArrayList<Double> sampleCopy = new ArrayList<Double>(sample);
+				double[] values = TestData.sample(test, i);
+
+				// classifying the same sample again gives the same class, so no feature was removed from it
+				int label = tree.classify(sample);
+
+				assertEquals(label, tree.classify(sample), splitMode.toString());
+				assertEquals(label, tree.classify(values), splitMode.toString());
+				assertEquals(label, tree.classify(values), splitMode.toString());
+
+				assertEquals(sampleCopy, sample, splitMode.toString());
+				assertArrayEquals(TestData.sample(test, i), values, splitMode.toString());
+			}
+		}
+	}
+
+	@Test
+	void samplesWithTooFewFeaturesAreRejected() {
+
+		CompiledTree compiledTree = new DecisionTree<Double>(TestData.synthetic(1000, 4, 63), 6).compiledTree();
+
+		assertThrows(IndexOutOfBoundsException.class, () -> compiledTree.classify(new double[3]));
+	}
+}
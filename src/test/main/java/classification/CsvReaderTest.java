@@ -0,0 +1,181 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of reading CSV files with CsvReader, CsvDataSource and CsvChunkParser
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class CsvReaderTest {
+
+	@TempDir
+	Path tempDir;
+
+	// parses the whole of the given string as an int
+	private static int parseInt(String s) {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		return CsvChunkParser.parseInt(ByteBuffer.wrap(bytes), 0, bytes.length);
+	}
+
+	// parses the whole of the given string as a double
+	private static double parseDouble(String s) {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		return CsvChunkParser.parseDouble(ByteBuffer.wrap(bytes), 0, bytes.length);
+	}
+
+	@Test
+	void parseIntMatchesIntegerParseInt() {
+
+		String[] values = {"0", "7", "-12", "+7", "-0", "999999999", "1000000000", "2147483647", "-2147483648", "007"};
+
+		for (String value : values) {
+			assertEquals(Integer.parseInt(value), parseInt(value), value);
+		}
+	}
+
+	@Test
+	void parseIntRejectsInvalidIntegers() {
+
+		String[] values = {"", "+", "-", "1.5", "12a", "--1", "2147483648"};
+
+		for (String value : values) {
+			assertThrows(NumberFormatException.class, () -> parseInt(value), value);
+		}
+	}
+
+	@Test
+	void parseDoubleMatchesDoubleParseDouble() {
+
+		String[] values = {"0", "-0", "1.5", "-2.25", "+3", ".5", "5.", "1e10", "1E-5", "-1.5e+3", "0.1", "123456789012345678",
+				"1.7976931348623157e308", "4.9e-324", "1e400", "NaN", "-Infinity", "0x1p3"};
+
+		for (String value : values) {
+			assertEquals(Double.doubleToLongBits(Double.parseDouble(value)), Double.doubleToLongBits(parseDouble(value)), value);
+		}
+	}
+
+	@Test
+	void parseDoubleRejectsInvalidNumbers() {
+
+		String[] values = {"", "+", "-", ".", "1e", "1.2.3", "abc"};
+
+		for (String value : values) {
+			assertThrows(NumberFormatException.class, () -> parseDouble(value), value);
+		}
+	}
+
+	@Test
+	void readsFeatureNamesValuesAndClassValues() throws IOException {
+
+		Path csv = tempDir.resolve("data.csv");
+		Files.write(csv, "a,b,class\n1.5,-2,5\n0,3e2,7\n-0.25,4,5\n".getBytes(StandardCharsets.UTF_8));
+
+		ClassifierData<Double> data = new CsvReader().read(csv.toString());
+
+		assertEquals(3, data.numSamples());
+		assertEquals(2, data.numFeatures());
+		assertArrayEquals(new String[] {"a", "b"}, data.featureNames());
+		assertArrayEquals(new double[] {1.5, 0, -0.25}, data.featureColumn(0));
+		assertArrayEquals(new double[] {-2, 300, 4}, data.featureColumn(1));
+
+		// labels 5 and 7 are remapped to 0 and 1
+		assertArrayEquals(new int[] {5, 7}, data.classValues());
+		assertArrayEquals(new int[] {0, 1, 0}, data.labelColumn());
+	}
+
+	@Test
+	void parallelReadMatchesSerialRead() throws IOException {
+
+		ClassifierData<Double> expected = TestData.synthetic(5000, 4, 1);
+
+		int[] labels = new int[expected.numSamples()];
+		for (int i=0; i<labels.length; i++) {
+			labels[i] = expected.label(i);
+		}
+
+		Path csv = tempDir.resolve("data.csv");
+		TestData.writeCsv(expected, labels, csv.toString());
+
+		ClassifierData<Double> serial = new CsvReader().read(csv.toString());
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+		try {
+			// small chunks, so the file is split into many chunks parsed in parallel
+			CsvReader reader = new CsvReader();
+			reader.setForkJoinPool(forkJoinPool);
+			reader.setChunkSize(4096);
+
+			ClassifierData<Double> parallel = reader.read(csv.toString());
+
+			for (ClassifierData<Double> data : new ClassifierData[] {serial, parallel}) {
+				assertEquals(expected.numSamples(), data.numSamples());
+				for (int j=0; j<expected.numFeatures(); j++) {
+					assertArrayEquals(expected.featureColumn(j), data.featureColumn(j));
+				}
+				assertArrayEquals(labels, data.labelColumn());
+			}
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	@Test
+	void streamedBlocksMatchWholeFile() throws IOException {
+
+		ClassifierData<Double> expected = TestData.synthetic(1000, 3, 2);
+
+		int[] labels = new int[expected.numSamples()];
+		for (int i=0; i<labels.length; i++) {
+			labels[i] = expected.label(i);
+		}
+
+		Path csv = tempDir.resolve("data.csv");
+		TestData.writeCsv(expected, labels, csv.toString());
+
+		int sampleNum = 0;
+
+		try (CsvDataSource source = new CsvReader().stream(csv.toString(), 77)) {
+
+			ClassifierData<Double> block;
+			while ((block = source.nextBlock()) != null) {
+				for (int i=0; i<block.numSamples(); i++, sampleNum++) {
+					assertArrayEquals(TestData.sample(expected, sampleNum), TestData.sample(block, i));
+					assertEquals(labels[sampleNum], block.classValue(block.label(i)));
+				}
+			}
+			assertNull(source.nextBlock());
+		}
+		assertEquals(expected.numSamples(), sampleNum);
+	}
+
+	@Test
+	void rejectsInvalidValues() throws IOException {
+
+		Path csv = tempDir.resolve("bad.csv");
+		Files.write(csv, "x,y,label\n1,2,0\n3,4,1\n5,q,0\n".getBytes(StandardCharsets.UTF_8));
+
+		assertThrows(IllegalArgumentException.class, () -> new CsvReader().read(csv.toString()));
+
+		Files.write(csv, "x,y,label\n1,2,0\n3,4,-\n".getBytes(StandardCharsets.UTF_8));
+
+		assertThrows(IllegalArgumentException.class, () -> new CsvReader().read(csv.toString()));
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of finding the best split of each feature from feature values sorted once, with SplitMode.EXACT
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class ExactSplitTest {
+
+	// returns the information gain, measured by entropy, of splitting the given data where featureNum <= splittingValue
+	private static double informationGain(ClassifierData<Double> data, int featureNum, double splittingValue) {
+
+		int[] classCounts = new int[2];
+		int[] leftClassCounts = new int[2];
+		int[] rightClassCounts = new int[2];
+
+		data.countClasses(classCounts);
+		int numLeft = data.countSplit(featureNum, splittingValue, leftClassCounts);
+		int numRight = data.numSamples() - numLeft;
+
+		for (int c=0; c<classCounts.length; c++) {
+			rightClassCounts[c] = classCounts[c] - leftClassCounts[c];
+		}
+
+		return TreeNode.entropy(classCounts, data.numSamples())
+				- ((double) numLeft / data.numSamples()) * TreeNode.entropy(leftClassCounts, numLeft)
+				- ((double) numRight / data.numSamples()) * TreeNode.entropy(rightClassCounts, numRight);
+	}
+
+	// returns the information gain of the split of the root node of a tree of depth 2 built from the given data
+	private static double rootGain(ClassifierData<Double> data, SplitMode splitMode) {
+
+		TreeNode<Double> rootNode = new DecisionTree<Double>(data, 2, splitMode).rootNode;
+		return informationGain(data, rootNode.splittingColumn, rootNode.splittingValue);
+	}
+
+	@Test
+	void exactSplitFindsTheThresholdBetweenTheClasses() {
+
+		// samples 1 to 100 where only the samples above 80 are of class 1, so the mean 50.5 is the wrong threshold
+		double[][] columns = new double[1][100];
+		int[] labels = new int[100];
+
+		for (int i=0; i<100; i++) {
+			columns[0][i] = i + 1;
+			labels[i] = i + 1 > 80 ? 1 : 0;
+		}
+		ClassifierData<Double> data = new ClassifierData<Double>(columns, labels);
+
+		DecisionTree<Double> exactTree = new DecisionTree<Double>(data, 2, SplitMode.EXACT);
+		DecisionTree<Double> meanTree = new DecisionTree<Double>(data, 2, SplitMode.MEAN);
+
+		assertEquals(80.5, exactTree.rootNode.splittingValue);
+		assertEquals(50.5, meanTree.rootNode.splittingValue);
+
+		DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+		treeBuilder.setSplitMode(SplitMode.EXACT);
+		treeBuilder.build(data);
+
+		assertEquals(1.0, treeBuilder.test(data));
+		assertEquals(3, treeBuilder.classifier().numNodes());
+	}
+
+	@Test
+	void exactSplitHasTheHighestGainOfEveryThreshold() {
+
+		ClassifierData<Double> data = TestData.synthetic(300, 3, 49);
+
+		double bestGain = -1.0;
+
+		// every threshold between two distinct neighbouring values of each feature
+		for (int j=0; j<data.numFeatures(); j++) {
+			double[] values = data.featureColumn(j).clone();
+			Arrays.sort(values);
+
+			for (int i=1; i<values.length; i++) {
+				if (values[i] > values[i-1]) {
+					bestGain = Math.max(bestGain, informationGain(data, j, (values[i-1] + values[i]) / 2));
+				}
+			}
+		}
+
+		double exactGain = rootGain(data, SplitMode.EXACT);
+
+		assertEquals(bestGain, exactGain, 1e-12);
+
+		// the mean of a feature splits the samples the same as one of the thresholds tried, so gains no more
+		assertTrue(rootGain(data, SplitMode.MEAN) <= exactGain + 1e-12);
+	}
+
+	@Test
+	void samplesAreSortedOnceByEachFeature() {
+
+		ClassifierData<Double> data = TestData.synthetic(500, 3, 50);
+
+		int[][] sortedSamples = data.sortedSamples();
+
+		assertEquals(data.numFeatures(), sortedSamples.length);
+		for (int j=0; j<data.numFeatures(); j++) {
+			assertEquals(data.numSamples(), sortedSamples[j].length);
+			for (int i=1; i<sortedSamples[j].length; i++) {
+				assertTrue(data.featureValue(sortedSamples[j][i-1], j) <= data.featureValue(sortedSamples[j][i], j));
+			}
+		}
+
+		// building a tree reuses the sorted samples rather than sorting again
+		new DecisionTree<Double>(data, 6, SplitMode.EXACT);
+		assertSame(sortedSamples, data.sortedSamples());
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of building Gradient Boosted Trees with GradientBoostedTreesBuilder
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class GradientBoostedTreesTest {
+
+	@Test
+	void boostedTreesAreMoreAccurateThanOneTree() {
+
+		ClassifierData<Double> train = TestData.synthetic(8000, 5, 75);
+		ClassifierData<Double> test = TestData.synthetic(3000, 5, 76);
+
+		GradientBoostedTreesBuilder<Double> boostedBuilder = new GradientBoostedTreesBuilder<Double>();
+		boostedBuilder.build(train);
+
+		DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+		treeBuilder.setSplitMode(SplitMode.EXACT);
+		treeBuilder.build(train);
+
+		double accuracy = boostedBuilder.test(test);
+
+		// one sample in eight is mislabelled, so no classifier is more than about 7/8 accurate
+		assertTrue(accuracy > 0.8, "accuracy " + accuracy);
+		assertTrue(accuracy > treeBuilder.test(test), "accuracy " + accuracy);
+		assertEquals(GradientBoostedTreesBuilder.DEFAULT_NUM_ROUNDS, boostedBuilder.classifier().numTrees());
+	}
+
+	@Test
+	void scoresAreTheLogOddsOfClassOne() {
+
+		ClassifierData<Double> train = TestData.synthetic(3000, 4, 77);
+		ClassifierData<Double> test = TestData.synthetic(20 * CompiledTree.BLOCK_SIZE + 3, 4, 78);
+
+		GradientBoostedTreesBuilder<Double> boostedBuilder = new GradientBoostedTreesBuilder<Double>();
+		boostedBuilder.setNumRounds(30);
+		boostedBuilder.build(train);
+
+		GradientBoostedTrees<Double> boostedTrees = boostedBuilder.classifier();
+
+		// with no trees every sample scores the log odds of class 1 in the training data
+		int[] classCounts = new int[2];
+		train.countClasses(classCounts);
+		assertEquals(Math.log((double) classCounts[1] / classCounts[0]), boostedTrees.baseScore(), 1e-9);
+
+		int[] expected = new int[test.numSamples()];
+		for (int i=0; i<expected.length; i++) {
+			double[] sample = TestData.sample(test, i);
+			double probability = boostedTrees.probability(sample);
+
+			expected[i] = boostedTrees.classify(sample);
+
+			assertEquals(GradientBoostedTrees.sigmoid(boostedTrees.score(sample)), probability);
+			assertEquals(probability > 0.5 ? 1 : 0, expected[i]);
+			assertEquals(expected[i], boostedTrees.classify(test.sample(i)).intValue());
+		}
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+		try {
+			assertArrayEquals(expected, boostedTrees.classifyAll(test));
+			assertArrayEquals(expected, boostedTrees.classifyAll(test, forkJoinPool));
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	@Test
+	void treesBuiltInParallelAreTheSame() {
+
+		ClassifierData<Double> train = TestData.synthetic(6000, 5, 79);
+		ClassifierData<Double> test = TestData.synthetic(1000, 5, 80);
+
+		GradientBoostedTreesBuilder<Double> boostedBuilder = new GradientBoostedTreesBuilder<Double>();
+		boostedBuilder.setNumRounds(20);
+		boostedBuilder.build(train);
+		GradientBoostedTrees<Double> sequential = boostedBuilder.classifier();
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+		try {
+			boostedBuilder.setForkJoinPool(forkJoinPool);
+			boostedBuilder.setFeatureParallelCutoff(100);
+			boostedBuilder.build(train);
+		} finally {
+			forkJoinPool.shutdown();
+		}
+		GradientBoostedTrees<Double> parallel = boostedBuilder.classifier();
+
+		for (int i=0; i<test.numSamples(); i++) {
+			double[] sample = TestData.sample(test, i);
+			assertEquals(sequential.score(sample), parallel.score(sample));
+		}
+	}
+
+	@Test
+	void onlyTwoClassesAreSupported() {
+
+		ClassifierData<Double> data = new ClassifierData<Double>(new double[][] {{1, 2, 3}}, new int[] {0, 1, 2});
+
+		assertThrows(IllegalArgumentException.class, () -> new GradientBoostedTreesBuilder<Double>().build(data));
+		assertThrows(IllegalArgumentException.class, () -> new GradientBoostedTreesBuilder<Double>().setNumRounds(-1));
+	}
+}
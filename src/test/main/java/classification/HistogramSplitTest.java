@@ -0,0 +1,104 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of building trees from feature values quantized into bins, with SplitMode.HISTOGRAM
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class HistogramSplitTest {
+
+	// returns numSamples samples of 4 features, each an integer from -20 to 20, labelled by a noisy function of the first two features
+	private static ClassifierData<Double> integerData(int numSamples, long seed) {
+
+		Random random = new Random(seed);
+		double[][] columns = new double[4][numSamples];
+		int[] labels = new int[numSamples];
+
+		for (int i=0; i<numSamples; i++) {
+			for (int j=0; j<columns.length; j++) {
+				columns[j][i] = random.nextInt(41) - 20;
+			}
+			labels[i] = columns[0][i] + columns[1][i] > 3 ^ random.nextInt(8) == 0 ? 1 : 0;
+		}
+		return new ClassifierData<Double>(columns, labels);
+	}
+
+	@Test
+	void binsCountEverySampleOfEachFeature() {
+
+		ClassifierData<Double> data = TestData.synthetic(3000, 3, 51);
+		ClassifierData<Double> integers = integerData(3000, 52);
+
+		BinnedFeatures<Double> bins = data.binnedFeatures();
+		BinnedFeatures<Double> integerBins = integers.binnedFeatures();
+
+		int[] classCounts = new int[2];
+		data.countClasses(classCounts);
+
+		int[][] histogram = bins.histogram(data, 2);
+
+		for (int j=0; j<data.numFeatures(); j++) {
+
+			assertTrue(bins.numBins(j) <= BinnedFeatures.MAX_BINS);
+
+			// thresholds are sorted, and every sample is counted once in the bins of each feature
+			int[] binnedClassCounts = new int[2];
+			for (int b=0; b<bins.numBins(j); b++) {
+				assertTrue(b == 0 || bins.threshold(j, b-1) < bins.threshold(j, b));
+				binnedClassCounts[0] += histogram[j][b * 2];
+				binnedClassCounts[1] += histogram[j][b * 2 + 1];
+			}
+			assertArrayEquals(classCounts, binnedClassCounts);
+
+			// a feature with few distinct values has a bin for each value
+			double[] distinct = Arrays.stream(integers.featureColumn(j)).distinct().sorted().toArray();
+
+			assertEquals(distinct.length, integerBins.numBins(j));
+		}
+	}
+
+	@Test
+	void fewDistinctValuesBuildTheSameTreeAsExactSplits() {
+
+		ClassifierData<Double> train = integerData(5000, 53);
+		ClassifierData<Double> test = integerData(2000, 54);
+
+		DecisionTree<Double> exactTree = new DecisionTree<Double>(train, 8, SplitMode.EXACT);
+		DecisionTree<Double> histogramTree = new DecisionTree<Double>(train, 8, SplitMode.HISTOGRAM);
+
+		assertEquals(exactTree.numNodes(), histogramTree.numNodes());
+		assertArrayEquals(exactTree.compiledTree().feature, histogramTree.compiledTree().feature);
+		assertArrayEquals(exactTree.classifyAll(train), histogramTree.classifyAll(train));
+		assertArrayEquals(exactTree.classifyAll(test), histogramTree.classifyAll(test));
+	}
+
+	@Test
+	void manyDistinctValuesBuildTreesAsAccurateAsExactSplits() {
+
+		ClassifierData<Double> train = TestData.synthetic(20000, 5, 55);
+		ClassifierData<Double> test = TestData.synthetic(5000, 5, 56);
+
+		DecisionTreeBuilder<Double> exactBuilder = new DecisionTreeBuilder<Double>();
+		exactBuilder.setSplitMode(SplitMode.EXACT);
+		exactBuilder.build(train);
+
+		DecisionTreeBuilder<Double> histogramBuilder = new DecisionTreeBuilder<Double>();
+		histogramBuilder.setSplitMode(SplitMode.HISTOGRAM);
+		histogramBuilder.build(train);
+
+		assertEquals(exactBuilder.test(test), histogramBuilder.test(test), 0.02);
+	}
+}
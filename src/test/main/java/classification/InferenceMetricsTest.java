@@ -0,0 +1,164 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the inference metrics of classifiers, see Classifier.enableMetrics and InferenceMetrics
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class InferenceMetricsTest {
+
+	// returns the sum of the given counts
+	private static long sum(long[] counts) {
+
+		long sum = 0;
+		for (long count : counts) {
+			sum += count;
+		}
+		return sum;
+	}
+
+	@Test
+	void bucketsHoldLatenciesWithinOnePercent() {
+
+		long[] latencies = {0, 1, 127, 128, 129, 1000, 12345, 999999, 1L << 30, (1L << 41) + 12345};
+
+		for (long latency : latencies) {
+			int bucket = InferenceMetrics.bucket(latency);
+
+			assertTrue(latency <= InferenceMetrics.bucketLimit(bucket), "latency " + latency);
+			assertTrue(bucket == 0 || latency > InferenceMetrics.bucketLimit(bucket - 1), "latency " + latency);
+			assertTrue(InferenceMetrics.bucketLimit(bucket) - latency <= latency / InferenceMetrics.SUB_BUCKETS, "latency " + latency);
+		}
+
+		assertEquals(InferenceMetrics.NUM_BUCKETS - 1, InferenceMetrics.bucket(Long.MAX_VALUE));
+		assertEquals(0, InferenceMetrics.bucket(-5));
+	}
+
+	@Test
+	void countsEqualTheSamplesClassified() {
+
+		ClassifierData<Double> train = TestData.synthetic(3000, 4, 31);
+		ClassifierData<Double> test = TestData.synthetic(1000, 4, 32);
+
+		DecisionTree<Double> tree = new DecisionTree<Double>(train, 8);
+
+		assertFalse(tree.metricsEnabled());
+		assertThrows(IllegalStateException.class, () -> tree.metricsSnapshot());
+
+		tree.enableMetrics();
+
+		for (int i=0; i<test.numSamples(); i++) {
+			tree.classify(TestData.sample(test, i));
+		}
+		tree.classifyAll(test);
+		tree.classifyAll(test);
+
+		InferenceSnapshot snapshot = tree.metricsSnapshot();
+
+		assertEquals(3 * test.numSamples(), snapshot.numSamples());
+		assertEquals(test.numSamples(), snapshot.numTimed());
+		assertEquals(2, snapshot.numBatches());
+		assertEquals(3 * test.numSamples(), sum(snapshot.leafHits()));
+		assertTrue(snapshot.latencyPercentile(50) <= snapshot.latencyPercentile(99));
+		assertTrue(snapshot.latencyPercentile(99) <= snapshot.maxLatencyNanos());
+
+		// only leaves are counted
+		CompiledTree compiledTree = tree.compiledTree();
+		for (int node=0; node<compiledTree.numNodes(); node++) {
+			if (compiledTree.feature[node] != CompiledTree.LEAF) {
+				assertEquals(0, snapshot.leafHits()[node]);
+			}
+		}
+
+		// metrics enabled again start from zero
+		tree.disableMetrics();
+		tree.enableMetrics();
+		assertEquals(0, tree.metricsSnapshot().numSamples());
+	}
+
+	@Test
+	void leafHitsOfBatchesEqualLeafHitsOfSingleSamples() {
+
+		ClassifierData<Double> train = TestData.synthetic(3000, 4, 33);
+		ClassifierData<Double> test = TestData.synthetic(5000, 4, 34);
+
+		DecisionTree<Double> single = new DecisionTree<Double>(train, 8);
+		DecisionTree<Double> batch = new DecisionTree<Double>(train, 8);
+
+		single.enableMetrics();
+		batch.enableMetrics();
+
+		for (int i=0; i<test.numSamples(); i++) {
+			single.classify(TestData.sample(test, i));
+		}
+		batch.classifyAll(test);
+
+		assertArrayEquals(single.metricsSnapshot().leafHits(), batch.metricsSnapshot().leafHits());
+		assertEquals(single.metricsSnapshot().averagePathDepth(), batch.metricsSnapshot().averagePathDepth());
+	}
+
+	@Test
+	void countsAreExactWhenManyThreadsClassify() throws InterruptedException {
+
+		ClassifierData<Double> train = TestData.synthetic(3000, 4, 35);
+		ClassifierData<Double> test = TestData.synthetic(2000, 4, 36);
+
+		DecisionTree<Double> tree = new DecisionTree<Double>(train, 8);
+		tree.enableMetrics();
+
+		int numThreads = 4;
+		int rounds = 20;
+		List<Thread> threads = new ArrayList<Thread>();
+
+		for (int t=0; t<numThreads; t++) {
+			Thread thread = new Thread(() -> {
+				for (int round=0; round<rounds; round++) {
+					for (int i=0; i<test.numSamples(); i++) {
+						tree.classify(TestData.sample(test, i));
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		InferenceSnapshot snapshot = tree.metricsSnapshot();
+		long expected = (long) numThreads * rounds * test.numSamples();
+
+		assertEquals(expected, snapshot.numSamples());
+		assertEquals(expected, snapshot.numTimed());
+		assertEquals(expected, sum(snapshot.leafHits()));
+	}
+
+	@Test
+	void stripesAreOnlyCreatedWhenContended() {
+
+		InferenceMetrics.StripedCounts counts = new InferenceMetrics.StripedCounts(10);
+
+		for (int i=0; i<1000; i++) {
+			counts.add(i % 10, 2);
+		}
+
+		// a single thread never contends, so the counts are never copied
+		assertEquals(0, counts.numStripes());
+		assertArrayEquals(new long[] {200, 200, 200, 200, 200, 200, 200, 200, 200, 200}, counts.sum());
+	}
+}
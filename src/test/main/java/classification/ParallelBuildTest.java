@@ -0,0 +1,118 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that trees built in a ForkJoinPool are the same as trees built on the calling thread
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class ParallelBuildTest {
+
+	// pool the parallel trees are built in, created for each test
+	private ForkJoinPool forkJoinPool;
+
+	@BeforeEach
+	void createPool() {
+		forkJoinPool = new ForkJoinPool(4);
+	}
+
+	@AfterEach
+	void shutdownPool() {
+		forkJoinPool.shutdown();
+	}
+
+	// asserts that the two compiled trees have the same nodes in the same order
+	private static void assertSameTree(CompiledTree expected, CompiledTree actual, String message) {
+
+		assertArrayEquals(expected.feature, actual.feature, message);
+		assertArrayEquals(expected.threshold, actual.threshold, message);
+		assertArrayEquals(expected.leftNode, actual.leftNode, message);
+		assertArrayEquals(expected.rightNode, actual.rightNode, message);
+		assertArrayEquals(expected.classLabel, actual.classLabel, message);
+	}
+
+	// returns the tree built from the given data on the calling thread
+	private static CompiledTree sequentialTree(ClassifierData<Double> data, SplitMode splitMode, SplitCriterion splitCriterion) {
+
+		DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+		treeBuilder.setSplitMode(splitMode);
+		treeBuilder.setSplitCriterion(splitCriterion);
+		treeBuilder.build(data);
+
+		return treeBuilder.classifier().compiledTree();
+	}
+
+	@Test
+	void forkJoinBuildEqualsSequentialBuild() {
+
+		ClassifierData<Double> data = TestData.synthetic(20000, 6, 57);
+
+		for (SplitMode splitMode : SplitMode.values()) {
+			for (SplitCriterion splitCriterion : SplitCriterion.values()) {
+
+				// a small cutoff, so that most subtrees are forked
+				DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+				treeBuilder.setSplitMode(splitMode);
+				treeBuilder.setSplitCriterion(splitCriterion);
+				treeBuilder.setForkJoinPool(forkJoinPool);
+				treeBuilder.setParallelCutoff(50);
+				treeBuilder.build(data);
+
+				assertSameTree(sequentialTree(data, splitMode, splitCriterion), treeBuilder.classifier().compiledTree(), splitMode + " " + splitCriterion);
+			}
+		}
+	}
+
+	@Test
+	void featureParallelBuildEqualsSequentialBuild() {
+
+		ClassifierData<Double> data = TestData.synthetic(20000, 8, 59);
+
+		for (SplitMode splitMode : SplitMode.values()) {
+			for (SplitCriterion splitCriterion : SplitCriterion.values()) {
+
+				// subtrees are never forked, but the features of every node with at least 100 samples are evaluated in parallel
+				DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+				treeBuilder.setSplitMode(splitMode);
+				treeBuilder.setSplitCriterion(splitCriterion);
+				treeBuilder.setForkJoinPool(forkJoinPool);
+				treeBuilder.setParallelCutoff(Integer.MAX_VALUE);
+				treeBuilder.setFeatureParallelCutoff(100);
+				treeBuilder.build(data);
+
+				assertSameTree(sequentialTree(data, splitMode, splitCriterion), treeBuilder.classifier().compiledTree(), splitMode + " " + splitCriterion);
+
+				// both forked subtrees and features evaluated in parallel
+				treeBuilder.setParallelCutoff(50);
+				treeBuilder.build(data);
+
+				assertSameTree(sequentialTree(data, splitMode, splitCriterion), treeBuilder.classifier().compiledTree(), splitMode + " " + splitCriterion);
+			}
+		}
+	}
+
+	@Test
+	void forkJoinBuildOfViewEqualsSequentialBuild() {
+
+		ClassifierData<Double> data = new SplitClassifierData<Double>(TestData.synthetic(12000, 5, 58), 0, 0.0).rightData();
+
+		DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+		treeBuilder.setSplitMode(SplitMode.EXACT);
+		treeBuilder.setForkJoinPool(forkJoinPool);
+		treeBuilder.setParallelCutoff(50);
+		treeBuilder.build(data);
+
+		assertSameTree(sequentialTree(data, SplitMode.EXACT, SplitCriterion.ENTROPY), treeBuilder.classifier().compiledTree(), "view");
+	}
+}
@@ -0,0 +1,165 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the stopping criteria of DecisionTreeBuilder and of cost-complexity pruning with DecisionTree.prune
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class PruneTest {
+
+	// returns the smallest number of training samples reaching a leaf below the given node
+	private static int minLeafSamples(TreeNode<Double> node) {
+		return node.isLeaf() ? node.numSamples() : Math.min(minLeafSamples(node.leftNode), minLeafSamples(node.rightNode));
+	}
+
+	@Test
+	void leavesHoldAtLeastMinSamplesLeaf() {
+
+		ClassifierData<Double> data = TestData.synthetic(8000, 5, 25);
+
+		for (SplitMode splitMode : SplitMode.values()) {
+
+			DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+			treeBuilder.setSplitMode(splitMode);
+			treeBuilder.setMinSamplesLeaf(500);
+			treeBuilder.build(data);
+
+			assertTrue(minLeafSamples(treeBuilder.classifier().rootNode) >= 500, splitMode.toString());
+		}
+	}
+
+	@Test
+	void stoppingCriteriaGrowSmallerTrees() {
+
+		ClassifierData<Double> data = TestData.synthetic(8000, 5, 26);
+
+		DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+		treeBuilder.build(data);
+		int numNodes = treeBuilder.classifier().numNodes();
+
+		treeBuilder.setMinSamplesSplit(4000);
+		treeBuilder.build(data);
+		assertTrue(treeBuilder.classifier().numNodes() < numNodes);
+
+		treeBuilder = new DecisionTreeBuilder<Double>();
+		treeBuilder.setMinInfoGain(0.01);
+		treeBuilder.build(data);
+		assertTrue(treeBuilder.classifier().numNodes() < numNodes);
+
+		assertThrows(IllegalArgumentException.class, () -> new DecisionTreeBuilder<Double>().setMinSamplesLeaf(0));
+		assertThrows(IllegalArgumentException.class, () -> new DecisionTreeBuilder<Double>().setMaxLeafNodes(-1));
+	}
+
+	@Test
+	void pruneMakesTheTreeSmallerAndIsIdempotent() {
+
+		ClassifierData<Double> train = TestData.synthetic(6000, 5, 27);
+		ClassifierData<Double> test = TestData.synthetic(2000, 5, 28);
+
+		DecisionTree<Double> tree = new DecisionTree<Double>(train, 12);
+		int numNodes = tree.numNodes();
+
+		// 0 only prunes splits that classify no more training samples correctly
+		DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+		treeBuilder.build(train);
+		double trainAccuracy = treeBuilder.test(train);
+		treeBuilder.classifier().prune(0.0);
+		assertEquals(trainAccuracy, treeBuilder.test(train));
+
+		tree.compileBytecode();
+		tree.prune(0.005);
+
+		assertTrue(tree.numNodes() < numNodes);
+		assertTrue(tree.TreeDepth() <= 12);
+
+		int[] predictions = tree.classifyAll(test);
+
+		// the compiled forms are compiled again from the pruned tree
+		for (int i=0; i<test.numSamples(); i++) {
+			assertEquals(tree.classify(test.sample(i)).intValue(), tree.classify(TestData.sample(test, i)));
+			assertEquals(predictions[i], tree.compiledTree().classify(TestData.sample(test, i)));
+		}
+
+		tree.prune(0.005);
+		assertArrayEquals(predictions, tree.classifyAll(test));
+
+		assertThrows(IllegalArgumentException.class, () -> tree.prune(-1.0));
+	}
+
+	@Test
+	void classifySamplesWhilePruning() throws InterruptedException {
+
+		ClassifierData<Double> train = TestData.synthetic(5000, 5, 29);
+		ClassifierData<Double> test = TestData.synthetic(1000, 5, 30);
+
+		// the predictions of the whole and the pruned tree, from identical trees
+		DecisionTree<Double> tree = new DecisionTree<Double>(train, 12);
+		DecisionTree<Double> prunedTree = new DecisionTree<Double>(train, 12);
+		prunedTree.prune(0.001);
+
+		int[] unpruned = tree.classifyAll(test);
+		int[] pruned = prunedTree.classifyAll(test);
+
+		List<ArrayList<Double>> samples = new ArrayList<ArrayList<Double>>();
+		for (int i=0; i<test.numSamples(); i++) {
+			samples.add(test.sample(i));
+		}
+
+		AtomicBoolean stop = new AtomicBoolean();
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+
+		// the tree walked by classify(ArrayList) is replaced, not changed in place
+		for (int t=0; t<3; t++) {
+			Thread thread = new Thread(() -> {
+				try {
+					while (!stop.get()) {
+						for (int i=0; i<samples.size(); i++) {
+							int label = tree.classify(samples.get(i));
+
+							if (label != unpruned[i] && label != pruned[i]) {
+								throw new AssertionError("sample " + i + " classified as " + label);
+							}
+						}
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+
+		try {
+			// pruning again prunes nothing more, but still replaces the tree
+			for (int round=0; round<20; round++) {
+				tree.prune(0.001);
+			}
+		} finally {
+			stop.set(true);
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		}
+
+		assertNull(failure.get());
+		assertArrayEquals(pruned, tree.classifyAll(test));
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of building Random Forests with RandomForestBuilder, and of classifying samples by their votes
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class RandomForestTest {
+
+	// returns a forest of 10 trees built from the given data, in the given pool if it isn't null
+	private static RandomForest<Double> forest(ClassifierData<Double> data, SplitMode splitMode, long seed, ForkJoinPool forkJoinPool) {
+
+		RandomForestBuilder<Double> forestBuilder = new RandomForestBuilder<Double>();
+		forestBuilder.setNumTrees(10);
+		forestBuilder.setSplitMode(splitMode);
+		forestBuilder.setSeed(seed);
+		forestBuilder.setForkJoinPool(forkJoinPool);
+		forestBuilder.build(data);
+
+		return forestBuilder.classifier();
+	}
+
+	// returns true if every tree of the two forests has the same nodes
+	private static boolean sameForest(RandomForest<Double> expected, RandomForest<Double> actual) {
+
+		if (expected.numTrees() != actual.numTrees()) {
+			return false;
+		}
+
+		for (int t=0; t<expected.numTrees(); t++) {
+			CompiledTree expectedTree = expected.tree(t).compiledTree();
+			CompiledTree actualTree = actual.tree(t).compiledTree();
+
+			if (!Arrays.equals(expectedTree.feature, actualTree.feature) || !Arrays.equals(expectedTree.threshold, actualTree.threshold)
+					|| !Arrays.equals(expectedTree.classLabel, actualTree.classLabel)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Test
+	void forestsWithTheSameSeedAreTheSame() {
+
+		ClassifierData<Double> data = TestData.synthetic(5000, 6, 70);
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+		try {
+			for (SplitMode splitMode : SplitMode.values()) {
+
+				RandomForest<Double> forest = forest(data, splitMode, 7, null);
+
+				assertEquals(10, forest.numTrees());
+				assertTrue(sameForest(forest, forest(data, splitMode, 7, null)), splitMode.toString());
+
+				// trees built in parallel don't depend on the order they are built in
+				assertTrue(sameForest(forest, forest(data, splitMode, 7, forkJoinPool)), splitMode.toString());
+
+				assertFalse(sameForest(forest, forest(data, splitMode, 8, null)), splitMode.toString());
+			}
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	@Test
+	void classifyAllEqualsClassifyingOneSampleAtATime() {
+
+		ClassifierData<Double> train = TestData.synthetic(4000, 6, 71);
+		ClassifierData<Double> test = TestData.synthetic(20 * CompiledTree.BLOCK_SIZE + 11, 6, 72);
+
+		RandomForest<Double> forest = forest(train, SplitMode.EXACT, 3, null);
+
+		int[] expected = new int[test.numSamples()];
+		for (int i=0; i<expected.length; i++) {
+			expected[i] = forest.classify(TestData.sample(test, i));
+			assertEquals(expected[i], forest.classify(test.sample(i)).intValue());
+		}
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(3);
+		try {
+			assertArrayEquals(expected, forest.classifyAll(test));
+			assertArrayEquals(expected, forest.classifyAll(test, forkJoinPool));
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	@Test
+	void forestIsMoreAccurateThanChance() {
+
+		ClassifierData<Double> train = TestData.synthetic(5000, 6, 73);
+		ClassifierData<Double> test = TestData.synthetic(2000, 6, 74);
+
+		RandomForestBuilder<Double> forestBuilder = new RandomForestBuilder<Double>();
+		forestBuilder.setNumTrees(20);
+		forestBuilder.setSplitMode(SplitMode.EXACT);
+		forestBuilder.build(train);
+
+		// always predicting the most common class is right for at most this fraction of the samples
+		int[] classCounts = new int[2];
+		test.countClasses(classCounts);
+		double chance = (double) Math.max(classCounts[0], classCounts[1]) / test.numSamples();
+
+		assertTrue(forestBuilder.test(test) > chance + 0.1);
+	}
+
+	@Test
+	void bootstrapSamplesAreDrawnFromTheSeed() {
+
+		int[] sampleNums = RandomForestBuilder.bootstrapSample(1000, 5);
+
+		assertArrayEquals(sampleNums, RandomForestBuilder.bootstrapSample(1000, 5));
+		assertFalse(Arrays.equals(sampleNums, RandomForestBuilder.bootstrapSample(1000, 6)));
+
+		for (int sampleNum : sampleNums) {
+			assertTrue(sampleNum >= 0 && sampleNum < 1000);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of DecisionTree.relayout, alone and while other threads are classifying
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class RelayoutTest {
+
+	// returns the prediction of the tree for each sample, classified one at a time
+	private static int[] classifyEach(DecisionTree<Double> tree, double[][] samples) {
+
+		int[] predictions = new int[samples.length];
+
+		for (int i=0; i<samples.length; i++) {
+			predictions[i] = tree.classify(samples[i]);
+		}
+		return predictions;
+	}
+
+	// returns every sample of the given data
+	private static double[][] samples(ClassifierData<Double> data) {
+
+		double[][] samples = new double[data.numSamples()][];
+
+		for (int i=0; i<samples.length; i++) {
+			samples[i] = TestData.sample(data, i);
+		}
+		return samples;
+	}
+
+	@Test
+	void relayoutLeavesPredictionsUnchanged() {
+
+		ClassifierData<Double> train = TestData.synthetic(5000, 5, 20);
+		ClassifierData<Double> test = TestData.synthetic(2000, 5, 21);
+		double[][] samples = samples(test);
+
+		DecisionTree<Double> tree = new DecisionTree<Double>(train, 10);
+		int[] expected = classifyEach(tree, samples);
+
+		tree.relayout(train);
+
+		assertArrayEquals(expected, classifyEach(tree, samples));
+		assertArrayEquals(expected, tree.classifyAll(test));
+
+		// laid out from the leaves counted by the metrics, with the tree compiled into bytecode
+		tree.compileBytecode();
+		tree.enableMetrics();
+		tree.classifyAll(test);
+		tree.relayout(tree.metricsSnapshot().leafHits());
+
+		assertArrayEquals(expected, classifyEach(tree, samples));
+
+		// the metrics are restarted and count the leaves of the new layout
+		InferenceSnapshot snapshot = tree.metricsSnapshot();
+		assertEquals(samples.length, snapshot.numSamples());
+		assertEquals(tree.compiledTree().numNodes(), snapshot.leafHits().length);
+	}
+
+	@Test
+	void relayoutWithoutLeafHitsLeavesPredictionsUnchanged() {
+
+		ClassifierData<Double> train = TestData.synthetic(1000, 3, 22);
+		DecisionTree<Double> tree = new DecisionTree<Double>(train, 6);
+
+		long[] leafHits = new long[tree.compiledTree().numNodes()];
+		tree.relayout(leafHits);
+
+		assertArrayEquals(new DecisionTree<Double>(train, 6).classifyAll(train), tree.classifyAll(train));
+	}
+
+	@Test
+	void classifyWhileRelayoutAndPruneReplaceTheTree() throws InterruptedException {
+
+		ClassifierData<Double> train = TestData.synthetic(5000, 5, 23);
+		ClassifierData<Double> test = TestData.synthetic(2000, 5, 24);
+		double[][] samples = samples(test);
+
+		double ccpAlpha = 0.002;
+
+		// the predictions before and after pruning, from identical trees
+		DecisionTree<Double> tree = new DecisionTree<Double>(train, 12);
+		int[] unpruned = classifyEach(tree, samples);
+
+		DecisionTree<Double> prunedTree = new DecisionTree<Double>(train, 12);
+		prunedTree.prune(ccpAlpha);
+		int[] pruned = classifyEach(prunedTree, samples);
+
+		assertTrue(tree.numNodes() > prunedTree.numNodes());
+
+		tree.compileBytecode();
+		tree.enableMetrics();
+
+		AtomicBoolean stop = new AtomicBoolean();
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+
+		for (int t=0; t<3; t++) {
+			Thread thread = new Thread(() -> {
+				try {
+					while (!stop.get()) {
+						for (int i=0; i<samples.length; i++) {
+							int label = tree.classify(samples[i]);
+
+							if (label != unpruned[i] && label != pruned[i]) {
+								throw new AssertionError("sample " + i + " classified as " + label);
+							}
+						}
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+
+		try {
+			for (int round=0; round<20; round++) {
+				tree.relayout(train);
+				tree.relayout(tree.metricsSnapshot().leafHits());
+
+				if (round == 10) {
+					tree.prune(ccpAlpha);
+				}
+			}
+		} finally {
+			stop.set(true);
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		}
+
+		assertNull(failure.get());
+		assertArrayEquals(pruned, classifyEach(tree, samples));
+		assertTrue(tree.metricsEnabled());
+		assertEquals(tree.compiledTree().numNodes(), tree.metricsSnapshot().leafHits().length);
+	}
+}
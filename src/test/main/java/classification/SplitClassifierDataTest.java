@@ -0,0 +1,139 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of splitting ClassifierData into views with SplitClassifierData
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class SplitClassifierDataTest {
+
+	// returns each sample of the given data with its label, in sorted order so that samples can be compared regardless of their order
+	private static List<String> sortedSamples(ClassifierData<Double> data) {
+
+		List<String> samples = new ArrayList<String>();
+
+		for (int i=0; i<data.numSamples(); i++) {
+			samples.add(Arrays.toString(TestData.sample(data, i)) + " " + data.label(i));
+		}
+		Collections.sort(samples);
+		return samples;
+	}
+
+	// returns a copy of the samples of the given data whose value of featureNum is <= splittingValue if left, or > splittingValue otherwise
+	private static ClassifierData<Double> filter(ClassifierData<Double> data, int featureNum, double splittingValue, boolean left) {
+
+		List<Integer> sampleNums = new ArrayList<Integer>();
+
+		for (int i=0; i<data.numSamples(); i++) {
+			if ((data.featureValue(i, featureNum) <= splittingValue) == left) {
+				sampleNums.add(i);
+			}
+		}
+
+		double[][] columns = new double[data.numFeatures()][sampleNums.size()];
+		int[] labels = new int[sampleNums.size()];
+
+		for (int i=0; i<labels.length; i++) {
+			for (int j=0; j<columns.length; j++) {
+				columns[j][i] = data.featureValue(sampleNums.get(i), j);
+			}
+			labels[i] = data.label(sampleNums.get(i));
+		}
+		return new ClassifierData<Double>(columns, labels);
+	}
+
+	@Test
+	void viewsHoldTheSamplesOfCopies() {
+
+		ClassifierData<Double> data = TestData.synthetic(2000, 4, 44);
+		ClassifierData<Double> original = TestData.synthetic(2000, 4, 44);
+
+		SplitClassifierData<Double> split = new SplitClassifierData<Double>(data, 1, 0.5);
+
+		assertTrue(split.validSplit());
+		assertTrue(split.leftData().isView());
+		assertEquals(sortedSamples(filter(data, 1, 0.5, true)), sortedSamples(split.leftData()));
+		assertEquals(sortedSamples(filter(data, 1, 0.5, false)), sortedSamples(split.rightData()));
+
+		// splitting a view again splits only the samples of the view
+		SplitClassifierData<Double> leftSplit = new SplitClassifierData<Double>(split.leftData(), 0, -1.0);
+		ClassifierData<Double> leftCopy = filter(data, 1, 0.5, true);
+
+		assertEquals(sortedSamples(filter(leftCopy, 0, -1.0, true)), sortedSamples(leftSplit.leftData()));
+		assertEquals(sortedSamples(filter(leftCopy, 0, -1.0, false)), sortedSamples(leftSplit.rightData()));
+
+		// the split data is unchanged
+		for (int i=0; i<data.numSamples(); i++) {
+			assertArrayEquals(TestData.sample(original, i), TestData.sample(data, i));
+			assertEquals(original.label(i), data.label(i));
+		}
+	}
+
+	@Test
+	void removedFeatureIsLeftOutOfTheViews() {
+
+		ClassifierData<Double> data = TestData.synthetic(500, 4, 45);
+
+		SplitClassifierData<Double> split = new SplitClassifierData<Double>(data, 2, 0.0, true);
+		ClassifierData<Double> left = split.leftData();
+		ClassifierData<Double> leftCopy = filter(data, 2, 0.0, true);
+
+		assertEquals(3, left.numFeatures());
+		assertEquals(leftCopy.numSamples(), left.numSamples());
+
+		// every sample of the view is a sample of the copy without feature 2
+		List<String> expected = new ArrayList<String>();
+		for (int i=0; i<leftCopy.numSamples(); i++) {
+			double[] sample = TestData.sample(leftCopy, i);
+			expected.add(Arrays.toString(new double[] {sample[0], sample[1], sample[3]}) + " " + leftCopy.label(i));
+		}
+		Collections.sort(expected);
+
+		assertEquals(expected, sortedSamples(left));
+	}
+
+	@Test
+	void splitBySampleNumberKeepsTheOrderOfSamples() {
+
+		ClassifierData<Double> data = TestData.synthetic(100, 3, 46);
+
+		SplitClassifierData<Double> split = new SplitClassifierData<Double>(data, 59);
+
+		assertEquals(60, split.leftData().numSamples());
+		assertEquals(40, split.rightData().numSamples());
+
+		for (int i=0; i<data.numSamples(); i++) {
+			ClassifierData<Double> part = i < 60 ? split.leftData() : split.rightData();
+			int sampleNum = i < 60 ? i : i - 60;
+
+			assertArrayEquals(TestData.sample(data, i), TestData.sample(part, sampleNum));
+			assertEquals(data.label(i), part.label(sampleNum));
+		}
+	}
+
+	@Test
+	void splitLeavingOneSideEmptyIsNotValid() {
+
+		ClassifierData<Double> data = new ClassifierData<Double>(new double[][] {{1, 2, 3}}, new int[] {0, 1, 0});
+
+		assertFalse(new SplitClassifierData<Double>(data, 0, 3.0).validSplit());
+		assertFalse(new SplitClassifierData<Double>(data, 0, 0.5).validSplit());
+		assertTrue(new SplitClassifierData<Double>(data, 0, 2.0).validSplit());
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the class counts and impurities used by TreeNode to search for the best split
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class SplitSearchTest {
+
+	@Test
+	void countSplitMatchesCountingEachSample() {
+
+		ClassifierData<Double> columns = TestData.synthetic(1000, 3, 47);
+		ClassifierData<Double> rows = new ClassifierData<Double>(columns.getDataArray(), columns.labelData());
+		ClassifierData<Double> view = new SplitClassifierData<Double>(columns, 0, 1.0).rightData();
+
+		for (ClassifierData<Double> data : new ClassifierData[] {columns, rows, view}) {
+
+			int[] expectedClassCounts = new int[2];
+			for (int i=0; i<data.numSamples(); i++) {
+				expectedClassCounts[data.label(i)]++;
+			}
+
+			int[] classCounts = new int[2];
+			data.countClasses(classCounts);
+			assertArrayEquals(expectedClassCounts, classCounts);
+
+			for (int j=0; j<data.numFeatures(); j++) {
+				for (double splittingValue : new double[] {-5.0, 0.0, 0.5, 12.0}) {
+
+					int[] expectedLeft = new int[2];
+					int expectedNumLeft = 0;
+					for (int i=0; i<data.numSamples(); i++) {
+						if (data.featureValue(i, j) <= splittingValue) {
+							expectedLeft[data.label(i)]++;
+							expectedNumLeft++;
+						}
+					}
+
+					int[] leftClassCounts = new int[2];
+					assertEquals(expectedNumLeft, data.countSplit(j, splittingValue, leftClassCounts));
+					assertArrayEquals(expectedLeft, leftClassCounts);
+				}
+			}
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> columns.countClasses(new int[1]));
+	}
+
+	@Test
+	void impurityOfClassCounts() {
+
+		assertEquals(0.0, TreeNode.entropy(new int[] {10, 0}, 10));
+		assertEquals(1.0, TreeNode.entropy(new int[] {5, 5}, 10), 1e-12);
+		assertEquals(TreeNode.log2(3), TreeNode.entropy(new int[] {4, 4, 4}, 12), 1e-12);
+
+		assertEquals(0.0, TreeNode.gini(new int[] {0, 7}, 7));
+		assertEquals(0.5, TreeNode.gini(new int[] {5, 5}, 10), 1e-12);
+		assertEquals(0.0, TreeNode.gini(new int[] {0, 0}, 0));
+	}
+
+	@Test
+	void rootSplitsOnTheFeatureThatSeparatesTheClasses() {
+
+		Random random = new Random(48);
+		double[][] columns = new double[3][200];
+		int[] labels = new int[200];
+
+		// feature 1 is the class label with noise, the other features are noise.
+		// There are fewer samples than histogram bins, so every split mode can find the split between the classes
+		for (int i=0; i<labels.length; i++) {
+			labels[i] = random.nextInt(2);
+			columns[0][i] = random.nextDouble() * 10;
+			columns[1][i] = labels[i] * 10 + random.nextDouble();
+			columns[2][i] = random.nextDouble() * 10;
+		}
+		ClassifierData<Double> data = new ClassifierData<Double>(columns, labels);
+
+		for (SplitMode splitMode : SplitMode.values()) {
+			for (SplitCriterion splitCriterion : SplitCriterion.values()) {
+
+				DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+				treeBuilder.setSplitMode(splitMode);
+				treeBuilder.setSplitCriterion(splitCriterion);
+				treeBuilder.build(data);
+
+				TreeNode<Double> rootNode = treeBuilder.classifier().rootNode;
+
+				assertEquals(1, rootNode.splittingColumn, splitMode + " " + splitCriterion);
+				assertEquals(3, treeBuilder.classifier().numNodes(), splitMode + " " + splitCriterion);
+				assertEquals(1.0, treeBuilder.test(data), splitMode + " " + splitCriterion);
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic datasets used by the tests
+ * 
+ * @author Marc Wrigley
+ *
+ */
+final class TestData {
+
+	private TestData() {
+	}
+
+	/**
+	 * Returns numSamples samples of numFeatures features, rounded to two decimal places, labelled 0 or 1
+	 * by a noisy function of the first three features. numFeatures must be at least 3.
+	 * 
+	 * @param numSamples
+	 * @param numFeatures
+	 * @param seed
+	 */
+	static ClassifierData<Double> synthetic(int numSamples, int numFeatures, long seed) {
+
+		Random random = new Random(seed);
+
+		double[][] columns = new double[numFeatures][numSamples];
+		int[] labels = new int[numSamples];
+
+		for (int i=0; i<numSamples; i++) {
+			for (int j=0; j<numFeatures; j++) {
+				columns[j][i] = Math.round(random.nextGaussian() * 1000) / 100.0;
+			}
+
+			// one sample in eight is mislabelled, so trees grow deep
+			boolean positive = columns[0][i] + columns[1][i] * columns[2][i] > 0.5;
+			labels[i] = positive ^ random.nextInt(8) == 0 ? 1 : 0;
+		}
+
+		return new ClassifierData<Double>(columns, labels);
+	}
+
+	/**
+	 * Returns the feature values of the given sample
+	 * 
+	 * @param data
+	 * @param sampleNum
+	 */
+	static double[] sample(ClassifierData<?> data, int sampleNum) {
+
+		double[] sample = new double[data.numFeatures()];
+
+		for (int j=0; j<sample.length; j++) {
+			sample[j] = data.featureValue(sampleNum, j);
+		}
+		return sample;
+	}
+
+	/**
+	 * Writes the given data to a CSV file with a header line, followed by the given class label of each sample in the last column
+	 * 
+	 * @param data
+	 * @param labels
+	 * @param outputFilePath
+	 */
+	static void writeCsv(ClassifierData<?> data, int[] labels, String outputFilePath) throws IOException {
+
+		StringBuilder csv = new StringBuilder();
+
+		for (int j=0; j<data.numFeatures(); j++) {
+			csv.append("f").append(j).append(',');
+		}
+		csv.append("label\n");
+
+		for (int i=0; i<data.numSamples(); i++) {
+			for (int j=0; j<data.numFeatures(); j++) {
+				csv.append(data.featureValue(i, j)).append(',');
+			}
+			csv.append(labels[i]).append('\n');
+		}
+
+		Files.write(Paths.get(outputFilePath), csv.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the metrics a DecisionTreeBuilder passes to its TrainingListener
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class TrainingListenerTest {
+
+	/**
+	 * Records every call made to it, nodes may be built on several threads at once
+	 */
+	private static class RecordingListener implements TrainingListener {
+
+		// metrics of each node by node ID, as the node starts being built and once it has been built
+		final Map<String, NodeMetrics> startedNodes = new ConcurrentHashMap<String, NodeMetrics>();
+		final Map<String, NodeMetrics> builtNodes = new ConcurrentHashMap<String, NodeMetrics>();
+
+		// number of calls of each method
+		final AtomicInteger numNodesStarted = new AtomicInteger();
+		final AtomicInteger numNodesBuilt = new AtomicInteger();
+		final AtomicInteger numTreesStarted = new AtomicInteger();
+		final AtomicInteger numTreesBuilt = new AtomicInteger();
+
+		// metrics passed to treeStarted and treeBuilt
+		volatile TrainingMetrics startedTree;
+		volatile TrainingMetrics builtTree;
+
+		@Override
+		public void nodeStarted(NodeMetrics node) {
+			numNodesStarted.incrementAndGet();
+			startedNodes.put(node.nodeID(), node);
+		}
+
+		@Override
+		public void nodeBuilt(NodeMetrics node) {
+			numNodesBuilt.incrementAndGet();
+			builtNodes.put(node.nodeID(), node);
+		}
+
+		@Override
+		public void treeStarted(TrainingMetrics metrics) {
+			numTreesStarted.incrementAndGet();
+			startedTree = metrics;
+		}
+
+		@Override
+		public void treeBuilt(TrainingMetrics metrics) {
+			numTreesBuilt.incrementAndGet();
+			builtTree = metrics;
+		}
+	}
+
+	// asserts that the listener was called once for each node of the tree, and once for the tree
+	private static void assertCalledForEveryNode(RecordingListener listener, DecisionTree<Double> tree, int numSamples) {
+
+		int numNodes = tree.numNodes();
+
+		assertEquals(1, listener.numTreesStarted.get());
+		assertEquals(1, listener.numTreesBuilt.get());
+		assertSame(listener.startedTree, listener.builtTree);
+
+		assertEquals(numNodes, listener.numNodesStarted.get());
+		assertEquals(numNodes, listener.numNodesBuilt.get());
+		assertEquals(numNodes, listener.builtNodes.size());
+
+		int numLeaves = 0;
+		for (NodeMetrics node : listener.builtNodes.values()) {
+
+			// the same metrics are passed as the node starts and once it has been built
+			assertSame(listener.startedNodes.get(node.nodeID()), node);
+			assertEquals(node.nodeID().length(), node.nodeDepth());
+			assertTrue(node.rowsScanned() >= node.numSamples());
+
+			if (node.isLeaf()) {
+				numLeaves++;
+			}
+		}
+		assertEquals(numSamples, listener.builtNodes.get("0").numSamples());
+
+		TrainingMetrics metrics = listener.builtTree;
+
+		assertEquals(numNodes, metrics.numNodes());
+		assertEquals(numLeaves, metrics.numLeaves());
+
+		// every node that isn't a leaf has two children
+		assertEquals(numNodes - numLeaves, numLeaves - 1);
+
+		assertEquals(numNodes, Arrays.stream(metrics.nodesPerDepth()).sum());
+		assertEquals(tree.TreeDepth(), metrics.nodesPerDepth().length);
+		assertEquals(1, metrics.nodesAtDepth(1));
+		assertTrue(metrics.rowsScanned() > 0);
+		assertTrue(metrics.candidateSplits() > 0);
+		assertTrue(metrics.buildNanos() > 0);
+	}
+
+	@Test
+	void listenerIsCalledForEveryNode() {
+
+		ClassifierData<Double> data = TestData.synthetic(5000, 5, 81);
+
+		for (SplitMode splitMode : SplitMode.values()) {
+
+			RecordingListener listener = new RecordingListener();
+
+			DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+			treeBuilder.setSplitMode(splitMode);
+			treeBuilder.setTrainingListener(listener);
+			treeBuilder.build(data);
+
+			assertCalledForEveryNode(listener, treeBuilder.classifier(), data.numSamples());
+		}
+	}
+
+	@Test
+	void listenerIsCalledForEveryNodeBuiltInParallel() {
+
+		ClassifierData<Double> data = TestData.synthetic(20000, 6, 82);
+
+		ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+		try {
+			RecordingListener listener = new RecordingListener();
+
+			DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+			treeBuilder.setSplitMode(SplitMode.HISTOGRAM);
+			treeBuilder.setForkJoinPool(forkJoinPool);
+			treeBuilder.setParallelCutoff(50);
+			treeBuilder.setFeatureParallelCutoff(1000);
+			treeBuilder.setTrainingListener(listener);
+			treeBuilder.build(data);
+
+			assertCalledForEveryNode(listener, treeBuilder.classifier(), data.numSamples());
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+}
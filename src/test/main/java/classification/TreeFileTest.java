@@ -0,0 +1,125 @@
+/**
+ * 
+ */
+package main.java.classification;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of saving and loading trees with TreeFile
+ * 
+ * @author Marc Wrigley
+ *
+ */
+class TreeFileTest {
+
+	@TempDir
+	Path tempDir;
+
+	// returns a tree built from synthetic data read from a CSV file, whose class labels are 3 and 8
+	private DecisionTree<Double> buildTree() throws IOException {
+
+		ClassifierData<Double> synthetic = TestData.synthetic(2000, 4, 6);
+
+		int[] labels = new int[synthetic.numSamples()];
+		for (int i=0; i<labels.length; i++) {
+			labels[i] = synthetic.label(i) == 0 ? 3 : 8;
+		}
+
+		Path csv = tempDir.resolve("train.csv");
+		TestData.writeCsv(synthetic, labels, csv.toString());
+
+		DecisionTreeBuilder<Double> treeBuilder = new DecisionTreeBuilder<Double>();
+		treeBuilder.build(new CsvReader().read(csv.toString()));
+
+		return treeBuilder.classifier();
+	}
+
+	@Test
+	void roundTripKeepsPredictionsNamesAndClassValues() throws IOException {
+
+		DecisionTree<Double> tree = buildTree();
+
+		Path file = tempDir.resolve("tree.dtree");
+		tree.save(file.toString());
+
+		DecisionTree<Double> loaded = DecisionTree.load(file.toString());
+
+		assertEquals(tree.numNodes(), loaded.numNodes());
+		assertArrayEquals(tree.featureNames(), loaded.featureNames());
+		assertArrayEquals(new int[] {3, 8}, loaded.classValues());
+
+		ClassifierData<Double> data = TestData.synthetic(2000, 4, 7);
+
+		for (int i=0; i<data.numSamples(); i++) {
+			double[] sample = TestData.sample(data, i);
+			assertEquals(tree.classify(sample), loaded.classify(sample));
+		}
+		assertArrayEquals(tree.classifyAll(data), loaded.classifyAll(data));
+	}
+
+	@Test
+	void roundTripWithoutClassValues() throws IOException {
+
+		DecisionTree<Double> tree = new DecisionTree<Double>(TestData.synthetic(1000, 3, 8));
+
+		Path file = tempDir.resolve("tree.dtree");
+		tree.save(file.toString());
+
+		DecisionTree<Double> loaded = DecisionTree.load(file.toString());
+
+		assertNull(loaded.classValues());
+		assertArrayEquals(tree.classifyAll(TestData.synthetic(500, 3, 9)), loaded.classifyAll(TestData.synthetic(500, 3, 9)));
+	}
+
+	@Test
+	void rejectsTruncatedAndCorruptFiles() throws IOException {
+
+		Path file = tempDir.resolve("tree.dtree");
+		buildTree().save(file.toString());
+		byte[] bytes = Files.readAllBytes(file);
+
+		// every truncation of the file
+		for (int length=0; length<bytes.length; length+=5) {
+			Files.write(file, Arrays.copyOf(bytes, length));
+			assertThrows(IllegalArgumentException.class, () -> DecisionTree.load(file.toString()), "length " + length);
+		}
+
+		// a wrong magic number
+		byte[] corrupt = bytes.clone();
+		corrupt[0]++;
+		Files.write(file, corrupt);
+		assertThrows(IllegalArgumentException.class, () -> DecisionTree.load(file.toString()));
+
+		// an unsupported version
+		corrupt = bytes.clone();
+		ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(4, TreeFile.VERSION + 1);
+		Files.write(file, corrupt);
+		assertThrows(IllegalArgumentException.class, () -> DecisionTree.load(file.toString()));
+
+		// a number of nodes larger than the file
+		corrupt = bytes.clone();
+		ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(8, Integer.MAX_VALUE);
+		Files.write(file, corrupt);
+		assertThrows(IllegalArgumentException.class, () -> DecisionTree.load(file.toString()));
+
+		// a number of features larger than the file
+		corrupt = bytes.clone();
+		ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(12, Integer.MAX_VALUE);
+		Files.write(file, corrupt);
+		assertThrows(IllegalArgumentException.class, () -> DecisionTree.load(file.toString()));
+	}
+}